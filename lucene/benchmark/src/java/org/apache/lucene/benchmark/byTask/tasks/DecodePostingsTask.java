@@ -0,0 +1,131 @@
+package org.apache.lucene.benchmark.byTask.tasks;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.benchmark.byTask.PerfRunData;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+
+/**
+ * Decodes the doc IDs and frequencies of all postings of the index, in
+ * order to measure postings decoding throughput. Each decoded posting
+ * counts as one record.
+ * <p>
+ * Takes an optional param: <code>bulk</code> (default) to read postings with
+ * {@link PostingsEnum#nextDocs(int[], int[])}, or <code>nextDoc</code> to
+ * read them one document at a time.
+ * <br>Other side effects: none.
+ */
+public class DecodePostingsTask extends PerfTask {
+
+  private boolean bulk = true;
+  private long totalPostings;
+  // sum of decoded doc IDs and freqs, so that decoding can't be optimized away
+  private long checksum;
+
+  public DecodePostingsTask(PerfRunData runData) {
+    super(runData);
+  }
+
+  @Override
+  public int doLogic() throws Exception {
+    IndexReader reader = getRunData().getIndexReader();
+    final boolean closeReader;
+    if (reader == null) {
+      reader = DirectoryReader.open(getRunData().getDirectory());
+      closeReader = true;
+    } else {
+      closeReader = false;
+    }
+
+    long count = 0;
+    final int[] docs = new int[128];
+    final int[] freqs = new int[128];
+    try {
+      for (LeafReaderContext context : reader.leaves()) {
+        final LeafReader leaf = context.reader();
+        final Fields fields = leaf.fields();
+        if (fields == null) {
+          continue;
+        }
+        PostingsEnum postings = null;
+        for (String field : fields) {
+          final Terms terms = fields.terms(field);
+          if (terms == null) {
+            continue;
+          }
+          final TermsEnum termsEnum = terms.iterator();
+          while (termsEnum.next() != null) {
+            postings = termsEnum.postings(leaf.getLiveDocs(), postings, PostingsEnum.FREQS);
+            if (bulk) {
+              for (int n = postings.nextDocs(docs, freqs); n != 0; n = postings.nextDocs(docs, freqs)) {
+                for (int i = 0; i < n; ++i) {
+                  checksum += docs[i] + freqs[i];
+                }
+                count += n;
+              }
+            } else {
+              for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                checksum += doc + postings.freq();
+                count++;
+              }
+            }
+          }
+        }
+      }
+    } finally {
+      if (closeReader) {
+        reader.close();
+      } else {
+        reader.decRef();
+      }
+    }
+    totalPostings += count;
+    return (int) Math.min(Integer.MAX_VALUE, count);
+  }
+
+  @Override
+  protected String getLogMessage(int recsCount) {
+    return "decoded " + totalPostings + " postings (" + (bulk ? "bulk" : "nextDoc") + ", checksum=" + checksum + ")";
+  }
+
+  @Override
+  public void setParams(String params) {
+    super.setParams(params);
+    if ("bulk".equals(params)) {
+      bulk = true;
+    } else if ("nextDoc".equals(params)) {
+      bulk = false;
+    } else {
+      throw new IllegalArgumentException("unknown param: " + params + ", expected bulk or nextDoc");
+    }
+  }
+
+  @Override
+  public boolean supportsParams() {
+    return true;
+  }
+}
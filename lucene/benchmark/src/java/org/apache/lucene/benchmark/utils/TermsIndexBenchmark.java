@@ -0,0 +1,193 @@
+package org.apache.lucene.benchmark.utils;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader.FSTLoadMode;
+import org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat;
+import org.apache.lucene.codecs.perfield.PerFieldPostingsFormat;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+
+/**
+ * Compares <code>seekExact</code> throughput and heap usage of the terms
+ * index when it is loaded on the heap and when it is read from a
+ * memory-mapped file, see {@link FSTLoadMode}.
+ * <p>
+ * Usage: <code>TermsIndexBenchmark indexPath field [numLookups]</code>
+ * <p>
+ * The field must use {@link Lucene50PostingsFormat}. Lookups are performed
+ * on every segment, as for primary key lookups, and half of the looked up
+ * terms do not exist in the index.
+ */
+public class TermsIndexBenchmark {
+
+  private static final int MAX_SAMPLED_TERMS = 100000;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2 || args.length > 3) {
+      System.err.println("Usage: TermsIndexBenchmark indexPath field [numLookups]");
+      System.exit(1);
+    }
+    final String field = args[1];
+    final int numLookups = args.length == 3 ? Integer.parseInt(args[2]) : 1000000;
+
+    try (Directory dir = new MMapDirectory(Paths.get(args[0]));
+        DirectoryReader reader = DirectoryReader.open(dir)) {
+      final BytesRef[] lookups = sampleTerms(reader, field, new Random(0));
+      System.out.println("Sampled " + lookups.length + " terms from " + reader.leaves().size() + " segments");
+      for (int round = 0; round < 3; ++round) {
+        for (FSTLoadMode mode : new FSTLoadMode[] { FSTLoadMode.ON_HEAP, FSTLoadMode.OFF_HEAP }) {
+          run(reader, field, mode, lookups, numLookups);
+        }
+      }
+    }
+  }
+
+  /** Pick random existing terms, and derive one missing term from each of them. */
+  private static BytesRef[] sampleTerms(DirectoryReader reader, String field, Random random) throws IOException {
+    final List<BytesRef> sample = new ArrayList<>();
+    long seen = 0;
+    for (LeafReaderContext context : reader.leaves()) {
+      final Terms terms = context.reader().terms(field);
+      if (terms == null) {
+        continue;
+      }
+      final TermsEnum termsEnum = terms.iterator();
+      for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+        // reservoir sampling
+        seen++;
+        if (sample.size() < MAX_SAMPLED_TERMS) {
+          sample.add(BytesRef.deepCopyOf(term));
+        } else {
+          final long slot = (random.nextLong() & Long.MAX_VALUE) % seen;
+          if (slot < MAX_SAMPLED_TERMS) {
+            sample.set((int) slot, BytesRef.deepCopyOf(term));
+          }
+        }
+      }
+    }
+    if (sample.isEmpty()) {
+      throw new IllegalArgumentException("field " + field + " has no terms");
+    }
+    final BytesRef[] lookups = new BytesRef[2 * sample.size()];
+    for (int i = 0; i < sample.size(); ++i) {
+      final BytesRef term = sample.get(i);
+      lookups[2 * i] = term;
+      final BytesRef missing = new BytesRef(term.length + 1);
+      System.arraycopy(term.bytes, term.offset, missing.bytes, 0, term.length);
+      missing.bytes[term.length] = (byte) random.nextInt(256);
+      missing.length = term.length + 1;
+      lookups[2 * i + 1] = missing;
+    }
+    for (int i = lookups.length - 1; i > 0; --i) {
+      final int j = random.nextInt(i + 1);
+      final BytesRef tmp = lookups[i];
+      lookups[i] = lookups[j];
+      lookups[j] = tmp;
+    }
+    return lookups;
+  }
+
+  private static void run(DirectoryReader reader, String field, FSTLoadMode mode,
+      BytesRef[] lookups, int numLookups) throws IOException {
+    final List<Closeable> toClose = new ArrayList<>();
+    try {
+      final List<TermsEnum> termsEnums = new ArrayList<>();
+      long ramBytesUsed = 0;
+      final long openStart = System.nanoTime();
+      for (LeafReaderContext context : reader.leaves()) {
+        final FieldsProducer producer = openFieldsProducer((SegmentReader) context.reader(), field, mode, toClose);
+        if (producer == null) {
+          continue;
+        }
+        ramBytesUsed += producer.ramBytesUsed();
+        final Terms terms = producer.terms(field);
+        if (terms != null) {
+          termsEnums.add(terms.iterator());
+        }
+      }
+      final long openTimeNS = System.nanoTime() - openStart;
+
+      long found = 0;
+      final long start = System.nanoTime();
+      for (int i = 0; i < numLookups; ++i) {
+        final BytesRef term = lookups[i % lookups.length];
+        for (TermsEnum termsEnum : termsEnums) {
+          if (termsEnum.seekExact(term)) {
+            found++;
+            break;
+          }
+        }
+      }
+      final long timeNS = System.nanoTime() - start;
+      System.out.println(String.format(Locale.ROOT,
+          "%-8s open=%.1f ms heap=%d bytes lookups/sec=%.0f (found=%d)",
+          mode, openTimeNS / 1000000., ramBytesUsed, numLookups * 1000000000. / timeNS, found));
+    } finally {
+      IOUtils.close(toClose);
+    }
+  }
+
+  /** Open the postings of a single field of a segment with the given load mode. */
+  private static FieldsProducer openFieldsProducer(SegmentReader reader, String field, FSTLoadMode mode,
+      List<Closeable> toClose) throws IOException {
+    final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+    if (fieldInfo == null) {
+      return null;
+    }
+    final String formatName = fieldInfo.getAttribute(PerFieldPostingsFormat.PER_FIELD_FORMAT_KEY);
+    final String suffix = fieldInfo.getAttribute(PerFieldPostingsFormat.PER_FIELD_SUFFIX_KEY);
+    if ("Lucene50".equals(formatName) == false) {
+      throw new IllegalArgumentException("field " + field + " uses postings format " + formatName + ", expected Lucene50");
+    }
+    final SegmentInfo si = reader.getSegmentInfo().info;
+    Directory dir = reader.directory();
+    if (si.getUseCompoundFile()) {
+      dir = si.getCodec().compoundFormat().getCompoundReader(dir, si, IOContext.READ);
+      toClose.add(dir);
+    }
+    final SegmentReadState state = new SegmentReadState(dir, si, reader.getFieldInfos(), IOContext.READ, formatName + "_" + suffix,
+        Collections.singletonMap(BlockTreeTermsReader.FST_MODE_KEY, mode.name()));
+    final FieldsProducer producer = new Lucene50PostingsFormat().fieldsProducer(state);
+    toClose.add(producer);
+    return producer;
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.lucene.codecs.blocktree;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -36,7 +37,10 @@ import org.apache.lucene.index.SegmentReadState;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.PrefixQuery;  // javadocs
 import org.apache.lucene.search.TermRangeQuery;  // javadocs
+import org.apache.lucene.store.BufferedIndexInput;
+import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.RandomAccessInput;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
 import org.apache.lucene.util.BytesRef;
@@ -73,6 +77,11 @@ import org.apache.lucene.util.fst.Outputs;
  *  but with added logic to break up too-large blocks of all
  *  terms sharing a given prefix into smaller ones.</p>
  *
+ *  <p>The terms index of each field is either loaded on the heap or read
+ *  directly from the terms index file, see {@link FSTLoadMode}. The mode
+ *  can be chosen when opening a reader through the {@link #FST_MODE_KEY}
+ *  reader attribute, and defaults to {@link FSTLoadMode#ON_HEAP}.</p>
+ *
  *  <p>Use {@link org.apache.lucene.index.CheckIndex} with the <code>-verbose</code>
  *  option to see summary statistics on the blocks in the
  *  dictionary.
@@ -110,9 +119,45 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   static final String TERMS_INDEX_EXTENSION = "tip";
   final static String TERMS_INDEX_CODEC_NAME = "BlockTreeTermsIndex";
 
+  /**
+   * Name of the {@link SegmentReadState#readerAttributes reader attribute}
+   * that holds the name of the {@link FSTLoadMode} to use, e.g.
+   * <code>OFF_HEAP</code>.
+   * @see org.apache.lucene.index.DirectoryReader#open(org.apache.lucene.store.Directory, java.util.Map)
+   * @see org.apache.lucene.index.IndexWriterConfig#setReaderAttributes(java.util.Map)
+   */
+  public static final String FST_MODE_KEY = "blocktree.terms.fst";
+
+  /**
+   * Whether the FST of the terms index of a field should be loaded on the
+   * heap or read directly from the terms index file.
+   */
+  public enum FSTLoadMode {
+    /** Always load the terms index on the heap. */
+    ON_HEAP,
+    /**
+     * Always read the terms index from disk. This saves heap but makes
+     * terms lookups slower if the index is not memory-mapped or if its
+     * pages are not in the OS cache.
+     */
+    OFF_HEAP,
+    /**
+     * Read the terms index from disk if the index input supports efficient
+     * random access, as with {@link org.apache.lucene.store.MMapDirectory},
+     * unless the field looks like a primary key (one term per document) in
+     * which case the terms index is loaded on the heap since lookups on such
+     * fields are typically latency-sensitive.
+     */
+    AUTO
+  }
+
   // Open input to the main terms dict file (_X.tib)
   final IndexInput termsIn;
 
+  // Open input to the terms index file (_X.tip), or null if all
+  // terms indices have been loaded on the heap
+  private final IndexInput indexIn;
+
   //private static final boolean DEBUG = BlockTreeTermsWriter.DEBUG;
 
   // Reads the terms dict entries, to gather state to
@@ -131,8 +176,16 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   
   final int version;
 
-  /** Sole constructor. */
+  /** Create a new reader that uses the {@link FSTLoadMode} of the
+   *  {@link #FST_MODE_KEY} reader attribute, or {@link FSTLoadMode#ON_HEAP}
+   *  if it is not set. */
   public BlockTreeTermsReader(PostingsReaderBase postingsReader, SegmentReadState state) throws IOException {
+    this(postingsReader, state, getFSTLoadMode(state));
+  }
+
+  /** Create a new reader that loads terms indices according to the given
+   *  {@link FSTLoadMode}. */
+  public BlockTreeTermsReader(PostingsReaderBase postingsReader, SegmentReadState state, FSTLoadMode fstLoadMode) throws IOException {
     boolean success = false;
     IndexInput indexIn = null;
     
@@ -141,7 +194,8 @@ public final class BlockTreeTermsReader extends FieldsProducer {
     
     String termsName = IndexFileNames.segmentFileName(segment, state.segmentSuffix, TERMS_EXTENSION);
     try {
-      termsIn = state.directory.openInput(termsName, state.context);
+      // terms blocks are visited in random order at search time
+      termsIn = state.directory.openInput(termsName, state.context.withDefaultAdvice(IOContext.Advice.RANDOM));
       version = CodecUtil.checkIndexHeader(termsIn, TERMS_CODEC_NAME, VERSION_START, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
       
       String indexName = IndexFileNames.segmentFileName(segment, state.segmentSuffix, TERMS_INDEX_EXTENSION);
@@ -162,6 +216,10 @@ public final class BlockTreeTermsReader extends FieldsProducer {
       seekDir(termsIn, dirOffset);
       seekDir(indexIn, indexDirOffset);
 
+      final boolean randomAccessInput = indexIn instanceof RandomAccessInput
+          && indexIn instanceof BufferedIndexInput == false;
+      boolean anyOffHeap = false;
+
       final int numFields = termsIn.readVInt();
       if (numFields < 0) {
         throw new CorruptIndexException("invalid numFields: " + numFields, termsIn);
@@ -203,15 +261,40 @@ public final class BlockTreeTermsReader extends FieldsProducer {
           throw new CorruptIndexException("invalid sumTotalTermFreq: " + sumTotalTermFreq + " sumDocFreq: " + sumDocFreq, termsIn);
         }
         final long indexStartFP = indexIn.readVLong();
+        final boolean offHeap;
+        switch (fstLoadMode) {
+          case ON_HEAP:
+            offHeap = false;
+            break;
+          case OFF_HEAP:
+            offHeap = true;
+            break;
+          case AUTO:
+            offHeap = randomAccessInput && numTerms != docCount;
+            break;
+          default:
+            throw new AssertionError("unknown mode: " + fstLoadMode);
+        }
+        anyOffHeap |= offHeap;
         FieldReader previous = fields.put(fieldInfo.name,       
                                           new FieldReader(this, fieldInfo, numTerms, rootCode, sumTotalTermFreq, sumDocFreq, docCount,
-                                                          indexStartFP, longsSize, indexIn, minTerm, maxTerm));
+                                                          indexStartFP, longsSize, indexIn, offHeap, minTerm, maxTerm));
         if (previous != null) {
           throw new CorruptIndexException("duplicate field: " + fieldInfo.name, termsIn);
         }
       }
       
-      indexIn.close();
+      if (anyOffHeap) {
+        // off-heap terms indices keep reading from this input, at random
+        // positions: the whole file has been read sequentially above
+        if (state.context.advice == IOContext.Advice.NORMAL) {
+          indexIn.advise(0L, indexIn.length(), IOContext.Advice.RANDOM);
+        }
+        this.indexIn = indexIn;
+      } else {
+        this.indexIn = null;
+        indexIn.close();
+      }
       success = true;
     } finally {
       if (!success) {
@@ -221,6 +304,19 @@ public final class BlockTreeTermsReader extends FieldsProducer {
     }
   }
 
+  private static FSTLoadMode getFSTLoadMode(SegmentReadState state) {
+    final String mode = state.readerAttributes.get(FST_MODE_KEY);
+    if (mode == null) {
+      return FSTLoadMode.ON_HEAP;
+    }
+    try {
+      return FSTLoadMode.valueOf(mode);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid value for reader attribute " + FST_MODE_KEY + ": " + mode
+          + ", expected one of " + Arrays.toString(FSTLoadMode.values()));
+    }
+  }
+
   private static BytesRef readBytesRef(IndexInput in) throws IOException {
     BytesRef bytes = new BytesRef();
     bytes.length = in.readVInt();
@@ -245,7 +341,7 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   @Override
   public void close() throws IOException {
     try {
-      IOUtils.close(termsIn, postingsReader);
+      IOUtils.close(termsIn, indexIn, postingsReader);
     } finally { 
       // Clear so refs to terms index is GCable even if
       // app hangs onto us:
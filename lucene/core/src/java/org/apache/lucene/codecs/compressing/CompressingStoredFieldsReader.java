@@ -148,7 +148,8 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
     final String fieldsStreamFN = IndexFileNames.segmentFileName(segment, segmentSuffix, FIELDS_EXTENSION);
     try {
       // Open the data file and read metadata
-      fieldsStream = d.openInput(fieldsStreamFN, context);
+      // documents are fetched in random order at search time
+      fieldsStream = d.openInput(fieldsStreamFN, context.withDefaultAdvice(IOContext.Advice.RANDOM));
       final String codecNameDat = formatName + CODEC_SFX_DAT;
       final int fieldsVersion = CodecUtil.checkIndexHeader(fieldsStream, codecNameDat, VERSION_START, VERSION_CURRENT, si.getId(), segmentSuffix);
       if (version != fieldsVersion) {
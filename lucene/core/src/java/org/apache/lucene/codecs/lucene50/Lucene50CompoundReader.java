@@ -128,7 +128,12 @@ final class Lucene50CompoundReader extends Directory {
     if (entry == null) {
       throw new FileNotFoundException("No sub-file with id " + id + " found (fileName=" + name + " files: " + entries.keySet() + ")");
     }
-    return handle.slice(name, entry.offset, entry.length);
+    final IndexInput slice = handle.slice(name, entry.offset, entry.length);
+    if (context.advice != IOContext.Advice.NORMAL) {
+      // the compound file is opened once, so apply the advice of the sub-file now
+      slice.advise(0L, slice.length(), context.advice);
+    }
+    return slice;
   }
   
   /** Returns an array of strings, one for each file in the directory. */
@@ -48,6 +48,7 @@ import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.RandomAccessInput;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
@@ -410,16 +411,31 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           public long get(long index) {
             return live.get((int)index) ? constant : 0;
           }
+
+          @Override
+          public void get(int[] docs, int count, long[] values) {
+            for (int i = 0; i < count; ++i) {
+              values[i] = live.get(docs[i]) ? constant : 0;
+            }
+          }
         };
       }
       case DELTA_COMPRESSED: {
         RandomAccessInput slice = this.data.randomAccessSlice(entry.offset, entry.endOffset - entry.offset);
         final long delta = entry.minValue;
-        final LongValues values = DirectReader.getInstance(slice, entry.bitsPerValue);
+        final LongValues deltas = DirectReader.getInstance(slice, entry.bitsPerValue);
         return new LongValues() {
           @Override
           public long get(long id) {
-            return delta + values.get(id);
+            return delta + deltas.get(id);
+          }
+
+          @Override
+          public void get(int[] docs, int count, long[] values) {
+            deltas.get(docs, count, values);
+            for (int i = 0; i < count; ++i) {
+              values[i] += delta;
+            }
           }
         };
       }
@@ -433,6 +449,14 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           public long get(long id) {
             return min + mult * quotientReader.get(id);
           }
+
+          @Override
+          public void get(int[] docs, int count, long[] values) {
+            quotientReader.get(docs, count, values);
+            for (int i = 0; i < count; ++i) {
+              values[i] = min + mult * values[i];
+            }
+          }
         };
       }
       case TABLE_COMPRESSED: {
@@ -444,6 +468,14 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           public long get(long id) {
             return table[(int) ords.get(id)];
           }
+
+          @Override
+          public void get(int[] docs, int count, long[] values) {
+            ords.get(docs, count, values);
+            for (int i = 0; i < count; ++i) {
+              values[i] = table[(int) values[i]];
+            }
+          }
         };
       }
       default:
@@ -577,11 +609,24 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     final LongValues ordinals = getNumeric(entry);
     return new SortedDocValues() {
 
+      long[] scratch = new long[0];
+
       @Override
       public int getOrd(int docID) {
         return (int) ordinals.get(docID);
       }
 
+      @Override
+      public void getOrds(int[] docs, int count, int[] ords) {
+        if (scratch.length < count) {
+          scratch = new long[ArrayUtil.oversize(count, RamUsageEstimator.NUM_BYTES_LONG)];
+        }
+        ordinals.get(docs, count, scratch);
+        for (int i = 0; i < count; ++i) {
+          ords[i] = (int) scratch[i];
+        }
+      }
+
       @Override
       public BytesRef lookupOrd(int ord) {
         return binary.get(ord);
@@ -29,6 +29,7 @@ import org.apache.lucene.index.IndexFileNames;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.util.ArrayUtil;
@@ -246,6 +247,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
     private Lucene50SkipReader skipper;
     private boolean skipped;
 
+    // lazily created the first time block-max information is requested
+    private BlockMaxFreqReader blockMaxReader;
+
     final IndexInput startDocIn;
 
     IndexInput docIn;
@@ -321,6 +325,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       nextSkipDoc = BLOCK_SIZE - 1; // we won't skip if target is found in first block
       docBufferUpto = BLOCK_SIZE;
       skipped = false;
+      if (blockMaxReader != null) {
+        blockMaxReader.reset(docFreq, totalTermFreq, docTermStartFP, skipOffset);
+      }
       return this;
     }
     
@@ -402,6 +409,53 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       }
     }
 
+    @Override
+    public int nextDocs(int[] docs, int[] freqs) throws IOException {
+      int count = 0;
+      int lastFreq = freq;
+      while (count < docs.length && docUpto < docFreq) {
+        if (docBufferUpto == BLOCK_SIZE) {
+          refillDocs();
+        }
+        // consume as many buffered docs as possible in a single loop
+        final int n = Math.min(docs.length - count, Math.min(BLOCK_SIZE - docBufferUpto, docFreq - docUpto));
+        int acc = accum;
+        if (liveDocs == null) {
+          for (int i = 0; i < n; ++i) {
+            acc += docDeltaBuffer[docBufferUpto + i];
+            docs[count + i] = acc;
+          }
+          if (freqs != null) {
+            System.arraycopy(freqBuffer, docBufferUpto, freqs, count, n);
+          }
+          lastFreq = freqBuffer[docBufferUpto + n - 1];
+          count += n;
+        } else {
+          for (int i = 0; i < n; ++i) {
+            acc += docDeltaBuffer[docBufferUpto + i];
+            if (liveDocs.get(acc)) {
+              docs[count] = acc;
+              lastFreq = freqBuffer[docBufferUpto + i];
+              if (freqs != null) {
+                freqs[count] = lastFreq;
+              }
+              count++;
+            }
+          }
+        }
+        accum = acc;
+        docBufferUpto += n;
+        docUpto += n;
+      }
+      if (count > 0) {
+        doc = docs[count - 1];
+        freq = lastFreq;
+      } else if (docUpto == docFreq) {
+        doc = NO_MORE_DOCS;
+      }
+      return count;
+    }
+
     @Override
     public int advance(int target) throws IOException {
       // TODO: make frq block load lazy/skippable
@@ -412,9 +466,11 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
 
         if (skipper == null) {
           // Lazy init: first time this enum has ever been used for skipping
-          skipper = new Lucene50SkipReader(docIn.clone(),
+          skipper = new Lucene50SkipReader(version,
+                                           docIn.clone(),
                                            MAX_SKIP_LEVELS,
                                            BLOCK_SIZE,
+                                           indexHasFreq,
                                            indexHasPos,
                                            indexHasOffsets,
                                            indexHasPayloads);
@@ -478,6 +534,23 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       }
     }
     
+    @Override
+    public int advanceShallow(int target) throws IOException {
+      if (blockMaxReader == null) {
+        blockMaxReader = new BlockMaxFreqReader(indexHasFreq, indexHasPos, indexHasOffsets, indexHasPayloads);
+        blockMaxReader.reset(docFreq, totalTermFreq, docTermStartFP, skipOffset);
+      }
+      return blockMaxReader.advanceShallow(target);
+    }
+
+    @Override
+    public int getMaxFreq() {
+      if (blockMaxReader == null) {
+        return maxFreqUpperBound(indexHasFreq, docFreq, totalTermFreq);
+      }
+      return blockMaxReader.getMaxFreq();
+    }
+
     @Override
     public long cost() {
       return docFreq;
@@ -499,6 +572,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
     private Lucene50SkipReader skipper;
     private boolean skipped;
 
+    // lazily created the first time block-max information is requested
+    private BlockMaxFreqReader blockMaxReader;
+
     final IndexInput startDocIn;
 
     IndexInput docIn;
@@ -600,6 +676,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       }
       docBufferUpto = BLOCK_SIZE;
       skipped = false;
+      if (blockMaxReader != null) {
+        blockMaxReader.reset(docFreq, totalTermFreq, docTermStartFP, skipOffset);
+      }
       return this;
     }
     
@@ -690,10 +769,12 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       if (target > nextSkipDoc) {
         if (skipper == null) {
           // Lazy init: first time this enum has ever been used for skipping
-          skipper = new Lucene50SkipReader(docIn.clone(),
+          skipper = new Lucene50SkipReader(version,
+                                           docIn.clone(),
                                            MAX_SKIP_LEVELS,
                                            BLOCK_SIZE,
                                            true,
+                                           true,
                                            indexHasOffsets,
                                            indexHasPayloads);
         }
@@ -822,6 +903,23 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       return null;
     }
     
+    @Override
+    public int advanceShallow(int target) throws IOException {
+      if (blockMaxReader == null) {
+        blockMaxReader = new BlockMaxFreqReader(true, true, indexHasOffsets, indexHasPayloads);
+        blockMaxReader.reset(docFreq, totalTermFreq, docTermStartFP, skipOffset);
+      }
+      return blockMaxReader.advanceShallow(target);
+    }
+
+    @Override
+    public int getMaxFreq() {
+      if (blockMaxReader == null) {
+        return maxFreqUpperBound(true, docFreq, totalTermFreq);
+      }
+      return blockMaxReader.getMaxFreq();
+    }
+
     @Override
     public long cost() {
       return docFreq;
@@ -855,6 +953,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
     private Lucene50SkipReader skipper;
     private boolean skipped;
 
+    // lazily created the first time block-max information is requested
+    private BlockMaxFreqReader blockMaxReader;
+
     final IndexInput startDocIn;
 
     IndexInput docIn;
@@ -989,6 +1090,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       }
       docBufferUpto = BLOCK_SIZE;
       skipped = false;
+      if (blockMaxReader != null) {
+        blockMaxReader.reset(docFreq, totalTermFreq, docTermStartFP, skipOffset);
+      }
       return this;
     }
     
@@ -1119,10 +1223,12 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       if (target > nextSkipDoc) {
         if (skipper == null) {
           // Lazy init: first time this enum has ever been used for skipping
-          skipper = new Lucene50SkipReader(docIn.clone(),
+          skipper = new Lucene50SkipReader(version,
+                                        docIn.clone(),
                                         MAX_SKIP_LEVELS,
                                         BLOCK_SIZE,
                                         true,
+                                        true,
                                         indexHasOffsets,
                                         indexHasPayloads);
         }
@@ -1308,12 +1414,103 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       }
     }
     
+    @Override
+    public int advanceShallow(int target) throws IOException {
+      if (blockMaxReader == null) {
+        blockMaxReader = new BlockMaxFreqReader(true, true, indexHasOffsets, indexHasPayloads);
+        blockMaxReader.reset(docFreq, totalTermFreq, docTermStartFP, skipOffset);
+      }
+      return blockMaxReader.advanceShallow(target);
+    }
+
+    @Override
+    public int getMaxFreq() {
+      if (blockMaxReader == null) {
+        return maxFreqUpperBound(true, docFreq, totalTermFreq);
+      }
+      return blockMaxReader.getMaxFreq();
+    }
+
     @Override
     public long cost() {
       return docFreq;
     }
   }
 
+  /** Returns an upper bound of the term frequency of any document of a postings list
+   *  based on its statistics: a single document can't have more than all
+   *  occurrences minus one per other document. */
+  static int maxFreqUpperBound(boolean indexHasFreq, int docFreq, long totalTermFreq) {
+    if (indexHasFreq == false) {
+      return 1;
+    }
+    return (int) Math.min(Integer.MAX_VALUE, totalTermFreq - docFreq + 1);
+  }
+
+  /**
+   * Reads the maximum term frequency of each block from the skip data. This
+   * uses its own skipper so that it can be positioned ahead of the
+   * enum that it serves without moving it.
+   */
+  final class BlockMaxFreqReader {
+    private final Lucene50SkipReader skipper;
+    private final boolean indexHasFreq;
+
+    private int docFreq;
+    private long docTermStartFP;
+    private long skipOffset;
+    private boolean skipped;
+    private int termMaxFreq;
+
+    private int blockEnd;
+    private int blockMaxFreq;
+
+    BlockMaxFreqReader(boolean indexHasFreq, boolean indexHasPos, boolean indexHasOffsets, boolean indexHasPayloads) {
+      this.indexHasFreq = indexHasFreq;
+      skipper = new Lucene50SkipReader(version, docIn.clone(), MAX_SKIP_LEVELS, BLOCK_SIZE,
+          indexHasFreq, indexHasPos, indexHasOffsets, indexHasPayloads);
+    }
+
+    void reset(int docFreq, long totalTermFreq, long docTermStartFP, long skipOffset) {
+      this.docFreq = docFreq;
+      this.docTermStartFP = docTermStartFP;
+      this.skipOffset = skipOffset;
+      termMaxFreq = maxFreqUpperBound(indexHasFreq, docFreq, totalTermFreq);
+      skipped = false;
+      blockEnd = -1;
+      blockMaxFreq = termMaxFreq;
+    }
+
+    int advanceShallow(int target) throws IOException {
+      if (target <= blockEnd) {
+        return blockEnd;
+      }
+      if (docFreq > BLOCK_SIZE) {
+        if (skipped == false) {
+          assert skipOffset != -1;
+          skipper.init(docTermStartFP + skipOffset, docTermStartFP, 0, 0, docFreq);
+          skipped = true;
+        }
+        // skip data is only loaded for targets greater than the current skip doc, which is 0 after init
+        skipper.skipTo(Math.max(1, target));
+        final int nextSkipDoc = skipper.getNextSkipDoc();
+        if (nextSkipDoc != DocIdSetIterator.NO_MORE_DOCS) {
+          blockEnd = nextSkipDoc;
+          blockMaxFreq = Math.min(skipper.getNextMaxFreq(), termMaxFreq);
+          return blockEnd;
+        }
+      }
+      // no skip data for the last block
+      blockEnd = DocIdSetIterator.NO_MORE_DOCS;
+      blockMaxFreq = termMaxFreq;
+      return blockEnd;
+    }
+
+    int getMaxFreq() {
+      return blockMaxFreq;
+    }
+  }
+
   @Override
   public long ramBytesUsed() {
     return BASE_RAM_BYTES_USED;
@@ -82,6 +82,8 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
   private int payloadByteUpto;
 
   private int lastBlockDocID;
+  private int lastBlockMaxFreq;
+  private int blockMaxFreq;
   private long lastBlockPosFP;
   private long lastBlockPayFP;
   private int lastBlockPosBufferUpto;
@@ -183,7 +185,7 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
   @Override
   public int setField(FieldInfo fieldInfo) {
     super.setField(fieldInfo);
-    skipWriter.setField(writePositions, writeOffsets, writePayloads);
+    skipWriter.setField(writeFreqs, writePositions, writeOffsets, writePayloads);
     lastState = emptyState;
     if (writePositions) {
       if (writePayloads || writeOffsets) {
@@ -207,6 +209,7 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
     }
     lastDocID = 0;
     lastBlockDocID = -1;
+    blockMaxFreq = 0;
     skipWriter.resetSkip();
   }
 
@@ -216,7 +219,7 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
     // Should write skip data as well as postings list for
     // current block.
     if (lastBlockDocID != -1 && docBufferUpto == 0) {
-      skipWriter.bufferSkip(lastBlockDocID, docCount, lastBlockPosFP, lastBlockPayFP, lastBlockPosBufferUpto, lastBlockPayloadByteUpto);
+      skipWriter.bufferSkip(lastBlockDocID, lastBlockMaxFreq, docCount, lastBlockPosFP, lastBlockPayFP, lastBlockPosBufferUpto, lastBlockPayloadByteUpto);
     }
 
     final int docDelta = docID - lastDocID;
@@ -228,6 +231,7 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
     docDeltaBuffer[docBufferUpto] = docDelta;
     if (writeFreqs) {
       freqBuffer[docBufferUpto] = termDocFreq;
+      blockMaxFreq = Math.max(blockMaxFreq, termDocFreq);
     }
     
     docBufferUpto++;
@@ -306,6 +310,8 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
     // write them to skip file.
     if (docBufferUpto == BLOCK_SIZE) {
       lastBlockDocID = lastDocID;
+      lastBlockMaxFreq = blockMaxFreq;
+      blockMaxFreq = 0;
       if (posOut != null) {
         if (payOut != null) {
           lastBlockPayFP = payOut.getFilePointer();
@@ -29,7 +29,10 @@ import org.apache.lucene.index.IndexFileNames;
 import org.apache.lucene.index.IndexWriter; // javadocs
 import org.apache.lucene.index.SegmentInfo; // javadocs
 import org.apache.lucene.index.SegmentInfos; // javadocs
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput; // javadocs
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
@@ -41,7 +44,7 @@ import org.apache.lucene.util.Version;
  * <p>
  * Files:
  * <ul>
- *   <li><tt>.si</tt>: Header, SegVersion, SegSize, IsCompoundFile, Diagnostics, Files, Attributes, Footer
+ *   <li><tt>.si</tt>: Header, SegVersion, SegSize, IsCompoundFile, Diagnostics, Files, Attributes, IndexSort, Footer
  * </ul>
  * Data types:
  * <ul>
@@ -51,6 +54,12 @@ import org.apache.lucene.util.Version;
  *   <li>Files --&gt; {@link DataOutput#writeSetOfStrings Set&lt;String&gt;}</li>
  *   <li>Diagnostics,Attributes --&gt; {@link DataOutput#writeMapOfStrings Map&lt;String,String&gt;}</li>
  *   <li>IsCompoundFile --&gt; {@link DataOutput#writeByte Int8}</li>
+ *   <li>IndexSort --&gt; NumSortFields, &lt;SortFieldName, SortType, Reverse, MissingValue&gt; <sup>NumSortFields</sup></li>
+ *   <li>NumSortFields --&gt; {@link DataOutput#writeVInt VInt}</li>
+ *   <li>SortFieldName --&gt; {@link DataOutput#writeString String}</li>
+ *   <li>SortType, Reverse --&gt; {@link DataOutput#writeByte Int8}</li>
+ *   <li>MissingValue --&gt; {@link DataOutput#writeByte Int8}, optionally followed by
+ *       {@link DataOutput#writeInt Int32} or {@link DataOutput#writeLong Int64}</li>
  *   <li>Footer --&gt; {@link CodecUtil#writeFooter CodecFooter}</li>
  * </ul>
  * Field Descriptions:
@@ -65,6 +74,8 @@ import org.apache.lucene.util.Version;
  *       version, OS, Java version, why the segment was created (merge, flush,
  *       addIndexes), etc.</li>
  *   <li>Files is a list of files referred to by this segment.</li>
+ *   <li>IndexSort is the {@link Sort} that documents of this segment are sorted by. It
+ *       has no sort fields if the segment is not sorted.</li>
  * </ul>
  * 
  * @see SegmentInfos
@@ -109,7 +120,14 @@ public class Lucene50SegmentInfoFormat extends SegmentInfoFormat {
           attributes = Collections.unmodifiableMap(input.readStringStringMap());
         }
         
-        si = new SegmentInfo(dir, version, segment, docCount, isCompoundFile, null, diagnostics, segmentID, attributes);
+        final Sort indexSort;
+        if (format >= VERSION_INDEX_SORT) {
+          indexSort = readIndexSort(input);
+        } else {
+          indexSort = null;
+        }
+        
+        si = new SegmentInfo(dir, version, segment, docCount, isCompoundFile, null, diagnostics, segmentID, attributes, indexSort);
         si.setFiles(files);
       } catch (Throwable exception) {
         priorE = exception;
@@ -152,14 +170,97 @@ public class Lucene50SegmentInfoFormat extends SegmentInfoFormat {
       }
       output.writeSetOfStrings(files);
       output.writeMapOfStrings(si.getAttributes());
+      writeIndexSort(output, si.getIndexSort());
       CodecUtil.writeFooter(output);
     }
   }
 
+  private static Sort readIndexSort(DataInput input) throws IOException {
+    final int numSortFields = input.readVInt();
+    if (numSortFields == 0) {
+      return null;
+    }
+    final SortField[] sortFields = new SortField[numSortFields];
+    for (int i = 0; i < numSortFields; i++) {
+      final String field = input.readString();
+      final SortField.Type type;
+      switch (input.readByte()) {
+        case 0: type = SortField.Type.STRING; break;
+        case 1: type = SortField.Type.LONG; break;
+        case 2: type = SortField.Type.INT; break;
+        case 3: type = SortField.Type.DOUBLE; break;
+        case 4: type = SortField.Type.FLOAT; break;
+        default: throw new CorruptIndexException("invalid index sort type for field " + field, input);
+      }
+      final byte reverse = input.readByte();
+      if (reverse != 0 && reverse != 1) {
+        throw new CorruptIndexException("invalid index sort reverse flag: " + reverse, input);
+      }
+      sortFields[i] = new SortField(field, type, reverse == 1);
+      final byte missing = input.readByte();
+      if (missing == 1) {
+        switch (type) {
+          case STRING: sortFields[i].setMissingValue(SortField.STRING_FIRST); break;
+          case LONG: sortFields[i].setMissingValue(input.readLong()); break;
+          case INT: sortFields[i].setMissingValue(input.readInt()); break;
+          case DOUBLE: sortFields[i].setMissingValue(Double.longBitsToDouble(input.readLong())); break;
+          case FLOAT: sortFields[i].setMissingValue(Float.intBitsToFloat(input.readInt())); break;
+          default: throw new AssertionError();
+        }
+      } else if (missing == 2 && type == SortField.Type.STRING) {
+        sortFields[i].setMissingValue(SortField.STRING_LAST);
+      } else if (missing != 0) {
+        throw new CorruptIndexException("invalid index sort missing value flag: " + missing, input);
+      }
+    }
+    return new Sort(sortFields);
+  }
+
+  private static void writeIndexSort(IndexOutput output, Sort indexSort) throws IOException {
+    if (indexSort == null) {
+      output.writeVInt(0);
+      return;
+    }
+    final SortField[] sortFields = indexSort.getSort();
+    output.writeVInt(sortFields.length);
+    for (SortField sortField : sortFields) {
+      output.writeString(sortField.getField());
+      final int type;
+      switch (sortField.getType()) {
+        case STRING: type = 0; break;
+        case LONG: type = 1; break;
+        case INT: type = 2; break;
+        case DOUBLE: type = 3; break;
+        case FLOAT: type = 4; break;
+        default: throw new IllegalStateException("unexpected index sort type: " + sortField.getType());
+      }
+      output.writeByte((byte) type);
+      output.writeByte((byte) (sortField.getReverse() ? 1 : 0));
+      final Object missingValue = sortField.missingValue;
+      if (missingValue == null) {
+        output.writeByte((byte) 0);
+      } else if (missingValue == SortField.STRING_FIRST) {
+        output.writeByte((byte) 1);
+      } else if (missingValue == SortField.STRING_LAST) {
+        output.writeByte((byte) 2);
+      } else {
+        output.writeByte((byte) 1);
+        switch (sortField.getType()) {
+          case LONG: output.writeLong((Long) missingValue); break;
+          case INT: output.writeInt((Integer) missingValue); break;
+          case DOUBLE: output.writeLong(Double.doubleToLongBits((Double) missingValue)); break;
+          case FLOAT: output.writeInt(Float.floatToIntBits((Float) missingValue)); break;
+          default: throw new IllegalStateException("unexpected missing value for index sort: " + missingValue);
+        }
+      }
+    }
+  }
+
   /** File extension used to store {@link SegmentInfo}. */
   public final static String SI_EXTENSION = "si";
   static final String CODEC_NAME = "Lucene50SegmentInfo";
   static final int VERSION_START = 0;
   static final int VERSION_SAFE_MAPS = 1;
-  static final int VERSION_CURRENT = VERSION_SAFE_MAPS;
+  static final int VERSION_INDEX_SORT = 2;
+  static final int VERSION_CURRENT = VERSION_INDEX_SORT;
 }
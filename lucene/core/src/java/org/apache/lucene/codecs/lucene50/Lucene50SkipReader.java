@@ -52,6 +52,7 @@ import org.apache.lucene.store.IndexInput;
  */
 final class Lucene50SkipReader extends MultiLevelSkipListReader {
   private final int blockSize;
+  private final boolean hasMaxFreq;
 
   private long docPointer[];
   private long posPointer[];
@@ -64,10 +65,12 @@ final class Lucene50SkipReader extends MultiLevelSkipListReader {
   private int lastPayloadByteUpto;
   private long lastDocPointer;
   private int lastPosBufferUpto;
+  private int nextMaxFreq;
 
-  public Lucene50SkipReader(IndexInput skipStream, int maxSkipLevels, int blockSize, boolean hasPos, boolean hasOffsets, boolean hasPayloads) {
+  public Lucene50SkipReader(int version, IndexInput skipStream, int maxSkipLevels, int blockSize, boolean hasFreq, boolean hasPos, boolean hasOffsets, boolean hasPayloads) {
     super(skipStream, maxSkipLevels, blockSize, 8);
     this.blockSize = blockSize;
+    this.hasMaxFreq = hasFreq && version >= Lucene50PostingsFormat.VERSION_BLOCK_MAX_FREQ;
     docPointer = new long[maxSkipLevels];
     if (hasPos) {
       posPointer = new long[maxSkipLevels];
@@ -102,6 +105,7 @@ final class Lucene50SkipReader extends MultiLevelSkipListReader {
 
   public void init(long skipPointer, long docBasePointer, long posBasePointer, long payBasePointer, int df) {
     super.init(skipPointer, trim(df));
+    nextMaxFreq = Integer.MAX_VALUE;
     lastDocPointer = docBasePointer;
     lastPosPointer = posBasePointer;
     lastPayPointer = payBasePointer;
@@ -143,6 +147,13 @@ final class Lucene50SkipReader extends MultiLevelSkipListReader {
     return skipDoc[0];
   }
 
+  /** Returns the maximum term frequency of the block that ends at
+   *  {@link #getNextSkipDoc()}, or {@link Integer#MAX_VALUE} if this
+   *  information is not available. */
+  public int getNextMaxFreq() {
+    return nextMaxFreq;
+  }
+
   @Override
   protected void seekChild(int level) throws IOException {
     super.seekChild(level);
@@ -193,6 +204,10 @@ final class Lucene50SkipReader extends MultiLevelSkipListReader {
         payPointer[level] += skipStream.readVLong();
       }
     }
+
+    if (hasMaxFreq && level == 0) {
+      nextMaxFreq = skipStream.readVInt();
+    }
     return delta;
   }
 }
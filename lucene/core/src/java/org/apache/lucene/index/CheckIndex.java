@@ -653,7 +653,8 @@ public class CheckIndex implements Closeable {
         long startOpenReaderNS = System.nanoTime();
         if (infoStream != null)
           infoStream.print("    test: open reader.........");
-        reader = new SegmentReader(info, IOContext.DEFAULT);
+        // all files are read from start to end
+        reader = new SegmentReader(info, new IOContext(IOContext.DEFAULT, IOContext.Advice.SEQUENTIAL));
         msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startOpenReaderNS)));
 
         segInfoStat.openReaderPassed = true;
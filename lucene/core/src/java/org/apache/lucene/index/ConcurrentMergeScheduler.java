@@ -97,10 +97,10 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
   protected int mergeThreadCount;
 
   /** Floor for IO write rate limit (we will never go any lower than this) */
-  private static final double MIN_MERGE_MB_PER_SEC = 5.0;
+  static final double MIN_MERGE_MB_PER_SEC = 5.0;
 
   /** Ceiling for IO write rate limit (we will never go any higher than this) */
-  private static final double MAX_MERGE_MB_PER_SEC = 10240.0;
+  static final double MAX_MERGE_MB_PER_SEC = 10240.0;
 
   /** Initial value for IO write rate limit when doAutoIOThrottle is true */
   private static final double START_MB_PER_SEC = 20.0;
@@ -22,7 +22,9 @@ import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.lucene.search.SearcherManager; // javadocs
 import org.apache.lucene.store.Directory;
@@ -60,7 +62,24 @@ public abstract class DirectoryReader extends BaseCompositeReader<LeafReader> {
    * @throws IOException if there is a low-level IO error
    */
   public static DirectoryReader open(final Directory directory) throws IOException {
-    return StandardDirectoryReader.open(directory, null);
+    return StandardDirectoryReader.open(directory, null, Collections.<String,String>emptyMap());
+  }
+
+  /** Expert: returns an IndexReader reading the index in the given
+   *  Directory, passing the given attributes to the codec. Codecs may use
+   *  them to configure how segments are read, e.g.
+   *  {@link org.apache.lucene.codecs.blocktree.BlockTreeTermsReader#FST_MODE_KEY}.
+   *  The attributes also apply to readers that are reopened from the
+   *  returned reader.
+   * @param directory the index directory
+   * @param readerAttributes attributes passed to the codec, see
+   *        {@link SegmentReadState#readerAttributes}
+   * @throws IOException if there is a low-level IO error
+   * @see IndexWriterConfig#setReaderAttributes(Map)
+   * @lucene.experimental
+   */
+  public static DirectoryReader open(final Directory directory, final Map<String,String> readerAttributes) throws IOException {
+    return StandardDirectoryReader.open(directory, null, Collections.unmodifiableMap(new HashMap<>(readerAttributes)));
   }
   
   /**
@@ -92,7 +111,20 @@ public abstract class DirectoryReader extends BaseCompositeReader<LeafReader> {
    * @throws IOException if there is a low-level IO error
    */
   public static DirectoryReader open(final IndexCommit commit) throws IOException {
-    return StandardDirectoryReader.open(commit.getDirectory(), commit);
+    return StandardDirectoryReader.open(commit.getDirectory(), commit, Collections.<String,String>emptyMap());
+  }
+
+  /** Expert: returns an IndexReader reading the index in the given
+   *  {@link IndexCommit}, passing the given attributes to the codec.
+   * @param commit the commit point to open
+   * @param readerAttributes attributes passed to the codec, see
+   *        {@link SegmentReadState#readerAttributes}
+   * @throws IOException if there is a low-level IO error
+   * @see #open(Directory, Map)
+   * @lucene.experimental
+   */
+  public static DirectoryReader open(final IndexCommit commit, final Map<String,String> readerAttributes) throws IOException {
+    return StandardDirectoryReader.open(commit.getDirectory(), commit, Collections.unmodifiableMap(new HashMap<>(readerAttributes)));
   }
 
   /**
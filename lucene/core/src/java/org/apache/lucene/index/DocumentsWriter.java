@@ -346,6 +346,8 @@ final class DocumentsWriter implements Closeable, Accountable {
   private boolean preUpdate() throws IOException, AbortingException {
     ensureOpen();
     boolean hasEvents = false;
+    // Slow down gradually if flushing or merging can't keep up:
+    flushControl.maybeThrottle();
     if (flushControl.anyStalledThreads() || flushControl.numQueuedFlushes() > 0) {
       // Help out flushing any queued DWPTs so we can un-stall:
       if (infoStream.isEnabled("DW")) {
@@ -508,7 +510,8 @@ final class DocumentsWriter implements Closeable, Accountable {
           boolean dwptSuccess = false;
           try {
             // flush concurrently without locking
-            final FlushedSegment newSegment = flushingDWPT.flush();
+            // sorting the flushed segment rewrites it under a new name:
+            final FlushedSegment newSegment = flushingDWPT.flush(config.getIndexSort() != null ? writer.newSegmentName() : null);
             ticketQueue.addSegment(ticket, newSegment);
             dwptSuccess = true;
           } finally {
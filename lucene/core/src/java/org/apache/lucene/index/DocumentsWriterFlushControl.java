@@ -141,7 +141,7 @@ final class DocumentsWriterFlushControl implements Accountable {
     return true;
   }
 
-  private void commitPerThreadBytes(ThreadState perThread) {
+  private long commitPerThreadBytes(ThreadState perThread) {
     final long delta = perThread.dwpt.bytesUsed()
         - perThread.bytesUsed;
     perThread.bytesUsed += delta;
@@ -156,6 +156,7 @@ final class DocumentsWriterFlushControl implements Accountable {
       activeBytes += delta;
     }
     assert updatePeaks(delta);
+    return delta;
   }
 
   // only for asserts
@@ -171,7 +172,10 @@ final class DocumentsWriterFlushControl implements Accountable {
   synchronized DocumentsWriterPerThread doAfterDocument(ThreadState perThread,
       boolean isUpdate) {
     try {
-      commitPerThreadBytes(perThread);
+      final long delta = commitPerThreadBytes(perThread);
+      if (config.getThrottleIndexing()) {
+        stallControl.afterDocument(delta);
+      }
       if (!perThread.flushPending) {
         if (isUpdate) {
           flushPolicy.onUpdate(this, perThread);
@@ -249,6 +253,7 @@ final class DocumentsWriterFlushControl implements Accountable {
                           (activeBytes < limit) &&
                           !closed;
     stallControl.updateStalled(stall);
+    stallControl.updateFlushPressure(activeBytes + flushBytes, limit, closed);
     return stall;
   }
   
@@ -698,6 +703,15 @@ final class DocumentsWriterFlushControl implements Accountable {
     stallControl.waitIfStalled();
   }
 
+  /**
+   * Pauses the calling thread if indexing is currently being throttled.
+   *
+   * @see LiveIndexWriterConfig#setThrottleIndexing(boolean)
+   */
+  void maybeThrottle() {
+    stallControl.maybeThrottle();
+  }
+
   /**
    * Returns <code>true</code> iff stalled
    */
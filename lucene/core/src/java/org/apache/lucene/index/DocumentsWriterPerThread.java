@@ -29,14 +29,17 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.index.DocumentsWriterDeleteQueue.DeleteSlice;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FlushInfo;
 import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MergeInfo;
 import org.apache.lucene.store.TrackingDirectoryWrapper;
 import org.apache.lucene.util.ByteBlockPool.Allocator;
 import org.apache.lucene.util.ByteBlockPool.DirectTrackingAllocator;
 import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.IntBlockPool;
 import org.apache.lucene.util.MutableBits;
@@ -385,7 +388,7 @@ class DocumentsWriterPerThread {
   }
 
   /** Flush all pending docs to a new segment */
-  FlushedSegment flush() throws IOException, AbortingException {
+  FlushedSegment flush(String sortedSegmentName) throws IOException, AbortingException {
     assert numDocsInRAM > 0;
     assert deleteSlice.isEmpty() : "all deletes must be applied in prepareFlush";
     segmentInfo.setMaxDoc(numDocsInRAM);
@@ -455,6 +458,9 @@ class DocumentsWriterPerThread {
 
       FlushedSegment fs = new FlushedSegment(segmentInfoPerCommit, flushState.fieldInfos,
                                              segmentDeletes, flushState.liveDocs, flushState.delCountOnFlush);
+      if (indexWriterConfig.getIndexSort() != null) {
+        fs = sortFlushedSegment(fs, sortedSegmentName);
+      }
       sealFlushedSegment(fs);
 
       return fs;
@@ -464,6 +470,74 @@ class DocumentsWriterPerThread {
     }
   }
   
+  /**
+   * Rewrites the newly flushed segment under <code>sortedSegmentName</code>
+   * with its documents sorted by the {@link IndexWriterConfig#getIndexSort() index sort},
+   * and schedules the unsorted files for deletion.
+   */
+  private FlushedSegment sortFlushedSegment(FlushedSegment flushedSegment, String sortedSegmentName) throws IOException {
+    final Sort indexSort = indexWriterConfig.getIndexSort();
+    final SegmentInfo unsortedInfo = flushedSegment.segmentInfo.info;
+    if (flushedSegment.segmentUpdates != null) {
+      // buffered delete-by-query and doc values updates refer to doc IDs in the order
+      // documents were added: keep this segment unsorted, the next merge will sort it
+      if (infoStream.isEnabled("DWPT")) {
+        infoStream.message("DWPT", "flush: not sorting segment " + unsortedInfo.name + " since it has buffered updates");
+      }
+      return flushedSegment;
+    }
+
+    final long startNS = System.nanoTime();
+    final IOContext context = new IOContext(new MergeInfo(unsortedInfo.maxDoc(), flushedSegment.segmentInfo.sizeInBytes(), false, -1));
+    try (SegmentReader reader = new SegmentReader(flushedSegment.segmentInfo, IOContext.READ)) {
+      final Sorter.DocMap docMap = new Sorter(indexSort).sort(reader);
+      if (docMap == null) {
+        // documents were added in sorted order already
+        unsortedInfo.setIndexSort(indexSort);
+        return flushedSegment;
+      }
+
+      final SegmentInfo sortedInfo = new SegmentInfo(directoryOrig, Version.LATEST, sortedSegmentName, -1, false, codec,
+                                                     Collections.emptyMap(), StringHelper.randomId(), new HashMap<>(), indexSort);
+      final TrackingDirectoryWrapper sortedDirectory = new TrackingDirectoryWrapper(directoryOrig);
+      boolean success = false;
+      try {
+        // the reader has no deletions, so all documents are kept and remain addressable through docMap:
+        final CodecReader sortedView = SlowCodecReaderWrapper.wrap(SortingLeafReader.wrap(reader, docMap));
+        final SegmentMerger merger = new SegmentMerger(Collections.singletonList(sortedView), sortedInfo, infoStream,
+                                                       sortedDirectory, fieldInfos.globalFieldNumbers, context);
+        merger.merge();
+        sortedInfo.setFiles(new HashSet<>(sortedDirectory.getCreatedFiles()));
+        assert sortedInfo.maxDoc() == unsortedInfo.maxDoc();
+
+        MutableBits liveDocs = null;
+        if (flushedSegment.liveDocs != null) {
+          liveDocs = codec.liveDocsFormat().newLiveDocs(sortedInfo.maxDoc());
+          for (int doc = 0; doc < unsortedInfo.maxDoc(); ++doc) {
+            if (flushedSegment.liveDocs.get(doc) == false) {
+              liveDocs.clear(docMap.oldToNew(doc));
+            }
+          }
+        }
+        filesToDelete.addAll(unsortedInfo.files());
+
+        if (infoStream.isEnabled("DWPT")) {
+          infoStream.message("DWPT", String.format(Locale.ROOT, "flush: sorted segment %s into %s by %s in %.1f msec",
+                                                   unsortedInfo.name, sortedSegmentName, indexSort, (System.nanoTime() - startNS) / 1000000.0));
+        }
+        final FlushedSegment sorted = new FlushedSegment(new SegmentCommitInfo(sortedInfo, 0, -1L, -1L, -1L),
+                                                         merger.mergeState.mergeFieldInfos, null, liveDocs, flushedSegment.delCount);
+        success = true;
+        return sorted;
+      } finally {
+        if (!success) {
+          final Set<String> createdFiles = sortedDirectory.getCreatedFiles();
+          IOUtils.deleteFilesIgnoringExceptions(directoryOrig, createdFiles.toArray(new String[createdFiles.size()]));
+        }
+      }
+    }
+  }
+
   private final Set<String> filesToDelete = new HashSet<>();
   
   public Set<String> pendingFilesToDelete() {
@@ -16,8 +16,11 @@ package org.apache.lucene.index;
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+import java.util.Collection;
 import java.util.IdentityHashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.index.DocumentsWriterPerThreadPool.ThreadState;
 import org.apache.lucene.util.InfoStream;
@@ -37,17 +40,70 @@ import org.apache.lucene.util.ThreadInterruptedException;
  * Once flushing catches up and the number of flushing DWPT is equal or lower
  * than the number of active {@link ThreadState}s threads are released and can
  * continue indexing.
+ * <p>
+ * If {@link LiveIndexWriterConfig#getThrottleIndexing()} is enabled this class
+ * also acts as a governor that smoothly slows down incoming threads before the
+ * hard stall kicks in. The throttle is driven by two pressures in the range
+ * <code>[0..1]</code>: the flush pressure, derived from the net bytes pending
+ * flush relative to the stall limit, and the merge pressure, derived from the
+ * number of pending and running merges relative to the limits of the
+ * {@link ConcurrentMergeScheduler}. The merge pressure is discounted while the
+ * merge scheduler still has IO rate headroom and merges are actually IO bound,
+ * so that merges are sped up before indexing is slowed down. Under pressure
+ * the indexing rate (in RAM bytes per second) is limited to a fraction of the
+ * rate observed while there was no pressure.
  */
 final class DocumentsWriterStallControl {
   
+  /** Fraction of the stall limit at which flush pressure starts to throttle indexing. */
+  private static final double FLUSH_PRESSURE_START = 0.75;
+
+  /** The throttle never reduces indexing below this fraction of the unthrottled rate. */
+  private static final double MIN_RATE_FRACTION = 0.1;
+
+  /** Upper bound for a single pause, so that throttled threads re-check the pressure regularly. */
+  private static final long MAX_PAUSE_NS = TimeUnit.MILLISECONDS.toNanos(250);
+
+  /** Length of the window over which rates are measured and reported. */
+  private static final long WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+
   private volatile boolean stalled;
   private int numWaiting; // only with assert
   private boolean wasStalled; // only with assert
   private final Map<Thread, Boolean> waiting = new IdentityHashMap<>(); // only with assert
   private final InfoStream infoStream;
+  private final LiveIndexWriterConfig config;
+
+  // throttle state; the pressures and nextFreeNS are read without locking:
+  private volatile double flushPressure;
+  private volatile double mergePressure;
+  private volatile long nextFreeNS;
+  private double baselineBytesPerSec;
+  private double targetBytesPerSec;
+
+  // merge backlog, published by IndexWriter:
+  private int pendingMerges;
+  private MergeRateLimiter[] runningMerges = new MergeRateLimiter[0];
+  private long finishedMergeBytes;
+
+  // sampled from the ConcurrentMergeScheduler without holding any lock:
+  private volatile long lastMergeSchedulerSampleNS;
+  private volatile int maxMergeThreads = -1;
+  private volatile int maxMergeCount = -1;
+  private volatile double mergeIORateLimitMBPerSec = Double.POSITIVE_INFINITY;
+
+  // current measurement window:
+  private long windowStartNS;
+  private long windowBytes;
+  private long windowMergeBytes;
+  private long windowThrottledNS;
+  private double windowMaxPressure;
+  private double mergeWriteMBPerSec;
 
   DocumentsWriterStallControl(LiveIndexWriterConfig iwc) {
     infoStream = iwc.getInfoStream();
+    config = iwc;
+    lastMergeSchedulerSampleNS = System.nanoTime() - WINDOW_NS - 1; // sample on first use
   }
   
   /**
@@ -130,4 +186,190 @@ final class DocumentsWriterStallControl {
   synchronized boolean wasStalled() { // for tests
     return wasStalled;
   }
+
+  /**
+   * Updates the flush pressure from the current net bytes. Pressure starts to
+   * build once the net bytes exceed {@link #FLUSH_PRESSURE_START} of the stall
+   * limit and reaches <code>1</code> at the stall limit.
+   */
+  void updateFlushPressure(long netBytes, long stallLimitBytes, boolean closed) {
+    if (closed || stallLimitBytes == Long.MAX_VALUE) {
+      flushPressure = 0;
+    } else {
+      final double start = FLUSH_PRESSURE_START * stallLimitBytes;
+      flushPressure = clamp((netBytes - start) / (stallLimitBytes - start));
+    }
+  }
+
+  /**
+   * Publishes the merge backlog of the {@link IndexWriter}. This is called
+   * while holding the {@link IndexWriter} lock whenever a merge is registered,
+   * started or finished.
+   */
+  synchronized void updateMergeBacklog(int numPendingMerges, Collection<MergePolicy.OneMerge> running) {
+    pendingMerges = numPendingMerges;
+    final MergeRateLimiter[] limiters = new MergeRateLimiter[running.size()];
+    int i = 0;
+    for (MergePolicy.OneMerge merge : running) {
+      limiters[i++] = merge.rateLimiter;
+    }
+    runningMerges = limiters;
+    updateMergePressure();
+  }
+
+  /**
+   * Records the bytes written by a merge that is no longer running. Must be
+   * called before the merge is removed from the published backlog so that the
+   * total merge bytes never go backwards.
+   */
+  synchronized void mergeFinished(MergePolicy.OneMerge merge) {
+    finishedMergeBytes += merge.rateLimiter.getTotalBytesWritten();
+  }
+
+  /**
+   * Pauses the calling thread if documents were added faster than the current
+   * target rate allows. This must not be called while holding any lock.
+   */
+  void maybeThrottle() {
+    if (config.getThrottleIndexing() == false) {
+      return;
+    }
+    final long now = System.nanoTime();
+    if (now - lastMergeSchedulerSampleNS > WINDOW_NS) {
+      sampleMergeScheduler(now);
+    }
+    final long pauseNS = Math.min(nextFreeNS - now, MAX_PAUSE_NS);
+    if (pauseNS > 0) {
+      try {
+        Thread.sleep(pauseNS / 1000000, (int) (pauseNS % 1000000));
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      }
+      synchronized (this) {
+        windowThrottledNS += pauseNS;
+      }
+    }
+  }
+
+  /**
+   * Accounts the RAM bytes of a newly indexed document against the current
+   * target rate. Called with the {@link DocumentsWriterFlushControl} lock held.
+   */
+  synchronized void afterDocument(long bytes) {
+    final long now = System.nanoTime();
+    if (windowStartNS == 0) {
+      windowStartNS = now;
+      windowMergeBytes = mergeBytesWritten();
+    }
+    windowBytes += Math.max(0, bytes);
+    final double pressure = Math.max(flushPressure, mergePressure);
+    windowMaxPressure = Math.max(windowMaxPressure, pressure);
+    if (pressure > 0 && baselineBytesPerSec > 0) {
+      targetBytesPerSec = baselineBytesPerSec * Math.max(MIN_RATE_FRACTION, 1 - pressure);
+      nextFreeNS = Math.max(nextFreeNS, now) + (long) (Math.max(0, bytes) * 1000000000.0 / targetBytesPerSec);
+    } else {
+      targetBytesPerSec = 0;
+      nextFreeNS = 0;
+    }
+    if (now - windowStartNS >= WINDOW_NS) {
+      rollWindow(now);
+    }
+  }
+
+  private void rollWindow(long now) {
+    assert Thread.holdsLock(this);
+    final double seconds = (now - windowStartNS) / 1000000000.0;
+    final double bytesPerSec = windowBytes / seconds;
+    if (windowMaxPressure == 0 || baselineBytesPerSec == 0) {
+      // only learn from windows where we did not throttle, unless we have nothing to start from:
+      baselineBytesPerSec = baselineBytesPerSec == 0 ? bytesPerSec : 0.7 * baselineBytesPerSec + 0.3 * bytesPerSec;
+    }
+    final long mergeBytes = mergeBytesWritten();
+    mergeWriteMBPerSec = (mergeBytes - windowMergeBytes) / 1024. / 1024. / seconds;
+    updateMergePressure();
+    if (infoStream.isEnabled("DW")) {
+      infoStream.message("DW", String.format(Locale.ROOT,
+          "indexing throttle: flushPressure=%.2f mergePressure=%.2f pendingMerges=%d runningMerges=%d mergeWriteMB/sec=%.1f mergeIOLimitMB/sec=%.1f indexMB/sec=%.1f baselineMB/sec=%.1f targetMB/sec=%s throttled=%.1f msec",
+          flushPressure, mergePressure, pendingMerges, runningMerges.length, mergeWriteMBPerSec, mergeIORateLimitMBPerSec,
+          bytesPerSec / 1024 / 1024, baselineBytesPerSec / 1024 / 1024,
+          targetBytesPerSec == 0 ? "unlimited" : String.format(Locale.ROOT, "%.1f", targetBytesPerSec / 1024 / 1024),
+          windowThrottledNS / 1000000.0));
+    }
+    windowStartNS = now;
+    windowBytes = 0;
+    windowMergeBytes = mergeBytes;
+    windowThrottledNS = 0;
+    windowMaxPressure = 0;
+  }
+
+  private long mergeBytesWritten() {
+    assert Thread.holdsLock(this);
+    long bytes = finishedMergeBytes;
+    for (MergeRateLimiter limiter : runningMerges) {
+      bytes += limiter.getTotalBytesWritten();
+    }
+    return bytes;
+  }
+
+  /** Reads the merge limits without holding our lock, since the merge scheduler calls into {@link IndexWriter} while holding its own. */
+  private void sampleMergeScheduler(long now) {
+    lastMergeSchedulerSampleNS = now;
+    final MergeScheduler mergeScheduler = config.getMergeScheduler();
+    if (mergeScheduler instanceof ConcurrentMergeScheduler) {
+      final ConcurrentMergeScheduler cms = (ConcurrentMergeScheduler) mergeScheduler;
+      maxMergeThreads = cms.getMaxThreadCount();
+      maxMergeCount = cms.getMaxMergeCount();
+      mergeIORateLimitMBPerSec = cms.getIORateLimitMBPerSec();
+    } else {
+      maxMergeThreads = -1;
+      maxMergeCount = -1;
+      mergeIORateLimitMBPerSec = Double.POSITIVE_INFINITY;
+    }
+    synchronized (this) {
+      updateMergePressure();
+    }
+  }
+
+  private void updateMergePressure() {
+    assert Thread.holdsLock(this);
+    final int maxThreads = maxMergeThreads;
+    final int maxMerges = maxMergeCount;
+    if (maxThreads <= 0 || maxMerges <= 0) {
+      // not a ConcurrentMergeScheduler, or its defaults were not yet resolved
+      mergePressure = 0;
+      return;
+    }
+    // ConcurrentMergeScheduler hard-stalls indexing threads once the backlog reaches
+    // maxMergeCount; ramp the pressure up from maxThreadCount so we get there smoothly:
+    final int backlog = pendingMerges + runningMerges.length;
+    final double pressure = clamp((backlog - maxThreads) / (double) Math.max(1, maxMerges - maxThreads));
+
+    // while merges are IO bound and the merge scheduler can still raise their rate
+    // limit, let it do so first; headroom is measured on a log scale like its ramp:
+    final double limitMBPerSec = mergeIORateLimitMBPerSec;
+    double headroom = 0;
+    if (limitMBPerSec < ConcurrentMergeScheduler.MAX_MERGE_MB_PER_SEC
+        && mergeWriteMBPerSec >= 0.5 * limitMBPerSec * runningMerges.length) {
+      final double min = ConcurrentMergeScheduler.MIN_MERGE_MB_PER_SEC;
+      final double max = ConcurrentMergeScheduler.MAX_MERGE_MB_PER_SEC;
+      headroom = 1 - Math.log(Math.max(limitMBPerSec, min) / min) / Math.log(max / min);
+    }
+    mergePressure = pressure * (1 - headroom);
+  }
+
+  private static double clamp(double pressure) {
+    return Math.max(0, Math.min(1, pressure));
+  }
+
+  double getFlushPressure() { // for tests
+    return flushPressure;
+  }
+
+  double getMergePressure() { // for tests
+    return mergePressure;
+  }
+
+  boolean isThrottling() { // for tests
+    return nextFreeNS > System.nanoTime();
+  }
 }
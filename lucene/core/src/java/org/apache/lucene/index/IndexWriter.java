@@ -49,6 +49,7 @@ import org.apache.lucene.index.FieldInfos.FieldNumbers;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FilterDirectory;
@@ -1881,6 +1882,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
       // Advance the merge from pending to running
       MergePolicy.OneMerge merge = pendingMerges.removeFirst();
       runningMerges.add(merge);
+      publishMergeBacklog();
       return merge;
     }
   }
@@ -2127,6 +2129,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
       mergeFinish(merge);
     }
     pendingMerges.clear();
+    publishMergeBacklog();
 
     for (final MergePolicy.OneMerge merge : runningMerges) {
       if (infoStream.isEnabled("IW")) {
@@ -2499,7 +2502,24 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
       SegmentInfo info = new SegmentInfo(directory, Version.LATEST, mergedName, -1,
                                          false, codec, Collections.emptyMap(), StringHelper.randomId(), new HashMap<>());
 
-      SegmentMerger merger = new SegmentMerger(Arrays.asList(readers), info, infoStream, trackingDir,
+      List<CodecReader> mergeReaders = Arrays.asList(readers);
+      final Sort indexSort = config.getIndexSort();
+      if (indexSort != null && readers.length > 0) {
+        // sort the added documents like any other new segment
+        final LeafReader atomicView;
+        if (readers.length == 1) {
+          atomicView = readers[0];
+        } else {
+          atomicView = new SlowCompositeReaderWrapper(new MultiReader(readers), true);
+        }
+        final Sorter.DocMap docMap = new Sorter(indexSort).sort(atomicView);
+        if (docMap != null) {
+          mergeReaders = Collections.singletonList(SlowCodecReaderWrapper.wrap(SortingLeafReader.wrap(atomicView, docMap)));
+        }
+        info.setIndexSort(indexSort);
+      }
+
+      SegmentMerger merger = new SegmentMerger(mergeReaders, info, infoStream, trackingDir,
                                                globalFieldNumberMap, 
                                                context);
       
@@ -3604,6 +3624,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     ensureValidMerge(merge);
 
     pendingMerges.add(merge);
+    publishMergeBacklog();
 
     if (infoStream.isEnabled("IW")) {
       infoStream.message("IW", "add merge to pendingMerges: " + segString(merge.segments) + " [total " + pendingMerges.size() + " pending]");
@@ -3727,6 +3748,9 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     // names.
     final String mergeSegmentName = newSegmentName();
     SegmentInfo si = new SegmentInfo(directory, Version.LATEST, mergeSegmentName, -1, false, codec, Collections.emptyMap(), StringHelper.randomId(), new HashMap<>());
+    if (config.getIndexSort() != null) {
+      merge.indexSorter = new Sorter(config.getIndexSort());
+    }
     Map<String,String> details = new HashMap<>();
     details.put("mergeMaxNumSegments", "" + merge.maxNumSegments);
     details.put("mergeFactor", Integer.toString(merge.segments.size()));
@@ -3781,7 +3805,19 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
       merge.registerDone = false;
     }
 
-    runningMerges.remove(merge);
+    if (runningMerges.contains(merge)) {
+      docWriter.flushControl.stallControl.mergeFinished(merge);
+      runningMerges.remove(merge);
+      publishMergeBacklog();
+    }
+  }
+
+  /** Publishes the pending and running merges to the indexing throttle.
+   *
+   * @see LiveIndexWriterConfig#setThrottleIndexing(boolean) */
+  private void publishMergeBacklog() {
+    assert Thread.holdsLock(this);
+    docWriter.flushControl.stallControl.updateMergeBacklog(pendingMerges.size(), runningMerges);
   }
 
   private final synchronized void closeMergeReaders(MergePolicy.OneMerge merge, boolean suppressExceptions) throws IOException {
@@ -3926,7 +3962,11 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
       
       // we pass merge.getMergeReaders() instead of merge.readers to allow the
       // OneMerge to return a view over the actual segments to merge
-      final SegmentMerger merger = new SegmentMerger(merge.getMergeReaders(),
+      final List<CodecReader> mergeReaders = merge.getMergeReaders();
+      if (merge.isSortedByIndexSort(mergeReaders)) {
+        merge.info.info.setIndexSort(config.getIndexSort());
+      }
+      final SegmentMerger merger = new SegmentMerger(mergeReaders,
                                                      merge.info.info, infoStream, dirWrapper,
                                                      globalFieldNumberMap, 
                                                      context);
@@ -18,12 +18,19 @@ package org.apache.lucene.index;
  */
 
 import java.io.PrintStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.index.DocumentsWriterPerThread.IndexingChain;
 import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopFieldCollector; // javadocs
 import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.store.Directory; // javadocs
 import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.PrintStreamInfoStream;
 import org.apache.lucene.util.SetOnce;
@@ -112,6 +119,9 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
   
   /** Default value for whether calls to {@link IndexWriter#close()} include a commit. */
   public final static boolean DEFAULT_COMMIT_ON_CLOSE = true;
+
+  /** Default value for whether indexing threads are throttled under flush or merge pressure. */
+  public final static boolean DEFAULT_THROTTLE_INDEXING = false;
   
   /**
    * Sets the default (for any instance) maximum time to wait for a write lock
@@ -292,6 +302,53 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
     return this;
   }
 
+  /**
+   * Set the {@link Sort} that documents within each segment are sorted by.
+   * Newly flushed segments are sorted at flush time and merged segments are
+   * sorted while merging, and the sort is recorded in their {@link SegmentInfo},
+   * so that {@link TopFieldCollector} can terminate collection of a segment
+   * early when the search sort is a prefix of the index sort.
+   * <p>
+   * Only plain {@link SortField}s on
+   * {@link SortField.Type#STRING STRING}, {@link SortField.Type#LONG LONG},
+   * {@link SortField.Type#INT INT}, {@link SortField.Type#DOUBLE DOUBLE} and
+   * {@link SortField.Type#FLOAT FLOAT} doc values are supported. Use
+   * <code>null</code> (the default) to keep documents in the order they were added.
+   * <p><b>NOTE</b>: documents are reordered, so never use an index sort if you
+   * rely on {@link IndexWriter#addDocuments(Iterable) IndexWriter.addDocuments}
+   * to assign sequential doc IDs.
+   * <p>
+   * Only takes effect when IndexWriter is first created.
+   *
+   * @throws IllegalArgumentException if the sort contains an unsupported {@link SortField}
+   */
+  public IndexWriterConfig setIndexSort(Sort sort) {
+    if (sort != null) {
+      for (SortField sortField : sort.getSort()) {
+        if (sortField.getClass() != SortField.class) {
+          throw new IllegalArgumentException("invalid SortField for index sort: " + sortField);
+        }
+        switch (sortField.getType()) {
+          case STRING:
+          case LONG:
+          case INT:
+          case DOUBLE:
+          case FLOAT:
+            break;
+          default:
+            throw new IllegalArgumentException("invalid SortField type for index sort: must be one of STRING, LONG, INT, DOUBLE or FLOAT but got: " + sortField);
+        }
+      }
+    }
+    this.indexSort = sort;
+    return this;
+  }
+
+  @Override
+  public Sort getIndexSort() {
+    return indexSort;
+  }
+
   @Override
   public Codec getCodec() {
     return codec;
@@ -363,6 +420,16 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
     return readerPooling;
   }
 
+  /** Expert: sets the attributes that are passed to the codec when
+   *  IndexWriter opens segment readers, including near-real-time
+   *  readers, see {@link DirectoryReader#open(Directory, Map)}.
+   *
+   * <p>Only takes effect when IndexWriter is first created. */
+  public IndexWriterConfig setReaderAttributes(Map<String,String> readerAttributes) {
+    this.readerAttributes = Collections.unmodifiableMap(new HashMap<>(readerAttributes));
+    return this;
+  }
+
   /** Expert: sets the {@link DocConsumer} chain to be used to process documents.
    *
    * <p>Only takes effect when IndexWriter is first created. */
@@ -509,6 +576,11 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
     return (IndexWriterConfig) super.setUseCompoundFile(useCompoundFile);
   }
 
+  @Override
+  public IndexWriterConfig setThrottleIndexing(boolean throttleIndexing) {
+    return (IndexWriterConfig) super.setThrottleIndexing(throttleIndexing);
+  }
+
   /**
    * Sets if calls {@link IndexWriter#close()} should first commit
    * before closing.  Use <code>true</code> to match behavior of Lucene 4.x.
@@ -17,12 +17,16 @@ package org.apache.lucene.index;
  * limitations under the License.
  */
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.index.DocumentsWriterPerThread.IndexingChain;
 import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.util.InfoStream;
 
@@ -70,6 +74,9 @@ public class LiveIndexWriterConfig {
   /** {@link Codec} used to write new segments. */
   protected volatile Codec codec;
 
+  /** The sort order of documents within new segments, or <code>null</code> if unsorted. */
+  protected Sort indexSort;
+
   /** {@link InfoStream} for debugging messages. */
   protected volatile InfoStream infoStream;
 
@@ -83,6 +90,9 @@ public class LiveIndexWriterConfig {
   /** True if readers should be pooled. */
   protected volatile boolean readerPooling;
 
+  /** Attributes passed to the codec when opening segment readers. */
+  protected volatile Map<String,String> readerAttributes = Collections.emptyMap();
+
   /** {@link FlushPolicy} to control when segments are
    *  flushed. */
   protected volatile FlushPolicy flushPolicy;
@@ -97,6 +107,10 @@ public class LiveIndexWriterConfig {
   /** True if calls to {@link IndexWriter#close()} should first do a commit. */
   protected boolean commitOnClose = IndexWriterConfig.DEFAULT_COMMIT_ON_CLOSE;
 
+  /** True if indexing threads should be slowed down gradually under flush
+   *  or merge pressure, before they are stalled. */
+  protected volatile boolean throttleIndexing = IndexWriterConfig.DEFAULT_THROTTLE_INDEXING;
+
   // used by IndexWriterConfig
   LiveIndexWriterConfig(Analyzer analyzer) {
     this.analyzer = analyzer;
@@ -365,6 +379,16 @@ public class LiveIndexWriterConfig {
     return codec;
   }
 
+  /**
+   * Returns the {@link Sort} that documents of new segments are sorted by, or
+   * <code>null</code> if documents are kept in the order they were added.
+   *
+   * @see IndexWriterConfig#setIndexSort(Sort)
+   */
+  public Sort getIndexSort() {
+    return indexSort;
+  }
+
   /**
    * Returns the current MergePolicy in use by this writer.
    *
@@ -400,6 +424,16 @@ public class LiveIndexWriterConfig {
     return readerPooling;
   }
 
+  /**
+   * Returns the attributes that are passed to the codec when the
+   * {@link IndexWriter} opens segment readers.
+   *
+   * @see IndexWriterConfig#setReaderAttributes(Map)
+   */
+  public Map<String,String> getReaderAttributes() {
+    return readerAttributes;
+  }
+
   /**
    * Returns the indexing chain set on
    * {@link IndexWriterConfig#setIndexingChain(IndexingChain)}.
@@ -467,6 +501,33 @@ public class LiveIndexWriterConfig {
     return commitOnClose;
   }
 
+  /**
+   * Expert: sets if the {@link IndexWriter} should gradually slow down
+   * incoming indexing threads when flushing or merging falls behind, instead
+   * of only blocking them once the hard stall limit (twice the RAM buffer) is
+   * reached. The indexing rate is reduced proportionally to the pending flush
+   * bytes and the merge backlog, and merges are given a chance to speed up
+   * first when the {@link ConcurrentMergeScheduler} still has IO headroom.
+   * Default is <code>false</code>.
+   * <p>
+   * The governor's state is reported to the {@link InfoStream} under the
+   * <code>"DW"</code> component.
+   */
+  public LiveIndexWriterConfig setThrottleIndexing(boolean throttleIndexing) {
+    this.throttleIndexing = throttleIndexing;
+    return this;
+  }
+
+  /**
+   * Returns <code>true</code> if indexing threads are gradually slowed down
+   * under flush or merge pressure.
+   *
+   * @see #setThrottleIndexing(boolean)
+   */
+  public boolean getThrottleIndexing() {
+    return throttleIndexing;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -484,13 +545,16 @@ public class LiveIndexWriterConfig {
     sb.append("default WRITE_LOCK_TIMEOUT=").append(IndexWriterConfig.WRITE_LOCK_TIMEOUT).append("\n");
     sb.append("writeLockTimeout=").append(getWriteLockTimeout()).append("\n");
     sb.append("codec=").append(getCodec()).append("\n");
+    sb.append("indexSort=").append(getIndexSort()).append("\n");
     sb.append("infoStream=").append(getInfoStream().getClass().getName()).append("\n");
     sb.append("mergePolicy=").append(getMergePolicy()).append("\n");
     sb.append("indexerThreadPool=").append(getIndexerThreadPool()).append("\n");
     sb.append("readerPooling=").append(getReaderPooling()).append("\n");
+    sb.append("readerAttributes=").append(getReaderAttributes()).append("\n");
     sb.append("perThreadHardLimitMB=").append(getRAMPerThreadHardLimitMB()).append("\n");
     sb.append("useCompoundFile=").append(getUseCompoundFile()).append("\n");
     sb.append("commitOnClose=").append(getCommitOnClose()).append("\n");
+    sb.append("throttleIndexing=").append(getThrottleIndexing()).append("\n");
     return sb.toString();
   }
 }
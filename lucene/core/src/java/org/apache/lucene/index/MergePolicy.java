@@ -26,7 +26,10 @@ import java.util.Map;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MergeInfo;
 import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
 
 /**
  * <p>Expert: a MergePolicy determines the sequence of
@@ -105,6 +108,10 @@ public abstract class MergePolicy {
     volatile long totalMergeBytes;
 
     List<SegmentReader> readers;        // used by IndexWriter
+    Sorter indexSorter;                 // used by IndexWriter
+    private List<CodecReader> sortedReaders;
+    private List<CodecReader> unsortedReaders;
+    private Sorter.DocMap sortDocMap;
 
     /** Segments to be merged. */
     public final List<SegmentCommitInfo> segments;
@@ -145,18 +152,46 @@ public abstract class MergePolicy {
      *  to feed SegmentMerger to initialize a merge. When a {@link OneMerge}
      *  reorders doc IDs, it must override {@link #getDocMap} too so that
      *  deletes that happened during the merge can be applied to the newly
-     *  merged segment. */
+     *  merged segment.
+     *  <p>If the {@link IndexWriter} has an {@link IndexWriterConfig#setIndexSort index sort},
+     *  this returns a single reader that views the segments to merge in sorted order. */
     public List<CodecReader> getMergeReaders() throws IOException {
       if (readers == null) {
         throw new IllegalStateException("IndexWriter has not initialized readers from the segment infos yet");
       }
+      if (sortedReaders != null) {
+        return sortedReaders;
+      }
       final List<CodecReader> readers = new ArrayList<>(this.readers.size());
       for (SegmentReader reader : this.readers) {
         if (reader.numDocs() > 0) {
           readers.add(reader);
         }
       }
-      return Collections.unmodifiableList(readers);
+      if (indexSorter == null) {
+        return Collections.unmodifiableList(readers);
+      }
+      unsortedReaders = Collections.unmodifiableList(readers);
+      final LeafReader atomicView;
+      if (readers.size() == 1) {
+        atomicView = readers.get(0);
+      } else {
+        atomicView = new SlowCompositeReaderWrapper(new MultiReader(readers.toArray(new LeafReader[readers.size()])), true);
+      }
+      sortDocMap = indexSorter.sort(atomicView);
+      if (sortDocMap == null) {
+        // the readers are already sorted
+        sortedReaders = unsortedReaders;
+      } else {
+        sortedReaders = Collections.singletonList(SlowCodecReaderWrapper.wrap(SortingLeafReader.wrap(atomicView, sortDocMap)));
+      }
+      return sortedReaders;
+    }
+
+    /** Returns true if <code>mergeReaders</code> is the sorted view that
+     *  {@link #getMergeReaders()} built for the index sort. */
+    boolean isSortedByIndexSort(List<CodecReader> mergeReaders) {
+      return indexSorter != null && mergeReaders == sortedReaders;
     }
     
     /**
@@ -172,7 +207,19 @@ public abstract class MergePolicy {
      *  (the doc ID that would result from a natural merge) to the actual doc
      *  ID. This mapping is used to apply deletions that happened during the
      *  merge to the new segment. */
-    public DocMap getDocMap(MergeState mergeState) {
+    public DocMap getDocMap(final MergeState mergeState) {
+      if (sortDocMap != null) {
+        assert mergeState.docMaps.length == 1; // we returned a singleton reader
+        final PackedLongValues deletes = getDeletes(unsortedReaders);
+        return new DocMap() {
+          @Override
+          public int map(int old) {
+            final int oldWithDeletes = old + (int) deletes.get(old);
+            final int newWithDeletes = sortDocMap.oldToNew(oldWithDeletes);
+            return mergeState.docMaps[0].get(newWithDeletes);
+          }
+        };
+      }
       return new DocMap() {
         @Override
         public int map(int docID) {
@@ -181,6 +228,25 @@ public abstract class MergePolicy {
       };
     }
 
+    /** Maps each live doc, in the order of a natural merge, to its number of
+     *  preceding deleted docs. */
+    private static PackedLongValues getDeletes(List<CodecReader> readers) {
+      PackedLongValues.Builder deletes = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+      int deleteCount = 0;
+      for (LeafReader reader : readers) {
+        final int maxDoc = reader.maxDoc();
+        final Bits liveDocs = reader.getLiveDocs();
+        for (int i = 0; i < maxDoc; ++i) {
+          if (liveDocs != null && !liveDocs.get(i)) {
+            ++deleteCount;
+          } else {
+            deletes.add(deleteCount);
+          }
+        }
+      }
+      return deletes.build();
+    }
+
     /** Record that an exception occurred while executing
      *  this merge */
     synchronized void setException(Throwable error) {
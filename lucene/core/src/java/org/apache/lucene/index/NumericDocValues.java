@@ -32,4 +32,24 @@ public abstract class NumericDocValues {
    * @return numeric value
    */
   public abstract long get(int docID);
+
+  /**
+   * Expert: Retrieves values in bulk. Stores the value of document
+   * <code>docs[i]</code> into <code>values[i]</code> for every
+   * <code>i</code> in <code>[0, count)</code>. Document IDs must be
+   * sorted in increasing order.
+   * <p>
+   * The default implementation calls {@link #get(int)} in a loop.
+   * Implementations that decode values in blocks may override it
+   * in order to avoid a method call per document.
+   * @param docs document IDs to lookup, in increasing order
+   * @param count number of document IDs to lookup
+   * @param values array to store values into
+   * @lucene.experimental
+   */
+  public void get(int[] docs, int count, long[] values) {
+    for (int i = 0; i < count; ++i) {
+      values[i] = get(docs[i]);
+    }
+  }
 }
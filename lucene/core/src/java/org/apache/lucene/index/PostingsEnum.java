@@ -109,4 +109,62 @@ public abstract class PostingsEnum extends DocIdSetIterator {
    *  in the byte[]). */
   public abstract BytesRef getPayload() throws IOException;
 
+  /**
+   * Expert: Reads the next documents in bulk. This advances this iterator
+   * by up to <code>docs.length</code> documents, stores their IDs into
+   * <code>docs</code> and, if <code>freqs</code> is not null, their term
+   * frequencies into <code>freqs</code>, which must then be at least as long
+   * as <code>docs</code>. Returns the number of documents that were read,
+   * which is 0 if and only if this iterator is exhausted. After this call,
+   * {@link #docID()} returns the last document that was read, or
+   * {@link DocIdSetIterator#NO_MORE_DOCS} if no document was read.
+   * <p>
+   * The default implementation calls {@link #nextDoc()} and {@link #freq()}
+   * in a loop. Implementations that decode postings in blocks may override it
+   * in order to copy whole blocks at once.
+   * @lucene.experimental
+   */
+  public int nextDocs(int[] docs, int[] freqs) throws IOException {
+    int count = 0;
+    while (count < docs.length) {
+      final int doc = nextDoc();
+      if (doc == NO_MORE_DOCS) {
+        break;
+      }
+      docs[count] = doc;
+      if (freqs != null) {
+        freqs[count] = freq();
+      }
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Expert: Moves block-max information to the block of postings that
+   * contains <code>target</code>, without moving this iterator, and returns
+   * the last document ID (inclusive) of that block. {@link #getMaxFreq()}
+   * then returns an upper bound of the term frequencies in that block.
+   * Targets must be passed in increasing order.
+   * <p>
+   * The default implementation considers that all postings are in a single
+   * block and returns {@link DocIdSetIterator#NO_MORE_DOCS}.
+   * @lucene.experimental
+   */
+  public int advanceShallow(int target) throws IOException {
+    return NO_MORE_DOCS;
+  }
+
+  /**
+   * Expert: Returns an upper bound of the term frequencies of the documents
+   * in the block that was last positioned with {@link #advanceShallow(int)}.
+   * <p>
+   * The default implementation returns {@link Integer#MAX_VALUE}, meaning
+   * that no upper bound is known.
+   * @lucene.experimental
+   */
+  public int getMaxFreq() throws IOException {
+    return Integer.MAX_VALUE;
+  }
+
 }
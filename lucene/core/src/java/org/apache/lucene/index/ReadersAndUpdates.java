@@ -129,7 +129,7 @@ class ReadersAndUpdates {
   public SegmentReader getReader(IOContext context) throws IOException {
     if (reader == null) {
       // We steal returned ref:
-      reader = new SegmentReader(info, context);
+      reader = new SegmentReader(info, context, writer.getConfig().getReaderAttributes());
       if (liveDocs == null) {
         liveDocs = reader.getLiveDocs();
       }
@@ -27,6 +27,7 @@ import java.util.Set;
 import java.util.regex.Matcher;
 
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.TrackingDirectoryWrapper;
 import org.apache.lucene.util.StringHelper;
@@ -68,6 +69,8 @@ public final class SegmentInfo {
   
   private final Map<String,String> attributes;
 
+  private Sort indexSort;
+
   // Tracks the Lucene version this segment was created with, since 3.1. Null
   // indicates an older than 3.0 index, and it's used to detect a too old index.
   // The format expected is "x.y" - "2.x" for pre-3.0 indexes (or null), and
@@ -93,6 +96,19 @@ public final class SegmentInfo {
   public SegmentInfo(Directory dir, Version version, String name, int maxDoc,
                      boolean isCompoundFile, Codec codec, Map<String,String> diagnostics,
                      byte[] id, Map<String,String> attributes) {
+    this(dir, version, name, maxDoc, isCompoundFile, codec, diagnostics, id, attributes, null);
+  }
+
+  /**
+   * Construct a new complete SegmentInfo instance from input, whose documents
+   * are sorted according to <code>indexSort</code>, or unsorted if it is
+   * <code>null</code>.
+   * <p>Note: this is public only to allow access from
+   * the codecs package.</p>
+   */
+  public SegmentInfo(Directory dir, Version version, String name, int maxDoc,
+                     boolean isCompoundFile, Codec codec, Map<String,String> diagnostics,
+                     byte[] id, Map<String,String> attributes, Sort indexSort) {
     assert !(dir instanceof TrackingDirectoryWrapper);
     this.dir = Objects.requireNonNull(dir);
     this.version = Objects.requireNonNull(version);
@@ -106,6 +122,7 @@ public final class SegmentInfo {
       throw new IllegalArgumentException("invalid id: " + Arrays.toString(id));
     }
     this.attributes = Objects.requireNonNull(attributes);
+    this.indexSort = indexSort;
   }
 
   /**
@@ -192,6 +209,10 @@ public final class SegmentInfo {
       s.append('/').append(delCount);
     }
 
+    if (indexSort != null) {
+      s.append(":[indexSort=").append(indexSort).append(']');
+    }
+
     // TODO: we could append toString of attributes() here?
 
     return s.toString();
@@ -215,6 +236,19 @@ public final class SegmentInfo {
     return dir.hashCode() + name.hashCode();
   }
 
+  /** Records that the documents of this segment are sorted by <code>indexSort</code>. */
+  void setIndexSort(Sort indexSort) {
+    this.indexSort = indexSort;
+  }
+
+  /** Returns the {@link Sort} that the documents of this segment are sorted
+   *  by, or <code>null</code> if the segment is not sorted.
+   *
+   * @see IndexWriterConfig#setIndexSort(Sort) */
+  public Sort getIndexSort() {
+    return indexSort;
+  }
+
   /** Returns the version of the code which wrote the segment.
    */
   public Version getVersion() {
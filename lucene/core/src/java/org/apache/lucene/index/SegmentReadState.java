@@ -17,6 +17,9 @@ package org.apache.lucene.index;
  * limitations under the License.
  */
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.lucene.codecs.PostingsFormat; // javadocs
 import org.apache.lucene.codecs.perfield.PerFieldPostingsFormat; // javadocs
 import org.apache.lucene.store.Directory;
@@ -49,11 +52,22 @@ public class SegmentReadState {
    *  {@link IndexFileNames#segmentFileName(String,String,String)}). */
   public final String segmentSuffix;
 
+  /** Attributes that were passed when opening the reader, which codecs may
+   *  use to configure how this segment is read.
+   *  @see DirectoryReader#open(Directory, Map) */
+  public final Map<String,String> readerAttributes;
+
   /** Create a {@code SegmentReadState}. */
   public SegmentReadState(Directory dir, SegmentInfo info,
       FieldInfos fieldInfos, IOContext context) {
     this(dir, info, fieldInfos,  context, "");
   }
+
+  /** Create a {@code SegmentReadState}. */
+  public SegmentReadState(Directory dir, SegmentInfo info,
+      FieldInfos fieldInfos, IOContext context, Map<String,String> readerAttributes) {
+    this(dir, info, fieldInfos,  context, "", readerAttributes);
+  }
   
   /** Create a {@code SegmentReadState}. */
   public SegmentReadState(Directory dir,
@@ -61,11 +75,22 @@ public class SegmentReadState {
                           FieldInfos fieldInfos,
                           IOContext context,
                           String segmentSuffix) {
+    this(dir, info, fieldInfos, context, segmentSuffix, Collections.<String,String>emptyMap());
+  }
+
+  /** Create a {@code SegmentReadState}. */
+  public SegmentReadState(Directory dir,
+                          SegmentInfo info,
+                          FieldInfos fieldInfos,
+                          IOContext context,
+                          String segmentSuffix,
+                          Map<String,String> readerAttributes) {
     this.directory = dir;
     this.segmentInfo = info;
     this.fieldInfos = fieldInfos;
     this.context = context;
     this.segmentSuffix = segmentSuffix;
+    this.readerAttributes = Collections.unmodifiableMap(readerAttributes);
   }
 
   /** Create a {@code SegmentReadState}. */
@@ -76,5 +101,6 @@ public class SegmentReadState {
     this.fieldInfos = other.fieldInfos;
     this.context = other.context;
     this.segmentSuffix = newSegmentSuffix;
+    this.readerAttributes = other.readerAttributes;
   }
 }
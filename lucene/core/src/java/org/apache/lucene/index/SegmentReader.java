@@ -19,6 +19,7 @@ package org.apache.lucene.index;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Map;
 
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.DocValuesProducer;
@@ -61,8 +62,18 @@ public final class SegmentReader extends CodecReader {
    */
   // TODO: why is this public?
   public SegmentReader(SegmentCommitInfo si, IOContext context) throws IOException {
+    this(si, context, Collections.<String,String>emptyMap());
+  }
+
+  /**
+   * Constructs a new SegmentReader with a new core, passing the given
+   * attributes to the codec, see {@link SegmentReadState#readerAttributes}.
+   * @throws CorruptIndexException if the index is corrupt
+   * @throws IOException if there is a low-level IO error
+   */
+  SegmentReader(SegmentCommitInfo si, IOContext context, Map<String,String> readerAttributes) throws IOException {
     this.si = si;
-    core = new SegmentCoreReaders(this, si.info.dir, si, context);
+    core = new SegmentCoreReaders(this, si.info.dir, si, context, readerAttributes);
     segDocValues = new SegmentDocValues();
     
     boolean success = false;
@@ -42,6 +42,25 @@ public abstract class SortedDocValues extends BinaryDocValues {
    */
   public abstract int getOrd(int docID);
 
+  /**
+   * Expert: Retrieves ordinals in bulk. Stores the ordinal of document
+   * <code>docs[i]</code> into <code>ords[i]</code> for every
+   * <code>i</code> in <code>[0, count)</code>. Document IDs must be
+   * sorted in increasing order.
+   * <p>
+   * The default implementation calls {@link #getOrd(int)} in a loop.
+   * @param docs document IDs to lookup, in increasing order
+   * @param count number of document IDs to lookup
+   * @param ords array to store ordinals into, -1 for missing values
+   * @see NumericDocValues#get(int[], int, long[])
+   * @lucene.experimental
+   */
+  public void getOrds(int[] docs, int count, int[] ords) {
+    for (int i = 0; i < count; ++i) {
+      ords[i] = getOrd(docs[i]);
+    }
+  }
+
   /** Retrieves the value for the specified ordinal. The returned
    * {@link BytesRef} may be re-used across calls to {@link #lookupOrd(int)}
    * so make sure to {@link BytesRef#deepCopyOf(BytesRef) copy it} if you want
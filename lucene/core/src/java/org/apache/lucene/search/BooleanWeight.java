@@ -247,12 +247,120 @@ public class BooleanWeight extends Weight {
       }
 
       if (bulkScorer.cost() > costThreshold) {
+        if (needsScores && query.minNrShouldMatch <= 1) {
+          // pure disjunction: allow to skip non-competitive documents if the collector supports it
+          return new DynamicPruningBulkScorer(context, acceptDocs, bulkScorer);
+        }
         return bulkScorer;
       }
     }
     return super.bulkScorer(context, acceptDocs);
   }
 
+  /** Create a {@link WANDScorer} for this weight, or null if some clauses are not optional. */
+  private Scorer wandScorer(LeafReaderContext context, Bits acceptDocs) throws IOException {
+    List<Scorer> optional = new ArrayList<>();
+    Iterator<BooleanClause> cIter = query.clauses().iterator();
+    for (Weight w  : weights) {
+      BooleanClause c =  cIter.next();
+      Scorer subScorer = w.scorer(context, acceptDocs);
+      if (subScorer == null) {
+        continue;
+      } else if (c.getOccur() != Occur.SHOULD) {
+        return null;
+      } else {
+        optional.add(subScorer);
+      }
+    }
+    if (optional.isEmpty()) {
+      return null;
+    }
+    return new WANDScorer(this, optional, coords);
+  }
+
+  /**
+   * A {@link BulkScorer} for pure disjunctions that uses a {@link WANDScorer}
+   * if the collector registers a minimum competitive score through
+   * {@link Scorer#setMinCompetitiveScore(float)} when its scorer is set, and
+   * {@link BooleanScorer} otherwise.
+   */
+  private class DynamicPruningBulkScorer extends BulkScorer {
+    private final LeafReaderContext context;
+    private final Bits acceptDocs;
+    private final BooleanScorer exhaustive;
+    private BulkScorer delegate;
+
+    DynamicPruningBulkScorer(LeafReaderContext context, Bits acceptDocs, BooleanScorer exhaustive) {
+      this.context = context;
+      this.acceptDocs = acceptDocs;
+      this.exhaustive = exhaustive;
+    }
+
+    @Override
+    public int score(LeafCollector collector, int min, int max) throws IOException {
+      if (delegate == null) {
+        final MinCompetitiveScoreProbe probe = new MinCompetitiveScoreProbe();
+        collector.setScorer(probe);
+        Scorer wand = null;
+        if (probe.minCompetitiveScoreSet) {
+          wand = wandScorer(context, acceptDocs);
+        }
+        delegate = wand == null ? exhaustive : new DefaultBulkScorer(wand);
+      }
+      return delegate.score(collector, min, max);
+    }
+
+    @Override
+    public long cost() {
+      return exhaustive.cost();
+    }
+  }
+
+  /** Scorer that is only used to find out whether a collector wants to skip
+   *  non-competitive documents. */
+  private static class MinCompetitiveScoreProbe extends Scorer {
+    boolean minCompetitiveScoreSet;
+
+    MinCompetitiveScoreProbe() {
+      super(null);
+    }
+
+    @Override
+    public void setMinCompetitiveScore(float minScore) {
+      minCompetitiveScoreSet = true;
+    }
+
+    @Override
+    public float score() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int freq() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int docID() {
+      return -1;
+    }
+
+    @Override
+    public int nextDoc() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int advance(int target) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long cost() {
+      return 0;
+    }
+  }
+
   @Override
   public Scorer scorer(LeafReaderContext context, Bits acceptDocs) throws IOException {
     // initially the user provided value,
@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool; // javadoc
 import java.util.concurrent.Future;
 
 import org.apache.lucene.index.DirectoryReader; // javadocs
@@ -89,6 +90,7 @@ public class IndexSearcher {
 
   // These are only used for multi-threaded search
   private final ExecutorService executor;
+  private final int maxDocsPerSlice;
 
   // the default Similarity
   private static final Similarity defaultSimilarity = new DefaultSimilarity();
@@ -162,6 +164,22 @@ public class IndexSearcher {
     this(r.getContext(), executor);
   }
 
+  /** Runs searches for ranges of at most <code>maxDocsPerSlice</code>
+   *  documents separately, using the provided ExecutorService.
+   *  Segments that are larger than <code>maxDocsPerSlice</code> are
+   *  split into several doc ID ranges of roughly equal size so that
+   *  a single large segment can be searched by several threads
+   *  concurrently. Since slices then have very different costs, it is
+   *  recommended to pass a work-stealing executor such as a
+   *  {@link ForkJoinPool}. Collectors created through a
+   *  {@link CollectorManager} are merged as usual.
+   *
+   * @see #IndexSearcher(IndexReader, ExecutorService)
+   * @lucene.experimental */
+  public IndexSearcher(IndexReader r, ExecutorService executor, int maxDocsPerSlice) {
+    this(r.getContext(), executor, maxDocsPerSlice);
+  }
+
   /**
    * Creates a searcher searching the provided top-level {@link IndexReaderContext}.
    * <p>
@@ -179,9 +197,25 @@ public class IndexSearcher {
    * @lucene.experimental
    */
   public IndexSearcher(IndexReaderContext context, ExecutorService executor) {
+    this(context, executor, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a searcher searching the provided top-level {@link IndexReaderContext}
+   * which splits segments into slices of at most <code>maxDocsPerSlice</code>
+   * documents when an {@link ExecutorService} is provided.
+   *
+   * @see #IndexSearcher(IndexReader, ExecutorService, int)
+   * @lucene.experimental
+   */
+  public IndexSearcher(IndexReaderContext context, ExecutorService executor, int maxDocsPerSlice) {
     assert context.isTopLevel: "IndexSearcher's ReaderContext must be topLevel for reader" + context.reader();
+    if (maxDocsPerSlice <= 0) {
+      throw new IllegalArgumentException("maxDocsPerSlice must be > 0, got " + maxDocsPerSlice);
+    }
     reader = context.reader();
     this.executor = executor;
+    this.maxDocsPerSlice = maxDocsPerSlice;
     this.readerContext = context;
     leafContexts = context.leaves();
     this.leafSlices = executor == null ? null : slices(leafContexts);
@@ -226,14 +260,26 @@ public class IndexSearcher {
   /**
    * Expert: Creates an array of leaf slices each holding a subset of the given leaves.
    * Each {@link LeafSlice} is executed in a single thread. By default there
-   * will be one {@link LeafSlice} per leaf ({@link org.apache.lucene.index.LeafReaderContext}).
+   * will be one {@link LeafSlice} per leaf ({@link org.apache.lucene.index.LeafReaderContext}),
+   * unless the leaf has more than <code>maxDocsPerSlice</code> documents, in
+   * which case it is split into several doc ID ranges of roughly equal size.
    */
   protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
-    LeafSlice[] slices = new LeafSlice[leaves.size()];
-    for (int i = 0; i < slices.length; i++) {
-      slices[i] = new LeafSlice(leaves.get(i));
+    List<LeafSlice> slices = new ArrayList<>(leaves.size());
+    for (LeafReaderContext leaf : leaves) {
+      final int maxDoc = leaf.reader().maxDoc();
+      if (maxDoc <= maxDocsPerSlice) {
+        slices.add(new LeafSlice(leaf));
+      } else {
+        final long numRanges = (maxDoc + (long) maxDocsPerSlice - 1) / maxDocsPerSlice;
+        final long rangeSize = (maxDoc + numRanges - 1) / numRanges;
+        for (long min = 0; min < maxDoc; min += rangeSize) {
+          final long max = min + rangeSize;
+          slices.add(new LeafSlice(leaf, (int) min, max >= maxDoc ? DocIdSetIterator.NO_MORE_DOCS : (int) max));
+        }
+      }
     }
-    return slices;
+    return slices.toArray(new LeafSlice[slices.size()]);
   }
 
   
@@ -497,12 +543,16 @@ public class IndexSearcher {
       final Weight weight = createNormalizedWeight(query, needsScores);
       final List<Future<C>> topDocsFutures = new ArrayList<>(leafSlices.length);
       for (int i = 0; i < leafSlices.length; ++i) {
-        final LeafReaderContext[] leaves = leafSlices[i].leaves;
+        final LeafSlice slice = leafSlices[i];
         final C collector = collectors.get(i);
         topDocsFutures.add(executor.submit(new Callable<C>() {
           @Override
           public C call() throws Exception {
-            search(Arrays.asList(leaves), weight, collector);
+            if (slice.isPartial()) {
+              search(slice.leaves[0], slice.minDoc, slice.maxDoc, weight, collector);
+            } else {
+              search(Arrays.asList(slice.leaves), weight, collector);
+            }
             return collector;
           }
         }));
@@ -569,6 +619,32 @@ public class IndexSearcher {
     }
   }
 
+  /**
+   * Lower-level search API.
+   * <p>
+   * Same as {@link #search(List, Weight, Collector)} but only collects documents
+   * of the given leaf whose ID is in <code>[minDoc, maxDoc)</code>. This is used
+   * to search slices that only cover part of a segment.
+   */
+  protected void search(LeafReaderContext leaf, int minDoc, int maxDoc, Weight weight, Collector collector)
+      throws IOException {
+    final LeafCollector leafCollector;
+    try {
+      leafCollector = collector.getLeafCollector(leaf);
+    } catch (CollectionTerminatedException e) {
+      // there is no doc of interest in this reader context
+      return;
+    }
+    BulkScorer scorer = weight.bulkScorer(leaf, leaf.reader().getLiveDocs());
+    if (scorer != null) {
+      try {
+        scorer.score(leafCollector, minDoc, maxDoc);
+      } catch (CollectionTerminatedException e) {
+        // collection was terminated prematurely
+      }
+    }
+  }
+
   /** Expert: called to re-write queries into primitive queries.
    * @throws BooleanQuery.TooManyClauses If a query would exceed 
    *         {@link BooleanQuery#getMaxClauseCount()} clauses.
@@ -658,21 +734,45 @@ public class IndexSearcher {
 
   /**
    * A class holding a subset of the {@link IndexSearcher}s leaf contexts to be
-   * executed within a single thread.
+   * executed within a single thread. A slice either holds one or more entire
+   * leaves, or a range of doc IDs of a single leaf.
    * 
    * @lucene.experimental
    */
   public static class LeafSlice {
     final LeafReaderContext[] leaves;
+    final int minDoc;
+    final int maxDoc;
     
     public LeafSlice(LeafReaderContext... leaves) {
       this.leaves = leaves;
+      this.minDoc = 0;
+      this.maxDoc = DocIdSetIterator.NO_MORE_DOCS;
+    }
+
+    /**
+     * Creates a slice that only covers documents of <code>leaf</code> whose
+     * ID is in <code>[minDoc, maxDoc)</code>.
+     */
+    public LeafSlice(LeafReaderContext leaf, int minDoc, int maxDoc) {
+      if (minDoc < 0 || minDoc >= maxDoc) {
+        throw new IllegalArgumentException("Invalid doc ID range: [" + minDoc + ", " + maxDoc + ")");
+      }
+      this.leaves = new LeafReaderContext[] { leaf };
+      this.minDoc = minDoc;
+      this.maxDoc = maxDoc;
+    }
+
+    /** Whether this slice only covers part of its leaf. */
+    boolean isPartial() {
+      return minDoc != 0 || maxDoc != DocIdSetIterator.NO_MORE_DOCS;
     }
   }
 
   @Override
   public String toString() {
-    return "IndexSearcher(" + reader + "; executor=" + executor + ")";
+    return "IndexSearcher(" + reader + "; executor=" + executor
+        + (maxDocsPerSlice == Integer.MAX_VALUE ? "" : "; maxDocsPerSlice=" + maxDocsPerSlice) + ")";
   }
   
   /**
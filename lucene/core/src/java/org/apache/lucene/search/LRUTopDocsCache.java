@@ -0,0 +1,407 @@
+package org.apache.lucene.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReader.CoreClosedListener;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A cache of the top-scoring hits of queries, computed on a per-segment
+ * basis. Unlike {@link LRUQueryCache}, which only caches matching documents,
+ * this cache stores the top <code>n</code> {@link ScoreDoc}s of each segment
+ * together with their scores. When an index is reopened, only new or
+ * modified segments need to be searched: top hits of segments that did not
+ * change are read from the cache and merged with the fresh ones.
+ *
+ * Entries are keyed by the segment's
+ * {@link org.apache.lucene.index.IndexReader#getCombinedCoreAndDeletesKey() core and deletes key},
+ * the query, <code>n</code> and the {@link Similarity}, but not by the index
+ * statistics, which change whenever documents are added or deleted. Cached
+ * hits are instead scored again with the current {@link Weight}, which only
+ * requires to advance a scorer to <code>n</code> documents, so that the
+ * returned scores are always those of the current searcher. The cached
+ * documents remain the top hits of the segment as long as the relative
+ * order of its documents does not change: this is the case for term
+ * queries with {@link org.apache.lucene.search.similarities.DefaultSimilarity},
+ * whose scores are only scaled by new statistics, but a disjunction may
+ * weigh its clauses differently when the frequencies of its terms change.
+ * In that case, hits that were computed under older statistics can differ
+ * from those of {@link IndexSearcher#search(Query, int)}, in the same way
+ * as top hits that are computed with per-shard statistics in a distributed
+ * search.
+ *
+ * This class is thread-safe. Eviction follows a LRU
+ * (least-recently-used) policy over per-segment entries.
+ *
+ * Typical usage looks like this:
+ * <pre class="prettyprint">
+ *   // can be shared across searchers of the same index
+ *   final LRUTopDocsCache topDocsCache = new LRUTopDocsCache(1024);
+ *
+ *   // ...
+ *
+ *   // Then at search time
+ *   IndexSearcher searcher = ...;
+ *   TopDocs topDocs = topDocsCache.search(searcher, query, 10);
+ * </pre>
+ *
+ * @lucene.experimental
+ */
+public class LRUTopDocsCache implements Accountable {
+
+  static final long ENTRY_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(CacheKey.class)
+      + RamUsageEstimator.shallowSizeOfInstance(TopDocs.class)
+      + 4 * RamUsageEstimator.NUM_BYTES_OBJECT_REF; // linked hash map entry
+
+  static final long SCORE_DOC_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(ScoreDoc.class)
+      + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
+  private final int maxSize;
+  // access-ordered so that iteration starts with the least-recently used entry
+  private final Map<CacheKey, TopDocs> cache;
+  // core keys that we registered a close listener on
+  private final Set<Object> coreKeys;
+
+  // these variables are volatile so that we do not need to sync reads
+  // but increments need to be performed under the lock
+  private volatile long ramBytesUsed;
+  private volatile long hitCount;
+  private volatile long missCount;
+  private volatile long evictionCount;
+
+  /**
+   * Create a new instance that will cache the top hits of at most
+   * <code>maxSize</code> (segment, query) pairs.
+   */
+  public LRUTopDocsCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be > 0, got " + maxSize);
+    }
+    this.maxSize = maxSize;
+    cache = new LinkedHashMap<>(16, 0.75f, true);
+    coreKeys = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+  }
+
+  /**
+   * Find the top <code>n</code> hits for <code>query</code>. The result is the
+   * same as {@link IndexSearcher#search(Query, int)} but segments whose top
+   * hits are cached are not searched.
+   */
+  public TopDocs search(IndexSearcher searcher, Query query, int n) throws IOException {
+    final IndexReaderContext topContext = searcher.getTopReaderContext();
+    final Weight weight = searcher.createNormalizedWeight(query, true);
+    final Query key = weight.getQuery().clone();
+    final Similarity similarity = searcher.getSimilarity();
+
+    final List<LeafReaderContext> leaves = topContext.leaves();
+    final TopDocs[] leafTopDocs = new TopDocs[leaves.size()];
+    for (int i = 0; i < leaves.size(); ++i) {
+      final LeafReaderContext context = leaves.get(i);
+      final CacheKey cacheKey = new CacheKey(context.reader().getCoreCacheKey(),
+          context.reader().getCombinedCoreAndDeletesKey(), key, n, similarity);
+      TopDocs topDocs = get(cacheKey);
+      if (topDocs == null) {
+        topDocs = searchLeaf(context, weight, n);
+        put(context, cacheKey, topDocs);
+      } else {
+        topDocs = rescoreLeaf(context, weight, topDocs);
+      }
+      leafTopDocs[i] = rebase(topDocs, context.docBase);
+    }
+    return TopDocs.merge(n, leafTopDocs);
+  }
+
+  /** Compute the top hits of a single leaf, with leaf-local doc IDs. */
+  private static TopDocs searchLeaf(LeafReaderContext context, Weight weight, int n) throws IOException {
+    final int limit = Math.max(1, context.reader().maxDoc());
+    final TopScoreDocCollector collector = TopScoreDocCollector.create(Math.min(n, limit));
+    final LeafCollector leafCollector;
+    try {
+      leafCollector = collector.getLeafCollector(context);
+    } catch (CollectionTerminatedException e) {
+      return rebase(collector.topDocs(), -context.docBase);
+    }
+    final BulkScorer scorer = weight.bulkScorer(context, context.reader().getLiveDocs());
+    if (scorer != null) {
+      try {
+        scorer.score(leafCollector);
+      } catch (CollectionTerminatedException e) {
+        // collection was terminated prematurely
+        // continue with the following leaf
+      }
+    }
+    return rebase(collector.topDocs(), -context.docBase);
+  }
+
+  /**
+   * Score the cached hits of a leaf with the given weight, whose statistics
+   * may differ from those of the weight that the hits were computed with.
+   */
+  private static TopDocs rescoreLeaf(LeafReaderContext context, Weight weight, TopDocs cached) throws IOException {
+    final ScoreDoc[] scoreDocs = new ScoreDoc[cached.scoreDocs.length];
+    for (int i = 0; i < scoreDocs.length; ++i) {
+      scoreDocs[i] = new ScoreDoc(cached.scoreDocs[i].doc, Float.NaN);
+    }
+    if (scoreDocs.length == 0) {
+      return new TopDocs(cached.totalHits, scoreDocs, Float.NaN);
+    }
+    Arrays.sort(scoreDocs, new Comparator<ScoreDoc>() {
+      @Override
+      public int compare(ScoreDoc a, ScoreDoc b) {
+        return Integer.compare(a.doc, b.doc);
+      }
+    });
+    // cached hits match since the segment and its deletes did not change
+    final Scorer scorer = weight.scorer(context, context.reader().getLiveDocs());
+    for (ScoreDoc scoreDoc : scoreDocs) {
+      final int doc = scorer.advance(scoreDoc.doc);
+      assert doc == scoreDoc.doc : "cached hit " + scoreDoc.doc + " does not match anymore";
+      scoreDoc.score = scorer.score();
+    }
+    // same order as TopScoreDocCollector
+    Arrays.sort(scoreDocs, new Comparator<ScoreDoc>() {
+      @Override
+      public int compare(ScoreDoc a, ScoreDoc b) {
+        final int cmp = Float.compare(b.score, a.score);
+        return cmp != 0 ? cmp : Integer.compare(a.doc, b.doc);
+      }
+    });
+    return new TopDocs(cached.totalHits, scoreDocs, scoreDocs[0].score);
+  }
+
+  /** Return a copy of <code>topDocs</code> whose doc IDs are shifted by <code>delta</code>. */
+  private static TopDocs rebase(TopDocs topDocs, int delta) {
+    final ScoreDoc[] scoreDocs = new ScoreDoc[topDocs.scoreDocs.length];
+    for (int i = 0; i < scoreDocs.length; ++i) {
+      final ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+      scoreDocs[i] = new ScoreDoc(scoreDoc.doc + delta, scoreDoc.score);
+    }
+    return new TopDocs(topDocs.totalHits, scoreDocs, topDocs.getMaxScore());
+  }
+
+  /**
+   * Expert: callback when there is a cache hit on a given query.
+   * Implementing this method is typically useful in order to compute more
+   * fine-grained statistics about the cache.
+   * @see #onMiss
+   * @lucene.experimental
+   */
+  protected void onHit(Object readerCoreKey, Query query) {
+    hitCount += 1;
+  }
+
+  /**
+   * Expert: callback when there is a cache miss on a given query.
+   * @see #onHit
+   * @lucene.experimental
+   */
+  protected void onMiss(Object readerCoreKey, Query query) {
+    missCount += 1;
+  }
+
+  /**
+   * Expert: callback when top hits are added to this cache.
+   * @see #onEviction
+   * @lucene.experimental
+   */
+  protected void onCache(Object readerCoreKey, long ramBytesUsed) {
+    this.ramBytesUsed += ramBytesUsed;
+  }
+
+  /**
+   * Expert: callback when top hits are removed from this cache.
+   * @see #onCache
+   * @lucene.experimental
+   */
+  protected void onEviction(Object readerCoreKey, long ramBytesUsed) {
+    this.ramBytesUsed -= ramBytesUsed;
+    evictionCount += 1;
+  }
+
+  /**
+   * Expert: callback when the cache is completely cleared.
+   * @lucene.experimental
+   */
+  protected void onClear() {
+    ramBytesUsed = 0;
+  }
+
+  synchronized TopDocs get(CacheKey key) {
+    // this get call moves the entry to the most-recently-used position
+    final TopDocs topDocs = cache.get(key);
+    if (topDocs == null) {
+      onMiss(key.coreKey, key.query);
+    } else {
+      onHit(key.coreKey, key.query);
+    }
+    return topDocs;
+  }
+
+  synchronized void put(LeafReaderContext context, CacheKey key, TopDocs topDocs) {
+    if (cache.containsKey(key)) {
+      return;
+    }
+    if (coreKeys.add(key.coreKey)) {
+      // first time we see this segment, need to register a close listener
+      context.reader().addCoreClosedListener(new CoreClosedListener() {
+        @Override
+        public void onClose(Object ownerCoreCacheKey) {
+          clearCoreCacheKey(ownerCoreCacheKey);
+        }
+      });
+    }
+    cache.put(key, topDocs);
+    onCache(key.coreKey, ramBytesUsed(topDocs));
+    evictIfNecessary();
+  }
+
+  private void evictIfNecessary() {
+    final Iterator<Map.Entry<CacheKey, TopDocs>> iterator = cache.entrySet().iterator();
+    while (cache.size() > maxSize) {
+      final Map.Entry<CacheKey, TopDocs> entry = iterator.next();
+      iterator.remove();
+      onEviction(entry.getKey().coreKey, ramBytesUsed(entry.getValue()));
+    }
+  }
+
+  private static long ramBytesUsed(TopDocs topDocs) {
+    return ENTRY_RAM_BYTES_USED
+        + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+        + topDocs.scoreDocs.length * SCORE_DOC_RAM_BYTES_USED;
+  }
+
+  /**
+   * Remove all cache entries for the given core cache key.
+   */
+  public synchronized void clearCoreCacheKey(Object coreKey) {
+    if (coreKeys.remove(coreKey)) {
+      for (Iterator<Map.Entry<CacheKey, TopDocs>> it = cache.entrySet().iterator(); it.hasNext(); ) {
+        final Map.Entry<CacheKey, TopDocs> entry = it.next();
+        if (entry.getKey().coreKey == coreKey) {
+          it.remove();
+          onEviction(coreKey, ramBytesUsed(entry.getValue()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Clear the content of this cache.
+   */
+  public synchronized void clear() {
+    cache.clear();
+    coreKeys.clear();
+    onClear();
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  /**
+   * Over the lifetime of this cache, the number of times that a segment's top
+   * hits were looked up and found in the cache.
+   */
+  public final long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Over the lifetime of this cache, the number of times that a segment's top
+   * hits were looked up and had to be computed.
+   */
+  public final long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * The number of (segment, query) pairs whose top hits are currently cached.
+   */
+  public final synchronized long getCacheSize() {
+    return cache.size();
+  }
+
+  /**
+   * The number of entries that have been removed from this cache, either
+   * because the cache was full or because the segment was closed.
+   */
+  public final long getEvictionCount() {
+    return evictionCount;
+  }
+
+  static final class CacheKey {
+
+    final Object coreKey;
+    final Object coreAndDeletesKey;
+    final Query query;
+    final int n;
+    final Similarity similarity;
+    private final int hashCode;
+
+    CacheKey(Object coreKey, Object coreAndDeletesKey, Query query, int n, Similarity similarity) {
+      this.coreKey = coreKey;
+      this.coreAndDeletesKey = coreAndDeletesKey;
+      this.query = query;
+      this.n = n;
+      this.similarity = similarity;
+      int h = System.identityHashCode(coreAndDeletesKey);
+      h = 31 * h + query.hashCode();
+      h = 31 * h + n;
+      h = 31 * h + System.identityHashCode(similarity);
+      this.hashCode = h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof CacheKey == false) {
+        return false;
+      }
+      final CacheKey that = (CacheKey) obj;
+      return coreAndDeletesKey == that.coreAndDeletesKey
+          && n == that.n
+          && similarity == that.similarity
+          && query.equals(that.query);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+  }
+
+}
@@ -87,6 +87,7 @@ public class MultiCollector implements Collector {
   }
   
   private final boolean cacheScores;
+  private final boolean needsScores;
   private final Collector[] collectors;
 
   private MultiCollector(Collector... collectors) {
@@ -98,6 +99,7 @@ public class MultiCollector implements Collector {
       }
     }
     this.cacheScores = numNeedsScores >= 2;
+    this.needsScores = numNeedsScores >= 1;
   }
 
   @Override
@@ -116,23 +118,43 @@ public class MultiCollector implements Collector {
     for (int i = 0; i < collectors.length; ++i) {
       leafCollectors[i] = collectors[i].getLeafCollector(context);
     }
-    return new MultiLeafCollector(leafCollectors, cacheScores);
+    return new MultiLeafCollector(leafCollectors, cacheScores, needsScores);
+  }
+
+  /**
+   * The scorer is shared by all collectors, so it must not skip documents that are
+   * only non-competitive for one of them: this wrapper ignores
+   * {@link Scorer#setMinCompetitiveScore(float)}, as {@link ScoreCachingWrappingScorer} does.
+   */
+  static final class NonPruningScorer extends FilterScorer {
+
+    NonPruningScorer(Scorer in) {
+      super(in);
+    }
+
+    @Override
+    public void setMinCompetitiveScore(float minScore) {
+    }
   }
 
   private static class MultiLeafCollector implements LeafCollector {
 
     private final boolean cacheScores;
+    private final boolean needsScores;
     private final LeafCollector[] collectors;
 
-    private MultiLeafCollector(LeafCollector[] collectors, boolean cacheScores) {
+    private MultiLeafCollector(LeafCollector[] collectors, boolean cacheScores, boolean needsScores) {
       this.collectors = collectors;
       this.cacheScores = cacheScores;
+      this.needsScores = needsScores;
     }
 
     @Override
     public void setScorer(Scorer scorer) throws IOException {
       if (cacheScores) {
         scorer = new ScoreCachingWrappingScorer(scorer);
+      } else if (needsScores) {
+        scorer = new NonPruningScorer(scorer);
       }
       for (LeafCollector c : collectors) {
         c.setScorer(scorer);
@@ -21,6 +21,10 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -49,6 +53,14 @@ public abstract class ReferenceManager<G> implements Closeable {
 
   private final List<RefreshListener> refreshListeners = new CopyOnWriteArrayList<>();
 
+  // refresh that has been handed to an executor but has not started yet
+  private FutureTask<Void> queuedRefresh;
+  private final Object queuedRefreshLock = new Object();
+
+  private volatile long refreshCount;
+  private volatile long lastRefreshTimeNS;
+  private volatile long totalRefreshTimeNS;
+
   private void ensureOpen() {
     if (current == null) {
       throw new AlreadyClosedException(REFERENCE_MANAGER_IS_CLOSED_MSG);
@@ -173,12 +185,18 @@ public abstract class ReferenceManager<G> implements Closeable {
       final G reference = acquire();
       try {
         notifyRefreshListenersBefore();
+        final long start = System.nanoTime();
         G newReference = refreshIfNeeded(reference);
         if (newReference != null) {
           assert newReference != reference : "refreshIfNeeded should return null if refresh wasn't needed";
           try {
             swapReference(newReference);
             refreshed = true;
+            final long took = System.nanoTime() - start;
+            // only the thread holding the refresh lock updates these
+            lastRefreshTimeNS = took;
+            totalRefreshTimeNS += took;
+            refreshCount++;
           } finally {
             if (!refreshed) {
               release(newReference);
@@ -256,6 +274,69 @@ public abstract class ReferenceManager<G> implements Closeable {
     }
   }
 
+  /**
+   * Refreshes in the background: like {@link #maybeRefreshBlocking()}, but
+   * the refresh, including any warming of the new reference, runs on the
+   * given executor and the calling thread returns immediately. The new
+   * reference is swapped in atomically once it is ready, until then
+   * {@link #acquire()} keeps returning the current one.
+   *
+   * <p>
+   * <b>Threads</b>: if a refresh has already been handed to an executor and
+   * has not started yet, no other refresh is queued and the future of the
+   * queued one is returned, since it will see all changes made so far.
+   *
+   * @param executor the executor to run the refresh on
+   * @return a future that completes once the refresh is done, and fails if
+   *         the refresh throws an exception
+   * @throws RejectedExecutionException if the executor rejects the refresh
+   * @throws AlreadyClosedException if the reference manager has been {@link #close() closed}.
+   */
+  public final Future<Void> maybeRefreshAsync(Executor executor) {
+    ensureOpen();
+    synchronized (queuedRefreshLock) {
+      if (queuedRefresh != null) {
+        return queuedRefresh;
+      }
+      final FutureTask<Void> task = new FutureTask<>(() -> {
+        synchronized (queuedRefreshLock) {
+          // later calls must queue a new refresh to see later changes
+          queuedRefresh = null;
+        }
+        maybeRefreshBlocking();
+        return null;
+      });
+      queuedRefresh = task;
+      boolean success = false;
+      try {
+        executor.execute(task);
+        success = true;
+      } finally {
+        if (success == false) {
+          queuedRefresh = null;
+        }
+      }
+      return task;
+    }
+  }
+
+  /** Returns how many times a refresh has swapped in a new reference. */
+  public long getRefreshCount() {
+    return refreshCount;
+  }
+
+  /** Returns how long the last refresh that swapped in a new reference took,
+   *  in nanoseconds. This includes opening and warming the new reference. */
+  public long getLastRefreshTimeNS() {
+    return lastRefreshTimeNS;
+  }
+
+  /** Returns the total time spent by refreshes that swapped in a new
+   *  reference, in nanoseconds. */
+  public long getTotalRefreshTimeNS() {
+    return totalRefreshTimeNS;
+  }
+
   /** Called after a refresh was attempted, regardless of
    *  whether a new reference was in fact created.
    *  @throws IOException if a low level I/O exception occurs  
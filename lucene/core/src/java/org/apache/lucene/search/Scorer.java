@@ -62,6 +62,53 @@ public abstract class Scorer extends DocIdSetIterator {
   /** Returns the freq of this Scorer on the current document */
   public abstract int freq() throws IOException;
 
+  /**
+   * Expert: Returns an upper bound of the scores of all documents that this
+   * scorer may match. The default implementation returns
+   * {@link Float#POSITIVE_INFINITY}, meaning that no upper bound is known.
+   * @lucene.experimental
+   */
+  public float maxScore() throws IOException {
+    return Float.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Expert: Moves block-max information to the block of documents that
+   * contains <code>target</code>, without moving this iterator, and returns
+   * the last document ID (inclusive) of that block. Targets must be passed
+   * in increasing order. The default implementation considers that all
+   * documents are in a single block and returns {@link #NO_MORE_DOCS}.
+   * @see #blockMaxScore()
+   * @lucene.experimental
+   */
+  public int advanceShallow(int target) throws IOException {
+    return NO_MORE_DOCS;
+  }
+
+  /**
+   * Expert: Returns an upper bound of the scores of the documents in the
+   * block that was last positioned with {@link #advanceShallow(int)}. The
+   * default implementation returns {@link #maxScore()}.
+   * @lucene.experimental
+   */
+  public float blockMaxScore() throws IOException {
+    return maxScore();
+  }
+
+  /**
+   * Expert: Informs this scorer that documents whose score is less than
+   * <code>minScore</code> are not competitive, so that it may skip over them.
+   * Collectors that want scorers to skip non-competitive documents are
+   * expected to call this method from {@link LeafCollector#setScorer(Scorer)},
+   * with {@link Float#NEGATIVE_INFINITY} if they do not have a minimum score
+   * yet, and then every time their minimum competitive score increases.
+   * Documents that are skipped are never passed to
+   * {@link LeafCollector#collect(int)}. The default implementation does nothing.
+   * @lucene.experimental
+   */
+  public void setMinCompetitiveScore(float minScore) throws IOException {
+  }
+
   /** returns parent Weight
    * @lucene.experimental
    */
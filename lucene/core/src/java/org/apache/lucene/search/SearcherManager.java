@@ -48,9 +48,15 @@ import org.apache.lucene.store.Directory;
  * In addition you should periodically call {@link #maybeRefresh}. While it's
  * possible to call this just before running each query, this is discouraged
  * since it penalizes the unlucky queries that need to refresh. It's better to use
- * a separate background thread, that periodically calls {@link #maybeRefresh}. Finally,
+ * a separate background thread, that periodically calls {@link #maybeRefresh}, or
+ * {@link #maybeRefreshAsync} which hands the refresh to an executor. Finally,
  * be sure to call {@link #close} once you are done.
  * 
+ * <p>
+ * Segments that a new searcher does not share with the previous one serve
+ * their first queries cold unless the {@link SearcherFactory} warms them:
+ * {@link WarmingSearcherFactory} does so by replaying recent queries on them.
+ * 
  * @see SearcherFactory
  * 
  * @lucene.experimental
@@ -0,0 +1,159 @@
+package org.apache.lucene.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.search.similarities.Similarity;
+
+/**
+ * A {@link BulkScorer} for documents matching a term, which reads postings
+ * one block at a time using {@link PostingsEnum#nextDocs(int[], int[])} and
+ * computes the scores of a whole block in a single loop.
+ */
+final class TermBulkScorer extends BulkScorer {
+
+  // same as the block size of the default postings format
+  static final int BUFFER_SIZE = 128;
+
+  private final PostingsEnum postingsEnum;
+  private final Similarity.SimScorer docScorer; // null if scores are not needed
+  private final BufferedScorer scorer;
+
+  private final int[] docs = new int[BUFFER_SIZE];
+  private final int[] freqs = new int[BUFFER_SIZE];
+  private final float[] scores;
+  // buffered documents are in [upto, count)
+  private int upto, count;
+
+  /**
+   * Sole constructor.
+   * @param weight the weight of the term query
+   * @param postingsEnum an iterator over the documents matching the term
+   * @param docScorer the scorer to compute scores, or null if scores are not needed
+   */
+  TermBulkScorer(Weight weight, PostingsEnum postingsEnum, Similarity.SimScorer docScorer) {
+    this.postingsEnum = postingsEnum;
+    this.docScorer = docScorer;
+    this.scorer = new BufferedScorer(weight);
+    this.scores = docScorer == null ? null : new float[BUFFER_SIZE];
+  }
+
+  private void computeScores() {
+    if (docScorer != null) {
+      for (int i = upto; i < count; ++i) {
+        scores[i] = docScorer.score(docs[i], freqs[i]);
+      }
+    }
+  }
+
+  @Override
+  public int score(LeafCollector collector, int min, int max) throws IOException {
+    collector.setScorer(scorer);
+
+    // ignore buffered documents that are before min
+    while (upto < count && docs[upto] < min) {
+      upto++;
+    }
+    if (upto == count && postingsEnum.docID() < min) {
+      final int doc = postingsEnum.advance(min);
+      if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+        return DocIdSetIterator.NO_MORE_DOCS;
+      }
+      docs[0] = doc;
+      freqs[0] = postingsEnum.freq();
+      upto = 0;
+      count = 1;
+      computeScores();
+    }
+
+    while (true) {
+      if (upto == count) {
+        if (postingsEnum.docID() == DocIdSetIterator.NO_MORE_DOCS) {
+          return DocIdSetIterator.NO_MORE_DOCS;
+        }
+        upto = 0;
+        count = postingsEnum.nextDocs(docs, freqs);
+        if (count == 0) {
+          return DocIdSetIterator.NO_MORE_DOCS;
+        }
+        computeScores();
+      }
+      for (; upto < count; ++upto) {
+        final int doc = docs[upto];
+        if (doc >= max) {
+          return doc;
+        }
+        scorer.doc = doc;
+        scorer.freq = freqs[upto];
+        if (docScorer != null) {
+          scorer.score = scores[upto];
+        }
+        collector.collect(doc);
+      }
+    }
+  }
+
+  @Override
+  public long cost() {
+    return postingsEnum.cost();
+  }
+
+  /** Exposes the current buffered document to collectors. */
+  private static final class BufferedScorer extends Scorer {
+    int doc = -1;
+    int freq = 1;
+    float score;
+
+    BufferedScorer(Weight weight) {
+      super(weight);
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int freq() {
+      return freq;
+    }
+
+    @Override
+    public float score() {
+      return score;
+    }
+
+    @Override
+    public int nextDoc() {
+      throw new UnsupportedOperationException("TermBulkScorer's scorer doesn't support nextDoc()");
+    }
+
+    @Override
+    public int advance(int target) {
+      throw new UnsupportedOperationException("TermBulkScorer's scorer doesn't support advance(int)");
+    }
+
+    @Override
+    public long cost() {
+      return 1;
+    }
+  }
+}
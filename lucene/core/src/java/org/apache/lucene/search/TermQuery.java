@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.Objects;
 import java.util.Set;
 
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
@@ -90,7 +91,28 @@ public class TermQuery extends Query {
       }
       PostingsEnum docs = termsEnum.postings(acceptDocs, null, needsScores ? PostingsEnum.FREQS : PostingsEnum.NONE);
       assert docs != null;
-      return new TermScorer(this, docs, similarity.simScorer(stats, context));
+      final int maxFreq;
+      if (context.reader().getFieldInfos().fieldInfo(term.field()).getIndexOptions() == IndexOptions.DOCS) {
+        maxFreq = 1;
+      } else if (termsEnum.totalTermFreq() == -1) {
+        maxFreq = Integer.MAX_VALUE;
+      } else {
+        // a document can't contain more occurrences than those that are not in other documents
+        maxFreq = (int) Math.min(Integer.MAX_VALUE, termsEnum.totalTermFreq() - termsEnum.docFreq() + 1);
+      }
+      return new TermScorer(this, docs, similarity.simScorer(stats, context), maxFreq);
+    }
+    
+    @Override
+    public BulkScorer bulkScorer(LeafReaderContext context, Bits acceptDocs) throws IOException {
+      assert termStates.topReaderContext == ReaderUtil.getTopLevelContext(context) : "The top-reader used to create Weight (" + termStates.topReaderContext + ") is not the same as the current reader's top-reader (" + ReaderUtil.getTopLevelContext(context);
+      final TermsEnum termsEnum = getTermsEnum(context);
+      if (termsEnum == null) {
+        return null;
+      }
+      PostingsEnum docs = termsEnum.postings(acceptDocs, null, needsScores ? PostingsEnum.FREQS : PostingsEnum.NONE);
+      assert docs != null;
+      return new TermBulkScorer(this, docs, needsScores ? similarity.simScorer(stats, context) : null);
     }
     
     /**
@@ -27,6 +27,7 @@ import org.apache.lucene.search.similarities.Similarity;
 final class TermScorer extends Scorer {
   private final PostingsEnum postingsEnum;
   private final Similarity.SimScorer docScorer;
+  private final int maxFreq;
 
   /**
    * Construct a <code>TermScorer</code>.
@@ -38,11 +39,14 @@ final class TermScorer extends Scorer {
    * @param docScorer
    *          The </code>Similarity.SimScorer</code> implementation
    *          to be used for score computations.
+   * @param maxFreq
+   *          An upper bound of the frequency of the term in any document.
    */
-  TermScorer(Weight weight, PostingsEnum td, Similarity.SimScorer docScorer) {
+  TermScorer(Weight weight, PostingsEnum td, Similarity.SimScorer docScorer, int maxFreq) {
     super(weight);
     this.docScorer = docScorer;
     this.postingsEnum = td;
+    this.maxFreq = maxFreq;
   }
 
   @Override
@@ -85,6 +89,21 @@ final class TermScorer extends Scorer {
     return postingsEnum.advance(target);
   }
 
+  @Override
+  public float maxScore() {
+    return docScorer.maxScore(maxFreq);
+  }
+
+  @Override
+  public int advanceShallow(int target) throws IOException {
+    return postingsEnum.advanceShallow(target);
+  }
+
+  @Override
+  public float blockMaxScore() throws IOException {
+    return docScorer.maxScore(Math.min(postingsEnum.getMaxFreq(), maxFreq));
+  }
+
   @Override
   public long cost() {
     return postingsEnum.cost();
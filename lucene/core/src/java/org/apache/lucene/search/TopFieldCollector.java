@@ -18,8 +18,11 @@ package org.apache.lucene.search;
  */
 
 import java.io.IOException;
+import java.util.Objects;
 
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.search.FieldValueHitQueue.Entry;
 import org.apache.lucene.util.PriorityQueue;
 
@@ -129,14 +132,15 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     final FieldValueHitQueue<Entry> queue;
 
-    public NonScoringCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields) {
-      super(queue, numHits, fillFields, sort.needsScores());
+    public NonScoringCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields, boolean trackTotalHits) {
+      super(queue, sort, numHits, fillFields, sort.needsScores(), trackTotalHits);
       this.queue = queue;
     }
 
     @Override
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
       docBase = context.docBase;
+      earlyTerminate = canEarlyTerminate(context);
 
       final LeafFieldComparator[] comparators = queue.getComparators(context);
       final int[] reverseMul = queue.getReverseMul();
@@ -152,6 +156,10 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is larger than anything else in the queue, and
                 // therefore not competitive.
+                if (earlyTerminate) {
+                  // the segment is sorted, so no later document is competitive either
+                  throw new CollectionTerminatedException();
+                }
                 return;
               }
 
@@ -183,6 +191,10 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is larger than anything else in the queue, and
                 // therefore not competitive.
+                if (earlyTerminate) {
+                  // the segment is sorted, so no later document is competitive either
+                  throw new CollectionTerminatedException();
+                }
                 return;
               }
 
@@ -216,14 +228,15 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     final FieldValueHitQueue<Entry> queue;
 
-    public ScoringNoMaxScoreCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields) {
-      super(queue, numHits, fillFields, true);
+    public ScoringNoMaxScoreCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields, boolean trackTotalHits) {
+      super(queue, sort, numHits, fillFields, true, trackTotalHits);
       this.queue = queue;
     }
 
     @Override
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
       docBase = context.docBase;
+      earlyTerminate = canEarlyTerminate(context);
 
       final LeafFieldComparator[] comparators = queue.getComparators(context);
       final int[] reverseMul = queue.getReverseMul();
@@ -239,6 +252,10 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is largest than anything else in the queue, and
                 // therefore not competitive.
+                if (earlyTerminate) {
+                  // the segment is sorted, so no later document is competitive either
+                  throw new CollectionTerminatedException();
+                }
                 return;
               }
 
@@ -276,6 +293,10 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is largest than anything else in the queue, and
                 // therefore not competitive.
+                if (earlyTerminate) {
+                  // the segment is sorted, so no later document is competitive either
+                  throw new CollectionTerminatedException();
+                }
                 return;
               }
 
@@ -316,7 +337,8 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     final FieldValueHitQueue<Entry> queue;
 
     public ScoringMaxScoreCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields) {
-      super(queue, numHits, fillFields, true);
+      // all hits must be scored to compute the max score
+      super(queue, sort, numHits, fillFields, true, true);
       this.queue = queue;
       maxScore = Float.MIN_NORMAL; // otherwise we would keep NaN
     }
@@ -324,6 +346,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     @Override
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
       docBase = context.docBase;
+      earlyTerminate = canEarlyTerminate(context);
 
       final LeafFieldComparator[] comparators = queue.getComparators(context);
       final int[] reverseMul = queue.getReverseMul();
@@ -343,6 +366,10 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is largest than anything else in the queue, and
                 // therefore not competitive.
+                if (earlyTerminate) {
+                  // the segment is sorted, so no later document is competitive either
+                  throw new CollectionTerminatedException();
+                }
                 return;
               }
 
@@ -378,6 +405,10 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is largest than anything else in the queue, and
                 // therefore not competitive.
+                if (earlyTerminate) {
+                  // the segment is sorted, so no later document is competitive either
+                  throw new CollectionTerminatedException();
+                }
                 return;
               }
 
@@ -415,8 +446,8 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     final FieldDoc after;
 
     public PagingFieldCollector(Sort sort, FieldValueHitQueue<Entry> queue, FieldDoc after, int numHits, boolean fillFields,
-                                boolean trackDocScores, boolean trackMaxScore) {
-      super(queue, numHits, fillFields, trackDocScores || trackMaxScore || sort.needsScores());
+                                boolean trackDocScores, boolean trackMaxScore, boolean trackTotalHits) {
+      super(queue, sort, numHits, fillFields, trackDocScores || trackMaxScore || sort.needsScores(), trackTotalHits || trackMaxScore);
       this.queue = queue;
       this.trackDocScores = trackDocScores;
       this.trackMaxScore = trackMaxScore;
@@ -437,6 +468,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     @Override
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
       docBase = context.docBase;
+      earlyTerminate = canEarlyTerminate(context);
       final int afterDoc = after.doc - docBase;
       return new MultiComparatorLeafCollector(queue.getComparators(context), queue.getReverseMul()) {
 
@@ -460,6 +492,10 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
             final int cmp = compareBottom(doc);
             if (cmp <= 0) {
               // not competitive since documents are visited in doc id order
+              if (earlyTerminate) {
+                // the segment is sorted, so no later document is competitive either
+                throw new CollectionTerminatedException();
+              }
               return;
             }
           }
@@ -521,14 +557,20 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
   boolean queueFull;
   int docBase;
   final boolean needsScores;
+  final Sort sort;
+  final boolean trackTotalHits;
+  // true if the current segment is sorted in a way that lets us stop once the queue is full
+  boolean earlyTerminate;
 
   // Declaring the constructor private prevents extending this class by anyone
   // else. Note that the class cannot be final since it's extended by the
   // internal versions. If someone will define a constructor with any other
   // visibility, then anyone will be able to extend the class, which is not what
   // we want.
-  private TopFieldCollector(PriorityQueue<Entry> pq, int numHits, boolean fillFields, boolean needsScores) {
+  private TopFieldCollector(PriorityQueue<Entry> pq, Sort sort, int numHits, boolean fillFields, boolean needsScores, boolean trackTotalHits) {
     super(pq);
+    this.sort = sort;
+    this.trackTotalHits = trackTotalHits;
     this.needsScores = needsScores;
     this.numHits = numHits;
     this.fillFields = fillFields;
@@ -539,6 +581,41 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     return needsScores;
   }
 
+  /** Returns true if collection of the given segment may stop as soon as a
+   *  hit is not competitive, because documents are sorted by the index sort
+   *  and the search sort is a prefix of it. */
+  boolean canEarlyTerminate(LeafReaderContext context) {
+    if (trackTotalHits) {
+      return false;
+    }
+    final LeafReader reader = context.reader();
+    if (reader instanceof SegmentReader) {
+      return canEarlyTerminate(sort, ((SegmentReader) reader).getSegmentInfo().info.getIndexSort());
+    }
+    return false;
+  }
+
+  /** Returns whether collection can be early-terminated on segments sorted
+   *  by <code>indexSort</code> when hits are sorted by <code>searchSort</code>,
+   *  that is if <code>searchSort</code> is a prefix of <code>indexSort</code>. */
+  static boolean canEarlyTerminate(Sort searchSort, Sort indexSort) {
+    if (indexSort == null) {
+      return false;
+    }
+    final SortField[] fields1 = searchSort.getSort();
+    final SortField[] fields2 = indexSort.getSort();
+    if (fields1.length > fields2.length) {
+      return false;
+    }
+    for (int i = 0; i < fields1.length; ++i) {
+      // SortField.equals ignores the missing value, which matters for the order:
+      if (fields1[i].equals(fields2[i]) == false || Objects.equals(fields1[i].missingValue, fields2[i].missingValue) == false) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Creates a new {@link TopFieldCollector} from the given
    * arguments.
@@ -616,6 +693,27 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
   public static TopFieldCollector create(Sort sort, int numHits, FieldDoc after,
       boolean fillFields, boolean trackDocScores, boolean trackMaxScore)
       throws IOException {
+    return create(sort, numHits, after, fillFields, trackDocScores, trackMaxScore, true);
+  }
+
+  /**
+   * Creates a new {@link TopFieldCollector} from the given
+   * arguments, and whether the total number of hits should be tracked.
+   *
+   * <p>When <code>trackTotalHits</code> and <code>trackMaxScore</code> are
+   * <code>false</code>, collection of a segment stops as soon as the queue is
+   * full and a hit is not competitive, provided that the segment is sorted by an
+   * {@link org.apache.lucene.index.IndexWriterConfig#setIndexSort index sort}
+   * that <code>sort</code> is a prefix of. {@link TopDocs#totalHits} is then
+   * the number of documents that have actually been collected, which may be
+   * less than the number of matches.
+   *
+   * @see #create(Sort, int, FieldDoc, boolean, boolean, boolean)
+   * @lucene.experimental
+   */
+  public static TopFieldCollector create(Sort sort, int numHits, FieldDoc after,
+      boolean fillFields, boolean trackDocScores, boolean trackMaxScore, boolean trackTotalHits)
+      throws IOException {
 
     if (sort.fields.length == 0) {
       throw new IllegalArgumentException("Sort must contain at least one field");
@@ -631,9 +729,9 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       if (trackMaxScore) {
         return new ScoringMaxScoreCollector(sort, queue, numHits, fillFields);
       } else if (trackDocScores) {
-        return new ScoringNoMaxScoreCollector(sort, queue, numHits, fillFields);
+        return new ScoringNoMaxScoreCollector(sort, queue, numHits, fillFields, trackTotalHits);
       } else {
-        return new NonScoringCollector(sort, queue, numHits, fillFields);
+        return new NonScoringCollector(sort, queue, numHits, fillFields, trackTotalHits);
       }
     } else {
       if (after.fields == null) {
@@ -644,7 +742,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
         throw new IllegalArgumentException("after.fields has " + after.fields.length + " values but sort has " + sort.getSort().length);
       }
 
-      return new PagingFieldCollector(sort, queue, after, numHits, fillFields, trackDocScores, trackMaxScore);
+      return new PagingFieldCollector(sort, queue, after, numHits, fillFields, trackDocScores, trackMaxScore, trackTotalHits);
     }
   }
 
@@ -36,21 +36,31 @@ import org.apache.lucene.index.LeafReaderContext;
  */
 public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
 
-  abstract static class ScorerLeafCollector implements LeafCollector {
+  abstract class ScorerLeafCollector implements LeafCollector {
 
     Scorer scorer;
 
     @Override
     public void setScorer(Scorer scorer) throws IOException {
       this.scorer = scorer;
+      if (trackTotalHits == false) {
+        scorer.setMinCompetitiveScore(pqTop.score);
+      }
+    }
+
+    /** Must be called when the top of the queue changed. */
+    void updateMinCompetitiveScore() throws IOException {
+      if (trackTotalHits == false) {
+        scorer.setMinCompetitiveScore(pqTop.score);
+      }
     }
 
   }
 
   private static class SimpleTopScoreDocCollector extends TopScoreDocCollector {
 
-    SimpleTopScoreDocCollector(int numHits) {
-      super(numHits);
+    SimpleTopScoreDocCollector(int numHits, boolean trackTotalHits) {
+      super(numHits, trackTotalHits);
     }
 
     @Override
@@ -77,6 +87,7 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
           pqTop.doc = doc + docBase;
           pqTop.score = score;
           pqTop = pq.updateTop();
+          updateMinCompetitiveScore();
         }
 
       };
@@ -89,8 +100,8 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
     private final ScoreDoc after;
     private int collectedHits;
 
-    PagingTopScoreDocCollector(int numHits, ScoreDoc after) {
-      super(numHits);
+    PagingTopScoreDocCollector(int numHits, ScoreDoc after, boolean trackTotalHits) {
+      super(numHits, trackTotalHits);
       this.after = after;
       this.collectedHits = 0;
     }
@@ -135,6 +146,7 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
           pqTop.doc = doc + docBase;
           pqTop.score = score;
           pqTop = pq.updateTop();
+          updateMinCompetitiveScore();
         }
       };
     }
@@ -165,23 +177,49 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
    * objects.
    */
   public static TopScoreDocCollector create(int numHits, ScoreDoc after) {
+    return create(numHits, after, true);
+  }
+
+  /**
+   * Creates a new {@link TopScoreDocCollector} given the number of hits to
+   * collect, the bottom of the previous page, and whether the total number
+   * of hits should be tracked.
+   *
+   * <p>When <code>trackTotalHits</code> is <code>false</code>, the collector
+   * informs scorers of its minimum competitive score through
+   * {@link Scorer#setMinCompetitiveScore(float)}, which allows some scorers to
+   * skip over non-competitive documents. {@link TopDocs#totalHits} is then the
+   * number of documents that have actually been collected, which may be less
+   * than the number of matches: the difference with
+   * {@link IndexSearcher#count(Query)} is the number of documents that were
+   * skipped.
+   *
+   * <p><b>NOTE</b>: The instances returned by this method
+   * pre-allocate a full array of length
+   * <code>numHits</code>, and fill the array with sentinel
+   * objects.
+   * @lucene.experimental
+   */
+  public static TopScoreDocCollector create(int numHits, ScoreDoc after, boolean trackTotalHits) {
 
     if (numHits <= 0) {
       throw new IllegalArgumentException("numHits must be > 0; please use TotalHitCountCollector if you just need the total hit count");
     }
 
     if (after == null) {
-      return new SimpleTopScoreDocCollector(numHits);
+      return new SimpleTopScoreDocCollector(numHits, trackTotalHits);
     } else {
-      return new PagingTopScoreDocCollector(numHits, after);
+      return new PagingTopScoreDocCollector(numHits, after, trackTotalHits);
     }
   }
 
   ScoreDoc pqTop;
+  final boolean trackTotalHits;
 
   // prevents instantiation
-  TopScoreDocCollector(int numHits) {
+  TopScoreDocCollector(int numHits, boolean trackTotalHits) {
     super(new HitQueue(numHits, true));
+    this.trackTotalHits = trackTotalHits;
     // HitQueue implements getSentinelObject to return a ScoreDoc, so we know
     // that at this point top() is already initialized.
     pqTop = pq.top();
@@ -0,0 +1,229 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A {@link Scorer} for pure disjunctions that implements block-max WAND: once
+ * a minimum competitive score has been set through
+ * {@link #setMinCompetitiveScore(float)}, it uses the upper bounds of the scores
+ * of its sub scorers, first globally and then on blocks of documents, in order
+ * to skip over documents that can't be competitive.
+ * <p>
+ * Until a minimum competitive score is set, this scorer behaves like a regular
+ * disjunction and matches all documents that match any sub scorer.
+ */
+final class WANDScorer extends Scorer {
+
+  // Upper bounds are inflated by this relative amount so that the order in
+  // which scores are summed can't make a bound lower than an actual score
+  private static final double BOUND_SLACK = 1 + 1e-6;
+
+  private final Scorer[] scorers;
+  private final float[] maxScores;
+  private final float[] coord;
+  private final float maxCoord;
+  // indices of the scorers, sorted by current doc ID
+  private final int[] order;
+  private final long cost;
+
+  private float minCompetitiveScore = Float.NEGATIVE_INFINITY;
+  private int doc = -1;
+
+  /**
+   * @param weight The weight to be used.
+   * @param subScorers The scorers of the optional clauses
+   * @param coord Table of coordination factors
+   */
+  WANDScorer(Weight weight, List<Scorer> subScorers, float[] coord) throws IOException {
+    super(weight);
+    this.scorers = subScorers.toArray(new Scorer[subScorers.size()]);
+    this.coord = coord;
+    float maxCoord = 0;
+    for (int i = 1; i < coord.length; ++i) {
+      maxCoord = Math.max(maxCoord, coord[i]);
+    }
+    this.maxCoord = maxCoord;
+    maxScores = new float[scorers.length];
+    order = new int[scorers.length];
+    long cost = 0;
+    for (int i = 0; i < scorers.length; ++i) {
+      final float maxScore = scorers[i].maxScore();
+      // a clause that does not match contributes 0 to the score, and a NaN bound doesn't bound anything
+      maxScores[i] = Float.isNaN(maxScore) ? Float.POSITIVE_INFINITY : Math.max(0f, maxScore);
+      order[i] = i;
+      cost += scorers[i].cost();
+    }
+    this.cost = cost;
+  }
+
+  @Override
+  public void setMinCompetitiveScore(float minScore) {
+    this.minCompetitiveScore = minScore;
+  }
+
+  @Override
+  public int docID() {
+    return doc;
+  }
+
+  @Override
+  public int nextDoc() throws IOException {
+    return doNext(doc + 1);
+  }
+
+  @Override
+  public int advance(int target) throws IOException {
+    return doNext(target);
+  }
+
+  private int doNext(int target) throws IOException {
+    while (true) {
+      for (Scorer scorer : scorers) {
+        if (scorer.docID() < target) {
+          scorer.advance(target);
+        }
+      }
+      sortByDocID();
+
+      final int first = scorers[order[0]].docID();
+      if (minCompetitiveScore == Float.NEGATIVE_INFINITY || first == NO_MORE_DOCS) {
+        return doc = first;
+      }
+
+      // Find the pivot: the first scorer in doc ID order so that the sum of the
+      // max scores of the scorers up to it can be competitive. Documents before
+      // the pivot doc can only match preceding scorers and can be skipped.
+      double upperBound = 0;
+      int pivot = -1;
+      for (int i = 0; i < order.length; ++i) {
+        if (scorers[order[i]].docID() == NO_MORE_DOCS) {
+          break;
+        }
+        upperBound += maxScores[order[i]];
+        if (competitive(upperBound)) {
+          pivot = i;
+          break;
+        }
+      }
+      if (pivot == -1) {
+        return doc = NO_MORE_DOCS;
+      }
+      final int pivotDoc = scorers[order[pivot]].docID();
+      int end = pivot + 1;
+      while (end < order.length && scorers[order[end]].docID() == pivotDoc) {
+        end++;
+      }
+
+      // Now check the max scores of the blocks that contain the pivot doc
+      int nextTarget = end < order.length ? scorers[order[end]].docID() : NO_MORE_DOCS;
+      double blockUpperBound = 0;
+      for (int i = 0; i < end; ++i) {
+        final Scorer scorer = scorers[order[i]];
+        final int blockEnd = scorer.advanceShallow(pivotDoc);
+        blockUpperBound += Math.max(0f, scorer.blockMaxScore());
+        if (blockEnd != NO_MORE_DOCS) {
+          nextTarget = Math.min(nextTarget, blockEnd + 1);
+        }
+      }
+
+      if (competitive(blockUpperBound) == false) {
+        // no document can be competitive until one of these blocks ends
+        // or until the next scorer after the pivot starts matching
+        if (nextTarget == NO_MORE_DOCS) {
+          return doc = NO_MORE_DOCS;
+        }
+        target = nextTarget;
+      } else if (first == pivotDoc) {
+        return doc = pivotDoc;
+      } else {
+        target = pivotDoc;
+      }
+    }
+  }
+
+  private boolean competitive(double upperBound) {
+    return (float) (upperBound * BOUND_SLACK) * maxCoord >= minCompetitiveScore;
+  }
+
+  /** Sort {@link #order} by doc ID, this is an insertion sort since scorers
+   *  are mostly sorted from the previous call. */
+  private void sortByDocID() {
+    for (int i = 1; i < order.length; ++i) {
+      final int o = order[i];
+      final int d = scorers[o].docID();
+      int j = i - 1;
+      while (j >= 0 && scorers[order[j]].docID() > d) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = o;
+    }
+  }
+
+  @Override
+  public float score() throws IOException {
+    double score = 0;
+    int freq = 0;
+    for (Scorer scorer : scorers) {
+      if (scorer.docID() == doc) {
+        score += scorer.score();
+        freq += 1;
+      }
+    }
+    return (float)score * coord[freq];
+  }
+
+  @Override
+  public int freq() throws IOException {
+    int freq = 0;
+    for (Scorer scorer : scorers) {
+      if (scorer.docID() == doc) {
+        freq += 1;
+      }
+    }
+    return freq;
+  }
+
+  @Override
+  public float maxScore() {
+    double maxScore = 0;
+    for (float s : maxScores) {
+      maxScore += s;
+    }
+    return (float) (maxScore * BOUND_SLACK) * maxCoord;
+  }
+
+  @Override
+  public long cost() {
+    return cost;
+  }
+
+  @Override
+  public Collection<ChildScorer> getChildren() {
+    List<ChildScorer> children = new ArrayList<>(scorers.length);
+    for (Scorer scorer : scorers) {
+      children.add(new ChildScorer(scorer, "SHOULD"));
+    }
+    return children;
+  }
+}
@@ -0,0 +1,201 @@
+package org.apache.lucene.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SimpleMergedSegmentWarmer;
+import org.apache.lucene.search.similarities.Similarity; // javadocs
+import org.apache.lucene.util.InfoStream;
+
+/**
+ * A {@link SearcherFactory} that warms the segments that a new searcher
+ * does not share with the previous one, before the searcher is returned.
+ * <p>
+ * Every new segment is first warmed with an {@link IndexReaderWarmer}, by
+ * default a {@link SimpleMergedSegmentWarmer} which initializes the terms
+ * index, norms and doc values of all fields. Then the most recent distinct
+ * queries that were run against searchers created by this factory are
+ * replayed on the new segment, which loads the terms dictionary blocks,
+ * postings and doc values that these queries need.
+ * <p>
+ * Segments that are shared with the previous searcher, possibly with new
+ * deletions, are not warmed again. This factory counts them as warm hits,
+ * see {@link #getReusedLeafCount()}.
+ * <p>
+ * Subclasses that need to customize searchers, for instance their
+ * {@link Similarity}, should call <code>super.newSearcher</code> and
+ * configure the returned searcher, which records the queries it runs.
+ * @lucene.experimental
+ */
+public class WarmingSearcherFactory extends SearcherFactory {
+
+  /** Default number of recent queries that are replayed on new segments. */
+  public static final int DEFAULT_MAX_RECENT_QUERIES = 32;
+
+  private final IndexReaderWarmer leafWarmer;
+  private final Map<Query,Boolean> recentQueries;
+
+  private final AtomicLong warmedLeafCount = new AtomicLong();
+  private final AtomicLong reusedLeafCount = new AtomicLong();
+  private final AtomicLong replayedQueryCount = new AtomicLong();
+  private final AtomicLong totalWarmTimeNS = new AtomicLong();
+  private volatile long lastWarmTimeNS;
+
+  /** Creates a new factory that warms new segments with a
+   *  {@link SimpleMergedSegmentWarmer} and replays up to
+   *  {@link #DEFAULT_MAX_RECENT_QUERIES} recent queries on them. */
+  public WarmingSearcherFactory() {
+    this(new SimpleMergedSegmentWarmer(InfoStream.NO_OUTPUT), DEFAULT_MAX_RECENT_QUERIES);
+  }
+
+  /**
+   * Creates a new factory.
+   * @param leafWarmer warmer to run on every new segment, or <code>null</code> to only replay recent queries
+   * @param maxRecentQueries maximum number of recent queries to replay on new segments, 0 to disable replay
+   */
+  public WarmingSearcherFactory(IndexReaderWarmer leafWarmer, final int maxRecentQueries) {
+    if (maxRecentQueries < 0) {
+      throw new IllegalArgumentException("maxRecentQueries must be >= 0, got " + maxRecentQueries);
+    }
+    this.leafWarmer = leafWarmer;
+    this.recentQueries = new LinkedHashMap<Query,Boolean>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Query,Boolean> eldest) {
+        return size() > maxRecentQueries;
+      }
+    };
+  }
+
+  @Override
+  public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) throws IOException {
+    final long start = System.nanoTime();
+    warm(reader, previousReader);
+    final long took = System.nanoTime() - start;
+    lastWarmTimeNS = took;
+    totalWarmTimeNS.addAndGet(took);
+    return new IndexSearcher(reader) {
+      @Override
+      public Weight createNormalizedWeight(Query query, boolean needsScores) throws IOException {
+        recordQuery(query);
+        return super.createNormalizedWeight(query, needsScores);
+      }
+    };
+  }
+
+  /** Records a query so that it is replayed on new segments. Searchers
+   *  returned by this factory call it for every query they run. */
+  public void recordQuery(Query query) {
+    synchronized (recentQueries) {
+      recentQueries.put(query, Boolean.TRUE);
+    }
+  }
+
+  /** Returns the queries that are going to be replayed on new segments,
+   *  from the least to the most recently used. */
+  public List<Query> getRecentQueries() {
+    synchronized (recentQueries) {
+      return Collections.unmodifiableList(new ArrayList<>(recentQueries.keySet()));
+    }
+  }
+
+  private void warm(IndexReader reader, IndexReader previousReader) throws IOException {
+    final Set<Object> previousCores = Collections.newSetFromMap(new IdentityHashMap<>());
+    if (previousReader != null) {
+      for (LeafReaderContext ctx : previousReader.leaves()) {
+        previousCores.add(ctx.reader().getCoreCacheKey());
+      }
+    }
+    final List<LeafReaderContext> newLeaves = new ArrayList<>();
+    for (LeafReaderContext ctx : reader.leaves()) {
+      if (previousCores.contains(ctx.reader().getCoreCacheKey())) {
+        reusedLeafCount.incrementAndGet();
+      } else {
+        newLeaves.add(ctx);
+      }
+    }
+    if (newLeaves.isEmpty()) {
+      return;
+    }
+
+    if (leafWarmer != null) {
+      for (LeafReaderContext ctx : newLeaves) {
+        leafWarmer.warm(ctx.reader());
+      }
+    }
+
+    final List<Query> queries = getRecentQueries();
+    if (queries.isEmpty() == false) {
+      // replay on a plain searcher: queries should neither be recorded
+      // again nor fill the query cache
+      final IndexSearcher searcher = new IndexSearcher(reader);
+      searcher.setQueryCache(null);
+      for (Query query : queries) {
+        final Weight weight = searcher.createNormalizedWeight(query, false);
+        for (LeafReaderContext ctx : newLeaves) {
+          final Scorer scorer = weight.scorer(ctx, ctx.reader().getLiveDocs());
+          if (scorer != null) {
+            while (scorer.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+              // just consume the postings
+            }
+          }
+        }
+        replayedQueryCount.incrementAndGet();
+      }
+    }
+    warmedLeafCount.addAndGet(newLeaves.size());
+  }
+
+  /** Returns how many new segments have been warmed. */
+  public long getWarmedLeafCount() {
+    return warmedLeafCount.get();
+  }
+
+  /** Returns how many segments were shared with the previous searcher and
+   *  did not need to be warmed again. */
+  public long getReusedLeafCount() {
+    return reusedLeafCount.get();
+  }
+
+  /** Returns how many times a recent query has been replayed on new segments. */
+  public long getReplayedQueryCount() {
+    return replayedQueryCount.get();
+  }
+
+  /** Returns the time it took to warm the last searcher, in nanoseconds. */
+  public long getLastWarmTimeNS() {
+    return lastWarmTimeNS;
+  }
+
+  /** Returns the total time spent warming searchers, in nanoseconds. */
+  public long getTotalWarmTimeNS() {
+    return totalWarmTimeNS.get();
+  }
+}
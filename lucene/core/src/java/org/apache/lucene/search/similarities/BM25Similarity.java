@@ -222,12 +222,22 @@ public class BM25Similarity extends Similarity {
     private final float weightValue; // boost * idf * (k1 + 1)
     private final NumericDocValues norms;
     private final float[] cache;
+    private final float minNorm;
     
     BM25DocScorer(BM25Stats stats, NumericDocValues norms) throws IOException {
       this.stats = stats;
       this.weightValue = stats.weight * (k1 + 1);
       this.cache = stats.cache;
       this.norms = norms;
+      if (norms == null) {
+        minNorm = k1;
+      } else {
+        float min = Float.POSITIVE_INFINITY;
+        for (float norm : cache) {
+          min = Math.min(min, norm);
+        }
+        minNorm = min;
+      }
     }
     
     @Override
@@ -236,6 +246,16 @@ public class BM25Similarity extends Similarity {
       float norm = norms == null ? k1 : cache[(byte)norms.get(doc) & 0xFF];
       return weightValue * freq / (freq + norm);
     }
+
+    @Override
+    public float maxScore(float maxFreq) {
+      if (weightValue < 0 || minNorm < 0) {
+        return Float.POSITIVE_INFINITY;
+      }
+      // the score increases with freq and decreases with norm, round up to
+      // make sure float rounding can't make the bound lower than a score
+      return Math.nextUp(weightValue * maxFreq / (maxFreq + minNorm));
+    }
     
     @Override
     public Explanation explain(int doc, Explanation freq) {
@@ -53,6 +53,17 @@ public class DefaultSimilarity extends TFIDFSimilarity {
     }
   }
 
+  /** Largest decoded norm value. */
+  private static final float MAX_NORM_VALUE;
+
+  static {
+    float max = 0;
+    for (float norm : NORM_TABLE) {
+      max = Math.max(max, norm);
+    }
+    MAX_NORM_VALUE = max;
+  }
+
   /** Sole constructor: parameter-free */
   public DefaultSimilarity() {}
   
@@ -97,6 +108,11 @@ public class DefaultSimilarity extends TFIDFSimilarity {
     return NORM_TABLE[(int) (norm & 0xFF)];  // & 0xFF maps negative bytes to positive above 127
   }
 
+  @Override
+  public final float maxNormValue() {
+    return MAX_NORM_VALUE;
+  }
+
   /** Implemented as
    *  <code>state.getBoost()*lengthNorm(numTerms)</code>, where
    *  <code>numTerms</code> is {@link FieldInvertState#getLength()} if {@link
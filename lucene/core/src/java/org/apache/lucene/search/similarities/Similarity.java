@@ -198,6 +198,18 @@ public abstract class Similarity {
      */
     public abstract float score(int doc, float freq);
 
+    /**
+     * Expert: Returns an upper bound of the score that {@link #score(int, float)}
+     * may return for any document whose frequency is at most <code>maxFreq</code>.
+     * This is used by scorers to skip over blocks of documents that can't be
+     * competitive. The default implementation returns
+     * {@link Float#POSITIVE_INFINITY}, which disables such skipping.
+     * @lucene.experimental
+     */
+    public float maxScore(float maxFreq) {
+      return Float.POSITIVE_INFINITY;
+    }
+
     /** Computes the amount of a sloppy phrase match, based on an edit distance. */
     public abstract float computeSlopFactor(int distance);
     
@@ -654,6 +654,18 @@ public abstract class TFIDFSimilarity extends Similarity {
 
   /** Encodes a normalization factor for storage in an index. */
   public abstract long encodeNormValue(float f);
+
+  /**
+   * Expert: Returns an upper bound of the values that {@link #decodeNormValue(long)}
+   * may return, or {@link Float#POSITIVE_INFINITY} if unknown. Together with
+   * {@link #tf(float)} being non-decreasing, this allows to compute upper bounds
+   * of the scores of blocks of documents. The default implementation returns
+   * {@link Float#POSITIVE_INFINITY}.
+   * @lucene.experimental
+   */
+  public float maxNormValue() {
+    return Float.POSITIVE_INFINITY;
+  }
  
   /** Computes the amount of a sloppy phrase match, based on an edit distance.
    * This value is summed for each sloppy phrase match in a document to form
@@ -714,6 +726,21 @@ public abstract class TFIDFSimilarity extends Similarity {
       
       return norms == null ? raw : raw * decodeNormValue(norms.get(doc));  // normalize for field
     }
+
+    @Override
+    public float maxScore(float maxFreq) {
+      if (weightValue < 0) {
+        // the score is then maximized by the lowest frequency
+        return Float.POSITIVE_INFINITY;
+      }
+      final float raw = tf(maxFreq) * weightValue;
+      if (norms == null) {
+        return raw;
+      }
+      final float maxNorm = maxNormValue();
+      // raw is 0 if the query has a boost of 0, and 0 * Infinity is NaN
+      return Float.isInfinite(maxNorm) ? Float.POSITIVE_INFINITY : raw * maxNorm;
+    }
     
     @Override
     public float computeSlopFactor(int distance) {
@@ -106,6 +106,17 @@ public abstract class BufferedIndexInput extends IndexInput implements RandomAcc
     return bufferSize;
   }
 
+  /** There is no portable way to pass the advice down to the file system,
+   *  but sequential reads benefit from a larger buffer: this grows the
+   *  buffer of this input to {@link #MERGE_BUFFER_SIZE} on
+   *  {@link IOContext.Advice#SEQUENTIAL} and ignores other advice. */
+  @Override
+  public void advise(long offset, long length, IOContext.Advice advice) throws IOException {
+    if (advice == IOContext.Advice.SEQUENTIAL && bufferSize < MERGE_BUFFER_SIZE) {
+      setBufferSize(MERGE_BUFFER_SIZE);
+    }
+  }
+
   private void checkBufferSize(int bufferSize) {
     if (bufferSize < MIN_BUFFER_SIZE)
       throw new IllegalArgumentException("bufferSize must be at least MIN_BUFFER_SIZE (got " + bufferSize + ")");
@@ -421,7 +432,7 @@ public abstract class BufferedIndexInput extends IndexInput implements RandomAcc
     case MERGE:
       return MERGE_BUFFER_SIZE;
     default:
-      return BUFFER_SIZE;
+      return context.advice == IOContext.Advice.SEQUENTIAL ? MERGE_BUFFER_SIZE : BUFFER_SIZE;
     }
   }
   
@@ -48,6 +48,7 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
 
   protected boolean isClone = false;
   protected final WeakIdentityMap<ByteBufferIndexInput,Boolean> clones;
+  protected BufferAdvisor advisor;
   
   public static ByteBufferIndexInput newInstance(String resourceDescription, ByteBuffer[] buffers, long length, int chunkSizePower, BufferCleaner cleaner, boolean trackClones) {
     final WeakIdentityMap<ByteBufferIndexInput,Boolean> clones = trackClones ? WeakIdentityMap.<ByteBufferIndexInput,Boolean>newConcurrentHashMap() : null;
@@ -274,6 +275,39 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
     return buildSlice(sliceDescription, offset, length);
   }
 
+  @Override
+  public final void advise(long offset, long length, IOContext.Advice advice) throws IOException {
+    if (offset < 0 || length < 0 || offset+length > this.length) {
+      throw new IllegalArgumentException("advise() out of bounds: offset=" + offset + ",length=" + length + ",fileLength="  + this.length + ": "  + this);
+    }
+    if (buffers == null) {
+      throw new AlreadyClosedException("Already closed: " + this);
+    }
+    if (advisor != null) {
+      adviseBuffers(offset, length, advice);
+    }
+  }
+
+  /** Passes the advice for the given range to the {@link BufferAdvisor}, one
+   *  buffer at a time (may apply extra offset in subclasses). **/
+  protected void adviseBuffers(long offset, long length, IOContext.Advice advice) throws IOException {
+    final long end = offset + length;
+    long pos = offset;
+    while (pos < end) {
+      final ByteBuffer buffer = buffers[(int) (pos >>> chunkSizePower)];
+      final int start = (int) (pos & chunkSizeMask);
+      final int len = (int) Math.min(end - pos, buffer.limit() - start);
+      if (len <= 0) {
+        break;
+      }
+      final ByteBuffer range = buffer.duplicate();
+      range.position(start);
+      range.limit(start + len);
+      advisor.advise(this, range.slice(), advice);
+      pos += len;
+    }
+  }
+
   /** Builds the actual sliced IndexInput (may apply extra offset in subclasses). **/
   protected ByteBufferIndexInput buildSlice(String sliceDescription, long offset, long length) {
     if (buffers == null) {
@@ -285,6 +319,7 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
     
     final ByteBufferIndexInput clone = newCloneInstance(getFullSliceDescription(sliceDescription), newBuffers, ofs, length);
     clone.isClone = true;
+    clone.advisor = advisor;
 
     // register the new clone in our clone list to clean it up on closing:
     if (clones != null) {
@@ -387,6 +422,16 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
   static interface BufferCleaner {
     void freeBuffer(ByteBufferIndexInput parent, ByteBuffer b) throws IOException;
   }
+
+  /**
+   * Pass in an implementation of this interface to apply {@link IOContext.Advice}
+   * to ranges of the ByteBuffers.
+   * MMapDirectory implements this to let the operating system know about access patterns.
+   */
+  @FunctionalInterface
+  static interface BufferAdvisor {
+    void advise(ByteBufferIndexInput parent, ByteBuffer b, IOContext.Advice advice) throws IOException;
+  }
   
   /** Default implementation of ByteBufferIndexInput, supporting multiple buffers, but no offset. */
   static final class DefaultImpl extends ByteBufferIndexInput {
@@ -529,6 +574,11 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
     public long getFilePointer() {
       return super.getFilePointer() - offset;
     }
+
+    @Override
+    protected void adviseBuffers(long offset, long length, IOContext.Advice advice) throws IOException {
+      super.adviseBuffers(offset + this.offset, length, advice);
+    }
     
     @Override
     public byte readByte(long pos) throws IOException {
@@ -33,6 +33,25 @@ public class IOContext {
     MERGE, READ, FLUSH, DEFAULT
   };
 
+  /**
+   * Advice is a hint on the pattern in which a file is going to be accessed.
+   * Directories may pass it down to the operating system (e.g. through
+   * <code>madvise</code>) or ignore it.
+   * @see IndexInput#advise(long, long, Advice)
+   */
+  public enum Advice {
+    /** No particular access pattern. */
+    NORMAL,
+    /** Bytes are read in order, so aggressive read-ahead pays off. */
+    SEQUENTIAL,
+    /** Bytes are read in random order, read-ahead is wasted. */
+    RANDOM,
+    /** Bytes are going to be needed soon and should be loaded into memory. */
+    WILLNEED,
+    /** Bytes are not going to be needed in the near future. */
+    DONTNEED
+  };
+
   /**
    * An object of a enumerator Context type
    */
@@ -44,6 +63,12 @@ public class IOContext {
 
   public final boolean readOnce;
 
+  /**
+   * How the file is going to be accessed, {@link Advice#SEQUENTIAL} for merges
+   * and files that are read once, {@link Advice#NORMAL} otherwise.
+   */
+  public final Advice advice;
+
   public static final IOContext DEFAULT = new IOContext(Context.DEFAULT);
 
   public static final IOContext READONCE = new IOContext(true);
@@ -60,6 +85,7 @@ public class IOContext {
     this.mergeInfo = null;
     this.readOnce = false;
     this.flushInfo = flushInfo;
+    this.advice = Advice.NORMAL;
   }
 
   public IOContext(Context context) {
@@ -71,6 +97,7 @@ public class IOContext {
     this.mergeInfo = null;
     this.readOnce = readOnce;
     this.flushInfo = null;
+    this.advice = readOnce ? Advice.SEQUENTIAL : Advice.NORMAL;
   }
 
   public IOContext(MergeInfo mergeInfo) {
@@ -84,6 +111,7 @@ public class IOContext {
     this.readOnce = false;
     this.mergeInfo = mergeInfo;
     this.flushInfo = null;
+    this.advice = context == Context.MERGE ? Advice.SEQUENTIAL : Advice.NORMAL;
   }
   
   /**
@@ -96,6 +124,36 @@ public class IOContext {
     this.mergeInfo = ctxt.mergeInfo;
     this.flushInfo = ctxt.flushInfo;
     this.readOnce = readOnce;
+    this.advice = ctxt.advice;
+  }
+
+  /**
+   * This constructor is used to initialize a {@link IOContext} instance with a new value for the advice variable.
+   * @param ctxt {@link IOContext} object whose information is used to create the new instance except the advice variable.
+   * @param advice The new {@link IOContext} object will use this value for advice.
+   */
+  public IOContext(IOContext ctxt, Advice advice) {
+    if (advice == null) {
+      throw new IllegalArgumentException("advice must not be null");
+    }
+    this.context = ctxt.context;
+    this.mergeInfo = ctxt.mergeInfo;
+    this.flushInfo = ctxt.flushInfo;
+    this.readOnce = ctxt.readOnce;
+    this.advice = advice;
+  }
+
+  /**
+   * Returns a context with the given advice if this context has no
+   * particular advice, or this context otherwise. Codecs use it to describe
+   * how they access a file at search time while merges, which already
+   * read sequentially, are left alone.
+   */
+  public IOContext withDefaultAdvice(Advice advice) {
+    if (this.advice != Advice.NORMAL || advice == Advice.NORMAL) {
+      return this;
+    }
+    return new IOContext(this, advice);
   }
 
   @Override
@@ -106,6 +164,7 @@ public class IOContext {
     result = prime * result + ((flushInfo == null) ? 0 : flushInfo.hashCode());
     result = prime * result + ((mergeInfo == null) ? 0 : mergeInfo.hashCode());
     result = prime * result + (readOnce ? 1231 : 1237);
+    result = prime * result + advice.hashCode();
     return result;
   }
 
@@ -132,13 +191,15 @@ public class IOContext {
       return false;
     if (readOnce != other.readOnce)
       return false;
+    if (advice != other.advice)
+      return false;
     return true;
   }
 
   @Override
   public String toString() {
     return "IOContext [context=" + context + ", mergeInfo=" + mergeInfo
-        + ", flushInfo=" + flushInfo + ", readOnce=" + readOnce + "]";
+        + ", flushInfo=" + flushInfo + ", readOnce=" + readOnce + ", advice=" + advice + "]";
   }
 
 }
\ No newline at end of file
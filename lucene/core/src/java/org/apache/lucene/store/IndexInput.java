@@ -67,6 +67,20 @@ public abstract class IndexInput extends DataInput implements Cloneable,Closeabl
   /** The number of bytes in the file. */
   public abstract long length();
 
+  /**
+   * Gives a hint on how the given range of this input is going to be
+   * accessed. The advice may be applied to the underlying file, so it
+   * affects clones and slices of this input too. The default implementation
+   * does nothing.
+   * @param offset start of the range, relative to this input
+   * @param length length of the range
+   * @param advice how the range is going to be accessed
+   * @throws IOException If there is a low-level I/O error
+   * @lucene.experimental
+   */
+  public void advise(long offset, long length, IOContext.Advice advice) throws IOException {
+  }
+
   @Override
   public String toString() {
     return resourceDescription;
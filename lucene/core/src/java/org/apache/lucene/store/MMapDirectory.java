@@ -32,6 +32,7 @@ import java.util.Locale;
 import java.util.concurrent.Future;
 import java.lang.reflect.Method;
 
+import org.apache.lucene.store.ByteBufferIndexInput.BufferAdvisor;
 import org.apache.lucene.store.ByteBufferIndexInput.BufferCleaner;
 import org.apache.lucene.util.Constants;
 
@@ -82,6 +83,13 @@ import org.apache.lucene.util.Constants;
  * {@link Future#cancel(boolean)} you should use the legacy {@code RAFDirectory}
  * from the Lucene {@code misc} module in favor of {@link MMapDirectory}.
  * </p>
+ * <p>The {@link IOContext.Advice} of the context that a file is opened with,
+ * and advice given later through {@link IndexInput#advise}, is passed to
+ * {@link #madvise}. Java has no API for <code>madvise</code>, so only
+ * {@link IOContext.Advice#WILLNEED} has an effect by default, by loading the
+ * pages of the range into memory. Subclasses may override {@link #madvise}
+ * with native calls, like {@code NativeMMapDirectory} from the Lucene
+ * {@code misc} module does.
  * @see <a href="http://blog.thetaphi.de/2012/07/use-lucenes-mmapdirectory-on-64bit.html">Blog post about MMapDirectory</a>
  */
 public class MMapDirectory extends FSDirectory {
@@ -213,12 +221,40 @@ public class MMapDirectory extends FSDirectory {
     try (FileChannel c = FileChannel.open(path, StandardOpenOption.READ)) {
       final String resourceDescription = "MMapIndexInput(path=\"" + path.toString() + "\")";
       final boolean useUnmap = getUseUnmap();
-      return ByteBufferIndexInput.newInstance(resourceDescription,
+      final ByteBufferIndexInput in = ByteBufferIndexInput.newInstance(resourceDescription,
           map(resourceDescription, c, 0, c.size()), 
           c.size(), chunkSizePower, useUnmap ? CLEANER : null, useUnmap);
+      in.advisor = advisor;
+      if (context.advice != IOContext.Advice.NORMAL) {
+        in.advise(0L, in.length(), context.advice);
+      }
+      return in;
+    }
+  }
+
+  /**
+   * Applies the given advice to a range of a mapped file, represented by
+   * a {@link ByteBuffer} that starts at the beginning of the range and whose
+   * capacity is the length of the range. The default implementation loads
+   * the pages of the range into memory on {@link IOContext.Advice#WILLNEED}
+   * by reading one byte per page, and ignores other advice.
+   * @lucene.experimental
+   */
+  protected void madvise(ByteBuffer buffer, IOContext.Advice advice) throws IOException {
+    if (advice == IOContext.Advice.WILLNEED) {
+      byte x = 0;
+      for (int i = 0; i < buffer.limit(); i += PAGE_SIZE) {
+        x ^= buffer.get(i);
+      }
+      // like MappedByteBuffer.load(), make sure the reads are not optimized away
+      touched = x;
     }
   }
 
+  private static final int PAGE_SIZE = 4096;
+  private volatile byte touched;
+  private final BufferAdvisor advisor = (ByteBufferIndexInput parent, ByteBuffer buffer, IOContext.Advice advice) -> madvise(buffer, advice);
+
   /** Maps a file into a set of buffers */
   final ByteBuffer[] map(String resourceDescription, FileChannel fc, long offset, long length) throws IOException {
     if ((length >>> chunkSizePower) >= Integer.MAX_VALUE)
@@ -34,6 +34,7 @@ import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.store.ByteArrayDataOutput;
 import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.InputStreamDataInput;
 import org.apache.lucene.store.OutputStreamDataOutput;
 import org.apache.lucene.store.RAMOutputStream;
@@ -157,8 +158,13 @@ public final class FST<T> implements Accountable {
   // produces this output
   T emptyOutput;
 
+  // null if the FST bytes are read from disk, see offHeapBytes
   final BytesStore bytes;
 
+  // non-null if the FST bytes are read directly from a (typically
+  // memory-mapped) IndexInput rather than loaded on the heap
+  private final IndexInput offHeapBytes;
+
   private long startNode = -1;
 
   public final Outputs<T> outputs;
@@ -299,6 +305,7 @@ public final class FST<T> implements Accountable {
     this.allowArrayArcs = allowArrayArcs;
     version = VERSION_CURRENT;
     bytes = new BytesStore(bytesPageBits);
+    offHeapBytes = null;
     // pad: ensure no node gets address 0 which is reserved to mean
     // the stop state w/ no arcs
     bytes.writeByte((byte) 0);
@@ -326,6 +333,19 @@ public final class FST<T> implements Accountable {
   /** Load a previously saved FST; maxBlockBits allows you to
    *  control the size of the byte[] pages used to hold the FST bytes. */
   public FST(DataInput in, Outputs<T> outputs, int maxBlockBits) throws IOException {
+    this(in, outputs, maxBlockBits, false);
+  }
+
+  /** Load a previously saved FST. If <code>offHeap</code> is true, the FST
+   *  bytes are not copied to the heap but read from <code>in</code> on
+   *  demand. This requires <code>in</code> to remain open for as long as
+   *  this FST is used, and is mostly useful when <code>in</code> is
+   *  memory-mapped, see {@link org.apache.lucene.store.MMapDirectory}. */
+  public FST(IndexInput in, Outputs<T> outputs, boolean offHeap) throws IOException {
+    this(in, outputs, DEFAULT_MAX_BLOCK_BITS, offHeap);
+  }
+
+  private FST(DataInput in, Outputs<T> outputs, int maxBlockBits, boolean offHeap) throws IOException {
     this.outputs = outputs;
 
     if (maxBlockBits < 1 || maxBlockBits > 30) {
@@ -385,7 +405,15 @@ public final class FST<T> implements Accountable {
     arcWithOutputCount = in.readVLong();
 
     long numBytes = in.readVLong();
-    bytes = new BytesStore(in, numBytes, 1<<maxBlockBits);
+    if (offHeap) {
+      final IndexInput indexIn = (IndexInput) in;
+      offHeapBytes = indexIn.slice("fst", indexIn.getFilePointer(), numBytes);
+      indexIn.seek(indexIn.getFilePointer() + numBytes);
+      bytes = null;
+    } else {
+      offHeapBytes = null;
+      bytes = new BytesStore(in, numBytes, 1<<maxBlockBits);
+    }
     
     NO_OUTPUT = outputs.getNoOutput();
 
@@ -434,7 +462,9 @@ public final class FST<T> implements Accountable {
   @Override
   public long ramBytesUsed() {
     long size = BASE_RAM_BYTES_USED;
-    size += bytes.ramBytesUsed();
+    if (bytes != null) {
+      size += bytes.ramBytesUsed();
+    }
     if (packed) {
       size += nodeRefToAddress.ramBytesUsed();
     } else if (nodeAddress != null) {
@@ -460,7 +490,7 @@ public final class FST<T> implements Accountable {
 
   @Override
   public String toString() {
-    return getClass().getSimpleName() + "(input=" + inputType + ",output=" + outputs + ",packed=" + packed + ",nodes=" + nodeCount + ",arcs=" + arcCount + ")";
+    return getClass().getSimpleName() + "(input=" + inputType + ",output=" + outputs + ",packed=" + packed + ",offHeap=" + (offHeapBytes != null) + ",nodes=" + nodeCount + ",arcs=" + arcCount + ")";
   }
 
   void finish(long newStartNode) throws IOException {
@@ -596,9 +626,16 @@ public final class FST<T> implements Accountable {
     out.writeVLong(nodeCount);
     out.writeVLong(arcCount);
     out.writeVLong(arcWithOutputCount);
-    long numBytes = bytes.getPosition();
-    out.writeVLong(numBytes);
-    bytes.writeTo(out);
+    if (bytes != null) {
+      long numBytes = bytes.getPosition();
+      out.writeVLong(numBytes);
+      bytes.writeTo(out);
+    } else {
+      final IndexInput in = offHeapBytes.clone();
+      in.seek(0);
+      out.writeVLong(in.length());
+      out.copyBytes(in, in.length());
+    }
   }
   
   /**
@@ -1363,7 +1400,9 @@ public final class FST<T> implements Accountable {
    *  position 0. */
   public BytesReader getBytesReader() {
     BytesReader in;
-    if (packed) {
+    if (offHeapBytes != null) {
+      in = new OffHeapBytesReader(offHeapBytes, packed == false);
+    } else if (packed) {
       in = bytes.getForwardReader();
     } else {
       in = bytes.getReverseReader();
@@ -1498,6 +1537,7 @@ public final class FST<T> implements Accountable {
     packed = true;
     this.inputType = inputType;
     bytes = new BytesStore(bytesPageBits);
+    offHeapBytes = null;
     this.outputs = outputs;
     NO_OUTPUT = outputs.getNoOutput();
     
@@ -77,6 +77,19 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          int shift = 7 - (int) (index & 7);
+          values[i] = (in.readByte(index >>> 3) >>> shift) & 0x1;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
   
@@ -95,6 +108,19 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          int shift = (3 - (int)(index & 3)) << 1;
+          values[i] = (in.readByte(index >>> 2) >>> shift) & 0x3;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
   
@@ -113,6 +139,19 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          int shift = (int) ((index + 1) & 1) << 2;
+          values[i] = (in.readByte(index >>> 1) >>> shift) & 0xF;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
     
@@ -130,6 +169,18 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          values[i] = in.readByte(index) & 0xFF;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
   
@@ -149,6 +200,20 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          long offset = (index * 12) >>> 3;
+          int shift = (int) ((index + 1) & 1) << 2;
+          values[i] = (in.readShort(offset) >>> shift) & 0xFFF;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
   
@@ -167,6 +232,18 @@ public class DirectReader {
         throw new RuntimeException(e);
       }
     }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          values[i] = in.readShort(index << 1) & 0xFFFF;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
   }
   
   static final class DirectPackedReader20 extends LongValues {
@@ -188,6 +265,21 @@ public class DirectReader {
         throw new RuntimeException(e);
       }
     }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          long offset = (index * 20) >>> 3;
+          int v = in.readInt(offset) >>> 8;
+          int shift = (int) ((index + 1) & 1) << 2;
+          values[i] = (v >>> shift) & 0xFFFFF;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
   }
   
   static final class DirectPackedReader24 extends LongValues {
@@ -205,6 +297,18 @@ public class DirectReader {
         throw new RuntimeException(e);
       }
     }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          values[i] = in.readInt(index * 3) >>> 8;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
   }
   
   static final class DirectPackedReader28 extends LongValues {
@@ -223,6 +327,20 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          long offset = (index * 28) >>> 3;
+          int shift = (int) ((index + 1) & 1) << 2;
+          values[i] = (in.readInt(offset) >>> shift) & 0xFFFFFFFL;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
   
@@ -240,6 +358,18 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          values[i] = in.readInt(index << 2) & 0xFFFFFFFFL;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
   
@@ -257,6 +387,18 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          values[i] = in.readLong(index * 5) >>> 24;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
   
@@ -274,6 +416,18 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          values[i] = in.readLong(index * 6) >>> 16;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
   
@@ -291,6 +445,18 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          values[i] = in.readLong(index * 7) >>> 8;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
   
@@ -308,6 +474,18 @@ public class DirectReader {
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
+    }
+
+    @Override
+    public void get(int[] docs, int count, long[] values) {
+      try {
+        for (int i = 0; i < count; ++i) {
+          final long index = docs[i];
+          values[i] = in.readLong(index << 3);
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }    
   }
 }
@@ -17,17 +17,32 @@ package org.apache.lucene.codecs.lucene50;
  * limitations under the License.
  */
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader.FSTLoadMode;
 import org.apache.lucene.codecs.blocktree.FieldReader;
 import org.apache.lucene.codecs.blocktree.Stats;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.BasePostingsFormatTestCase;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.TestUtil;
 
 /**
@@ -65,6 +80,49 @@ public class TestBlockPostingsFormat extends BasePostingsFormatTestCase {
     d.close();
   }
 
+  /** Make sure block-max frequencies are upper bounds of the frequencies of the block */
+  public void testBlockMaxFreq() throws Exception {
+    Directory d = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(codec);
+    IndexWriter w = new IndexWriter(d, iwc);
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      StringBuilder text = new StringBuilder();
+      final int freq = random().nextInt(10) == 0 ? TestUtil.nextInt(random(), 1, 100) : 1;
+      for (int j = 0; j < freq; j++) {
+        text.append("a ");
+      }
+      if (random().nextBoolean()) {
+        text.append("b");
+      }
+      doc.add(new TextField("field", text.toString(), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+
+    DirectoryReader r = DirectoryReader.open(w, true);
+    LeafReader reader = r.leaves().get(0).reader();
+    for (String term : new String[] { "a", "b" }) {
+      TermsEnum te = reader.terms("field").iterator();
+      assertTrue(te.seekExact(new BytesRef(term)));
+      PostingsEnum docs = te.postings(null, null, PostingsEnum.FREQS);
+      PostingsEnum blockMax = te.postings(null, null, PostingsEnum.FREQS);
+      int blockEnd = -1;
+      for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+        if (doc > blockEnd) {
+          blockEnd = blockMax.advanceShallow(doc);
+          assertTrue(blockEnd >= doc);
+        }
+        assertTrue(docs.freq() <= blockMax.getMaxFreq());
+      }
+    }
+    r.close();
+    w.close();
+    d.close();
+  }
+
   private void shouldFail(int minItemsInBlock, int maxItemsInBlock) {
     try {
       new Lucene50PostingsFormat(minItemsInBlock, maxItemsInBlock);
@@ -74,6 +132,130 @@ public class TestBlockPostingsFormat extends BasePostingsFormatTestCase {
     }
   }
 
+  public void testNextDocs() throws Exception {
+    Directory d = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(codec);
+    IndexWriter w = new IndexWriter(d, iwc);
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      StringBuilder text = new StringBuilder();
+      final int freq = TestUtil.nextInt(random(), 1, 5);
+      for (int j = 0; j < freq; j++) {
+        text.append("a ");
+      }
+      if (random().nextInt(3) == 0) {
+        text.append("b");
+      }
+      doc.add(new TextField("field", text.toString(), Field.Store.NO));
+      doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    final int numDeletes = random().nextInt(100);
+    for (int i = 0; i < numDeletes; i++) {
+      w.deleteDocuments(new Term("id", Integer.toString(random().nextInt(numDocs))));
+    }
+
+    DirectoryReader r = DirectoryReader.open(w, true);
+    LeafReader reader = r.leaves().get(0).reader();
+    for (String term : new String[] { "a", "b" }) {
+      TermsEnum te = reader.terms("field").iterator();
+      assertTrue(te.seekExact(new BytesRef(term)));
+      PostingsEnum expected = te.postings(reader.getLiveDocs(), null, PostingsEnum.FREQS);
+      PostingsEnum actual = te.postings(reader.getLiveDocs(), null, PostingsEnum.FREQS);
+      final int[] docs = new int[TestUtil.nextInt(random(), 1, 300)];
+      final int[] freqs = new int[docs.length];
+      while (true) {
+        final boolean withFreqs = random().nextBoolean();
+        final int count = actual.nextDocs(docs, withFreqs ? freqs : null);
+        if (count == 0) {
+          assertEquals(DocIdSetIterator.NO_MORE_DOCS, expected.nextDoc());
+          assertEquals(DocIdSetIterator.NO_MORE_DOCS, actual.docID());
+          break;
+        }
+        for (int i = 0; i < count; i++) {
+          assertEquals(expected.nextDoc(), docs[i]);
+          if (withFreqs) {
+            assertEquals(expected.freq(), freqs[i]);
+          }
+        }
+        assertEquals(expected.docID(), actual.docID());
+        assertEquals(expected.freq(), actual.freq());
+        if (random().nextBoolean()) {
+          // mix with regular iteration
+          assertEquals(expected.nextDoc(), actual.nextDoc());
+          if (expected.docID() == DocIdSetIterator.NO_MORE_DOCS) {
+            break;
+          }
+          assertEquals(expected.freq(), actual.freq());
+        }
+      }
+    }
+    r.close();
+    w.close();
+    d.close();
+  }
+
+  /** The terms index is loaded on the heap unless the reader attributes ask otherwise */
+  public void testFSTLoadModeReaderAttribute() throws Exception {
+    final Map<String,String> offHeap = Collections.singletonMap(BlockTreeTermsReader.FST_MODE_KEY, FSTLoadMode.OFF_HEAP.name());
+    Directory d = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(codec);
+    iwc.setReaderAttributes(offHeap);
+    IndexWriter w = new IndexWriter(d, iwc);
+    for (int i = 0; i < 100; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("field", "term" + i, Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.commit();
+
+    DirectoryReader r = DirectoryReader.open(d);
+    assertFstOffHeap(false, r);
+    r.close();
+
+    r = DirectoryReader.open(d, offHeap);
+    assertFstOffHeap(true, r);
+    // new segments of reopened readers are opened with the same attributes
+    Document doc = new Document();
+    doc.add(newStringField("field", "term100", Field.Store.NO));
+    w.addDocument(doc);
+    w.commit();
+    DirectoryReader r2 = DirectoryReader.openIfChanged(r);
+    assertNotNull(r2);
+    assertEquals(2, r2.leaves().size());
+    assertFstOffHeap(true, r2);
+    r.close();
+    r2.close();
+
+    // near-real-time readers use the attributes of the writer config
+    r = DirectoryReader.open(w, true);
+    assertFstOffHeap(true, r);
+    r.close();
+    w.close();
+
+    try {
+      DirectoryReader.open(d, Collections.singletonMap(BlockTreeTermsReader.FST_MODE_KEY, "SOMEWHERE"));
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertTrue(expected.getMessage().contains(BlockTreeTermsReader.FST_MODE_KEY));
+    }
+    d.close();
+  }
+
+  private static void assertFstOffHeap(boolean expected, DirectoryReader r) throws IOException {
+    for (LeafReaderContext ctx : r.leaves()) {
+      FieldReader field = (FieldReader) ctx.reader().fields().terms("field");
+      assertEquals(expected, field.isFstOffHeap());
+      TermsEnum te = field.iterator();
+      assertTrue(te.seekExact(new BytesRef("term" + (ctx.ord == 0 ? 42 : 100))));
+      assertFalse(te.seekExact(new BytesRef("term1000")));
+    }
+  }
+
   public void testInvalidBlockSizes() throws Exception {
     shouldFail(0, 0);
     shouldFail(10, 8);
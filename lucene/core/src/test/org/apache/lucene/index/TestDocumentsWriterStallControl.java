@@ -17,15 +17,21 @@ package org.apache.lucene.index;
  * the License.
  */
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.ThreadInterruptedException;
+import org.apache.lucene.util.Version;
 
 /**
  * Tests for {@link DocumentsWriterStallControl}
@@ -54,6 +60,69 @@ public class TestDocumentsWriterStallControl extends LuceneTestCase {
     join(waitThreads);
   }
   
+  public void testFlushPressure() {
+    DocumentsWriterStallControl ctrl = new DocumentsWriterStallControl(newIndexWriterConfig().setThrottleIndexing(true));
+    ctrl.updateFlushPressure(0, 1000, false);
+    assertEquals(0, ctrl.getFlushPressure(), 0);
+    ctrl.updateFlushPressure(750, 1000, false);
+    assertEquals(0, ctrl.getFlushPressure(), 0);
+    ctrl.updateFlushPressure(900, 1000, false);
+    assertEquals(0.6, ctrl.getFlushPressure(), 0.0001);
+    ctrl.updateFlushPressure(2000, 1000, false);
+    assertEquals(1, ctrl.getFlushPressure(), 0);
+    ctrl.updateFlushPressure(2000, 1000, true);
+    assertEquals(0, ctrl.getFlushPressure(), 0);
+    ctrl.updateFlushPressure(2000, Long.MAX_VALUE, false);
+    assertEquals(0, ctrl.getFlushPressure(), 0);
+  }
+
+  public void testMergePressure() throws IOException {
+    ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler();
+    cms.setMaxMergesAndThreads(5, 1);
+    cms.disableAutoIOThrottle();
+    DocumentsWriterStallControl ctrl = new DocumentsWriterStallControl(newIndexWriterConfig()
+        .setMergeScheduler(cms).setThrottleIndexing(true));
+    ctrl.maybeThrottle(); // samples the merge scheduler
+    Directory dir = newDirectory();
+    List<MergePolicy.OneMerge> running = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      SegmentInfo si = new SegmentInfo(dir, Version.LATEST, "_" + i, 10, false, Codec.getDefault(),
+          Collections.<String,String>emptyMap(), StringHelper.randomId(), new HashMap<String,String>());
+      running.add(new MergePolicy.OneMerge(Collections.singletonList(new SegmentCommitInfo(si, 0, -1, -1, -1))));
+    }
+    ctrl.updateMergeBacklog(0, running.subList(0, 1));
+    assertEquals(0, ctrl.getMergePressure(), 0);
+    ctrl.updateMergeBacklog(2, running.subList(0, 1));
+    assertEquals(0.5, ctrl.getMergePressure(), 0.0001);
+    ctrl.updateMergeBacklog(3, running);
+    assertEquals(1, ctrl.getMergePressure(), 0);
+    ctrl.updateMergeBacklog(0, Collections.<MergePolicy.OneMerge>emptyList());
+    assertEquals(0, ctrl.getMergePressure(), 0);
+    dir.close();
+  }
+
+  public void testThrottle() throws InterruptedException {
+    DocumentsWriterStallControl ctrl = new DocumentsWriterStallControl(newIndexWriterConfig().setThrottleIndexing(true));
+    ctrl.updateFlushPressure(2000, 1000, false);
+    ctrl.afterDocument(1000);
+    // no baseline rate yet, so there is nothing to throttle against
+    assertFalse(ctrl.isThrottling());
+
+    ctrl.updateFlushPressure(0, 1000, false);
+    Thread.sleep(1100);
+    ctrl.afterDocument(1000); // learns the unthrottled rate of ~2000 bytes/sec
+    assertFalse(ctrl.isThrottling());
+
+    ctrl.updateFlushPressure(2000, 1000, false);
+    ctrl.afterDocument(1000);
+    assertTrue(ctrl.isThrottling());
+    assertFalse(ctrl.anyStalledThreads());
+
+    ctrl.updateFlushPressure(0, 1000, false);
+    ctrl.afterDocument(1000);
+    assertFalse(ctrl.isThrottling());
+  }
+
   public void testRandom() throws InterruptedException {
     final DocumentsWriterStallControl ctrl = new DocumentsWriterStallControl(newIndexWriterConfig());
     ctrl.updateStalled(false);
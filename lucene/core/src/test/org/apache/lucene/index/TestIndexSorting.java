@@ -0,0 +1,149 @@
+package org.apache.lucene.index;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestIndexSorting extends LuceneTestCase {
+
+  public void testIllegalIndexSort() throws Exception {
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    try {
+      iwc.setIndexSort(new Sort(SortField.FIELD_SCORE));
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      iwc.setIndexSort(new Sort(SortField.FIELD_DOC));
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testFlushedAndMergedSegmentsAreSorted() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    final boolean reverse = random().nextBoolean();
+    final Sort indexSort = new Sort(new SortField("foo", SortField.Type.LONG, reverse));
+    iwc.setIndexSort(indexSort);
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 10, 50));
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+      doc.add(new NumericDocValuesField("foo", random().nextInt(1000)));
+      w.addDocument(doc);
+      if (rarely()) {
+        w.deleteDocuments(new Term("id", Integer.toString(random().nextInt(i + 1))));
+      }
+    }
+    w.commit();
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    for (LeafReaderContext ctx : reader.leaves()) {
+      SegmentReader leaf = (SegmentReader) ctx.reader();
+      if (leaf.getSegmentInfo().info.getIndexSort() != null) {
+        assertEquals(indexSort, leaf.getSegmentInfo().info.getIndexSort());
+        assertSorted(leaf, reverse);
+      }
+    }
+    reader.close();
+
+    w.forceMerge(1);
+    w.close();
+    reader = DirectoryReader.open(dir);
+    assertEquals(1, reader.leaves().size());
+    SegmentReader leaf = (SegmentReader) reader.leaves().get(0).reader();
+    assertEquals(indexSort, leaf.getSegmentInfo().info.getIndexSort());
+    assertSorted(leaf, reverse);
+    reader.close();
+    dir.close();
+  }
+
+  public void testEarlyTermination() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    final Sort indexSort = new Sort(new SortField("foo", SortField.Type.LONG));
+    iwc.setIndexSort(indexSort);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("parity", i % 2 == 0 ? "even" : "odd", Field.Store.NO));
+      doc.add(new NumericDocValuesField("foo", random().nextInt(10000)));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    w.close();
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    IndexSearcher searcher = newSearcher(reader, false);
+    final int numHits = TestUtil.nextInt(random(), 1, 20);
+    for (TermQuery query : new TermQuery[] { new TermQuery(new Term("parity", "even")), new TermQuery(new Term("parity", "odd")) }) {
+      TopFieldCollector full = TopFieldCollector.create(indexSort, numHits, null, true, false, false, true);
+      searcher.search(query, full);
+      TopFieldCollector early = TopFieldCollector.create(indexSort, numHits, null, true, false, false, false);
+      searcher.search(query, early);
+      TopDocs expected = full.topDocs();
+      TopDocs actual = early.topDocs();
+      assertEquals(numDocs / 2, expected.totalHits, 1);
+      assertTrue(actual.totalHits < expected.totalHits);
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; ++i) {
+        assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+      }
+    }
+
+    // a sort that is not a prefix of the index sort must not terminate early
+    Sort otherSort = new Sort(new SortField("foo", SortField.Type.LONG, true));
+    TopFieldCollector collector = TopFieldCollector.create(otherSort, numHits, null, true, false, false, false);
+    searcher.search(new MatchAllDocsQuery(), collector);
+    assertEquals(numDocs, collector.getTotalHits());
+    reader.close();
+    dir.close();
+  }
+
+  private static void assertSorted(LeafReader reader, boolean reverse) throws Exception {
+    NumericDocValues values = reader.getNumericDocValues("foo");
+    for (int doc = 1; doc < reader.maxDoc(); ++doc) {
+      if (reverse) {
+        assertTrue(values.get(doc - 1) >= values.get(doc));
+      } else {
+        assertTrue(values.get(doc - 1) <= values.get(doc));
+      }
+    }
+  }
+}
@@ -153,9 +153,9 @@ public class MultiCollectorTest extends LuceneTestCase {
     Collector c2 = collector(false, FakeScorer.class);
     MultiCollector.wrap(c1, c2).getLeafCollector(ctx).setScorer(new FakeScorer());
 
-    // only one collector needs scores => no caching
-    c1 = collector(true, FakeScorer.class);
-    c2 = collector(false, FakeScorer.class);
+    // only one collector needs scores => no caching, but no skipping either
+    c1 = collector(true, MultiCollector.NonPruningScorer.class);
+    c2 = collector(false, MultiCollector.NonPruningScorer.class);
     MultiCollector.wrap(c1, c2).getLeafCollector(ctx).setScorer(new FakeScorer());
 
     // several collectors need scores => caching
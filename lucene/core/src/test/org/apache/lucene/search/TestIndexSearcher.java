@@ -19,6 +19,7 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +30,7 @@ import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.store.Directory;
@@ -156,4 +158,35 @@ public class TestIndexSearcher extends LuceneTestCase {
     dir.close();
   }
 
+  public void testIntraSegmentSlices() throws Exception {
+    ExecutorService service = new ForkJoinPool(4);
+    final int maxDocsPerSlice = TestUtil.nextInt(random(), 1, 30);
+    IndexSearcher single = new IndexSearcher(reader);
+    IndexSearcher sliced = new IndexSearcher(reader, service, maxDocsPerSlice);
+
+    int numSlices = 0;
+    for (LeafReaderContext ctx : reader.leaves()) {
+      numSlices += (ctx.reader().maxDoc() + maxDocsPerSlice - 1) / maxDocsPerSlice;
+    }
+    assertEquals(numSlices, sliced.leafSlices.length);
+    for (IndexSearcher.LeafSlice slice : sliced.leafSlices) {
+      assertEquals(1, slice.leaves.length);
+      assertTrue(Math.min(slice.maxDoc, slice.leaves[0].reader().maxDoc()) - slice.minDoc <= maxDocsPerSlice);
+    }
+
+    Query queries[] = new Query[] {
+        new MatchAllDocsQuery(),
+        new TermQuery(new Term("field", "1")),
+        new TermQuery(new Term("field2", "true"))
+    };
+    for (Query query : queries) {
+      assertEquals(single.count(query), sliced.count(query));
+      CheckHits.checkEqual(query, single.search(query, 10).scoreDocs, sliced.search(query, 10).scoreDocs);
+      Sort sort = new Sort(new SortField("field2", SortField.Type.STRING));
+      CheckHits.checkEqual(query, single.search(query, 10, sort).scoreDocs, sliced.search(query, 10, sort).scoreDocs);
+    }
+
+    TestUtil.shutdownExecutorService(service);
+  }
+
 }
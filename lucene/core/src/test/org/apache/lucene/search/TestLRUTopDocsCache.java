@@ -0,0 +1,195 @@
+package org.apache.lucene.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestLRUTopDocsCache extends LuceneTestCase {
+
+  private static final String[] TERMS = new String[] { "a", "b", "c", "d", "e" };
+
+  private static Document randomDocument() {
+    final Document doc = new Document();
+    final StringBuilder text = new StringBuilder();
+    final int numTerms = 1 + random().nextInt(5);
+    for (int i = 0; i < numTerms; ++i) {
+      text.append(TERMS[random().nextInt(TERMS.length)]).append(' ');
+    }
+    doc.add(new TextField("f", text.toString(), Store.NO));
+    return doc;
+  }
+
+  private static Query randomQuery() {
+    if (random().nextBoolean()) {
+      return new TermQuery(new Term("f", TERMS[random().nextInt(TERMS.length)]));
+    }
+    final BooleanQuery query = new BooleanQuery();
+    query.add(new TermQuery(new Term("f", TERMS[random().nextInt(TERMS.length)])), Occur.SHOULD);
+    query.add(new TermQuery(new Term("f", TERMS[random().nextInt(TERMS.length)])), Occur.SHOULD);
+    return query;
+  }
+
+  private static void assertSameTopHits(TopDocs expected, TopDocs actual) {
+    assertEquals(expected.totalHits, actual.totalHits);
+    assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+    for (int i = 0; i < expected.scoreDocs.length; ++i) {
+      assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+      assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+    }
+  }
+
+  public void testSameTopHits() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(randomDocument());
+      if (random().nextInt(50) == 0) {
+        w.commit();
+      }
+    }
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    w.close();
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(null);
+    final LRUTopDocsCache cache = new LRUTopDocsCache(1000);
+    for (int iter = 0; iter < 50; ++iter) {
+      final Query query = randomQuery();
+      final int n = 1 + random().nextInt(20);
+      final TopDocs expected = searcher.search(query, n);
+      assertSameTopHits(expected, cache.search(searcher, query, n));
+      // second time is served from the cache
+      final long hitCount = cache.getHitCount();
+      assertSameTopHits(expected, cache.search(searcher, query, n));
+      assertEquals(hitCount + reader.leaves().size(), cache.getHitCount());
+    }
+    reader.close();
+    dir.close();
+  }
+
+  public void testReuseUnchangedSegments() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    for (int i = 0; i < 100; ++i) {
+      w.addDocument(randomDocument());
+    }
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    final IndexSearcher first = new IndexSearcher(reader);
+    final LRUTopDocsCache cache = new LRUTopDocsCache(1000);
+    final Query query = new TermQuery(new Term("f", "a"));
+    cache.search(first, query, 10);
+    assertEquals(reader.leaves().size(), cache.getMissCount());
+    assertEquals(0, cache.getHitCount());
+
+    for (int i = 0; i < 10; ++i) {
+      w.addDocument(randomDocument());
+    }
+    DirectoryReader newReader = DirectoryReader.openIfChanged(reader, w, true);
+    assertNotNull(newReader);
+    final IndexSearcher second = new IndexSearcher(newReader);
+    second.setQueryCache(null);
+    final TopDocs topDocs = cache.search(second, query, 10);
+    // the previous segment was not searched again
+    assertEquals(reader.leaves().size(), cache.getHitCount());
+    assertEquals(newReader.leaves().size(), cache.getMissCount());
+    assertSameTopHits(second.search(query, 10), topDocs);
+
+    w.close();
+    IOUtils.close(reader, newReader);
+    // all segments are closed, entries must have been cleared
+    assertEquals(0, cache.getCacheSize());
+    assertEquals(0, cache.ramBytesUsed());
+    dir.close();
+  }
+
+  public void testStatisticsChange() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    for (int i = 0; i < 20; ++i) {
+      w.addDocument(randomDocument());
+    }
+    IndexReader reader = DirectoryReader.open(w, true);
+    final LRUTopDocsCache cache = new LRUTopDocsCache(1000);
+    final Query query = new TermQuery(new Term("f", "b"));
+    final IndexSearcher first = new IndexSearcher(reader);
+    first.setQueryCache(null);
+    final TopDocs before = cache.search(first, query, 10);
+    final long misses = cache.getMissCount();
+
+    // new documents don't contain "b", which makes it rarer
+    for (int i = 0; i < 20; ++i) {
+      final Document doc = new Document();
+      doc.add(new TextField("f", "a c", Store.NO));
+      w.addDocument(doc);
+    }
+    IndexReader newReader = DirectoryReader.openIfChanged((DirectoryReader) reader, w, true);
+    final IndexSearcher searcher = new IndexSearcher(newReader);
+    searcher.setQueryCache(null);
+    // statistics changed: cached hits of the old segment are reused, but scored again
+    final TopDocs after = cache.search(searcher, query, 10);
+    assertSameTopHits(searcher.search(query, 10), after);
+    assertEquals(reader.leaves().size(), cache.getHitCount());
+    assertEquals(misses + newReader.leaves().size() - reader.leaves().size(), cache.getMissCount());
+    assertEquals(before.scoreDocs.length, after.scoreDocs.length);
+    for (int i = 0; i < before.scoreDocs.length; ++i) {
+      assertEquals(before.scoreDocs[i].doc, after.scoreDocs[i].doc);
+      assertTrue(after.scoreDocs[i].score > before.scoreDocs[i].score);
+    }
+
+    w.close();
+    IOUtils.close(reader, newReader, dir);
+  }
+
+  public void testEviction() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+    for (int i = 0; i < 20; ++i) {
+      w.addDocument(randomDocument());
+    }
+    IndexReader reader = DirectoryReader.open(w, true);
+    w.close();
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    final int numLeaves = reader.leaves().size();
+    final LRUTopDocsCache cache = new LRUTopDocsCache(numLeaves);
+    cache.search(searcher, new TermQuery(new Term("f", "a")), 5);
+    assertEquals(numLeaves, cache.getCacheSize());
+    assertEquals(0, cache.getEvictionCount());
+    cache.search(searcher, new TermQuery(new Term("f", "b")), 5);
+    assertEquals(numLeaves, cache.getCacheSize());
+    assertEquals(numLeaves, cache.getEvictionCount());
+    cache.clear();
+    assertEquals(0, cache.getCacheSize());
+    assertEquals(0, cache.ramBytesUsed());
+    IOUtils.close(reader, dir);
+  }
+
+}
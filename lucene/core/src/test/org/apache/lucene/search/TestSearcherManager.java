@@ -19,16 +19,20 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FilterDirectoryReader;
@@ -38,6 +42,7 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.ThreadedIndexingAndSearchingTestCase;
@@ -546,4 +551,84 @@ public class TestSearcherManager extends ThreadedIndexingAndSearchingTestCase {
     sm.close();
     dir.close();
   }
+
+  public void testMaybeRefreshAsync() throws Exception {
+    final Directory dir = newDirectory();
+    final IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+    final SearcherManager sm = new SearcherManager(w, false, new SearcherFactory());
+    assertEquals(0, sm.getRefreshCount());
+    w.addDocument(new Document());
+
+    // while the executor does not run the queued refresh, later calls share it
+    final List<Runnable> tasks = new ArrayList<>();
+    Future<Void> future = sm.maybeRefreshAsync(tasks::add);
+    assertSame(future, sm.maybeRefreshAsync(tasks::add));
+    assertEquals(1, tasks.size());
+    assertFalse(future.isDone());
+    IndexSearcher s = sm.acquire();
+    assertEquals(0, s.getIndexReader().numDocs());
+    sm.release(s);
+
+    tasks.get(0).run();
+    future.get();
+    assertEquals(1, sm.getRefreshCount());
+    assertTrue(sm.getLastRefreshTimeNS() > 0);
+    s = sm.acquire();
+    assertEquals(1, s.getIndexReader().numDocs());
+    sm.release(s);
+
+    // once the refresh has started, a new one gets queued
+    future = sm.maybeRefreshAsync(tasks::add);
+    assertEquals(2, tasks.size());
+    tasks.get(1).run();
+    future.get();
+    // nothing changed
+    assertEquals(1, sm.getRefreshCount());
+
+    ExecutorService es = Executors.newSingleThreadExecutor(new NamedThreadFactory("testMaybeRefreshAsync"));
+    w.addDocument(new Document());
+    sm.maybeRefreshAsync(es).get();
+    s = sm.acquire();
+    assertEquals(2, s.getIndexReader().numDocs());
+    sm.release(s);
+    es.shutdown();
+    es.awaitTermination(1, TimeUnit.SECONDS);
+
+    w.close();
+    sm.close();
+    dir.close();
+  }
+
+  public void testWarmingSearcherFactory() throws Exception {
+    final Directory dir = newDirectory();
+    final IndexWriter w = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())).setMergePolicy(NoMergePolicy.INSTANCE));
+    Document doc = new Document();
+    doc.add(new StringField("field", "value", Field.Store.NO));
+    w.addDocument(doc);
+    final WarmingSearcherFactory factory = new WarmingSearcherFactory();
+    final SearcherManager sm = new SearcherManager(w, false, factory);
+    assertEquals(1, factory.getWarmedLeafCount());
+    assertEquals(0, factory.getReusedLeafCount());
+
+    // queries run on managed searchers are recorded
+    final Query query = new TermQuery(new Term("field", "value"));
+    IndexSearcher s = sm.acquire();
+    assertEquals(1, s.count(query));
+    sm.release(s);
+    assertEquals(Collections.singletonList(query), factory.getRecentQueries());
+
+    // only the new segment is warmed
+    w.addDocument(doc);
+    assertTrue(sm.maybeRefresh());
+    assertEquals(2, factory.getWarmedLeafCount());
+    assertEquals(1, factory.getReusedLeafCount());
+    assertEquals(1, factory.getReplayedQueryCount());
+    s = sm.acquire();
+    assertEquals(2, s.count(query));
+    sm.release(s);
+
+    w.close();
+    sm.close();
+    dir.close();
+  }
 }
@@ -165,6 +165,83 @@ public class TestTermScorer extends LuceneTestCase {
     assertTrue("doc should be number 5", ts.docID() == 5);
   }
   
+  public void testBulkScorerWindows() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      if (random().nextInt(3) == 0) {
+        doc.add(newTextField(FIELD, random().nextBoolean() ? "foo" : "foo foo", Field.Store.NO));
+      }
+      w.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      w.deleteDocuments(new Term(FIELD, "foo"));
+      for (int i = 0; i < 100; i++) {
+        Document doc = new Document();
+        doc.add(newTextField(FIELD, "foo", Field.Store.NO));
+        w.addDocument(doc);
+      }
+    }
+    IndexReader reader = SlowCompositeReaderWrapper.wrap(w.getReader());
+    w.close();
+    IndexSearcher searcher = newSearcher(reader);
+    Weight weight = searcher.createNormalizedWeight(new TermQuery(new Term(FIELD, "foo")), true);
+    LeafReaderContext context = (LeafReaderContext) searcher.getTopReaderContext();
+
+    final List<TestHit> expected = new ArrayList<>();
+    Scorer scorer = weight.scorer(context, context.reader().getLiveDocs());
+    if (scorer != null) {
+      for (int doc = scorer.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = scorer.nextDoc()) {
+        expected.add(new TestHit(doc, scorer.score()));
+      }
+    }
+
+    final List<TestHit> actual = new ArrayList<>();
+    BulkScorer bulkScorer = weight.bulkScorer(context, context.reader().getLiveDocs());
+    if (bulkScorer != null) {
+      final LeafCollector collector = new LeafCollector() {
+        private Scorer scorer;
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+          this.scorer = scorer;
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+          assertEquals(doc, scorer.docID());
+          actual.add(new TestHit(doc, scorer.score()));
+        }
+      };
+      // score in random windows, with random gaps that must be ignored
+      int min = 0;
+      while (min != DocIdSetIterator.NO_MORE_DOCS) {
+        final int max = min + random().nextInt(300);
+        min = bulkScorer.score(collector, min, max);
+        assertTrue(min >= max);
+        if (random().nextInt(10) == 0 && min != DocIdSetIterator.NO_MORE_DOCS) {
+          final int skipTo = min + random().nextInt(100);
+          for (int i = expected.size() - 1; i >= 0 && expected.get(i).doc >= max; --i) {
+            if (expected.get(i).doc < skipTo) {
+              expected.remove(i);
+            }
+          }
+          min = skipTo;
+        }
+      }
+    }
+
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).doc, actual.get(i).doc);
+      assertEquals(expected.get(i).score, actual.get(i).score, 0f);
+    }
+    reader.close();
+    dir.close();
+  }
+  
   private class TestHit {
     public int doc;
     public float score;
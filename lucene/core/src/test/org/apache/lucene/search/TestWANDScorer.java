@@ -0,0 +1,188 @@
+package org.apache.lucene.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.FieldInvertState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.search.similarities.DefaultSimilarity;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.search.similarities.TFIDFSimilarity;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestWANDScorer extends LuceneTestCase {
+
+  public void testSameTopHits() throws Exception {
+    doTestSameTopHits(random().nextBoolean() ? new BM25Similarity() : new DefaultSimilarity(), false);
+  }
+
+  public void testZeroBoostWithUnboundedNorms() throws Exception {
+    doTestSameTopHits(new UnboundedNormsSimilarity(), true);
+  }
+
+  public void testMultiCollectorSeesAllHits() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      // "c" is rare, so once a "c" is collected the "a"-only documents can be skipped
+      doc.add(new TextField("f", i % 10 == 0 ? "c" : "a b b b", Field.Store.NO));
+      w.addDocument(doc);
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setSimilarity(new BM25Similarity());
+    BooleanQuery query = new BooleanQuery();
+    query.add(new TermQuery(new Term("f", "a")), Occur.SHOULD);
+    query.add(new TermQuery(new Term("f", "c")), Occur.SHOULD);
+
+    TopScoreDocCollector topDocs = TopScoreDocCollector.create(1, null, false);
+    TotalHitCountCollector count = new TotalHitCountCollector();
+    searcher.search(query, MultiCollector.wrap(topDocs, count));
+    // the top hits may not skip documents that the other collector needs
+    assertEquals(searcher.count(query), count.getTotalHits());
+
+    TopScoreDocCollector exhaustive = TopScoreDocCollector.create(1, null, true);
+    searcher.search(query, exhaustive);
+    CheckHits.checkEqual(query, exhaustive.topDocs().scoreDocs, topDocs.topDocs().scoreDocs);
+
+    reader.close();
+    dir.close();
+  }
+
+  /** Scores like {@link DefaultSimilarity}, but keeps the unbounded default of {@link TFIDFSimilarity#maxNormValue()} */
+  private static class UnboundedNormsSimilarity extends TFIDFSimilarity {
+    private final DefaultSimilarity in = new DefaultSimilarity();
+
+    @Override
+    public float coord(int overlap, int maxOverlap) {
+      return in.coord(overlap, maxOverlap);
+    }
+
+    @Override
+    public float queryNorm(float sumOfSquaredWeights) {
+      return in.queryNorm(sumOfSquaredWeights);
+    }
+
+    @Override
+    public float tf(float freq) {
+      return in.tf(freq);
+    }
+
+    @Override
+    public float idf(long docFreq, long numDocs) {
+      return in.idf(docFreq, numDocs);
+    }
+
+    @Override
+    public float lengthNorm(FieldInvertState state) {
+      return in.lengthNorm(state);
+    }
+
+    @Override
+    public float decodeNormValue(long norm) {
+      return in.decodeNormValue(norm);
+    }
+
+    @Override
+    public long encodeNormValue(float f) {
+      return in.encodeNormValue(f);
+    }
+
+    @Override
+    public float sloppyFreq(int distance) {
+      return in.sloppyFreq(distance);
+    }
+
+    @Override
+    public float scorePayload(int doc, int start, int end, BytesRef payload) {
+      return in.scorePayload(doc, start, end, payload);
+    }
+  }
+
+  private void doTestSameTopHits(Similarity similarity, boolean zeroBoosts) throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    final String[] terms = new String[] { "a", "b", "c", "d", "e", "f" };
+    final int numDocs = atLeast(2000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      StringBuilder text = new StringBuilder();
+      final int length = TestUtil.nextInt(random(), 1, 20);
+      for (int j = 0; j < length; ++j) {
+        // skewed distribution so that terms have different max scores
+        final int t = Math.min(terms.length - 1, (int) Math.abs(random().nextGaussian() * 2));
+        text.append(terms[t]).append(' ');
+      }
+      doc.add(new TextField("f", text.toString(), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      w.deleteDocuments(new Term("f", "f"));
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+
+    // don't use newSearcher: asserting scorers would hide the min competitive score
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setSimilarity(similarity);
+
+    for (int iter = 0; iter < 50; ++iter) {
+      BooleanQuery query = new BooleanQuery(random().nextBoolean());
+      final int numClauses = TestUtil.nextInt(random(), 2, 5);
+      for (int i = 0; i < numClauses; ++i) {
+        TermQuery clause = new TermQuery(new Term("f", terms[random().nextInt(terms.length)]));
+        if (zeroBoosts && i > 0 && random().nextBoolean()) {
+          clause.setBoost(0f);
+        }
+        query.add(clause, Occur.SHOULD);
+      }
+      final int numHits = TestUtil.nextInt(random(), 1, 20);
+
+      TopScoreDocCollector exhaustive = TopScoreDocCollector.create(numHits, null, true);
+      searcher.search(query, exhaustive);
+      TopScoreDocCollector pruned = TopScoreDocCollector.create(numHits, null, false);
+      searcher.search(query, pruned);
+
+      TopDocs expected = exhaustive.topDocs();
+      TopDocs actual = pruned.topDocs();
+      CheckHits.checkEqual(query, expected.scoreDocs, actual.scoreDocs);
+      assertEquals(searcher.count(query), expected.totalHits);
+      // documents that have been skipped are not counted
+      assertTrue(actual.totalHits <= expected.totalHits);
+    }
+
+    reader.close();
+    dir.close();
+  }
+
+}
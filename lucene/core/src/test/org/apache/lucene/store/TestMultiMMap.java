@@ -18,7 +18,10 @@ package org.apache.lucene.store;
  */
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.lucene.analysis.MockAnalyzer;
@@ -49,6 +52,62 @@ public class TestMultiMMap extends BaseDirectoryTestCase {
     assumeTrue("test requires a jre that supports unmapping", MMapDirectory.UNMAP_SUPPORTED);
   }
   
+  public void testAdviseRanges() throws Exception {
+    final int chunkSize = 1 << TestUtil.nextInt(random(), 4, 10);
+    final List<ByteBuffer> advised = new ArrayList<>();
+    MMapDirectory mmapDir = new MMapDirectory(createTempDir("testAdviseRanges"), chunkSize) {
+      @Override
+      protected void madvise(ByteBuffer buffer, IOContext.Advice advice) throws IOException {
+        assertEquals(IOContext.Advice.RANDOM, advice);
+        advised.add(buffer);
+      }
+    };
+    final int num = TestUtil.nextInt(random(), 1, chunkSize * 8);
+    byte bytes[] = new byte[num];
+    random().nextBytes(bytes);
+    IndexOutput io = mmapDir.createOutput("bytes", newIOContext(random()));
+    io.writeBytes(bytes, bytes.length);
+    io.close();
+
+    IndexInput in = mmapDir.openInput("bytes", new IOContext(IOContext.DEFAULT, IOContext.Advice.RANDOM));
+    assertAdvised(advised, bytes, 0, num);
+
+    final int offset = random().nextInt(num);
+    IndexInput slice = in.slice("slice", offset, num - offset);
+    final int start = random().nextInt(num - offset + 1);
+    final int length = random().nextInt(num - offset - start + 1);
+    slice.advise(start, length, IOContext.Advice.RANDOM);
+    assertAdvised(advised, bytes, offset + start, length);
+
+    try {
+      slice.advise(start, num - offset - start + 1, IOContext.Advice.RANDOM);
+      fail("Must throw IllegalArgumentException");
+    } catch (IllegalArgumentException ignore) {
+      // pass
+    }
+    in.close();
+    try {
+      slice.advise(0, 0, IOContext.Advice.RANDOM);
+      fail("Must throw AlreadyClosedException");
+    } catch (AlreadyClosedException ignore) {
+      // pass
+    }
+    mmapDir.close();
+  }
+
+  /** Checks that the advised buffers exactly cover the given range, in order. */
+  private static void assertAdvised(List<ByteBuffer> advised, byte[] bytes, int offset, int length) {
+    int pos = offset;
+    for (ByteBuffer buffer : advised) {
+      assertEquals(0, buffer.position());
+      for (int i = 0; i < buffer.limit(); i++) {
+        assertEquals(bytes[pos++], buffer.get(i));
+      }
+    }
+    assertEquals(offset + length, pos);
+    advised.clear();
+  }
+
   public void testCloneSafety() throws Exception {
     MMapDirectory mmapDir = new MMapDirectory(createTempDir("testCloneSafety"));
     IndexOutput io = mmapDir.createOutput("bytes", newIOContext(random()));
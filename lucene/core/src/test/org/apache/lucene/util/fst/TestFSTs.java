@@ -1031,6 +1031,70 @@ public class TestFSTs extends LuceneTestCase {
   }
 
 
+  public void testOffHeap() throws Exception {
+    final int numTerms = atLeast(1000);
+    final Set<BytesRef> terms = new TreeSet<>();
+    while (terms.size() < numTerms) {
+      terms.add(new BytesRef(TestUtil.randomUnicodeString(random())));
+    }
+
+    final PositiveIntOutputs outputs = PositiveIntOutputs.getSingleton();
+    final boolean doPack = random().nextBoolean();
+    final Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, 0, 0, true, true, Integer.MAX_VALUE, outputs, doPack, PackedInts.DEFAULT, true, 15);
+    final IntsRefBuilder scratch = new IntsRefBuilder();
+    long ord = 0;
+    for (BytesRef term : terms) {
+      builder.add(Util.toIntsRef(term, scratch), ord++);
+    }
+    final FST<Long> fst = builder.finish();
+
+    Directory dir = newDirectory();
+    IndexOutput out = dir.createOutput("fst", IOContext.DEFAULT);
+    out.writeVInt(42); // make sure the FST does not start at offset 0
+    fst.save(out);
+    out.writeVInt(43);
+    out.close();
+
+    IndexInput in = dir.openInput("fst", IOContext.DEFAULT);
+    assertEquals(42, in.readVInt());
+    final FST<Long> offHeapFST = new FST<>(in, outputs, true);
+    // the input must be positioned after the FST
+    assertEquals(43, in.readVInt());
+    assertTrue(offHeapFST.ramBytesUsed() < fst.ramBytesUsed());
+
+    ord = 0;
+    for (BytesRef term : terms) {
+      assertEquals(Long.valueOf(ord++), Util.get(offHeapFST, term));
+    }
+    for (int i = 0; i < 100; ++i) {
+      final BytesRef term = new BytesRef(TestUtil.randomUnicodeString(random()));
+      assertEquals(Util.get(fst, term), Util.get(offHeapFST, term));
+    }
+
+    final BytesRefFSTEnum<Long> fstEnum = new BytesRefFSTEnum<>(offHeapFST);
+    ord = 0;
+    for (BytesRef term : terms) {
+      final InputOutput<Long> next = fstEnum.next();
+      assertEquals(term, next.input);
+      assertEquals(ord++, next.output.longValue());
+    }
+    assertNull(fstEnum.next());
+
+    // off-heap FSTs can be saved too
+    out = dir.createOutput("fst2", IOContext.DEFAULT);
+    offHeapFST.save(out);
+    out.close();
+    IndexInput in2 = dir.openInput("fst2", IOContext.DEFAULT);
+    final FST<Long> fst2 = new FST<>(in2, outputs);
+    for (BytesRef term : terms) {
+      assertEquals(Util.get(fst, term), Util.get(fst2, term));
+    }
+
+    in.close();
+    in2.close();
+    dir.close();
+  }
+
   /**
    * Test state expansion (array format) on close-to-root states. Creates
    * synthetic input that has one expanded state on each level.
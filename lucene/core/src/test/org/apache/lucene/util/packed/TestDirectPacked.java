@@ -102,6 +102,19 @@ public class TestDirectPacked extends LuceneTestCase {
       for (int j = 0; j < original.length; j++) {
         assertEquals("bpv=" + bpv, original[j], reader.get(j));
       }
+      // bulk retrieval of increasing indexes
+      int docs[] = new int[original.length];
+      int count = 0;
+      for (int j = 0; j < original.length; j++) {
+        if (random.nextBoolean()) {
+          docs[count++] = j;
+        }
+      }
+      long values[] = new long[count];
+      reader.get(docs, count, values);
+      for (int j = 0; j < count; j++) {
+        assertEquals("bpv=" + bpv, original[docs[j]], values[j]);
+      }
       input.close();
     }
   }
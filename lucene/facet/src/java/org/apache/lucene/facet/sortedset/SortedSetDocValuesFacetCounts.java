@@ -32,11 +32,13 @@ import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.facet.LabelAndValue;
 import org.apache.lucene.facet.TopOrdAndIntQueue;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState.OrdRange;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiDocValues;
 import org.apache.lucene.index.MultiDocValues.MultiSortedSetDocValues;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.BytesRef;
@@ -66,6 +68,9 @@ public class SortedSetDocValuesFacetCounts extends Facets {
   final String field;
   final int[] counts;
 
+  /** How many documents are retrieved at once from single-valued fields. */
+  private static final int BULK_SIZE = 128;
+
   /** Sparse faceting: returns any dimension that had any
    *  hits, topCount labels per dimension. */
   public SortedSetDocValuesFacetCounts(SortedSetDocValuesReaderState state, FacetsCollector hits)
@@ -178,6 +183,9 @@ public class SortedSetDocValuesFacetCounts extends Facets {
       }
 
       DocIdSetIterator docs = hits.bits.iterator();
+      // most facet fields have a single value per document, their
+      // ordinals can be retrieved in bulk:
+      SortedDocValues singleton = DocValues.unwrapSingleton(segValues);
 
       // TODO: yet another option is to count all segs
       // first, only in seg-ord space, and then do a
@@ -197,6 +205,10 @@ public class SortedSetDocValuesFacetCounts extends Facets {
         if (hits.totalHits < numSegOrds/10) {
           //System.out.println("    remap as-we-go");
           // Remap every ord to global ord as we iterate:
+          if (singleton != null) {
+            countSingleValued(singleton, docs, counts, ordMap);
+            continue;
+          }
           int doc;
           while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
             //System.out.println("    doc=" + doc);
@@ -213,15 +225,19 @@ public class SortedSetDocValuesFacetCounts extends Facets {
 
           // First count in seg-ord space:
           final int[] segCounts = new int[numSegOrds];
-          int doc;
-          while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-            //System.out.println("    doc=" + doc);
-            segValues.setDocument(doc);
-            int term = (int) segValues.nextOrd();
-            while (term != SortedSetDocValues.NO_MORE_ORDS) {
-              //System.out.println("      ord=" + term);
-              segCounts[term]++;
-              term = (int) segValues.nextOrd();
+          if (singleton != null) {
+            countSingleValued(singleton, docs, segCounts, null);
+          } else {
+            int doc;
+            while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+              //System.out.println("    doc=" + doc);
+              segValues.setDocument(doc);
+              int term = (int) segValues.nextOrd();
+              while (term != SortedSetDocValues.NO_MORE_ORDS) {
+                //System.out.println("      ord=" + term);
+                segCounts[term]++;
+                term = (int) segValues.nextOrd();
+              }
             }
           }
 
@@ -237,6 +253,10 @@ public class SortedSetDocValuesFacetCounts extends Facets {
       } else {
         // No ord mapping (e.g., single segment index):
         // just aggregate directly into counts:
+        if (singleton != null) {
+          countSingleValued(singleton, docs, counts, null);
+          continue;
+        }
         int doc;
         while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
           segValues.setDocument(doc);
@@ -250,6 +270,33 @@ public class SortedSetDocValuesFacetCounts extends Facets {
     }
   }
 
+  /** Counts the ordinals of single-valued documents, a block of documents
+   *  at a time. Ordinals are mapped through <code>ordMap</code> if it is not
+   *  null. */
+  private static void countSingleValued(SortedDocValues values, DocIdSetIterator docs, int[] counts, LongValues ordMap) throws IOException {
+    final int[] docBuffer = new int[BULK_SIZE];
+    final int[] ordBuffer = new int[BULK_SIZE];
+    int doc = docs.nextDoc();
+    while (doc != DocIdSetIterator.NO_MORE_DOCS) {
+      int count = 0;
+      do {
+        docBuffer[count++] = doc;
+        doc = docs.nextDoc();
+      } while (count < BULK_SIZE && doc != DocIdSetIterator.NO_MORE_DOCS);
+      values.getOrds(docBuffer, count, ordBuffer);
+      for (int i = 0; i < count; ++i) {
+        final int ord = ordBuffer[i];
+        if (ord != -1) {
+          if (ordMap == null) {
+            counts[ord]++;
+          } else {
+            counts[(int) ordMap.get(ord)]++;
+          }
+        }
+      }
+    }
+  }
+
   @Override
   public Number getSpecificValue(String dim, String... path) {
     if (path.length != 1) {
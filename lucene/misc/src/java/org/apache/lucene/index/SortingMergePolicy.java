@@ -54,6 +54,8 @@ import org.apache.lucene.util.packed.PackedLongValues;
  *  {@link Sort#INDEXORDER} in reverse (which is not idempotent) will make 
  *  the order of documents in a segment depend on the number of times the segment 
  *  has been merged.
+ *  <p><b>NOTE</b>: {@link IndexWriterConfig#setIndexSort} sorts flushed
+ *  segments too and should be preferred; this policy cannot be combined with it.
  *  @lucene.experimental */
 public final class SortingMergePolicy extends MergePolicy {
 
@@ -77,6 +79,9 @@ public final class SortingMergePolicy extends MergePolicy {
 
     @Override
     public List<CodecReader> getMergeReaders() throws IOException {
+      if (indexSorter != null) {
+        throw new IllegalStateException("SortingMergePolicy cannot be used together with an index sort, use IndexWriterConfig.setIndexSort alone");
+      }
       if (unsortedReaders == null) {
         unsortedReaders = super.getMergeReaders();
         if (infoStream.isEnabled("SMP")) {
@@ -0,0 +1,88 @@
+package org.apache.lucene.store;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * An {@link MMapDirectory} that passes {@link IOContext.Advice} down to the
+ * operating system with <code>posix_madvise</code>, through
+ * {@link NativePosixUtil}.
+ *
+ * <p>To use this you must compile
+ * NativePosixUtil.cpp (exposes Linux-specific APIs through
+ * JNI) for your platform, by running <code>ant
+ * build-native-unix</code>, and then putting the resulting
+ * <code>libNativePosixUtil.so</code> (from
+ * <code>lucene/build/native</code>) onto your dynamic
+ * linker search path.
+ *
+ * @lucene.experimental
+ */
+public class NativeMMapDirectory extends MMapDirectory {
+
+  /** Create a new NativeMMapDirectory for the named location.
+   *
+   * @param path the path of the directory
+   * @param lockFactory the lock factory to use
+   * @throws IOException If there is a low-level I/O error
+   */
+  public NativeMMapDirectory(Path path, LockFactory lockFactory) throws IOException {
+    super(path, lockFactory);
+  }
+
+  /** Create a new NativeMMapDirectory for the named location and {@link FSLockFactory#getDefault()}.
+   *
+   * @param path the path of the directory
+   * @throws IOException If there is a low-level I/O error
+   */
+  public NativeMMapDirectory(Path path) throws IOException {
+    super(path);
+  }
+
+  @Override
+  protected void madvise(ByteBuffer buffer, IOContext.Advice advice) throws IOException {
+    if (buffer.capacity() == 0) {
+      return;
+    }
+    final int code;
+    switch (advice) {
+      case NORMAL:
+        code = NativePosixUtil.NORMAL;
+        break;
+      case SEQUENTIAL:
+        code = NativePosixUtil.SEQUENTIAL;
+        break;
+      case RANDOM:
+        code = NativePosixUtil.RANDOM;
+        break;
+      case WILLNEED:
+        code = NativePosixUtil.WILLNEED;
+        break;
+      case DONTNEED:
+        code = NativePosixUtil.DONTNEED;
+        break;
+      default:
+        throw new AssertionError("unknown advice: " + advice);
+    }
+    NativePosixUtil.posix_madvise(buffer, code);
+  }
+}
@@ -330,6 +330,9 @@ interface FieldCache {
       
       String s = getEstimatedSize();
       b.append(" (size =~ ").append(s).append(')');
+      if (value instanceof DocTermOrds) {
+        b.append(" (uninvert time = ").append(((DocTermOrds) value).total_time).append("ms)");
+      }
 
       return b.toString();
     }
@@ -1232,10 +1232,43 @@ public abstract class BaseDocValuesFormatTestCase extends BaseIndexFileFormatTes
         long storedValue = Long.parseLong(r.document(i).get("stored"));
         assertEquals(storedValue, docValues.get(i));
       }
+      assertBulkGet(docValues, r.maxDoc());
     }
     ir.close();
     dir.close();
   }
+
+  /** Checks that bulk retrieval of values of random increasing doc IDs matches {@link NumericDocValues#get(int)}. */
+  private void assertBulkGet(NumericDocValues docValues, int maxDoc) {
+    int[] docs = randomIncreasingDocs(maxDoc);
+    long[] values = new long[docs.length];
+    docValues.get(docs, docs.length, values);
+    for (int i = 0; i < docs.length; i++) {
+      assertEquals(docValues.get(docs[i]), values[i]);
+    }
+  }
+
+  /** Checks that bulk retrieval of ordinals of random increasing doc IDs matches {@link SortedDocValues#getOrd(int)}. */
+  private void assertBulkGetOrds(SortedDocValues docValues, int maxDoc) {
+    int[] docs = randomIncreasingDocs(maxDoc);
+    int[] ords = new int[docs.length + random().nextInt(3)];
+    docValues.getOrds(docs, docs.length, ords);
+    for (int i = 0; i < docs.length; i++) {
+      assertEquals(docValues.getOrd(docs[i]), ords[i]);
+    }
+  }
+
+  private int[] randomIncreasingDocs(int maxDoc) {
+    int[] docs = new int[maxDoc];
+    int count = 0;
+    final int interval = TestUtil.nextInt(random(), 1, 10);
+    for (int doc = 0; doc < maxDoc; doc++) {
+      if (random().nextInt(interval) == 0) {
+        docs[count++] = doc;
+      }
+    }
+    return Arrays.copyOf(docs, count);
+  }
   
   private void doTestSortedNumericsVsStoredFields(LongProducer counts, LongProducer values) throws Exception {
     Directory dir = newDirectory();
@@ -1461,12 +1494,13 @@ public abstract class BaseDocValuesFormatTestCase extends BaseIndexFileFormatTes
     DirectoryReader ir = writer.getReader();
     for (LeafReaderContext context : ir.leaves()) {
       LeafReader r = context.reader();
-      BinaryDocValues docValues = r.getSortedDocValues("dv");
+      SortedDocValues docValues = r.getSortedDocValues("dv");
       for (int i = 0; i < r.maxDoc(); i++) {
         BytesRef binaryValue = r.document(i).getBinaryValue("stored");
         BytesRef scratch = docValues.get(i);
         assertEquals(binaryValue, scratch);
       }
+      assertBulkGetOrds(docValues, r.maxDoc());
     }
     ir.close();
     writer.forceMerge(1);
@@ -1475,12 +1509,13 @@ public abstract class BaseDocValuesFormatTestCase extends BaseIndexFileFormatTes
     ir = writer.getReader();
     for (LeafReaderContext context : ir.leaves()) {
       LeafReader r = context.reader();
-      BinaryDocValues docValues = r.getSortedDocValues("dv");
+      SortedDocValues docValues = r.getSortedDocValues("dv");
       for (int i = 0; i < r.maxDoc(); i++) {
         BytesRef binaryValue = r.document(i).getBinaryValue("stored");
         BytesRef scratch = docValues.get(i);
         assertEquals(binaryValue, scratch);
       }
+      assertBulkGetOrds(docValues, r.maxDoc());
     }
     ir.close();
     writer.close();
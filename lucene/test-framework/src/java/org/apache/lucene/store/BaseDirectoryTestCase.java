@@ -1105,6 +1105,39 @@ public abstract class BaseDirectoryTestCase extends LuceneTestCase {
     dir.close();
   }
   
+  /** Advice must never change the content that is read, whatever the range. */
+  public void testAdvise() throws Exception {
+    Directory dir = getDirectory(createTempDir("advise"));
+    IndexOutput output = dir.createOutput("bytes", newIOContext(random()));
+    final int num = TestUtil.nextInt(random(), 50, 5000);
+    byte bytes[] = new byte[num];
+    random().nextBytes(bytes);
+    output.writeBytes(bytes, bytes.length);
+    output.close();
+
+    IOContext.Advice[] values = IOContext.Advice.values();
+    IOContext context = new IOContext(newIOContext(random()), values[random().nextInt(values.length)]);
+    IndexInput input = dir.openInput("bytes", context);
+    final int offset = random().nextInt(num);
+    IndexInput slice = input.slice("slice", offset, num - offset);
+    for (IOContext.Advice advice : values) {
+      final long start = TestUtil.nextLong(random(), 0, input.length());
+      input.advise(start, TestUtil.nextLong(random(), 0, input.length() - start), advice);
+      final long sliceStart = TestUtil.nextLong(random(), 0, slice.length());
+      slice.advise(sliceStart, slice.length() - sliceStart, advice);
+    }
+    byte data[] = new byte[num];
+    input.readBytes(data, 0, num);
+    assertArrayEquals(bytes, data);
+    data = new byte[num - offset];
+    slice.readBytes(data, 0, data.length);
+    for (int i = 0; i < data.length; i++) {
+      assertEquals(bytes[offset + i], data[i]);
+    }
+    input.close();
+    dir.close();
+  }
+
   /** 
    * This test that writes larger than the size of the buffer output
    * will correctly increment the file pointer.
@@ -126,6 +126,12 @@ public class MockIndexInputWrapper extends IndexInput {
     return delegate.length();
   }
 
+  @Override
+  public void advise(long offset, long length, IOContext.Advice advice) throws IOException {
+    ensureOpen();
+    delegate.advise(offset, length, advice);
+  }
+
   @Override
   public byte readByte() throws IOException {
     ensureOpen();
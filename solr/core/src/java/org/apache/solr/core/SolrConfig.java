@@ -239,9 +239,13 @@ public class SolrConfig extends Config implements MapSerializable {
     queryResultWindowSize = Math.max(1, getInt("query/queryResultWindowSize", 1));
     queryResultMaxDocsCached = getInt("query/queryResultMaxDocsCached", Integer.MAX_VALUE);
     enableLazyFieldLoading = getBool("query/enableLazyFieldLoading", false);
+    searchThreads = getInt("query/searchThreads", 0);
+    searchMaxDocsPerSlice = getInt("query/searchMaxDocsPerSlice", Integer.MAX_VALUE);
 
 
     filterCacheConfig = CacheConfig.getConfig(this, "query/filterCache");
+    segmentFilterCacheSize = getInt("query/segmentFilterCache/@size", 0);
+    segmentFilterCacheMaxRamMB = getInt("query/segmentFilterCache/@maxRamMB", 256);
     queryResultCacheConfig = CacheConfig.getConfig(this, "query/queryResultCache");
     documentCacheConfig = CacheConfig.getConfig(this, "query/documentCache");
     CacheConfig conf = CacheConfig.getConfig(this, "query/fieldValueCache");
@@ -464,11 +468,17 @@ public class SolrConfig extends Config implements MapSerializable {
   public final CacheConfig documentCacheConfig;
   public final CacheConfig fieldValueCacheConfig;
   public final CacheConfig[] userCacheConfigs;
+  // SolrCore - per-segment filter cache shared by all searchers, disabled when the size is 0
+  public final int segmentFilterCacheSize;
+  public final int segmentFilterCacheMaxRamMB;
   // SolrIndexSearcher - more...
   public final boolean useFilterForSortedQuery;
   public final int queryResultWindowSize;
   public final int queryResultMaxDocsCached;
   public final boolean enableLazyFieldLoading;
+  // SolrCore - threads shared by all searchers to collect segments in parallel, disabled when 0
+  public final int searchThreads;
+  public final int searchMaxDocsPerSlice;
   // DocSet
   public final float hashSetInverseLoadFactor;
   public final int hashDocSetMaxSize;
@@ -841,6 +851,14 @@ public class SolrConfig extends Config implements MapSerializable {
     m.put("queryResultMaxDocsCached", queryResultMaxDocsCached);
     m.put("enableLazyFieldLoading", enableLazyFieldLoading);
     m.put("maxBooleanClauses", booleanQueryMaxClauseCount);
+    if (searchThreads > 0) {
+      m.put("searchThreads", searchThreads);
+      m.put("searchMaxDocsPerSlice", searchMaxDocsPerSlice);
+    }
+    if (segmentFilterCacheSize > 0) {
+      m.put("segmentFilterCache", ZkNodeProps.makeMap("size", segmentFilterCacheSize,
+          "maxRamMB", segmentFilterCacheMaxRamMB));
+    }
     if (jmxConfig != null) result.put("jmx", jmxConfig.toMap());
     for (SolrPluginInfo plugin : plugins) {
       List<PluginInfo> infos = getPluginInfos(plugin.clazz.getName());
@@ -117,6 +117,7 @@ import org.apache.solr.schema.IndexSchemaFactory;
 import org.apache.solr.schema.ManagedIndexSchema;
 import org.apache.solr.schema.SimilarityFactory;
 import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SegmentFilterCache;
 import org.apache.solr.search.SolrFieldCacheMBean;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.ValueSourceParser;
@@ -183,6 +184,8 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
   private final PluginBag<UpdateRequestProcessorFactory> updateProcessors = new PluginBag<>(UpdateRequestProcessorFactory.class, this);
   private final Map<String,UpdateRequestProcessorChain> updateProcessorChains;
   private final Map<String, SolrInfoMBean> infoRegistry;
+  private final SegmentFilterCache segmentFilterCache;
+  private final ExecutorService searchExecutor;
   private final IndexDeletionPolicyWrapper solrDelPolicy;
   private final DirectoryFactory directoryFactory;
   private IndexReaderFactory indexReaderFactory;
@@ -683,6 +686,8 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
     this.reqHandlers = null;
     this.updateProcessorChains = null;
     this.infoRegistry = null;
+    this.segmentFilterCache = null;
+    this.searchExecutor = null;
     this.codec = null;
     this.ruleExpiryLock = null;
     this.memClassLoader = null;
@@ -736,6 +741,14 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
     // Initialize JMX
     this.infoRegistry = initInfoRegistry(name, config);
     infoRegistry.put("fieldCache", new SolrFieldCacheMBean());
+    if (config.segmentFilterCacheSize > 0) {
+      segmentFilterCache = new SegmentFilterCache(config.segmentFilterCacheSize,
+          config.segmentFilterCacheMaxRamMB * 1024L * 1024L);
+      infoRegistry.put("segmentFilterCache", segmentFilterCache);
+    } else {
+      segmentFilterCache = null;
+    }
+    searchExecutor = config.searchThreads > 0 ? SolrIndexSearcher.newSearchExecutor(config.searchThreads) : null;
 
     this.schema = initSchema(config, schema);
 
@@ -1045,6 +1058,22 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
     return statsCache;
   }
 
+  /**
+   * Get the per-segment filter cache shared by the searchers of this core,
+   * or null if it is not configured.
+   */
+  public SegmentFilterCache getSegmentFilterCache() {
+    return segmentFilterCache;
+  }
+
+  /**
+   * Get the executor shared by the searchers of this core to collect segments
+   * in parallel, or null if <code>searchThreads</code> is not configured.
+   */
+  public ExecutorService getSearchExecutor() {
+    return searchExecutor;
+  }
+
   /**
    * Load the request processors
    */
@@ -1221,6 +1250,17 @@ public final class SolrCore implements SolrInfoMBean, Closeable {
       }
     }
 
+    if (searchExecutor != null) {
+      try {
+        ExecutorUtil.shutdownAndAwaitTermination(searchExecutor);
+      } catch (Throwable e) {
+        SolrException.log(log, e);
+        if (e instanceof Error) {
+          throw (Error) e;
+        }
+      }
+    }
+
     try {
       infoRegistry.clear();
     } catch (Throwable e) {
@@ -16,7 +16,9 @@ package org.apache.solr.handler.component;
  * limitations under the License.
  */
 
+import java.io.IOException;
 import java.net.ConnectException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -27,14 +29,17 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrResponse;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.impl.LBHttpSolrClient;
 import org.apache.solr.client.solrj.request.QueryRequest;
@@ -179,6 +184,8 @@ public class HttpShardHandler extends ShardHandler {
   public void submit(final ShardRequest sreq, final String shard, final ModifiableSolrParams params) {
     // do this outside of the callable for thread safety reasons
     final List<String> urls = getURLs(sreq, shard);
+    final ReplicaLatencyTracker latencyTracker = httpShardHandlerFactory.getReplicaLatencyTracker();
+    final ShardRequestHedger hedger = httpShardHandlerFactory.getShardRequestHedger();
 
     Callable<ShardResponse> task = new Callable<ShardResponse>() {
       @Override
@@ -211,16 +218,33 @@ public class HttpShardHandler extends ShardHandler {
             throw new SolrException(SolrException.ErrorCode.SERVICE_UNAVAILABLE, "no servers hosting shard: " + shard);
           }
 
-          if (urls.size() <= 1) {
-            String url = urls.get(0);
-            srsp.setShardAddress(url);
-            try (SolrClient client = new HttpSolrClient(url, httpClient)) {
-              ssr.nl = client.request(req);
+          // the first url is the one that will be tried first
+          if (latencyTracker != null) {
+            latencyTracker.requestStarted(urls.get(0));
+          }
+          String respondingUrl = null;
+          try {
+            if (urls.size() <= 1) {
+              String url = urls.get(0);
+              srsp.setShardAddress(url);
+              try (SolrClient client = new HttpSolrClient(url, httpClient)) {
+                ssr.nl = client.request(req);
+              }
+              if (hedger != null) {
+                hedger.recordLatency(System.nanoTime() - startTime);
+              }
+            } else if (hedger != null) {
+              ssr.nl = makeHedgedRequest(req, urls, hedger, srsp);
+            } else {
+              LBHttpSolrClient.Rsp rsp = httpShardHandlerFactory.makeLoadBalancedRequest(req, urls);
+              ssr.nl = rsp.getResponse();
+              srsp.setShardAddress(rsp.getServer());
+            }
+            respondingUrl = srsp.getShardAddress();
+          } finally {
+            if (latencyTracker != null) {
+              latencyTracker.requestFinished(urls.get(0), respondingUrl, System.nanoTime() - startTime);
             }
-          } else {
-            LBHttpSolrClient.Rsp rsp = httpShardHandlerFactory.makeLoadBalancedRequest(req, urls);
-            ssr.nl = rsp.getResponse();
-            srsp.setShardAddress(rsp.getServer());
           }
         }
         catch( ConnectException cex ) {
@@ -254,6 +278,137 @@ public class HttpShardHandler extends ShardHandler {
     }
   }
   
+  /**
+   * Sends the request to the first replica on the current thread, like
+   * {@link HttpShardHandlerFactory#makeLoadBalancedRequest}, but if no response arrived within the
+   * hedger's delay, sends a second request to the next replica. The first successful response
+   * wins and the other request is aborted. If both fail, the remaining replicas are tried in order.
+   * Replicas that the load balancer considers dead are not sent a direct request, and direct
+   * requests that fail report the replica to the load balancer, so that a dead replica is skipped
+   * by following requests until the load balancer finds it alive again.
+   * Only latencies of responses from the first replica are recorded, since a hedge that won says
+   * nothing about how long the first replica would have taken.
+   */
+  private NamedList<Object> makeHedgedRequest(final QueryRequest req, final List<String> urls,
+                                              final ShardRequestHedger hedger, ShardResponse srsp) throws Exception {
+    final long delay = hedger.getDelayNanos();
+    long startTime = System.nanoTime();
+    List<String> live = new ArrayList<>(2);
+    for (String url : urls) {
+      if (live.size() < 2 && !httpShardHandlerFactory.isZombie(url)) {
+        live.add(url);
+      }
+    }
+    if (delay < 0 || live.size() < 2) {
+      LBHttpSolrClient.Rsp rsp = httpShardHandlerFactory.makeLoadBalancedRequest(req, urls);
+      hedger.recordLatency(System.nanoTime() - startTime);
+      srsp.setShardAddress(rsp.getServer());
+      return rsp.getResponse();
+    }
+
+    final AbortableRequest primary = new AbortableRequest(req, live.get(0));
+    final AbortableRequest hedge = new AbortableRequest(req, live.get(1));
+    final CountDownLatch primaryDone = new CountDownLatch(1);
+    Future<NamedList<Object>> hedgeFuture = httpShardHandlerFactory.getHedgeExecutor().submit(new Callable<NamedList<Object>>() {
+      @Override
+      public NamedList<Object> call() throws Exception {
+        if (primaryDone.await(delay, TimeUnit.NANOSECONDS)) {
+          return null;  // answered or failed in time, no hedge needed
+        }
+        hedger.hedgeSent();
+        NamedList<Object> rsp = hedge.call();
+        primary.abort();
+        return rsp;
+      }
+    });
+
+    Exception primaryException;
+    try {
+      NamedList<Object> rsp = primary.call();
+      hedge.abort();
+      hedger.recordLatency(System.nanoTime() - startTime);
+      srsp.setShardAddress(primary.url);
+      return rsp;
+    } catch (Exception e) {
+      primaryException = e;
+    } finally {
+      primaryDone.countDown();
+    }
+
+    // the first replica failed, or was aborted because the hedge answered
+    boolean hedged = false;
+    try {
+      NamedList<Object> rsp = hedgeFuture.get();
+      if (rsp != null) {
+        if (primary.aborted) {
+          hedger.hedgeWon();
+        }
+        srsp.setShardAddress(hedge.url);
+        return rsp;
+      }
+    } catch (ExecutionException e) {
+      hedged = true;  // the hedge failed too
+    }
+
+    List<String> remaining = new ArrayList<>(urls);
+    remaining.remove(primary.url);
+    if (hedged) {
+      remaining.remove(hedge.url);
+    }
+    if (remaining.isEmpty()) {
+      throw primaryException;
+    }
+    LBHttpSolrClient.Rsp rsp = httpShardHandlerFactory.makeLoadBalancedRequest(req, remaining);
+    srsp.setShardAddress(rsp.getServer());
+    return rsp.getResponse();
+  }
+
+  /**
+   * A request to a single replica that another thread can abort. Interrupting a thread does not
+   * stop it from waiting on a socket, aborting the HTTP request does.
+   */
+  private class AbortableRequest implements Callable<NamedList<Object>> {
+    final QueryRequest req;
+    final String url;
+    private volatile HttpRequestBase method;
+    volatile boolean aborted;
+
+    AbortableRequest(QueryRequest req, String url) {
+      this.req = req;
+      this.url = url;
+    }
+
+    @Override
+    public NamedList<Object> call() throws Exception {
+      try (SolrClient client = new HttpSolrClient(url, httpClient) {
+        @Override
+        protected HttpRequestBase createMethod(SolrRequest request, String collection) throws IOException, SolrServerException {
+          HttpRequestBase m = super.createMethod(request, collection);
+          method = m;
+          if (aborted) {
+            m.abort();
+          }
+          return m;
+        }
+      }) {
+        return client.request(req);
+      } catch (Exception e) {
+        if (!aborted) {
+          httpShardHandlerFactory.reportFailure(url, e);
+        }
+        throw e;
+      }
+    }
+
+    void abort() {
+      aborted = true;
+      HttpRequestBase m = method;
+      if (m != null) {
+        m.abort();
+      }
+    }
+  }
+
   /**
    * Subclasses could modify the request based on the shard
    */
@@ -301,6 +456,10 @@ public class HttpShardHandler extends ShardHandler {
         // for a request was received.  Otherwise we might return the same
         // request more than once.
         rsp.getShardRequest().responses.add(rsp);
+        ShardResponseListener listener = rsp.getShardRequest().responseListener;
+        if (listener != null) {
+          listener.onResponse(rsp);
+        }
         if (rsp.getShardRequest().responses.size() == rsp.getShardRequest().actualShards.length) {
           return rsp;
         }
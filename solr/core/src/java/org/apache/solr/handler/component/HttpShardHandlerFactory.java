@@ -43,6 +43,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -79,11 +80,21 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   int queueSize = -1;
   boolean accessPolicy = false;
   boolean useRetries = false;
+  boolean adaptiveReplicaSelection = false;
+  float hedgeAfterPercentile = 0;
 
   private String scheme = null;
 
   private final Random r = new Random();
 
+  private ReplicaLatencyTracker replicaLatencyTracker;
+
+  private ShardRequestHedger shardRequestHedger;
+
+  // hedges get their own threads: they are sent while the request threads of commExecutor
+  // wait for the first replica, and must not compete with them for a bounded pool
+  private ExecutorService hedgeExecutor;
+
   // URL scheme to be used in distributed search.
   static final String INIT_URL_SCHEME = "urlScheme";
 
@@ -106,6 +117,13 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   // due to connection pooling limitations / races
   static final String USE_RETRIES = "useRetries";
 
+  // Send requests to the replicas with the lowest observed latency first
+  static final String ADAPTIVE_REPLICA_SELECTION = "adaptiveReplicaSelection";
+
+  // Send a second request to another replica if a shard has not answered within this
+  // percentile of recent latencies (0 to disable)
+  static final String HEDGE_AFTER_PERCENTILE = "hedgeAfterPercentile";
+
   /**
    * Get {@link ShardHandler} that uses the default http client.
    */
@@ -140,6 +158,21 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     this.queueSize = getParameter(args, INIT_SIZE_OF_QUEUE, queueSize,sb);
     this.accessPolicy = getParameter(args, INIT_FAIRNESS_POLICY, accessPolicy,sb);
     this.useRetries = getParameter(args, USE_RETRIES, useRetries,sb);
+    this.adaptiveReplicaSelection = getParameter(args, ADAPTIVE_REPLICA_SELECTION, adaptiveReplicaSelection,sb);
+    if (adaptiveReplicaSelection) {
+      this.replicaLatencyTracker = new ReplicaLatencyTracker();
+    }
+    this.hedgeAfterPercentile = getParameter(args, HEDGE_AFTER_PERCENTILE, hedgeAfterPercentile,sb);
+    if (hedgeAfterPercentile > 0) {
+      this.shardRequestHedger = new ShardRequestHedger(hedgeAfterPercentile);
+      this.hedgeExecutor = new ExecutorUtil.MDCAwareThreadPoolExecutor(
+          0,
+          Integer.MAX_VALUE,
+          5, TimeUnit.SECONDS,
+          new SynchronousQueue<Runnable>(),
+          new DefaultSolrThreadFactory("httpShardHedgeExecutor")
+      );
+    }
     log.info("created with {}",sb);
     
     // magic sysprop to make tests reproducible: set by SolrTestCaseJ4.
@@ -203,6 +236,9 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   public void close() {
     try {
       ExecutorUtil.shutdownNowAndAwaitTermination(commExecutor);
+      if (hedgeExecutor != null) {
+        ExecutorUtil.shutdownNowAndAwaitTermination(hedgeExecutor);
+      }
     } finally {
       try {
         if (defaultClient != null) {
@@ -230,7 +266,27 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   }
 
   /**
-   * Creates a randomized list of urls for the given shard.
+   * Returns true if the load balancer currently considers the url dead.
+   *
+   * @see LBHttpSolrClient#isZombie(String)
+   */
+  public boolean isZombie(String url) {
+    return loadbalancer.isZombie(url);
+  }
+
+  /**
+   * Reports the failure of a request that was sent to the url without going through the load
+   * balancer, so that following requests skip the url if it is unavailable.
+   *
+   * @see LBHttpSolrClient#reportFailure(String, Exception)
+   */
+  public void reportFailure(String url, Exception e) {
+    loadbalancer.reportFailure(url, e);
+  }
+
+  /**
+   * Creates a randomized list of urls for the given shard. With adaptive replica selection,
+   * the faster of the first two replicas is moved to the front.
    *
    * @param shard the urls for the shard, separated by '|'
    * @return A list of valid urls (including protocol) that are replicas for the shard
@@ -251,9 +307,33 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     if (urls.size() > 1)
       Collections.shuffle(urls, r);
 
+    if (replicaLatencyTracker != null)
+      replicaLatencyTracker.order(urls);
+
     return urls;
   }
 
+  /**
+   * Returns the tracker of per-replica latencies, or null if adaptive replica selection is disabled.
+   */
+  public ReplicaLatencyTracker getReplicaLatencyTracker() {
+    return replicaLatencyTracker;
+  }
+
+  /**
+   * Returns the hedger of shard requests, or null if request hedging is disabled.
+   */
+  public ShardRequestHedger getShardRequestHedger() {
+    return shardRequestHedger;
+  }
+
+  /**
+   * Returns the executor that sends hedged requests, or null if request hedging is disabled.
+   */
+  ExecutorService getHedgeExecutor() {
+    return hedgeExecutor;
+  }
+
   /**
    * Creates a new completion service for use by a single set of distributed requests.
    */
@@ -924,6 +924,11 @@ public class QueryComponent extends SearchComponent
 
     if (additionalAdded) sreq.params.add(CommonParams.FL, additionalFL.toString());
 
+    // merge strategies need all of the responses at once
+    if (rb.req.getParams().getBool(ShardParams.SHARDS_INCREMENTAL_MERGE, false) && rb.getMergeStrategies() == null) {
+      sreq.responseListener = new TopIdsMerger(rb, true);
+    }
+
     rb.addRequest(this, sreq);
   }
   
@@ -950,7 +955,46 @@ public class QueryComponent extends SearchComponent
         }
       }
 
-      SortSpec ss = rb.getSortSpec();
+      TopIdsMerger merger;
+      if (sreq.responseListener instanceof TopIdsMerger) {
+        // the responses were already merged as they arrived
+        merger = (TopIdsMerger) sreq.responseListener;
+      } else {
+        merger = new TopIdsMerger(rb, false);
+        for (ShardResponse srsp : sreq.responses) {
+          merger.onResponse(srsp);
+        }
+      }
+      merger.finish();
+  }
+
+  /**
+   * Merges the top ids returned by the shards via a priority queue so we don't have to sort
+   * <em>all</em> of the documents... we only need to order the top (rows+start).
+   * <p>
+   * With <code>earlyTerminate</code>, the remaining documents of a shard are skipped as soon as
+   * one of them does not make it into the queue: shards return their documents in sort order,
+   * so none of the following ones could make it either. Duplicates among the skipped documents
+   * are then not subtracted from numFound.
+   */
+  private class TopIdsMerger implements ShardResponseListener {
+    private final ResponseBuilder rb;
+    private final boolean earlyTerminate;
+    private final SortSpec ss;
+    private final IndexSchema schema;
+    private final SchemaField uniqueKeyField;
+    // id to shard mapping, to eliminate any accidental dups
+    private final HashMap<Object,String> uniqueDoc = new HashMap<>();
+    private final ShardFieldSortedHitQueue queue;
+    private final NamedList<Object> shardInfo;
+    private long numFound = 0;
+    private Float maxScore = null;
+    private boolean partialResults = false;
+
+    TopIdsMerger(ResponseBuilder rb, boolean earlyTerminate) {
+      this.rb = rb;
+      this.earlyTerminate = earlyTerminate;
+      ss = rb.getSortSpec();
       Sort sort = ss.getSort();
 
       SortField[] sortFields = null;
@@ -958,29 +1002,21 @@ public class QueryComponent extends SearchComponent
       else {
         sortFields = new SortField[]{SortField.FIELD_SCORE};
       }
- 
-      IndexSchema schema = rb.req.getSchema();
-      SchemaField uniqueKeyField = schema.getUniqueKeyField();
-
 
-      // id to shard mapping, to eliminate any accidental dups
-      HashMap<Object,String> uniqueDoc = new HashMap<>();
+      schema = rb.req.getSchema();
+      uniqueKeyField = schema.getUniqueKeyField();
 
-      // Merge the docs via a priority queue so we don't have to sort *all* of the
-      // documents... we only need to order the top (rows+start)
-      ShardFieldSortedHitQueue queue;
       queue = new ShardFieldSortedHitQueue(sortFields, ss.getOffset() + ss.getCount(), rb.req.getSearcher());
 
-      NamedList<Object> shardInfo = null;
       if(rb.req.getParams().getBool(ShardParams.SHARDS_INFO, false)) {
         shardInfo = new SimpleOrderedMap<>();
-        rb.rsp.getValues().add(ShardParams.SHARDS_INFO,shardInfo);
+      } else {
+        shardInfo = null;
       }
-      
-      long numFound = 0;
-      Float maxScore=null;
-      boolean partialResults = false;
-      for (ShardResponse srsp : sreq.responses) {
+    }
+
+    @Override
+    public void onResponse(ShardResponse srsp) {
         SolrDocumentList docs = null;
 
         if(shardInfo!=null) {
@@ -1014,7 +1050,7 @@ public class QueryComponent extends SearchComponent
         // now that we've added the shard info, let's only proceed if we have no error.
         if (srsp.getException() != null) {
           partialResults = true;
-          continue;
+          return;
         }
 
         if (docs == null) { // could have been initialized in the shards info block above
@@ -1072,10 +1108,18 @@ public class QueryComponent extends SearchComponent
 
           shardDoc.sortFieldValues = unmarshalledSortFieldValues;
 
-          queue.insertWithOverflow(shardDoc);
+          if (queue.insertWithOverflow(shardDoc) == shardDoc && earlyTerminate) {
+            // not competitive, and neither is anything that follows it in this shard
+            break;
+          }
         } // end for-each-doc-in-response
-      } // end for-each-response
-      
+    }
+
+    void finish() {
+      if (shardInfo != null) {
+        rb.rsp.getValues().add(ShardParams.SHARDS_INFO,shardInfo);
+      }
+
       // The queue now has 0 -> queuesize docs, where queuesize <= start + rows
       // So we want to pop the last documents off the queue to get
       // the docs offset -> queuesize
@@ -1115,6 +1159,7 @@ public class QueryComponent extends SearchComponent
           rb.rsp.getResponseHeader().add("partialResults", Boolean.TRUE);
         }
       }
+    }
   }
 
   /**
@@ -0,0 +1,218 @@
+package org.apache.solr.handler.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.client.solrj.impl.LBHttpSolrClient;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+/**
+ * Tracks an exponentially weighted moving average of the response time and the number of
+ * outstanding requests of every replica, and uses them to pick the replica a shard request
+ * is sent to first.
+ * <p>
+ * Selection follows the "power of two choices": of two randomly chosen replicas, the one with
+ * the lower expected cost, its average latency times its number of outstanding requests plus
+ * one, goes first. The other replicas follow in random order for failover. The average of a
+ * replica decays while it does not receive requests, so a replica that was slow once, because
+ * of a long GC pause or a big merge, is probed again after a while. A failed request counts as
+ * a slow one, and the latency of a request is charged to the replica that answered it.
+ * <p>
+ * Replicas are keyed by their url as normalized by {@link LBHttpSolrClient#normalize(String)},
+ * since the server reported in a response has its trailing slash stripped.
+ *
+ * @see HttpShardHandlerFactory#makeURLList(String)
+ */
+public class ReplicaLatencyTracker {
+
+  /** weight of a new sample in the moving average */
+  static final double ALPHA = 0.3;
+
+  /** the moving average of an idle replica halves in this time */
+  static final long HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  /** replicas slower than this factor times the median are reported as outliers */
+  static final double OUTLIER_FACTOR = 3.0;
+
+  /** the least latency a failed request counts as */
+  static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * replicas without outstanding requests that were not updated for this long are forgotten;
+   * by then their average has decayed to nothing, so they cost as much as an unknown replica
+   */
+  static final long PRUNE_AFTER_NANOS = 10 * HALF_LIFE_NANOS;
+
+  private final Map<String,Replica> replicas = new ConcurrentHashMap<>();
+  private final AtomicLong nextPrune = new AtomicLong(System.nanoTime() + PRUNE_AFTER_NANOS);
+
+  /**
+   * Must be called when a request is sent to the replica, and followed by a call to
+   * {@link #requestFinished(String, String, long)} once it completes, successfully or not.
+   */
+  public void requestStarted(String url) {
+    url = LBHttpSolrClient.normalize(url);
+    // incremented inside compute so that prune can't remove the replica at the same time
+    replicas.compute(url, (k, replica) -> {
+      if (replica == null) replica = new Replica(System.nanoTime());
+      replica.outstanding.incrementAndGet();
+      return replica;
+    });
+  }
+
+  /** Same as {@link #requestFinished(String, String, long)} for a request that the replica answered */
+  public void requestFinished(String url, long elapsedNanos) {
+    requestFinished(url, url, elapsedNanos);
+  }
+
+  /**
+   * Records the completion of a request that was started with {@link #requestStarted(String)}.
+   *
+   * @param url the replica the request was sent to first
+   * @param respondingUrl the replica that answered, which differs from <code>url</code> if the
+   *                      request failed over or was hedged, or null if no replica answered
+   * @param elapsedNanos the time from the start of the request to the response
+   */
+  public void requestFinished(String url, String respondingUrl, long elapsedNanos) {
+    long now = System.nanoTime();
+    url = LBHttpSolrClient.normalize(url);
+    if (respondingUrl != null) respondingUrl = LBHttpSolrClient.normalize(respondingUrl);
+    Replica replica = replicas.get(url);
+    if (replica != null) {  // it has an outstanding request, so it can't have been pruned
+      replica.outstanding.decrementAndGet();
+    }
+    if (respondingUrl != null) {
+      getReplica(respondingUrl, now).addSample(elapsedNanos, now);
+    }
+    if (!url.equals(respondingUrl)) {
+      // failed, or was slower than the replica that answered in its place
+      getReplica(url, now).addFailure(now);
+    }
+
+    long next = nextPrune.get();
+    if (now - next >= 0 && nextPrune.compareAndSet(next, now + PRUNE_AFTER_NANOS)) {
+      prune(now);
+    }
+  }
+
+  /** Forgets the replicas that were idle for {@link #PRUNE_AFTER_NANOS}, e.g. because they were removed from the cluster */
+  void prune(long now) {
+    for (String url : replicas.keySet()) {
+      replicas.computeIfPresent(url, (k, replica) -> replica.isIdle(now) ? null : replica);
+    }
+  }
+
+  /**
+   * Moves the cheaper of the first two urls, which are expected to be in random order,
+   * to the front of the list.
+   */
+  public void order(List<String> urls) {
+    if (urls.size() < 2) return;
+    long now = System.nanoTime();
+    if (cost(urls.get(1), now) < cost(urls.get(0), now)) {
+      Collections.swap(urls, 0, 1);
+    }
+  }
+
+  private double cost(String url, long now) {
+    Replica replica = replicas.get(LBHttpSolrClient.normalize(url));
+    if (replica == null) return 0;  // never used, worth a try
+    return replica.getLatency(now) * (replica.outstanding.get() + 1);
+  }
+
+  private Replica getReplica(String url, long now) {
+    return replicas.computeIfAbsent(url, k -> new Replica(now));
+  }
+
+  public NamedList<Object> getStatistics() {
+    long now = System.nanoTime();
+    List<Double> latencies = new ArrayList<>();
+    for (Replica replica : replicas.values()) {
+      latencies.add(replica.getLatency(now));
+    }
+    double median = 0;
+    if (!latencies.isEmpty()) {
+      Collections.sort(latencies);
+      median = latencies.get(latencies.size() / 2);
+    }
+
+    NamedList<Object> lst = new SimpleOrderedMap<>();
+    int outliers = 0;
+    NamedList<Object> perReplica = new SimpleOrderedMap<>();
+    for (Map.Entry<String,Replica> entry : replicas.entrySet()) {
+      Replica replica = entry.getValue();
+      double latency = replica.getLatency(now);
+      boolean outlier = latencies.size() > 1 && latency > OUTLIER_FACTOR * median;
+      if (outlier) outliers++;
+      NamedList<Object> nl = new SimpleOrderedMap<>();
+      nl.add("avgTimeMs", latency / 1000000.0);
+      nl.add("outstanding", replica.outstanding.get());
+      nl.add("requests", replica.getRequests());
+      nl.add("outlier", outlier);
+      perReplica.add(entry.getKey(), nl);
+    }
+    lst.add("medianTimeMs", median / 1000000.0);
+    lst.add("outliers", outliers);
+    lst.add("replicas", perReplica);
+    return lst;
+  }
+
+  private static class Replica {
+    final AtomicInteger outstanding = new AtomicInteger();
+    private double average;  // nanos
+    private long lastUpdate;
+    private long requests;
+
+    Replica(long now) {
+      lastUpdate = now;
+    }
+
+    synchronized void addSample(long elapsedNanos, long now) {
+      average = requests == 0 ? elapsedNanos : ALPHA * elapsedNanos + (1 - ALPHA) * getLatency(now);
+      lastUpdate = now;
+      requests++;
+    }
+
+    /** counts as a sample of at least {@link #FAILURE_PENALTY_NANOS}, doubling with every further failure */
+    synchronized void addFailure(long now) {
+      addSample((long) Math.max(FAILURE_PENALTY_NANOS, 2 * getLatency(now)), now);
+    }
+
+    synchronized boolean isIdle(long now) {
+      return outstanding.get() == 0 && now - lastUpdate > PRUNE_AFTER_NANOS;
+    }
+
+    synchronized double getLatency(long now) {
+      if (requests == 0) return 0;
+      return average * Math.pow(0.5, (double) (now - lastUpdate) / HALF_LIFE_NANOS);
+    }
+
+    synchronized long getRequests() {
+      return requests;
+    }
+  }
+}
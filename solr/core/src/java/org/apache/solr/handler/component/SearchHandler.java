@@ -444,6 +444,23 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware ,
     }
     return sb.toString();
   }
+
+  @Override
+  public NamedList<Object> getStatistics() {
+    NamedList<Object> lst = super.getStatistics();
+    if (shardHandlerFactory instanceof HttpShardHandlerFactory) {
+      HttpShardHandlerFactory httpShardHandlerFactory = (HttpShardHandlerFactory) shardHandlerFactory;
+      ReplicaLatencyTracker tracker = httpShardHandlerFactory.getReplicaLatencyTracker();
+      if (tracker != null) {
+        lst.add("replicaLatency", tracker.getStatistics());
+      }
+      ShardRequestHedger hedger = httpShardHandlerFactory.getShardRequestHedger();
+      if (hedger != null) {
+        lst.add("hedging", hedger.getStatistics());
+      }
+    }
+    return lst;
+  }
 }
 
 
@@ -60,6 +60,9 @@ public class ShardRequest {
   /** may be null */
   public String nodeName;
 
+  /** if not null, notified of every response as soon as it is received... filled out by components */
+  public ShardResponseListener responseListener;
+
   // TODO: one could store a list of numbers to correlate where returned docs
   // go in the top-level response rather than looking up by id...
   // this would work well if we ever transitioned to using internal ids and
@@ -0,0 +1,100 @@
+package org.apache.solr.handler.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.util.stats.ExponentiallyDecayingSample;
+import org.apache.solr.util.stats.Sample;
+
+/**
+ * Decides when a shard request that has not been answered yet gets a duplicate request to
+ * another replica, and counts how often that happens.
+ * <p>
+ * A request is hedged once it has been outstanding for longer than the configured
+ * percentile of recent shard request latencies, which are sampled with a bias towards the
+ * last five minutes. No request is hedged until enough latencies have been recorded.
+ *
+ * @see HttpShardHandler#submit
+ */
+public class ShardRequestHedger {
+
+  /** minimum number of recorded latencies before requests are hedged */
+  static final int MIN_SAMPLES = 100;
+
+  private static final long RECOMPUTE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final double quantile;
+  private final Sample latencies = new ExponentiallyDecayingSample(1028, 0.015);
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder hedgesSent = new LongAdder();
+  private final LongAdder hedgesWon = new LongAdder();
+
+  private volatile long delayNanos = -1;
+  private volatile long delayComputedAt;
+
+  /**
+   * @param percentile the percentile of recent latencies, between 0 and 100, after which
+   *                   an unanswered request is hedged
+   */
+  public ShardRequestHedger(float percentile) {
+    if (percentile <= 0 || percentile >= 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100 (exclusive): " + percentile);
+    }
+    this.quantile = percentile / 100.0;
+    this.delayComputedAt = System.nanoTime() - RECOMPUTE_INTERVAL_NANOS - 1;
+  }
+
+  public void recordLatency(long elapsedNanos) {
+    requests.increment();
+    latencies.update(elapsedNanos);
+  }
+
+  /**
+   * Returns how long to wait for a response before hedging, or -1 if requests should not be
+   * hedged yet. The delay is recomputed at most once per second.
+   */
+  public long getDelayNanos() {
+    long now = System.nanoTime();
+    if (now - delayComputedAt > RECOMPUTE_INTERVAL_NANOS) {
+      delayNanos = requests.sum() < MIN_SAMPLES ? -1 : (long) latencies.getSnapshot().getValue(quantile);
+      delayComputedAt = now;
+    }
+    return delayNanos;
+  }
+
+  public void hedgeSent() {
+    hedgesSent.increment();
+  }
+
+  public void hedgeWon() {
+    hedgesWon.increment();
+  }
+
+  public NamedList<Object> getStatistics() {
+    NamedList<Object> lst = new SimpleOrderedMap<>();
+    lst.add("requests", requests.sum());
+    lst.add("hedgesSent", hedgesSent.sum());
+    lst.add("hedgesWon", hedgesWon.sum());
+    lst.add("hedgeDelayMs", Math.max(0, delayNanos) / 1000000.0);
+    return lst;
+  }
+}
@@ -0,0 +1,32 @@
+package org.apache.solr.handler.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Receives the responses to a {@link ShardRequest} one at a time, as soon as each
+ * shard has responded, rather than once all shards are done.
+ * <p>
+ * Listeners are called by the thread waiting for the responses, in the order the
+ * responses were received, and after the response was added to
+ * {@link ShardRequest#responses}.
+ *
+ * @see ShardRequest#responseListener
+ */
+public interface ShardResponseListener {
+  public void onResponse(ShardResponse srsp);
+}
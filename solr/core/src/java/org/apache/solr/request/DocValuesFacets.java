@@ -32,6 +32,7 @@ import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.CharsRefBuilder;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.UnicodeUtil;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.schema.FieldType;
@@ -41,7 +42,15 @@ import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.util.LongPriorityQueue;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Computes term facets for docvalues field (single or multivalued).
@@ -59,6 +68,15 @@ public class DocValuesFacets {
   private DocValuesFacets() {}
   
   public static NamedList<Integer> getCounts(SolrIndexSearcher searcher, DocSet docs, String fieldName, int offset, int limit, int mincount, boolean missing, String sort, String prefix, String contains, boolean ignoreCase) throws IOException {
+    return getCounts(searcher, docs, fieldName, offset, limit, mincount, missing, sort, prefix, contains, ignoreCase, null, 1);
+  }
+
+  /**
+   * Like {@link #getCounts(SolrIndexSearcher, DocSet, String, int, int, int, boolean, String, String, String, boolean)},
+   * but counts up to <code>threads</code> segments at a time on <code>executor</code>.
+   * @see #accumCounts
+   */
+  public static NamedList<Integer> getCounts(SolrIndexSearcher searcher, DocSet docs, String fieldName, int offset, int limit, int mincount, boolean missing, String sort, String prefix, String contains, boolean ignoreCase, Executor executor, int threads) throws IOException {
     SchemaField schemaField = searcher.getSchema().getField(fieldName);
     FieldType ft = schemaField.getType();
     NamedList<Integer> res = new NamedList<>();
@@ -122,35 +140,7 @@ public class DocValuesFacets {
 
       Filter filter = docs.getTopFilter();
       List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
-      for (int subIndex = 0; subIndex < leaves.size(); subIndex++) {
-        LeafReaderContext leaf = leaves.get(subIndex);
-        DocIdSet dis = filter.getDocIdSet(leaf, null); // solr docsets already exclude any deleted docs
-        DocIdSetIterator disi = null;
-        if (dis != null) {
-          disi = dis.iterator();
-        }
-        if (disi != null) {
-          if (multiValued) {
-            SortedSetDocValues sub = leaf.reader().getSortedSetDocValues(fieldName);
-            if (sub == null) {
-              sub = DocValues.emptySortedSet();
-            }
-            final SortedDocValues singleton = DocValues.unwrapSingleton(sub);
-            if (singleton != null) {
-              // some codecs may optimize SORTED_SET storage for single-valued fields
-              accumSingle(counts, startTermIndex, singleton, disi, subIndex, ordinalMap);
-            } else {
-              accumMulti(counts, startTermIndex, sub, disi, subIndex, ordinalMap);
-            }
-          } else {
-            SortedDocValues sub = leaf.reader().getSortedDocValues(fieldName);
-            if (sub == null) {
-              sub = DocValues.emptySorted();
-            }
-            accumSingle(counts, startTermIndex, sub, disi, subIndex, ordinalMap);
-          }
-        }
-      }
+      accumCounts(counts, startTermIndex, filter, leaves, fieldName, multiValued, ordinalMap, executor, threads);
 
       if (startTermIndex == -1) {
         missingCount = counts[0];
@@ -252,6 +242,105 @@ public class DocValuesFacets {
     return res;
   }
   
+  /**
+   * Accumulates the counts of all segments into <code>counts</code>, indexed by global ord minus
+   * <code>startTermIndex</code>.  If <code>threads</code> is greater than one and there is more than one
+   * segment, up to that many tasks are submitted to <code>executor</code>; each task takes whole segments
+   * (largest first) and counts them into its own array, and the arrays are summed once all tasks are done.
+   * Otherwise the segments are counted sequentially by the calling thread.
+   */
+  public static void accumCounts(final int[] counts, final int startTermIndex, final Filter filter, final List<LeafReaderContext> leaves,
+                                 final String fieldName, final boolean multiValued, final OrdinalMap ordinalMap,
+                                 Executor executor, int threads) throws IOException {
+    final int nThreads = Math.min(threads, leaves.size());
+    if (nThreads <= 1) {
+      for (int subIndex = 0; subIndex < leaves.size(); subIndex++) {
+        accumSegment(counts, startTermIndex, filter, leaves.get(subIndex), subIndex, fieldName, multiValued, ordinalMap);
+      }
+      return;
+    }
+
+    // hand out the biggest segments first so a large one isn't left running alone at the end
+    final Integer[] order = new Integer[leaves.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Integer.compare(leaves.get(b).reader().maxDoc(), leaves.get(a).reader().maxDoc());
+      }
+    });
+    final AtomicInteger next = new AtomicInteger();
+
+    CompletionService<int[]> completionService = new ExecutorCompletionService<>(executor);
+    for (int i = 0; i < nThreads; i++) {
+      completionService.submit(new Callable<int[]>() {
+        @Override
+        public int[] call() throws Exception {
+          final int[] threadCounts = new int[counts.length];
+          int i;
+          while ((i = next.getAndIncrement()) < order.length) {
+            int subIndex = order[i];
+            accumSegment(threadCounts, startTermIndex, filter, leaves.get(subIndex), subIndex, fieldName, multiValued, ordinalMap);
+          }
+          return threadCounts;
+        }
+      });
+    }
+
+    try {
+      for (int i = 0; i < nThreads; i++) {
+        final int[] threadCounts = completionService.take().get();
+        for (int j = 0; j < counts.length; j++) {
+          counts[j] += threadCounts[j];
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      } else if (cause instanceof IOException) {
+        throw (IOException)cause;
+      } else {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error in parallel faceting on field: " + fieldName, cause);
+      }
+    }
+  }
+
+  /** accumulates the counts of a single segment */
+  static void accumSegment(int counts[], int startTermIndex, Filter filter, LeafReaderContext leaf, int subIndex, String fieldName, boolean multiValued, OrdinalMap ordinalMap) throws IOException {
+    DocIdSet dis = filter.getDocIdSet(leaf, null); // solr docsets already exclude any deleted docs
+    DocIdSetIterator disi = null;
+    if (dis != null) {
+      disi = dis.iterator();
+    }
+    if (disi != null) {
+      if (multiValued) {
+        SortedSetDocValues sub = leaf.reader().getSortedSetDocValues(fieldName);
+        if (sub == null) {
+          sub = DocValues.emptySortedSet();
+        }
+        final SortedDocValues singleton = DocValues.unwrapSingleton(sub);
+        if (singleton != null) {
+          // some codecs may optimize SORTED_SET storage for single-valued fields
+          accumSingle(counts, startTermIndex, singleton, disi, subIndex, ordinalMap);
+        } else {
+          accumMulti(counts, startTermIndex, sub, disi, subIndex, ordinalMap);
+        }
+      } else {
+        SortedDocValues sub = leaf.reader().getSortedDocValues(fieldName);
+        if (sub == null) {
+          sub = DocValues.emptySorted();
+        }
+        accumSingle(counts, startTermIndex, sub, disi, subIndex, ordinalMap);
+      }
+    }
+  }
+
   /** accumulates per-segment single-valued facet counts */
   static void accumSingle(int counts[], int startTermIndex, SortedDocValues si, DocIdSetIterator disi, int subIndex, OrdinalMap map) throws IOException {
     if (startTermIndex == -1 && (map == null || si.getValueCount() < disi.cost()*10)) {
@@ -267,14 +356,19 @@ public class DocValuesFacets {
   /** accumulates per-segment single-valued facet counts, mapping to global ordinal space on-the-fly */
   static void accumSingleGeneric(int counts[], int startTermIndex, SortedDocValues si, DocIdSetIterator disi, int subIndex, OrdinalMap map) throws IOException {
     final LongValues ordmap = map == null ? null : map.getGlobalOrds(subIndex);
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      int term = si.getOrd(doc);
-      if (map != null && term >= 0) {
-        term = (int) ordmap.get(term);
+    final int docs[] = new int[BULK_SIZE];
+    final int ords[] = new int[BULK_SIZE];
+    int count;
+    while ((count = nextDocs(disi, docs)) > 0) {
+      si.getOrds(docs, count, ords);
+      for (int i = 0; i < count; i++) {
+        int term = ords[i];
+        if (map != null && term >= 0) {
+          term = (int) ordmap.get(term);
+        }
+        int arrIdx = term-startTermIndex;
+        if (arrIdx>=0 && arrIdx<counts.length) counts[arrIdx]++;
       }
-      int arrIdx = term-startTermIndex;
-      if (arrIdx>=0 && arrIdx<counts.length) counts[arrIdx]++;
     }
   }
   
@@ -288,9 +382,14 @@ public class DocValuesFacets {
       segCounts = new int[1+si.getValueCount()];
     }
     
-    int doc;
-    while ((doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-      segCounts[1+si.getOrd(doc)]++;
+    final int docs[] = new int[BULK_SIZE];
+    final int ords[] = new int[BULK_SIZE];
+    int count;
+    while ((count = nextDocs(disi, docs)) > 0) {
+      si.getOrds(docs, count, ords);
+      for (int i = 0; i < count; i++) {
+        segCounts[1+ords[i]]++;
+      }
     }
     
     // migrate to global ords (if necessary)
@@ -299,6 +398,22 @@ public class DocValuesFacets {
     }
   }
   
+  /** number of documents whose ordinals are retrieved at once from single-valued fields */
+  private static final int BULK_SIZE = 128;
+
+  /** fills <code>docs</code> with the next matching documents and returns how many were read, 0 when exhausted */
+  private static int nextDocs(DocIdSetIterator disi, int docs[]) throws IOException {
+    int count = 0;
+    if (disi.docID() == DocIdSetIterator.NO_MORE_DOCS) {
+      return count;
+    }
+    int doc;
+    while (count < docs.length && (doc = disi.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+      docs[count++] = doc;
+    }
+    return count;
+  }
+  
   /** accumulates per-segment multi-valued facet counts */
   static void accumMulti(int counts[], int startTermIndex, SortedSetDocValues si, DocIdSetIterator disi, int subIndex, OrdinalMap map) throws IOException {
     if (startTermIndex == -1 && (map == null || si.getValueCount() < disi.cost()*10)) {
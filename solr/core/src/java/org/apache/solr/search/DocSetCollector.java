@@ -18,6 +18,7 @@ package org.apache.solr.search;
  */
 
 import java.io.IOException;
+import java.util.Collection;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Scorer;
@@ -75,10 +76,48 @@ public class DocSetCollector extends SimpleCollector {
     } else {
       // set the bits for ids that were collected in the array
       for (int i=0; i<scratch.length; i++) bits.set(scratch[i]);
+      // medium density sets take less memory as a RoaringDocSet, which needs
+      // 16 bits per doc in blocks that are too sparse for a bit set
+      if (pos <= maxDoc >> 5) return RoaringDocSet.copyOf(bits);
       return new BitDocSet(bits,pos);
     }
   }
 
+  /**
+   * Returns the union of the documents of collectors that each collected a
+   * different range of the index, given in index order (e.g. the collectors of
+   * the slices of a parallel search).
+   */
+  public static DocSet getDocSet(Collection<DocSetCollector> collectors, int maxDoc) {
+    if (collectors.size() == 1) {
+      return collectors.iterator().next().getDocSet();
+    }
+    int size = 0;
+    boolean inArrays = true;
+    for (DocSetCollector collector : collectors) {
+      size += collector.pos;
+      inArrays &= collector.pos <= collector.scratch.length;
+    }
+    if (inArrays && size <= maxDoc >> 6) {
+      int[] docs = new int[size];
+      int upto = 0;
+      for (DocSetCollector collector : collectors) {
+        System.arraycopy(collector.scratch, 0, docs, upto, collector.pos);
+        upto += collector.pos;
+      }
+      return new SortedIntDocSet(docs, size);
+    }
+    FixedBitSet bits = new FixedBitSet(maxDoc);
+    for (DocSetCollector collector : collectors) {
+      for (int i = 0, end = Math.min(collector.pos, collector.scratch.length); i < end; i++) {
+        bits.set(collector.scratch[i]);
+      }
+      if (collector.bits != null) bits.or(collector.bits);
+    }
+    if (size <= maxDoc >> 5) return RoaringDocSet.copyOf(bits);
+    return new BitDocSet(bits, size);
+  }
+
   @Override
   public void setScorer(Scorer scorer) throws IOException {
   }
@@ -466,6 +466,9 @@ class JoinQuery extends Query {
               } else {
                 if (toTermSet instanceof BitDocSet) {
                   resultBits = ((BitDocSet)toTermSet).bits.clone();
+                } else if (toTermSet instanceof OffHeapDocSet) {
+                  // a BitDocSet that was put in an OffHeapLRUCache, getBits() returns a copy
+                  resultBits = ((OffHeapDocSet)toTermSet).getBits();
                 } else {
                   resultList.add(toTermSet);
                 }
@@ -531,8 +534,15 @@ class JoinQuery extends Query {
       int[] docs = new int[sz];
       int pos = 0;
       for (DocSet set : resultList) {
-        System.arraycopy(((SortedIntDocSet)set).getDocs(), 0, docs, pos, set.size());
-        pos += set.size();
+        if (set instanceof SortedIntDocSet) {
+          System.arraycopy(((SortedIntDocSet)set).getDocs(), 0, docs, pos, set.size());
+          pos += set.size();
+        } else {
+          // e.g. a RoaringDocSet from the filterCache
+          for (DocIterator iter = set.iterator(); iter.hasNext(); ) {
+            docs[pos++] = iter.nextDoc();
+          }
+        }
       }
       Arrays.sort(docs);
       int[] dedup = new int[sz];
@@ -256,42 +256,7 @@ public class LRUCache<K,V> extends SolrCacheBase implements SolrCache<K,V>, Acco
 
     // warm entries
     if (isAutowarmingOn()) {
-      Object[] keys,vals = null;
-
-      // Don't do the autowarming in the synchronized block, just pull out the keys and values.
-      synchronized (other.map) {
-        
-        int sz = autowarm.getWarmCount(other.map.size());
-        
-        keys = new Object[sz];
-        vals = new Object[sz];
-
-        Iterator<Map.Entry<K, V>> iter = other.map.entrySet().iterator();
-
-        // iteration goes from oldest (least recently used) to most recently used,
-        // so we need to skip over the oldest entries.
-        int skip = other.map.size() - sz;
-        for (int i=0; i<skip; i++) iter.next();
-
-
-        for (int i=0; i<sz; i++) {
-          Map.Entry<K,V> entry = iter.next();
-          keys[i]=entry.getKey();
-          vals[i]=entry.getValue();
-        }
-      }
-
-      // autowarm from the oldest to the newest entries so that the ordering will be
-      // correct in the new cache.
-      for (int i=0; i<keys.length; i++) {
-        try {
-          boolean continueRegen = regenerator.regenerateItem(searcher, this, old, keys[i], vals[i]);
-          if (!continueRegen) break;
-        }
-        catch (Exception e) {
-          SolrException.log(log,"Error during auto-warming of key:" + keys[i], e);
-        }
-      }
+      warmMostRecentlyUsed(searcher, this, old, other.map);
     }
 
     warmupTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
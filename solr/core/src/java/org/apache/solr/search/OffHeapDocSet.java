@@ -0,0 +1,433 @@
+package org.apache.solr.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BitsFilteredDocIdSet;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * <code>OffHeapDocSet</code> is an immutable bit set of Lucene Document Ids whose
+ * words live in a direct buffer outside of the Java heap.
+ * <p>
+ * Intersections, unions and differences with other {@link OffHeapDocSet}s and
+ * {@link BitDocSet}s are computed word by word on the off-heap data; only the
+ * result, which is usually short-lived, is allocated on the heap. Membership
+ * tests and iteration never copy the bits.
+ *
+ * @see OffHeapLRUCache
+ */
+public final class OffHeapDocSet extends DocSetBase {
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OffHeapDocSet.class)
+      + 2 * RamUsageEstimator.shallowSizeOfInstance(ByteBuffer.class); // the direct buffer and its long view
+
+  // the cleaner of direct buffers, null if it is not accessible on this JVM
+  private static final Method CLEANER = getCleanerMethod();
+
+  private final ByteBuffer buffer; // owns the memory, bits is a view of it
+  private final LongBuffer bits;
+  private final int numWords;
+  private final int numBits;
+  private final int size;
+  // held by the cache that owns this set and by the requests that use it
+  private final AtomicInteger refCount = new AtomicInteger(1);
+
+  /**
+   * Copies the given bits to a new off-heap buffer. <code>size</code> must be
+   * the number of set bits.
+   */
+  public OffHeapDocSet(FixedBitSet bits, int size) {
+    this(LongBuffer.wrap(bits.getBits(), 0, FixedBitSet.bits2words(bits.length())), bits.length(), size);
+  }
+
+  private OffHeapDocSet(LongBuffer words, int numBits, int size) {
+    this.numBits = numBits;
+    this.numWords = FixedBitSet.bits2words(numBits);
+    this.buffer = ByteBuffer.allocateDirect(numWords << 3).order(ByteOrder.nativeOrder());
+    this.bits = buffer.asLongBuffer();
+    this.bits.put(words.duplicate());
+    this.bits.rewind();
+    this.size = size;
+  }
+
+  /** Returns an off-heap copy of the given set, even if it is an <code>OffHeapDocSet</code> already. */
+  public static OffHeapDocSet copyOf(DocSet set) {
+    if (set instanceof OffHeapDocSet) {
+      OffHeapDocSet other = (OffHeapDocSet) set;
+      return new OffHeapDocSet(other.bits, other.numBits, other.size);
+    }
+    return new OffHeapDocSet(toBitSet(set), set.size());
+  }
+
+  private static Method getCleanerMethod() {
+    try {
+      Method m = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+      m.setAccessible(true);
+      return m;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /** Takes another reference to this set, the caller must hold one already. */
+  void incRef() {
+    refCount.incrementAndGet();
+  }
+
+  /**
+   * Releases a reference to this set. The off-heap memory is freed with the last one, rather
+   * than when the set is garbage collected, and the set must not be used afterwards.
+   *
+   * @return true if this was the last reference
+   */
+  boolean decRef() {
+    int count = refCount.decrementAndGet();
+    assert count >= 0 : "too many decRef calls";
+    if (count == 0) {
+      free();
+      return true;
+    }
+    return false;
+  }
+
+  /** Releases the off-heap memory now, if the JVM allows it. */
+  private void free() {
+    if (CLEANER == null) return;
+    try {
+      Object cleaner = CLEANER.invoke(buffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (Exception e) {
+      // the memory is released once the buffer is garbage collected
+    }
+  }
+
+  /**
+   * Returns the words of the given set if it is backed by a bit set, or null otherwise.
+   * Words past the limit of the returned buffer are all zero.
+   */
+  private static LongBuffer words(DocSet set) {
+    if (set instanceof OffHeapDocSet) {
+      return ((OffHeapDocSet) set).bits;
+    } else if (set instanceof BitDocSet) {
+      return LongBuffer.wrap(((BitDocSet) set).getBits().getBits());
+    }
+    return null;
+  }
+
+  /** Returns the index of the first set bit that is greater than or equal to <code>index</code>. */
+  private int nextSetBit(int index) {
+    if (index >= numBits) {
+      return DocIdSetIterator.NO_MORE_DOCS;
+    }
+    int i = index >> 6;
+    long word = bits.get(i) >>> index; // shift is mod 64
+    if (word != 0) {
+      return index + Long.numberOfTrailingZeros(word);
+    }
+    while (++i < numWords) {
+      word = bits.get(i);
+      if (word != 0) {
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+      }
+    }
+    return DocIdSetIterator.NO_MORE_DOCS;
+  }
+
+  @Override
+  public DocIterator iterator() {
+    return new DocIterator() {
+      private int pos = nextSetBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return pos != DocIdSetIterator.NO_MORE_DOCS;
+      }
+
+      @Override
+      public Integer next() {
+        return nextDoc();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("OffHeapDocSet is immutable");
+      }
+
+      @Override
+      public int nextDoc() {
+        int old = pos;
+        pos = nextSetBit(old + 1);
+        return old;
+      }
+
+      @Override
+      public float score() {
+        return 0.0f;
+      }
+    };
+  }
+
+  /**
+   * Returns a new heap copy of the bits of this set.
+   */
+  @Override
+  protected FixedBitSet getBits() {
+    long[] words = new long[numWords];
+    bits.duplicate().get(words);
+    return new FixedBitSet(words, numBits);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean exists(int doc) {
+    return doc < numBits && (bits.get(doc >> 6) & (1L << doc)) != 0;
+  }
+
+  @Override
+  public int intersectionSize(DocSet other) {
+    LongBuffer otherWords = words(other);
+    if (otherWords == null) {
+      // they had better not call us back!
+      return other.intersectionSize(this);
+    }
+    int count = 0;
+    for (int i = 0, end = Math.min(numWords, otherWords.limit()); i < end; i++) {
+      count += Long.bitCount(bits.get(i) & otherWords.get(i));
+    }
+    return count;
+  }
+
+  @Override
+  public boolean intersects(DocSet other) {
+    LongBuffer otherWords = words(other);
+    if (otherWords == null) {
+      // they had better not call us back!
+      return other.intersects(this);
+    }
+    for (int i = 0, end = Math.min(numWords, otherWords.limit()); i < end; i++) {
+      if ((bits.get(i) & otherWords.get(i)) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public DocSet intersection(DocSet other) {
+    LongBuffer otherWords = words(other);
+    if (otherWords == null) {
+      return other.intersection(this);
+    }
+    long[] newWords = new long[numWords];
+    for (int i = 0, end = Math.min(numWords, otherWords.limit()); i < end; i++) {
+      newWords[i] = bits.get(i) & otherWords.get(i);
+    }
+    return new BitDocSet(new FixedBitSet(newWords, numBits));
+  }
+
+  @Override
+  public int unionSize(DocSet other) {
+    LongBuffer otherWords = words(other);
+    if (otherWords == null) {
+      return super.unionSize(other);
+    }
+    int count = 0;
+    for (int i = 0, end = Math.max(numWords, otherWords.limit()); i < end; i++) {
+      long word = i < numWords ? bits.get(i) : 0L;
+      if (i < otherWords.limit()) {
+        word |= otherWords.get(i);
+      }
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  @Override
+  public DocSet union(DocSet other) {
+    FixedBitSet otherBits = toBitSet(other);
+    FixedBitSet newbits = FixedBitSet.ensureCapacity(getBits(), otherBits.length());
+    newbits.or(otherBits);
+    return new BitDocSet(newbits);
+  }
+
+  @Override
+  public int andNotSize(DocSet other) {
+    LongBuffer otherWords = words(other);
+    if (otherWords == null) {
+      return super.andNotSize(other);
+    }
+    int count = 0;
+    for (int i = 0; i < numWords; i++) {
+      long word = bits.get(i);
+      if (i < otherWords.limit()) {
+        word &= ~otherWords.get(i);
+      }
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  @Override
+  public DocSet andNot(DocSet other) {
+    LongBuffer otherWords = words(other);
+    long[] newWords = new long[numWords];
+    bits.duplicate().get(newWords);
+    if (otherWords != null) {
+      for (int i = 0, end = Math.min(numWords, otherWords.limit()); i < end; i++) {
+        newWords[i] &= ~otherWords.get(i);
+      }
+    } else {
+      DocIterator iter = other.iterator();
+      while (iter.hasNext()) {
+        int doc = iter.nextDoc();
+        if (doc < numBits) {
+          newWords[doc >> 6] &= ~(1L << doc);
+        }
+      }
+    }
+    return new BitDocSet(new FixedBitSet(newWords, numBits));
+  }
+
+  @Override
+  public void addAllTo(DocSet target) {
+    if (target instanceof BitDocSet) {
+      BitDocSet bitTarget = (BitDocSet) target;
+      long[] targetWords = bitTarget.getBits().getBits();
+      for (int i = 0, end = Math.min(numWords, targetWords.length); i < end; i++) {
+        targetWords[i] |= bits.get(i);
+      }
+      bitTarget.invalidateSize();
+    } else {
+      super.addAllTo(target);
+    }
+  }
+
+  @Override
+  public Filter getTopFilter() {
+    return new Filter() {
+      @Override
+      public DocIdSet getDocIdSet(final LeafReaderContext context, final Bits acceptDocs) {
+        LeafReader reader = context.reader();
+        // all Solr DocSets that are used as filters only include live docs
+        final Bits acceptDocs2 = acceptDocs == null ? null : (reader.getLiveDocs() == acceptDocs ? null : acceptDocs);
+
+        final int base = context.docBase;
+        final int maxDoc = reader.maxDoc();
+        final int max = base + maxDoc;   // one past the max doc in this segment.
+
+        return BitsFilteredDocIdSet.wrap(new DocIdSet() {
+          @Override
+          public DocIdSetIterator iterator() {
+            return new DocIdSetIterator() {
+              int adjustedDoc = -1;
+
+              @Override
+              public int docID() {
+                return adjustedDoc;
+              }
+
+              @Override
+              public int nextDoc() {
+                return advance(adjustedDoc + 1);
+              }
+
+              @Override
+              public int advance(int target) {
+                if (target == NO_MORE_DOCS) return adjustedDoc = NO_MORE_DOCS;
+                int pos = nextSetBit(target + base);
+                return adjustedDoc = pos < max ? pos - base : NO_MORE_DOCS;
+              }
+
+              @Override
+              public long cost() {
+                // pro-rated for the segment
+                return (long) (size * (maxDoc / (double) Math.max(1, numBits)));
+              }
+            };
+          }
+
+          @Override
+          public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED;
+          }
+
+          @Override
+          public Bits bits() {
+            return new Bits() {
+              @Override
+              public boolean get(int index) {
+                return exists(index + base);
+              }
+
+              @Override
+              public int length() {
+                return maxDoc;
+              }
+            };
+          }
+
+        }, context.isTopLevel ? acceptDocs : acceptDocs2);
+      }
+      @Override
+      public String toString(String field) {
+        return "OffHeapDocSetTopFilter";
+      }
+    };
+  }
+
+  /** Returns the number of bytes this set uses outside of the Java heap. */
+  public long offHeapBytesUsed() {
+    return (long) numWords << 3;
+  }
+
+  /**
+   * Returns the on-heap memory usage of this set, see {@link #offHeapBytesUsed()}
+   * for the size of the bits.
+   */
+  @Override
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+}
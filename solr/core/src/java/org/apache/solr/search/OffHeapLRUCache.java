@@ -0,0 +1,370 @@
+package org.apache.solr.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.request.SolrRequestInfo;
+
+/**
+ * A LRU cache of {@link DocSet}s, meant for the <code>filterCache</code>, that
+ * keeps bit sets outside of the Java heap and evicts entries based on the
+ * total number of bytes they use rather than on their number.
+ * <p>
+ * {@link BitDocSet}s are copied to {@link OffHeapDocSet}s when they are put in
+ * the cache; smaller sets stay on the heap but still count against the budget.
+ * The budget is configured in megabytes with <code>maxRamMB</code> (default 1024),
+ * and an optional <code>size</code> additionally limits the number of entries.
+ * <p>
+ * The off-heap memory of an entry is freed when it is evicted, without waiting
+ * for garbage collection, or once the last request that got it from the cache
+ * is done with it. The memory of evicted sets that are still in use counts
+ * against the budget. Lookups outside of a request get a copy on the heap,
+ * since nothing would tell the cache when they are done.
+ */
+public class OffHeapLRUCache<K> extends SolrCacheBase implements SolrCache<K,DocSet>, Accountable {
+
+  static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OffHeapLRUCache.class);
+
+  /* An instance of this class will be shared across multiple instances
+   * of an OffHeapLRUCache at the same time.  Make sure everything is thread safe.
+   */
+  private static class CumulativeStats {
+    AtomicLong lookups = new AtomicLong();
+    AtomicLong hits = new AtomicLong();
+    AtomicLong inserts = new AtomicLong();
+    AtomicLong evictions = new AtomicLong();
+  }
+
+  private CumulativeStats stats;
+
+  // per instance stats.  The synchronization used for the map will also be
+  // used for updating these statistics (and hence they are not AtomicLongs
+  private long lookups;
+  private long hits;
+  private long inserts;
+  private long evictions;
+
+  private long warmupTime = 0;
+
+  private Map<K,DocSet> map;
+  private String description="Off-Heap LRU Cache";
+
+  private int maxSize;
+  private long maxBytes;
+  // The synchronization used for the map will be used to update these,
+  // hence not AtomicLongs
+  private long bytesUsed = 0;
+  private long offHeapBytesUsed = 0;
+  // evicted sets that requests still use, freed when the last of them is done
+  private final Set<OffHeapDocSet> retired = Collections.newSetFromMap(new IdentityHashMap<OffHeapDocSet,Boolean>());
+  private long retiredBytes = 0;
+
+  @Override
+  public Object init(Map args, Object persistence, CacheRegenerator regenerator) {
+    super.init(args, regenerator);
+    String str = (String)args.get("size");
+    maxSize = str==null ? Integer.MAX_VALUE : Integer.parseInt(str);
+    str = (String)args.get("initialSize");
+    final int initialSize = Math.min(str==null ? 1024 : Integer.parseInt(str), maxSize);
+    str = (String) args.get("maxRamMB");
+    maxBytes = (long) ((str == null ? 1024 : Double.parseDouble(str)) * 1024L * 1024L);
+    if (maxBytes <= 0) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Cache: " + name()
+          + " must be configured with a positive maxRamMB, got " + str);
+    }
+    description = generateDescription(initialSize);
+
+    map = new LinkedHashMap<>(initialSize, 0.75f, true);
+
+    if (persistence==null) {
+      // must be the first time a cache of this type is being created
+      persistence = new CumulativeStats();
+    }
+
+    stats = (CumulativeStats)persistence;
+
+    return persistence;
+  }
+
+  /**
+   * 
+   * @return Returns the description of this cache. 
+   */
+  private String generateDescription(int initialSize) {
+    String description = "Off-Heap LRU Cache(maxRamMB=" + (maxBytes / 1024L / 1024L);
+    if (maxSize != Integer.MAX_VALUE) {
+      description += ", maxSize=" + maxSize;
+    }
+    description += ", initialSize=" + initialSize;
+    if (isAutowarmingOn()) {
+      description += ", " + getAutowarmDescription();
+    }
+    description += ')';
+    return description;
+  }
+
+  /** Returns the number of bytes accounted for a single entry. */
+  private static long bytesUsed(Object key, DocSet value) {
+    long bytes = LRUCache.LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY;
+    bytes += key instanceof Accountable ? ((Accountable) key).ramBytesUsed() : LRUCache.DEFAULT_RAM_BYTES_USED;
+    if (value != null) {
+      bytes += value.ramBytesUsed() + offHeapBytesUsed(value);
+    }
+    return bytes;
+  }
+
+  private static long offHeapBytesUsed(DocSet value) {
+    return value instanceof OffHeapDocSet ? ((OffHeapDocSet) value).offHeapBytesUsed() : 0;
+  }
+
+  private void onRemoval(Object key, DocSet value) {
+    bytesUsed -= bytesUsed(key, value);
+    offHeapBytesUsed -= offHeapBytesUsed(value);
+    if (value instanceof OffHeapDocSet) {
+      OffHeapDocSet set = (OffHeapDocSet) value;
+      if (!set.decRef()) {
+        retired.add(set);
+        retiredBytes += set.offHeapBytesUsed();
+      }
+    }
+  }
+
+  /** Releases a reference that was taken on a set of this cache by a lookup or by autowarming. */
+  private void release(OffHeapDocSet set) {
+    if (set.decRef()) {
+      synchronized (map) {
+        if (retired.remove(set)) {
+          retiredBytes -= set.offHeapBytesUsed();
+        }
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    synchronized(map) {
+      return map.size();
+    }
+  }
+
+  @Override
+  public DocSet put(K key, DocSet value) {
+    // copy outside of the lock, this is the expensive part; off-heap sets are
+    // copied too since the cache frees the ones it holds
+    if (value instanceof BitDocSet || value instanceof OffHeapDocSet) {
+      value = OffHeapDocSet.copyOf(value);
+    }
+    synchronized (map) {
+      if (getState() == State.LIVE) {
+        stats.inserts.incrementAndGet();
+      }
+      inserts++;
+
+      bytesUsed += bytesUsed(key, value);
+      offHeapBytesUsed += offHeapBytesUsed(value);
+      DocSet old = map.put(key, value);
+      if (old != null) {
+        onRemoval(key, old);
+      }
+
+      // evict from the least recently used end, but always keep the new entry
+      Iterator<Map.Entry<K,DocSet>> iterator = map.entrySet().iterator();
+      while ((bytesUsed + retiredBytes > maxBytes || map.size() > maxSize) && map.size() > 1) {
+        Map.Entry<K,DocSet> entry = iterator.next();
+        iterator.remove();
+        onRemoval(entry.getKey(), entry.getValue());
+        evictions++;
+        stats.evictions.incrementAndGet();
+      }
+      // a replaced off-heap set may have been freed already
+      return old instanceof OffHeapDocSet ? null : old;
+    }
+  }
+
+  @Override
+  public DocSet get(K key) {
+    DocSet val;
+    synchronized (map) {
+      val = map.get(key);
+      if (getState() == State.LIVE) {
+        // only increment lookups and hits if we are live.
+        lookups++;
+        stats.lookups.incrementAndGet();
+        if (val!=null) {
+          hits++;
+          stats.hits.incrementAndGet();
+        }
+      }
+      if (!(val instanceof OffHeapDocSet)) {
+        return val;
+      }
+      // the set can't be freed while it is in the map
+      ((OffHeapDocSet) val).incRef();
+    }
+
+    final OffHeapDocSet set = (OffHeapDocSet) val;
+    SolrRequestInfo requestInfo = SolrRequestInfo.getRequestInfo();
+    if (requestInfo == null) {
+      try {
+        return new BitDocSet(set.getBits(), set.size());
+      } finally {
+        release(set);
+      }
+    }
+    requestInfo.addCloseHook(new Closeable() {
+      @Override
+      public void close() {
+        release(set);
+      }
+    });
+    return set;
+  }
+
+  @Override
+  public void clear() {
+    synchronized(map) {
+      for (Map.Entry<K,DocSet> entry : map.entrySet()) {
+        onRemoval(entry.getKey(), entry.getValue());
+      }
+      map.clear();
+    }
+  }
+
+  @Override
+  public void warm(SolrIndexSearcher searcher, SolrCache<K,DocSet> old) {
+    if (regenerator==null) return;
+    long warmingStartTime = System.nanoTime();
+    OffHeapLRUCache<K> other = (OffHeapLRUCache<K>)old;
+
+    // warm entries
+    if (isAutowarmingOn()) {
+      // hold references to the old sets, the old cache may evict them while they are regenerated
+      Map<K,DocSet> entries = new LinkedHashMap<>();
+      synchronized (other.map) {
+        for (Map.Entry<K,DocSet> entry : other.map.entrySet()) {
+          if (entry.getValue() instanceof OffHeapDocSet) {
+            ((OffHeapDocSet) entry.getValue()).incRef();
+          }
+          entries.put(entry.getKey(), entry.getValue());
+        }
+      }
+      try {
+        warmMostRecentlyUsed(searcher, this, old, entries);
+      } finally {
+        for (DocSet value : entries.values()) {
+          if (value instanceof OffHeapDocSet) {
+            other.release((OffHeapDocSet) value);
+          }
+        }
+      }
+    }
+
+    warmupTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
+  }
+
+
+  /** Frees the off-heap memory of all sets that no request uses anymore. */
+  @Override
+  public void close() {
+    clear();
+  }
+
+
+  //////////////////////// SolrInfoMBeans methods //////////////////////
+
+
+  @Override
+  public String getName() {
+    return OffHeapLRUCache.class.getName();
+  }
+
+  @Override
+  public String getDescription() {
+     return description;
+  }
+
+  @Override
+  public String getSource() {
+    return null;
+  }
+
+  @Override
+  public NamedList getStatistics() {
+    NamedList lst = new SimpleOrderedMap();
+    synchronized (map) {
+      lst.add("lookups", lookups);
+      lst.add("hits", hits);
+      lst.add("hitratio", calcHitRatio(lookups,hits));
+      lst.add("inserts", inserts);
+      lst.add("evictions", evictions);
+      lst.add("size", map.size());
+      lst.add("maxRamMB", maxBytes / 1024L / 1024L);
+      lst.add("bytesUsed", bytesUsed);
+      lst.add("offHeapBytesUsed", offHeapBytesUsed);
+      lst.add("retiredOffHeapBytes", retiredBytes);
+    }
+    lst.add("warmupTime", warmupTime);
+    
+    long clookups = stats.lookups.get();
+    long chits = stats.hits.get();
+    lst.add("cumulative_lookups", clookups);
+    lst.add("cumulative_hits", chits);
+    lst.add("cumulative_hitratio", calcHitRatio(clookups, chits));
+    lst.add("cumulative_inserts", stats.inserts.get());
+    lst.add("cumulative_evictions", stats.evictions.get());
+    
+    return lst;
+  }
+
+  @Override
+  public String toString() {
+    return name() + getStatistics().toString();
+  }
+
+  /**
+   * Returns the on-heap memory usage of this cache, the bits of cached
+   * {@link OffHeapDocSet}s are not included.
+   */
+  @Override
+  public long ramBytesUsed() {
+    synchronized (map)  {
+      return BASE_RAM_BYTES_USED + bytesUsed - offHeapBytesUsed;
+    }
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+}
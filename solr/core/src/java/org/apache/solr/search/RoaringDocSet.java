@@ -0,0 +1,848 @@
+package org.apache.solr.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BitsFilteredDocIdSet;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * <code>RoaringDocSet</code> is an immutable set of Lucene Document Ids that uses
+ * the same encoding as Lucene's {@link org.apache.lucene.util.RoaringDocIdSet}:
+ * the doc id space is split into blocks of 2<sup>16</sup> documents, and each
+ * block is stored either as a sorted array of 16-bit values if it contains at
+ * most 4096 documents, or as a bit set otherwise. Empty blocks take no space.
+ * <p>
+ * This makes it a good fit for sets that are too large for a
+ * {@link SortedIntDocSet} but too sparse for a {@link BitDocSet}. Set
+ * operations against other <code>RoaringDocSet</code>s and {@link BitDocSet}s
+ * are computed block by block, without materializing a bit set.
+ *
+ * @see DocSetCollector
+ */
+public class RoaringDocSet extends DocSetBase {
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(RoaringDocSet.class);
+
+  // Number of documents in a block
+  private static final int BLOCK_SIZE = 1 << 16;
+  // Number of longs in the bit set of a block
+  private static final int BLOCK_WORDS = BLOCK_SIZE >>> 6;
+  // The maximum length for an array, beyond that point we switch to a bit set
+  private static final int MAX_ARRAY_LENGTH = 1 << 12;
+
+  // at most one of arrays[block] and bitmaps[block] is non-null, both are null for empty blocks
+  private final char[][] arrays;
+  private final long[][] bitmaps;
+  private final int size;
+
+  private RoaringDocSet(char[][] arrays, long[][] bitmaps, int size) {
+    this.arrays = arrays;
+    this.bitmaps = bitmaps;
+    this.size = size;
+  }
+
+  /** A builder of {@link RoaringDocSet}s. */
+  public static class Builder {
+    private final char[][] arrays;
+    private final long[][] bitmaps;
+    private final char[] buffer = new char[MAX_ARRAY_LENGTH];
+    private long[] bitmap;
+    private int currentBlock = -1;
+    private int currentBlockCardinality;
+    private int lastDoc = -1;
+    private int size;
+
+    /** Create a builder for documents in <code>[0, maxDoc)</code>. */
+    public Builder(int maxDoc) {
+      final int numBlocks = numBlocks(maxDoc);
+      arrays = new char[numBlocks][];
+      bitmaps = new long[numBlocks][];
+    }
+
+    /**
+     * Add a new doc id to this builder.
+     * NOTE: doc ids must be added in order.
+     */
+    public Builder add(int doc) {
+      if (doc <= lastDoc) {
+        throw new IllegalArgumentException("Doc ids must be added in-order, got " + doc + " which is <= lastDoc=" + lastDoc);
+      }
+      final int block = doc >>> 16;
+      if (block != currentBlock) {
+        flush();
+        currentBlock = block;
+      }
+      if (currentBlockCardinality < MAX_ARRAY_LENGTH) {
+        buffer[currentBlockCardinality] = (char) doc;
+      } else {
+        if (bitmap == null) {
+          bitmap = new long[BLOCK_WORDS];
+          for (char low : buffer) {
+            bitmap[low >>> 6] |= 1L << low;
+          }
+        }
+        bitmap[(doc & 0xFFFF) >>> 6] |= 1L << doc;
+      }
+      lastDoc = doc;
+      currentBlockCardinality++;
+      return this;
+    }
+
+    private void flush() {
+      if (currentBlockCardinality > 0) {
+        if (bitmap != null) {
+          bitmaps[currentBlock] = bitmap;
+        } else {
+          arrays[currentBlock] = Arrays.copyOf(buffer, currentBlockCardinality);
+        }
+      }
+      size += currentBlockCardinality;
+      currentBlockCardinality = 0;
+      bitmap = null;
+    }
+
+    /** Build an instance. */
+    public RoaringDocSet build() {
+      flush();
+      return new RoaringDocSet(arrays, bitmaps, size);
+    }
+  }
+
+  /** Returns a <code>RoaringDocSet</code> that contains the set bits of the given bit set. */
+  public static RoaringDocSet copyOf(FixedBitSet bits) {
+    final long[] words = bits.getBits();
+    final int numBlocks = numBlocks(bits.length());
+    final char[][] arrays = new char[numBlocks][];
+    final long[][] bitmaps = new long[numBlocks][];
+    int size = 0;
+    for (int block = 0; block < numBlocks; block++) {
+      final int offset = block * BLOCK_WORDS;
+      final int end = Math.min(words.length, offset + BLOCK_WORDS);
+      int cardinality = 0;
+      for (int i = offset; i < end; i++) {
+        cardinality += Long.bitCount(words[i]);
+      }
+      if (cardinality > MAX_ARRAY_LENGTH) {
+        bitmaps[block] = Arrays.copyOfRange(words, offset, offset + BLOCK_WORDS);
+      } else if (cardinality > 0) {
+        arrays[block] = toArray(words, offset, cardinality);
+      }
+      size += cardinality;
+    }
+    return new RoaringDocSet(arrays, bitmaps, size);
+  }
+
+  /** Returns a <code>RoaringDocSet</code> that contains the same documents as the given set. */
+  public static RoaringDocSet copyOf(DocSet set) {
+    if (set instanceof RoaringDocSet) {
+      return (RoaringDocSet) set;
+    } else if (set instanceof BitDocSet) {
+      return copyOf(((BitDocSet) set).getBits());
+    }
+    // some sets, like DocSlices and HashDocSets, do not iterate in order
+    final int[] docs = new int[set.size()];
+    boolean sorted = true;
+    int i = 0;
+    for (DocIterator iter = set.iterator(); iter.hasNext(); i++) {
+      docs[i] = iter.nextDoc();
+      sorted &= i == 0 || docs[i - 1] < docs[i];
+    }
+    if (!sorted) {
+      Arrays.sort(docs);
+    }
+    final Builder builder = new Builder(docs.length == 0 ? 0 : docs[docs.length - 1] + 1);
+    for (int doc : docs) {
+      builder.add(doc);
+    }
+    return builder.build();
+  }
+
+  //
+  // Block-level operations. The other block is either a sorted array, or a bit
+  // set given as a range of BLOCK_WORDS words that starts at offset: this way
+  // the words of a BitDocSet can be used directly. Words past the end are zero.
+  //
+
+  private static int numBlocks(int maxDoc) {
+    return (int) (((long) maxDoc + BLOCK_SIZE - 1) >>> 16);
+  }
+
+  private static long word(long[] words, int offset, int i) {
+    final int index = offset + i;
+    return index < words.length ? words[index] : 0L;
+  }
+
+  private static boolean get(long[] words, int offset, int low) {
+    return (word(words, offset, low >>> 6) & (1L << low)) != 0;
+  }
+
+  /** Returns the position of the first set bit that is greater than or equal to <code>low</code>. */
+  private static int nextSetBit(long[] bitmap, int low) {
+    if (low >= BLOCK_SIZE) {
+      return DocIdSetIterator.NO_MORE_DOCS;
+    }
+    int i = low >>> 6;
+    long word = bitmap[i] >>> low; // shift is mod 64
+    if (word != 0) {
+      return low + Long.numberOfTrailingZeros(word);
+    }
+    while (++i < BLOCK_WORDS) {
+      word = bitmap[i];
+      if (word != 0) {
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+      }
+    }
+    return DocIdSetIterator.NO_MORE_DOCS;
+  }
+
+  private static int cardinality(long[] bitmap) {
+    int cardinality = 0;
+    for (long word : bitmap) {
+      cardinality += Long.bitCount(word);
+    }
+    return cardinality;
+  }
+
+  private static char[] toArray(long[] words, int offset, int cardinality) {
+    final char[] array = new char[cardinality];
+    int n = 0;
+    for (int i = 0; i < BLOCK_WORDS && n < cardinality; i++) {
+      long word = word(words, offset, i);
+      while (word != 0) {
+        array[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+        word &= word - 1;
+      }
+    }
+    return array;
+  }
+
+  /** Stores a computed bit set at the given block, as an array if it is sparse enough. */
+  private static int setBlock(char[][] arrays, long[][] bitmaps, int block, long[] bitmap) {
+    final int cardinality = cardinality(bitmap);
+    if (cardinality > MAX_ARRAY_LENGTH) {
+      bitmaps[block] = bitmap;
+    } else if (cardinality > 0) {
+      arrays[block] = toArray(bitmap, 0, cardinality);
+    }
+    return cardinality;
+  }
+
+  private static int intersectionCount(char[] a1, char[] a2) {
+    int count = 0;
+    for (int i = 0, j = 0; i < a1.length && j < a2.length; ) {
+      if (a1[i] < a2[j]) {
+        i++;
+      } else if (a1[i] > a2[j]) {
+        j++;
+      } else {
+        count++;
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  private static int intersectionCount(char[] array, long[] words, int offset) {
+    int count = 0;
+    for (char low : array) {
+      if (get(words, offset, low)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static int intersectionCount(long[] bitmap, long[] words, int offset) {
+    int count = 0;
+    for (int i = 0; i < BLOCK_WORDS; i++) {
+      count += Long.bitCount(bitmap[i] & word(words, offset, i));
+    }
+    return count;
+  }
+
+  private static char[] intersection(char[] a1, char[] a2) {
+    final char[] result = new char[Math.min(a1.length, a2.length)];
+    int n = 0;
+    for (int i = 0, j = 0; i < a1.length && j < a2.length; ) {
+      if (a1[i] < a2[j]) {
+        i++;
+      } else if (a1[i] > a2[j]) {
+        j++;
+      } else {
+        result[n++] = a1[i];
+        i++;
+        j++;
+      }
+    }
+    return n == 0 ? null : Arrays.copyOf(result, n);
+  }
+
+  private static char[] filter(char[] array, long[] words, int offset, boolean keepSet) {
+    final char[] result = new char[array.length];
+    int n = 0;
+    for (char low : array) {
+      if (get(words, offset, low) == keepSet) {
+        result[n++] = low;
+      }
+    }
+    return n == 0 ? null : Arrays.copyOf(result, n);
+  }
+
+  private static char[] andNot(char[] a1, char[] a2) {
+    final char[] result = new char[a1.length];
+    int n = 0;
+    int j = 0;
+    for (char low : a1) {
+      while (j < a2.length && a2[j] < low) {
+        j++;
+      }
+      if (j == a2.length || a2[j] != low) {
+        result[n++] = low;
+      }
+    }
+    return n == 0 ? null : Arrays.copyOf(result, n);
+  }
+
+  /** Returns the words of the given set if it is a {@link BitDocSet}, or null otherwise. */
+  private static long[] bitDocSetWords(DocSet set) {
+    return set instanceof BitDocSet ? ((BitDocSet) set).getBits().getBits() : null;
+  }
+
+  /** Returns the largest document of this set, or -1 if it is empty. */
+  private int lastDoc() {
+    for (int block = arrays.length - 1; block >= 0; block--) {
+      if (arrays[block] != null) {
+        return (block << 16) | arrays[block][arrays[block].length - 1];
+      } else if (bitmaps[block] != null) {
+        final long[] bitmap = bitmaps[block];
+        for (int i = BLOCK_WORDS - 1; ; i--) {
+          if (bitmap[i] != 0) {
+            return (block << 16) | ((i << 6) + 63 - Long.numberOfLeadingZeros(bitmap[i]));
+          }
+        }
+      }
+    }
+    return -1;
+  }
+
+  private char[] array(int block) {
+    return block < arrays.length ? arrays[block] : null;
+  }
+
+  private long[] bitmap(int block) {
+    return block < bitmaps.length ? bitmaps[block] : null;
+  }
+
+  //
+  // DocSet
+  //
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean exists(int doc) {
+    final int block = doc >>> 16;
+    if (block >= arrays.length) {
+      return false;
+    }
+    final char[] array = arrays[block];
+    if (array != null) {
+      return Arrays.binarySearch(array, (char) doc) >= 0;
+    }
+    final long[] bitmap = bitmaps[block];
+    return bitmap != null && get(bitmap, 0, doc & 0xFFFF);
+  }
+
+  @Override
+  public DocIterator iterator() {
+    final RoaringIterator iter = new RoaringIterator();
+    return new DocIterator() {
+      private int next = iter.nextDoc();
+
+      @Override
+      public boolean hasNext() {
+        return next != DocIdSetIterator.NO_MORE_DOCS;
+      }
+
+      @Override
+      public Integer next() {
+        return nextDoc();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("RoaringDocSet is immutable");
+      }
+
+      @Override
+      public int nextDoc() {
+        final int doc = next;
+        next = iter.nextDoc();
+        return doc;
+      }
+
+      @Override
+      public float score() {
+        return 0.0f;
+      }
+    };
+  }
+
+  @Override
+  public int intersectionSize(DocSet other) {
+    if (other instanceof RoaringDocSet) {
+      final RoaringDocSet o = (RoaringDocSet) other;
+      int count = 0;
+      for (int block = 0, end = Math.min(arrays.length, o.arrays.length); block < end; block++) {
+        final char[] a1 = arrays[block], a2 = o.arrays[block];
+        final long[] b1 = bitmaps[block], b2 = o.bitmaps[block];
+        if (a1 != null) {
+          if (a2 != null) {
+            count += intersectionCount(a1, a2);
+          } else if (b2 != null) {
+            count += intersectionCount(a1, b2, 0);
+          }
+        } else if (b1 != null) {
+          if (a2 != null) {
+            count += intersectionCount(a2, b1, 0);
+          } else if (b2 != null) {
+            count += intersectionCount(b1, b2, 0);
+          }
+        }
+      }
+      return count;
+    }
+
+    final long[] words = bitDocSetWords(other);
+    if (words != null) {
+      int count = 0;
+      for (int block = 0; block < arrays.length; block++) {
+        final int offset = block * BLOCK_WORDS;
+        if (arrays[block] != null) {
+          count += intersectionCount(arrays[block], words, offset);
+        } else if (bitmaps[block] != null) {
+          count += intersectionCount(bitmaps[block], words, offset);
+        }
+      }
+      return count;
+    }
+
+    // iterate over the other set and check this one: some sets, like DocSlices, have a slow
+    // exists(), and this does not call back the other set
+    int count = 0;
+    for (DocIterator iter = other.iterator(); iter.hasNext(); ) {
+      if (exists(iter.nextDoc())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public boolean intersects(DocSet other) {
+    if (other instanceof RoaringDocSet || other instanceof BitDocSet) {
+      return intersectionSize(other) > 0;
+    }
+    for (DocIterator iter = other.iterator(); iter.hasNext(); ) {
+      if (exists(iter.nextDoc())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public DocSet intersection(DocSet other) {
+    final long[] words = bitDocSetWords(other);
+    if (!(other instanceof RoaringDocSet) && words == null) {
+      // iterate over the other set and check this one, the result may need sorting
+      final int[] docs = new int[other.size()];
+      int n = 0;
+      boolean sorted = true;
+      for (DocIterator iter = other.iterator(); iter.hasNext(); ) {
+        final int doc = iter.nextDoc();
+        if (exists(doc)) {
+          sorted &= n == 0 || docs[n - 1] < doc;
+          docs[n++] = doc;
+        }
+      }
+      if (!sorted) {
+        Arrays.sort(docs, 0, n);
+      }
+      final Builder builder = new Builder(lastDoc() + 1);
+      for (int i = 0; i < n; i++) {
+        builder.add(docs[i]);
+      }
+      return builder.build();
+    }
+
+    final char[][] newArrays = new char[arrays.length][];
+    final long[][] newBitmaps = new long[arrays.length][];
+    int newSize = 0;
+    final RoaringDocSet o = words == null ? (RoaringDocSet) other : null;
+    for (int block = 0; block < arrays.length; block++) {
+      final char[] a1 = arrays[block];
+      final long[] b1 = bitmaps[block];
+      if (a1 == null && b1 == null) {
+        continue;
+      }
+      // the other block, as an array or as words starting at offset
+      final char[] a2 = o == null ? null : o.array(block);
+      final long[] w2 = o == null ? words : o.bitmap(block);
+      final int offset = o == null ? block * BLOCK_WORDS : 0;
+      if (a2 == null && w2 == null) {
+        continue;
+      }
+
+      if (a1 != null) {
+        newArrays[block] = a2 != null ? intersection(a1, a2) : filter(a1, w2, offset, true);
+        newSize += newArrays[block] == null ? 0 : newArrays[block].length;
+      } else if (a2 != null) {
+        newArrays[block] = filter(a2, b1, 0, true);
+        newSize += newArrays[block] == null ? 0 : newArrays[block].length;
+      } else {
+        final long[] bitmap = new long[BLOCK_WORDS];
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+          bitmap[i] = b1[i] & word(w2, offset, i);
+        }
+        newSize += setBlock(newArrays, newBitmaps, block, bitmap);
+      }
+    }
+    return new RoaringDocSet(newArrays, newBitmaps, newSize);
+  }
+
+  @Override
+  public int andNotSize(DocSet other) {
+    return size - intersectionSize(other);
+  }
+
+  @Override
+  public DocSet andNot(DocSet other) {
+    long[] words = bitDocSetWords(other);
+    final RoaringDocSet o = words == null ? copyOf(other) : null;
+
+    final char[][] newArrays = new char[arrays.length][];
+    final long[][] newBitmaps = new long[arrays.length][];
+    int newSize = 0;
+    for (int block = 0; block < arrays.length; block++) {
+      final char[] a1 = arrays[block];
+      final long[] b1 = bitmaps[block];
+      if (a1 == null && b1 == null) {
+        continue;
+      }
+      final char[] a2 = o == null ? null : o.array(block);
+      final long[] w2 = o == null ? words : o.bitmap(block);
+      final int offset = o == null ? block * BLOCK_WORDS : 0;
+
+      if (a2 == null && w2 == null) {
+        // nothing to remove, blocks are immutable so they can be shared
+        newArrays[block] = a1;
+        newBitmaps[block] = b1;
+        newSize += a1 != null ? a1.length : cardinality(b1);
+      } else if (a1 != null) {
+        newArrays[block] = a2 != null ? andNot(a1, a2) : filter(a1, w2, offset, false);
+        newSize += newArrays[block] == null ? 0 : newArrays[block].length;
+      } else {
+        final long[] bitmap;
+        if (a2 != null) {
+          bitmap = b1.clone();
+          for (char low : a2) {
+            bitmap[low >>> 6] &= ~(1L << low);
+          }
+        } else {
+          bitmap = new long[BLOCK_WORDS];
+          for (int i = 0; i < BLOCK_WORDS; i++) {
+            bitmap[i] = b1[i] & ~word(w2, offset, i);
+          }
+        }
+        newSize += setBlock(newArrays, newBitmaps, block, bitmap);
+      }
+    }
+    return new RoaringDocSet(newArrays, newBitmaps, newSize);
+  }
+
+  @Override
+  public DocSet union(DocSet other) {
+    if (other instanceof BitDocSet) {
+      // the result is at least as dense as the bit set
+      final FixedBitSet otherBits = ((BitDocSet) other).getBits();
+      final FixedBitSet newbits = FixedBitSet.ensureCapacity(otherBits.clone(), lastDoc());
+      final BitDocSet result = new BitDocSet(newbits);
+      addAllTo(result);
+      return result;
+    }
+
+    final RoaringDocSet o = copyOf(other);
+    final int numBlocks = Math.max(arrays.length, o.arrays.length);
+    final char[][] newArrays = new char[numBlocks][];
+    final long[][] newBitmaps = new long[numBlocks][];
+    int newSize = 0;
+    for (int block = 0; block < numBlocks; block++) {
+      final char[] a1 = array(block), a2 = o.array(block);
+      final long[] b1 = bitmap(block), b2 = o.bitmap(block);
+      if (a2 == null && b2 == null) {
+        newArrays[block] = a1;
+        newBitmaps[block] = b1;
+      } else if (a1 == null && b1 == null) {
+        newArrays[block] = a2;
+        newBitmaps[block] = b2;
+      } else {
+        final long[] bitmap = b1 != null ? b1.clone() : (b2 != null ? b2.clone() : new long[BLOCK_WORDS]);
+        for (char[] array : new char[][] {a1, a2}) {
+          if (array != null) {
+            for (char low : array) {
+              bitmap[low >>> 6] |= 1L << low;
+            }
+          }
+        }
+        if (b1 != null && b2 != null) {
+          for (int i = 0; i < BLOCK_WORDS; i++) {
+            bitmap[i] |= b2[i];
+          }
+        }
+        setBlock(newArrays, newBitmaps, block, bitmap);
+      }
+      if (newArrays[block] != null) {
+        newSize += newArrays[block].length;
+      } else if (newBitmaps[block] != null) {
+        newSize += cardinality(newBitmaps[block]);
+      }
+    }
+    return new RoaringDocSet(newArrays, newBitmaps, newSize);
+  }
+
+  @Override
+  public void addAllTo(DocSet target) {
+    if (target instanceof BitDocSet) {
+      final BitDocSet bitTarget = (BitDocSet) target;
+      final long[] words = bitTarget.getBits().getBits();
+      for (int block = 0; block < arrays.length; block++) {
+        final int offset = block * BLOCK_WORDS;
+        if (arrays[block] != null) {
+          for (char low : arrays[block]) {
+            final int index = offset + (low >>> 6);
+            if (index < words.length) {
+              words[index] |= 1L << low;
+            }
+          }
+        } else if (bitmaps[block] != null) {
+          final long[] bitmap = bitmaps[block];
+          for (int i = 0, end = Math.min(BLOCK_WORDS, words.length - offset); i < end; i++) {
+            words[offset + i] |= bitmap[i];
+          }
+        }
+      }
+      bitTarget.invalidateSize();
+    } else {
+      super.addAllTo(target);
+    }
+  }
+
+  @Override
+  protected FixedBitSet getBits() {
+    final FixedBitSet bits = new FixedBitSet(Math.max(64, lastDoc() + 1));
+    addAllTo(new BitDocSet(bits));
+    return bits;
+  }
+
+  /** Iterates over the documents of this set in order. */
+  private class RoaringIterator extends DocIdSetIterator {
+    private int block = -1;
+    private char[] array;
+    private long[] bitmap;
+    // the next position in the array, or the next bit to check in the bit set
+    private int index;
+    private int doc = -1;
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    /** Moves to the first non-empty block that is greater than or equal to <code>target</code>. */
+    private boolean moveToBlock(int target) {
+      for (block = target; block < arrays.length; block++) {
+        if (arrays[block] != null || bitmaps[block] != null) {
+          array = arrays[block];
+          bitmap = bitmaps[block];
+          index = 0;
+          return true;
+        }
+      }
+      array = null;
+      bitmap = null;
+      return false;
+    }
+
+    @Override
+    public int nextDoc() {
+      while (true) {
+        if (array != null) {
+          if (index < array.length) {
+            return doc = (block << 16) | array[index++];
+          }
+        } else if (bitmap != null) {
+          final int low = nextSetBit(bitmap, index);
+          if (low != NO_MORE_DOCS) {
+            index = low + 1;
+            return doc = (block << 16) | low;
+          }
+        }
+        if (moveToBlock(block + 1) == false) {
+          return doc = NO_MORE_DOCS;
+        }
+      }
+    }
+
+    @Override
+    public int advance(int target) {
+      final int targetBlock = target >>> 16;
+      if (targetBlock != block) {
+        if (moveToBlock(targetBlock) == false) {
+          return doc = NO_MORE_DOCS;
+        }
+        if (block != targetBlock) {
+          // the target block is empty, the first doc of the next block is the answer
+          return nextDoc();
+        }
+      }
+      final int low = target & 0xFFFF;
+      if (array != null) {
+        final int i = Arrays.binarySearch(array, index, array.length, (char) low);
+        index = i < 0 ? -1 - i : i;
+      } else {
+        index = low;
+      }
+      return nextDoc();
+    }
+
+    @Override
+    public long cost() {
+      return size;
+    }
+  }
+
+  @Override
+  public Filter getTopFilter() {
+    return new Filter() {
+      @Override
+      public DocIdSet getDocIdSet(final LeafReaderContext context, final Bits acceptDocs) {
+        LeafReader reader = context.reader();
+        // all Solr DocSets that are used as filters only include live docs
+        final Bits acceptDocs2 = acceptDocs == null ? null : (reader.getLiveDocs() == acceptDocs ? null : acceptDocs);
+
+        final int base = context.docBase;
+        final int maxDoc = reader.maxDoc();
+        final int max = base + maxDoc;   // one past the max doc in this segment.
+
+        return BitsFilteredDocIdSet.wrap(new DocIdSet() {
+          @Override
+          public DocIdSetIterator iterator() {
+            final RoaringIterator iter = new RoaringIterator();
+            return new DocIdSetIterator() {
+              int adjustedDoc = -1;
+
+              @Override
+              public int docID() {
+                return adjustedDoc;
+              }
+
+              @Override
+              public int nextDoc() {
+                final int pos = adjustedDoc == -1 ? iter.advance(base) : iter.nextDoc();
+                return adjustedDoc = pos < max ? pos - base : NO_MORE_DOCS;
+              }
+
+              @Override
+              public int advance(int target) {
+                if (target == NO_MORE_DOCS) return adjustedDoc = NO_MORE_DOCS;
+                final int pos = iter.advance(target + base);
+                return adjustedDoc = pos < max ? pos - base : NO_MORE_DOCS;
+              }
+
+              @Override
+              public long cost() {
+                // pro-rated for the segment
+                return (long) (size * (maxDoc / Math.max(1.0, (double) arrays.length * BLOCK_SIZE)));
+              }
+            };
+          }
+
+          @Override
+          public long ramBytesUsed() {
+            return RoaringDocSet.this.ramBytesUsed();
+          }
+
+          @Override
+          public Bits bits() {
+            return new Bits() {
+              @Override
+              public boolean get(int index) {
+                return exists(index + base);
+              }
+
+              @Override
+              public int length() {
+                return maxDoc;
+              }
+            };
+          }
+
+        }, context.isTopLevel ? acceptDocs : acceptDocs2);
+      }
+      @Override
+      public String toString(String field) {
+        return "RoaringDocSetTopFilter";
+      }
+    };
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(arrays) + RamUsageEstimator.shallowSizeOf(bitmaps);
+    for (int block = 0; block < arrays.length; block++) {
+      if (arrays[block] != null) {
+        ramBytesUsed += RamUsageEstimator.sizeOf(arrays[block]);
+      } else if (bitmaps[block] != null) {
+        ramBytesUsed += RamUsageEstimator.sizeOf(bitmaps[block]);
+      }
+    }
+    return ramBytesUsed;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+}
@@ -0,0 +1,220 @@
+package org.apache.solr.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.net.URL;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrInfoMBean;
+
+/**
+ * A per-core filter cache that stores one set per (filter, segment) pair, keyed
+ * by the segment's core cache key.
+ * <p>
+ * Unlike the <code>filterCache</code>, which holds top-level {@link DocSet}s and
+ * is thrown away with every {@link SolrIndexSearcher}, this cache is owned by the
+ * {@link SolrCore} and outlives searchers: after a commit, only segments that
+ * were not part of the previous searcher need to be computed, and the
+ * top-level sets of the new searcher are assembled from the cached segment sets.
+ * Entries of a segment are dropped as soon as its core is closed.
+ * <p>
+ * The cache is enabled with
+ * <code>&lt;segmentFilterCache size="..." maxRamMB="..."/&gt;</code> in the
+ * <code>&lt;query&gt;</code> section of solrconfig.xml. It reports global
+ * statistics as well as hit, miss and eviction counts for each live segment.
+ */
+public class SegmentFilterCache extends LRUQueryCache implements SolrInfoMBean {
+
+  /** Statistics of a single segment, guarded by the cache lock. */
+  private static class SegmentStats {
+    final String name;
+    long hits;
+    long misses;
+    long inserts;
+    long evictions;
+    long size;
+    long ramBytesUsed;
+
+    SegmentStats(String name) {
+      this.name = name;
+    }
+  }
+
+  private final Map<Object,SegmentStats> segmentStats = new IdentityHashMap<>();
+  private final int maxSize;
+  private final long maxRamBytesUsed;
+
+  /**
+   * Create a new cache that holds at most <code>maxSize</code> filters, and at
+   * most <code>maxRamBytesUsed</code> bytes of cached sets.
+   */
+  public SegmentFilterCache(int maxSize, long maxRamBytesUsed) {
+    super(maxSize, maxRamBytesUsed);
+    this.maxSize = maxSize;
+    this.maxRamBytesUsed = maxRamBytesUsed;
+  }
+
+  /**
+   * Start tracking statistics for the given segment. This is a no-op if the
+   * segment's core is already known, so that it may be called for every leaf
+   * of every new searcher.
+   */
+  public synchronized void registerSegment(LeafReader reader) {
+    final Object coreKey = reader.getCoreCacheKey();
+    if (segmentStats.containsKey(coreKey)) {
+      return;
+    }
+    final LeafReader unwrapped = FilterLeafReader.unwrap(reader);
+    final String name = unwrapped instanceof SegmentReader
+        ? ((SegmentReader) unwrapped).getSegmentName()
+        : "segment@" + Integer.toHexString(System.identityHashCode(coreKey));
+    segmentStats.put(coreKey, new SegmentStats(name));
+    reader.addCoreClosedListener(new LeafReader.CoreClosedListener() {
+      @Override
+      public void onClose(Object ownerCoreCacheKey) {
+        clearCoreCacheKey(ownerCoreCacheKey);
+      }
+    });
+  }
+
+  @Override
+  public synchronized void clearCoreCacheKey(Object coreKey) {
+    super.clearCoreCacheKey(coreKey);
+    segmentStats.remove(coreKey);
+  }
+
+  @Override
+  protected void onHit(Object readerCoreKey, Query query) {
+    super.onHit(readerCoreKey, query);
+    final SegmentStats stats = segmentStats.get(readerCoreKey);
+    if (stats != null) {
+      stats.hits++;
+    }
+  }
+
+  @Override
+  protected void onMiss(Object readerCoreKey, Query query) {
+    super.onMiss(readerCoreKey, query);
+    final SegmentStats stats = segmentStats.get(readerCoreKey);
+    if (stats != null) {
+      stats.misses++;
+    }
+  }
+
+  @Override
+  protected void onDocIdSetCache(Object readerCoreKey, long ramBytesUsed) {
+    super.onDocIdSetCache(readerCoreKey, ramBytesUsed);
+    final SegmentStats stats = segmentStats.get(readerCoreKey);
+    if (stats != null) {
+      stats.inserts++;
+      stats.size++;
+      stats.ramBytesUsed += ramBytesUsed;
+    }
+  }
+
+  @Override
+  protected void onDocIdSetEviction(Object readerCoreKey, int numEntries, long sumRamBytesUsed) {
+    super.onDocIdSetEviction(readerCoreKey, numEntries, sumRamBytesUsed);
+    final SegmentStats stats = segmentStats.get(readerCoreKey);
+    if (stats != null) {
+      stats.evictions += numEntries;
+      stats.size -= numEntries;
+      stats.ramBytesUsed -= sumRamBytesUsed;
+    }
+  }
+
+  @Override
+  protected void onClear() {
+    super.onClear();
+    for (SegmentStats stats : segmentStats.values()) {
+      stats.size = 0;
+      stats.ramBytesUsed = 0;
+    }
+  }
+
+  //////////////////////// SolrInfoMBeans methods //////////////////////
+
+  @Override
+  public String getName() {
+    return SegmentFilterCache.class.getName();
+  }
+
+  @Override
+  public String getVersion() {
+    return SolrCore.version;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Per-segment filter cache(maxSize=" + maxSize + ", maxRamBytesUsed=" + maxRamBytesUsed + ")";
+  }
+
+  @Override
+  public Category getCategory() {
+    return Category.CACHE;
+  }
+
+  @Override
+  public String getSource() {
+    return null;
+  }
+
+  @Override
+  public URL[] getDocs() {
+    return null;
+  }
+
+  @Override
+  public synchronized NamedList getStatistics() {
+    NamedList stats = new SimpleOrderedMap();
+    long lookups = getTotalCount();
+    long hits = getHitCount();
+    stats.add("lookups", lookups);
+    stats.add("hits", hits);
+    stats.add("hitratio", SolrCacheBase.calcHitRatio(lookups, hits));
+    stats.add("inserts", getCacheCount());
+    stats.add("evictions", getEvictionCount());
+    stats.add("size", getCacheSize());
+    stats.add("ramBytesUsed", ramBytesUsed());
+    stats.add("segments", segmentStats.size());
+    for (SegmentStats segment : segmentStats.values()) {
+      NamedList segmentList = new SimpleOrderedMap();
+      long segmentLookups = segment.hits + segment.misses;
+      segmentList.add("lookups", segmentLookups);
+      segmentList.add("hits", segment.hits);
+      segmentList.add("hitratio", SolrCacheBase.calcHitRatio(segmentLookups, segment.hits));
+      segmentList.add("inserts", segment.inserts);
+      segmentList.add("evictions", segment.evictions);
+      segmentList.add("size", segment.size);
+      segmentList.add("ramBytesUsed", segment.ramBytesUsed);
+      stats.add("segment_" + segment.name, segmentList);
+    }
+    return stats;
+  }
+
+}
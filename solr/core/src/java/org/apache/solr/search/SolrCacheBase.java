@@ -20,8 +20,10 @@ package org.apache.solr.search;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.URL;
+import java.util.Iterator;
 import java.util.Map;
 
+import org.apache.solr.common.SolrException;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoMBean.Category;
 import org.apache.solr.search.SolrCache.State;
@@ -126,6 +128,50 @@ public abstract class SolrCacheBase {
   protected boolean isAutowarmingOn() {
     return autowarm.isAutoWarmingOn();
   }
+
+  /**
+   * Regenerates the most recently used entries of <code>oldMap</code>, the access ordered map
+   * of the <code>old</code> cache, into <code>cache</code>, as many as the autowarm count allows.
+   */
+  protected <K,V> void warmMostRecentlyUsed(SolrIndexSearcher searcher, SolrCache<K,V> cache,
+                                            SolrCache<K,V> old, Map<K,V> oldMap) {
+    Object[] keys,vals = null;
+
+    // Don't do the autowarming in the synchronized block, just pull out the keys and values.
+    synchronized (oldMap) {
+      
+      int sz = autowarm.getWarmCount(oldMap.size());
+      
+      keys = new Object[sz];
+      vals = new Object[sz];
+
+      Iterator<Map.Entry<K, V>> iter = oldMap.entrySet().iterator();
+
+      // iteration goes from oldest (least recently used) to most recently used,
+      // so we need to skip over the oldest entries.
+      int skip = oldMap.size() - sz;
+      for (int i=0; i<skip; i++) iter.next();
+
+
+      for (int i=0; i<sz; i++) {
+        Map.Entry<K,V> entry = iter.next();
+        keys[i]=entry.getKey();
+        vals[i]=entry.getValue();
+      }
+    }
+
+    // autowarm from the oldest to the newest entries so that the ordering will be
+    // correct in the new cache.
+    for (int i=0; i<keys.length; i++) {
+      try {
+        boolean continueRegen = regenerator.regenerateItem(searcher, cache, old, keys[i], vals[i]);
+        if (!continueRegen) break;
+      }
+      catch (Exception e) {
+        SolrException.log(SolrCache.log,"Error during auto-warming of key:" + keys[i], e);
+      }
+    }
+  }
   
   public void setState(State state) {
     this.state = state;
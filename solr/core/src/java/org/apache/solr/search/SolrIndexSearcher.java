@@ -31,8 +31,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.document.Document;
@@ -62,6 +67,7 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queries.TermsQuery;
 import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.uninverting.UninvertingReader;
@@ -71,6 +77,7 @@ import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.core.DirectoryFactory;
@@ -116,6 +123,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
   private long openTime = System.currentTimeMillis();
   private long registerTime = 0;
   private long warmupTime = 0;
+  // the searcher that this searcher is warmed from, only set while warming
+  private SolrIndexSearcher warmingFrom;
   private final DirectoryReader reader;
   private final boolean closeReader;
 
@@ -123,9 +132,12 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
   private final int queryResultMaxDocsCached;
   private final boolean useFilterForSortedQuery;
   public final boolean enableLazyFieldLoading;
+  // the index sort of the writer, null if the index has no segment sort
+  private final Sort segmentSort;
   
   private final boolean cachingEnabled;
   private final SolrCache<Query,DocSet> filterCache;
+  private final SegmentFilterCache segmentFilterCache;
   private final SolrCache<QueryResultKey,DocList> queryResultCache;
   private final SolrCache<Integer,StoredDocument> documentCache;
   private final SolrCache<String,UnInvertedField> fieldValueCache;
@@ -215,6 +227,240 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
     }
   }
   
+  /**
+   * Thread of the executor returned by {@link #newSearchExecutor}. Searches that run
+   * on such a thread, e.g. because a query builds a DocSet while it is being collected,
+   * are collected sequentially so that they can't wait for the executor they occupy.
+   */
+  private static class SearchThread extends Thread {
+    SearchThread(Runnable r, String name) {
+      super(r, name);
+    }
+  }
+
+  /**
+   * Creates an executor that searchers can use to collect the slices of the index in
+   * parallel, see {@link IndexSearcher#IndexSearcher(IndexReader, ExecutorService, int)}.
+   */
+  public static ExecutorService newSearchExecutor(int threads) {
+    return ExecutorUtil.newMDCAwareFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+      @Override
+      public Thread newThread(Runnable r) {
+        return new SearchThread(r, "searchExecutor-thread-" + threadNumber.getAndIncrement());
+      }
+    });
+  }
+
+  /**
+   * Whether this searcher has several slices and an executor to collect them in parallel.
+   * The timeout of <code>timeAllowed</code> is tracked per thread and would not apply to
+   * the threads of the executor, so searches with a timeout are collected sequentially.
+   */
+  private boolean canCollectInParallel() {
+    return leafSlices != null && leafSlices.length > 1 && !(Thread.currentThread() instanceof SearchThread)
+        && !SolrQueryTimeoutImpl.isSet();
+  }
+
+  /**
+   * Whether the main query of <code>cmd</code> can be collected in parallel. Collector
+   * wrappers that count or time the whole search, post filters and the collectors of
+   * {@link RankQuery} can't be split by slice, and the query and the filters that aren't
+   * cached must be safe to score concurrently, see {@link #isThreadSafe(Query)}.
+   */
+  private boolean canCollectInParallel(QueryCommand cmd, ProcessedFilter pf) {
+    if (!canCollectInParallel()
+        || pf.postFilter != null
+        || (cmd.getFlags() & TERMINATE_EARLY) != 0
+        || cmd.getTimeAllowed() > 0
+        || cmd.getQuery() instanceof RankQuery
+        || !isThreadSafe(cmd.getQuery())) {
+      return false;
+    }
+    if (pf.filter instanceof FilterImpl) {
+      for (Weight weight : ((FilterImpl) pf.filter).weights) {
+        if (!isThreadSafe(weight.getQuery())) return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Whether the weight of a query can create scorers for different segments concurrently.
+   * Not all of them can: joins compute their result lazily in their weight, and function
+   * queries share a context map between segments. So only queries that are known to be
+   * safe are collected in parallel.
+   */
+  static boolean isThreadSafe(Query query) {
+    if (query instanceof TermQuery || query instanceof TermsQuery || query instanceof PhraseQuery
+        || query instanceof MultiPhraseQuery || query instanceof MatchAllDocsQuery
+        || query instanceof MultiTermQuery) {
+      return true;
+    } else if (query instanceof BooleanQuery) {
+      for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+        if (!isThreadSafe(clause.getQuery())) return false;
+      }
+      return true;
+    } else if (query instanceof DisjunctionMaxQuery) {
+      for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+        if (!isThreadSafe(disjunct)) return false;
+      }
+      return true;
+    } else if (query instanceof ConstantScoreQuery) {
+      return isThreadSafe(((ConstantScoreQuery) query).getQuery());
+    } else if (query instanceof WrappedQuery) {
+      return isThreadSafe(((WrappedQuery) query).getWrappedQuery());
+    }
+    return false;
+  }
+
+  /**
+   * Collects the query with the collectors of <code>manager</code>: one per slice on the
+   * executor when <code>parallel</code> is true, otherwise a single collector through
+   * {@link #buildAndRunCollectorChain}.
+   */
+  private <C extends Collector, T> T buildAndRunCollectorChain(QueryResult qr, Query query,
+      CollectorManager<C, T> manager, QueryCommand cmd, DelegatingCollector postFilter, boolean parallel) throws IOException {
+    if (parallel) {
+      return searchInParallel(query, manager);
+    }
+    C collector = manager.newCollector();
+    buildAndRunCollectorChain(qr, query, collector, cmd, postFilter);
+    return manager.reduce(Collections.singletonList(collector));
+  }
+
+  private <C extends Collector, T> T searchInParallel(Query query, CollectorManager<C, T> manager) throws IOException {
+    try {
+      return super.search(query, manager);
+    } catch (RuntimeException e) {
+      // IndexSearcher wraps whatever the collection of a slice threw
+      if (e.getCause() instanceof ExecutionException) {
+        Throwable cause = e.getCause().getCause();
+        if (cause instanceof IOException) throw (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  private static final CollectorManager<TotalHitCountCollector, Integer> HIT_COUNT_COLLECTOR_MANAGER =
+      new CollectorManager<TotalHitCountCollector, Integer>() {
+    @Override
+    public TotalHitCountCollector newCollector() {
+      return new TotalHitCountCollector();
+    }
+
+    @Override
+    public Integer reduce(Collection<TotalHitCountCollector> collectors) {
+      int totalHits = 0;
+      for (TotalHitCountCollector collector : collectors) {
+        totalHits += collector.getTotalHits();
+      }
+      return totalHits;
+    }
+  };
+
+  /** Collects a {@link DocSet} per slice and returns their union */
+  private class DocSetCollectorManager implements CollectorManager<DocSetCollector, DocSet> {
+    @Override
+    public DocSetCollector newCollector() {
+      return new DocSetCollector(maxDoc() >> 6, maxDoc());
+    }
+
+    @Override
+    public DocSet reduce(Collection<DocSetCollector> collectors) {
+      return DocSetCollector.getDocSet(collectors, maxDoc());
+    }
+  }
+
+  /**
+   * Collects the top documents of a {@link QueryCommand} per slice and merges them,
+   * optionally along with the {@link DocSet} of all matches.
+   */
+  private class TopDocsCollectorManager implements CollectorManager<Collector, TopDocs> {
+    private final int len;
+    private final QueryCommand cmd;
+    private final Sort mergeSort;
+    private final boolean parallel;
+    private final boolean terminateSortedSegments;
+    private final List<TopDocsCollector> topCollectors = new ArrayList<>();
+    private final List<SortedSegmentTerminatingCollector> terminatingCollectors = new ArrayList<>();
+    private final List<DocSetCollector> setCollectors;
+
+    TopDocsCollectorManager(int len, QueryCommand cmd, boolean parallel, boolean terminateSortedSegments,
+                            boolean collectDocSet) throws IOException {
+      assert !(terminateSortedSegments && collectDocSet);
+      this.len = len;
+      this.cmd = cmd;
+      this.mergeSort = cmd.getSort() == null ? null : weightSort(cmd.getSort());
+      this.parallel = parallel;
+      this.terminateSortedSegments = terminateSortedSegments;
+      this.setCollectors = collectDocSet ? new ArrayList<DocSetCollector>() : null;
+    }
+
+    @Override
+    public Collector newCollector() throws IOException {
+      // sort values are needed to merge the top docs of the slices
+      TopDocsCollector topCollector = buildTopDocsCollector(len, cmd, parallel);
+      topCollectors.add(topCollector);
+      Collector collector = topCollector;
+      if (terminateSortedSegments) {
+        SortedSegmentTerminatingCollector terminatingCollector =
+            new SortedSegmentTerminatingCollector(collector, len, cmd.getSort());
+        terminatingCollectors.add(terminatingCollector);
+        collector = terminatingCollector;
+      }
+      if (setCollectors != null) {
+        DocSetCollector setCollector = new DocSetCollector(maxDoc() >> 6, maxDoc());
+        setCollectors.add(setCollector);
+        collector = MultiCollector.wrap(collector, setCollector);
+      }
+      return collector;
+    }
+
+    @Override
+    public TopDocs reduce(Collection<Collector> collectors) throws IOException {
+      if (topCollectors.size() == 1) {
+        return topCollectors.get(0).topDocs(0, len);
+      }
+      if (mergeSort == null) {
+        TopDocs[] shardHits = new TopDocs[topCollectors.size()];
+        for (int i = 0; i < shardHits.length; i++) {
+          shardHits[i] = topCollectors.get(i).topDocs(0, len);
+        }
+        return TopDocs.merge(len, shardHits);
+      } else {
+        TopFieldDocs[] shardHits = new TopFieldDocs[topCollectors.size()];
+        for (int i = 0; i < shardHits.length; i++) {
+          shardHits[i] = (TopFieldDocs) topCollectors.get(i).topDocs(0, len);
+        }
+        return TopDocs.merge(mergeSort, len, shardHits);
+      }
+    }
+
+    int getTotalHits() {
+      int totalHits = 0;
+      for (TopDocsCollector topCollector : topCollectors) {
+        totalHits += topCollector.getTotalHits();
+      }
+      return totalHits;
+    }
+
+    /** Whether a sorted segment was not fully collected, see {@link SortedSegmentTerminatingCollector} */
+    boolean terminatedEarly() {
+      for (SortedSegmentTerminatingCollector terminatingCollector : terminatingCollectors) {
+        if (terminatingCollector.terminatedEarly()) return true;
+      }
+      return false;
+    }
+
+    DocSet getDocSet() {
+      return DocSetCollector.getDocSet(setCollectors, maxDoc());
+    }
+  }
+
   public SolrIndexSearcher(SolrCore core, String path, IndexSchema schema, SolrIndexConfig config, String name,
                            boolean enableCache, DirectoryFactory directoryFactory) throws IOException {
     // we don't need to reserve the directory because we get it from the factory
@@ -225,7 +471,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
   public SolrIndexSearcher(SolrCore core, String path, IndexSchema schema, String name, DirectoryReader r,
                            boolean closeReader, boolean enableCache, boolean reserveDirectory,
                            DirectoryFactory directoryFactory) throws IOException {
-    super(wrapReader(core, r));
+    super(wrapReader(core, r), core.getSearchExecutor(), core.getSolrConfig().searchMaxDocsPerSlice);
 
     this.path = path;
     this.directoryFactory = directoryFactory;
@@ -259,6 +505,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
     queryResultMaxDocsCached = solrConfig.queryResultMaxDocsCached;
     useFilterForSortedQuery = solrConfig.useFilterForSortedQuery;
     enableLazyFieldLoading = solrConfig.enableLazyFieldLoading;
+    segmentSort = solrConfig.indexConfig == null ? null : solrConfig.indexConfig.getSegmentSort(core);
     
     cachingEnabled=enableCache;
     if (cachingEnabled) {
@@ -287,8 +534,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
       }
 
       cacheList = clist.toArray(new SolrCache[clist.size()]);
+      segmentFilterCache = filterCache == null ? null : core.getSegmentFilterCache();
     } else {
       filterCache=null;
+      segmentFilterCache=null;
       queryResultCache=null;
       documentCache=null;
       fieldValueCache=null;
@@ -309,6 +558,12 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
     // We already have our own filter cache
     setQueryCache(null);
 
+    if (segmentFilterCache != null) {
+      for (LeafReaderContext leaf : leafContexts) {
+        segmentFilterCache.registerSegment(leaf.reader());
+      }
+    }
+
     // do this at the end since an exception in the constructor means we won't close    
     numOpens.incrementAndGet();
   }
@@ -513,7 +768,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
               new CacheRegenerator() {
                 @Override
                 public boolean regenerateItem(SolrIndexSearcher newSearcher, SolrCache newCache, SolrCache oldCache, Object oldKey, Object oldVal) throws IOException {
-                  newSearcher.cacheDocSet((Query)oldKey, null, false);
+                  newSearcher.regenerateDocSet((Query)oldKey, (DocSet)oldVal);
                   return true;
                 }
               }
@@ -873,6 +1128,74 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
     getDocSet(query);
   }
 
+  /**
+   * Caches the DocSet of a query, given its DocSet from the searcher that this searcher
+   * is being warmed from. If the query only matches documents based on their own segment,
+   * the documents of the segments that both searchers share are taken from the old DocSet,
+   * minus the ones deleted since, and only the new segments are searched.
+   */
+  private void regenerateDocSet(Query query, DocSet oldSet) throws IOException {
+    final SolrIndexSearcher old = warmingFrom;
+    if (old == null || !isSegmentLocal(query)) {
+      cacheDocSet(query, null, false);
+      return;
+    }
+
+    final Map<Object,LeafReaderContext> oldLeaves = new HashMap<>();
+    for (LeafReaderContext oldLeaf : old.leafContexts) {
+      oldLeaves.put(oldLeaf.reader().getCoreCacheKey(), oldLeaf);
+    }
+
+    final Filter oldFilter = oldSet.getTopFilter();
+    final DocSetCollector collector = new DocSetCollector(maxDoc()>>6, maxDoc());
+    Weight weight = null;
+    for (LeafReaderContext leaf : leafContexts) {
+      LeafReaderContext oldLeaf = oldLeaves.get(leaf.reader().getCoreCacheKey());
+      if (oldLeaf == null) {
+        if (weight == null) weight = createNormalizedWeight(query, false);
+        super.search(Collections.singletonList(leaf), weight, collector);
+        continue;
+      }
+      // deletes of a segment only ever grow, so the live docs of the new reader filter them out
+      DocIdSet docs = oldFilter.getDocIdSet(oldLeaf, leaf.reader().getLiveDocs());
+      DocIdSetIterator it = docs == null ? null : docs.iterator();
+      if (it == null) continue;
+      LeafCollector leafCollector = collector.getLeafCollector(leaf);
+      for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+        leafCollector.collect(doc);
+      }
+    }
+    cacheDocSet(query, collector.getDocSet(), false);
+  }
+
+  /**
+   * Whether the documents that a query matches in a segment only depend on that segment,
+   * unlike e.g. joins or queries that rewrite to the top terms of the whole index.
+   */
+  static boolean isSegmentLocal(Query query) {
+    if (query instanceof TermQuery || query instanceof TermsQuery || query instanceof PhraseQuery
+        || query instanceof MultiPhraseQuery || query instanceof MatchAllDocsQuery) {
+      return true;
+    } else if (query instanceof MultiTermQuery) {
+      return !(((MultiTermQuery) query).getRewriteMethod() instanceof TopTermsRewrite);
+    } else if (query instanceof BooleanQuery) {
+      for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+        if (!isSegmentLocal(clause.getQuery())) return false;
+      }
+      return true;
+    } else if (query instanceof DisjunctionMaxQuery) {
+      for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+        if (!isSegmentLocal(disjunct)) return false;
+      }
+      return true;
+    } else if (query instanceof ConstantScoreQuery) {
+      return isSegmentLocal(((ConstantScoreQuery) query).getQuery());
+    } else if (query instanceof WrappedQuery) {
+      return isSegmentLocal(((WrappedQuery) query).getWrappedQuery());
+    }
+    return false;
+  }
+
   /**
    * Returns the set of document ids matching a query.
    * This method is cache-aware and attempts to retrieve the answer from the cache if possible.
@@ -906,7 +1229,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
       }
     }
 
-    DocSet absAnswer = getDocSetNC(absQ, null);
+    DocSet absAnswer = getDocSetBySegment(absQ);
     DocSet answer = positive ? absAnswer : getPositiveDocSet(matchAllDocsQuery).andNot(absAnswer);
 
     if (filterCache != null) {
@@ -924,12 +1247,36 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
       answer = filterCache.get(q);
       if (answer!=null) return answer;
     }
-    answer = getDocSetNC(q,null);
+    answer = getDocSetBySegment(q);
     if (filterCache != null) filterCache.put(
         q,answer);
     return answer;
   }
 
+  /**
+   * Computes the DocSet of a query that is going to be put in the filterCache.
+   * If a {@link SegmentFilterCache} is configured, the per-segment sets are
+   * taken from it, so that only segments that were not seen by a previous
+   * searcher have to be evaluated.  Only queries whose matches in a segment
+   * depend on that segment alone (see {@link #isSegmentLocal}) can be cached
+   * that way; the sets of all others are computed against this searcher.
+   */
+  private DocSet getDocSetBySegment(Query query) throws IOException {
+    if (segmentFilterCache == null || !isSegmentLocal(query)) {
+      return getDocSetNC(query, null);
+    }
+    DocSetCollector collector = new DocSetCollector(maxDoc()>>6, maxDoc());
+
+    try {
+      // the cached sets ignore deletions, live docs are applied when collecting
+      Weight weight = segmentFilterCache.doCache(createNormalizedWeight(query, false), QueryCachingPolicy.ALWAYS_CACHE);
+      super.search(leafContexts, weight, collector);
+    } catch ( ExitableDirectoryReader.ExitingReaderException e) {
+        log.warn("Query: " + query + "; " + e.getMessage());
+    }
+    return collector.getDocSet();
+  }
+
   private static Query matchAllDocsQuery = new MatchAllDocsQuery();
 
 
@@ -1237,6 +1584,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
 
   // query must be positive
   protected DocSet getDocSetNC(Query query, DocSet filter) throws IOException {
+    if (canCollectInParallel() && isThreadSafe(query)) {
+      return searchInParallel(filter == null ? query : new FilteredQuery(query, filter.getTopFilter()),
+          new DocSetCollectorManager());
+    }
     DocSetCollector collector = new DocSetCollector(maxDoc()>>6, maxDoc());
 
     try {
@@ -1284,7 +1635,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
     if (filterCache != null) {
       first = filterCache.get(absQ);
       if (first==null) {
-        first = getDocSetNC(absQ,null);
+        first = getDocSetBySegment(absQ);
         filterCache.put(absQ,first);
       }
       return positive ? first.intersection(filter) : filter.andNot(first);
@@ -1510,7 +1861,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
 
     // lastly, put the superset in the cache if the size is less than or equal
     // to queryResultMaxDocsCached
-    if (key != null && superset.size() <= queryResultMaxDocsCached && !qr.isPartialResults()) {
+    if (key != null && superset.size() <= queryResultMaxDocsCached && !qr.isPartialResults() && !qr.isHitCountApproximate()) {
       queryResultCache.put(key, superset);
     }
   }
@@ -1567,6 +1918,14 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
    *        TopDocsCollector to use.
    */
   private TopDocsCollector buildTopDocsCollector(int len, QueryCommand cmd) throws IOException {
+    return buildTopDocsCollector(len, cmd, false);
+  }
+
+  /**
+   * @param fillFields whether sort values must be filled in, as when the top docs
+   *        of several collectors are merged.
+   */
+  private TopDocsCollector buildTopDocsCollector(int len, QueryCommand cmd, boolean fillFields) throws IOException {
 
     Query q = cmd.getQuery();
     if(q instanceof RankQuery) {
@@ -1585,13 +1944,28 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
 
       // :TODO: make fillFields its own QueryCommand flag? ...
       // ... see comments in populateNextCursorMarkFromTopDocs for cache issues (SOLR-5595)
-      final boolean fillFields = (null != cursor);
+      fillFields |= (null != cursor);
       final FieldDoc searchAfter = (null != cursor ? cursor.getSearchAfterFieldDoc() : null);
       return TopFieldCollector.create(weightedSort, len, searchAfter,
                                       fillFields, needScores, needScores); 
     }
   }
 
+  /**
+   * Whether the collection of sorted segments may stop once enough documents were collected
+   * from them: the index must have a segment sort that the requested sort is a prefix of.
+   * Not used with cursors, whose documents before the cursor are collected but not kept, nor
+   * with post filters, which may collect documents after the search, e.g. when collapsing.
+   */
+  private boolean canTerminateSortedSegments(QueryCommand cmd, ProcessedFilter pf) {
+    return segmentSort != null
+        && pf.postFilter == null
+        && cmd.getSort() != null
+        && cmd.getCursorMark() == null
+        && !(cmd.getQuery() instanceof RankQuery)
+        && SortedSegmentTerminatingCollector.canEarlyTerminate(cmd.getSort(), segmentSort);
+  }
+
   private void getDocListNC(QueryResult qr,QueryCommand cmd) throws IOException {
     int len = cmd.getSupersetMaxDoc();
     int last = len;
@@ -1619,7 +1993,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
 
       Collector collector;
 
-      if (!needScores) {
+      if (!needScores && canCollectInParallel(cmd, pf)) {
+        collector = null;
+        numHits[0] = searchInParallel(query, HIT_COUNT_COLLECTOR_MANAGER);
+      } else if (!needScores) {
         collector = new SimpleCollector () {
           @Override
           public void collect(int doc) {
@@ -1652,7 +2029,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
         };
       }
       
-      buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
+      if (collector != null) {
+        buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
+      }
 
       nDocsReturned=0;
       ids = new int[nDocsReturned];
@@ -1662,12 +2041,15 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
       // no docs on this page, so cursor doesn't change
       qr.setNextCursorMark(cmd.getCursorMark());
     } else {
-      final TopDocsCollector topCollector = buildTopDocsCollector(len, cmd);
-      Collector collector = topCollector;
-      buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
-
-      totalHits = topCollector.getTotalHits();
-      TopDocs topDocs = topCollector.topDocs(0, len);
+      final boolean parallel = canCollectInParallel(cmd, pf);
+      final TopDocsCollectorManager manager =
+          new TopDocsCollectorManager(len, cmd, parallel, canTerminateSortedSegments(cmd, pf), false);
+      TopDocs topDocs = buildAndRunCollectorChain(qr, query, manager, cmd, pf.postFilter, parallel);
+
+      totalHits = manager.getTotalHits();
+      if (manager.terminatedEarly()) {
+        qr.setHitCountApproximate(true);
+      }
       populateNextCursorMarkFromTopDocs(qr, cmd, topDocs);
 
       maxScore = totalHits>0 ? topDocs.getMaxScore() : 0.0f;
@@ -1717,7 +2099,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
       Collector collector;
       final DocSetCollector setCollector = new DocSetCollector(smallSetSize, maxDoc);
 
-       if (!needScores) {
+       if (!needScores && canCollectInParallel(cmd, pf)) {
+         collector = null;
+       } else if (!needScores) {
          collector = setCollector;
        } else {
          final Collector topScoreCollector = new SimpleCollector() {
@@ -1744,9 +2128,12 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
         collector = MultiCollector.wrap(setCollector, topScoreCollector);
        }
        
-       buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
-
-      set = setCollector.getDocSet();
+       if (collector == null) {
+         set = searchInParallel(query, new DocSetCollectorManager());
+       } else {
+         buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
+         set = setCollector.getDocSet();
+       }
 
       nDocsReturned = 0;
       ids = new int[nDocsReturned];
@@ -1757,18 +2144,15 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
       qr.setNextCursorMark(cmd.getCursorMark());
     } else {
 
-      final TopDocsCollector topCollector = buildTopDocsCollector(len, cmd);
-      DocSetCollector setCollector = new DocSetCollector(maxDoc>>6, maxDoc);
-      Collector collector = MultiCollector.wrap(topCollector, setCollector);
-
-      buildAndRunCollectorChain(qr, query, collector, cmd, pf.postFilter);
+      final boolean parallel = canCollectInParallel(cmd, pf);
+      final TopDocsCollectorManager manager = new TopDocsCollectorManager(len, cmd, parallel, false, true);
+      TopDocs topDocs = buildAndRunCollectorChain(qr, query, manager, cmd, pf.postFilter, parallel);
 
-      set = setCollector.getDocSet();      
+      set = manager.getDocSet();
 
-      totalHits = topCollector.getTotalHits();
+      totalHits = manager.getTotalHits();
       assert(totalHits == set.size());
 
-      TopDocs topDocs = topCollector.topDocs(0, len);
       populateNextCursorMarkFromTopDocs(qr, cmd, topDocs);
       maxScore = totalHits>0 ? topDocs.getMaxScore() : 0.0f;
       nDocsReturned = topDocs.scoreDocs.length;
@@ -2086,10 +2470,13 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
       // If there isn't a cache, then do a single filtered query
       // NOTE: we cannot use FilteredQuery, because BitDocSet assumes it will never 
       // have deleted documents, but UninvertedField's doNegative has sets with deleted docs
-      TotalHitCountCollector collector = new TotalHitCountCollector();
       BooleanQuery bq = new BooleanQuery();
       bq.add(QueryUtils.makeQueryable(a), BooleanClause.Occur.MUST);
       bq.add(new ConstantScoreQuery(b.getTopFilter()), BooleanClause.Occur.MUST);
+      if (canCollectInParallel() && isThreadSafe(a)) {
+        return searchInParallel(bq, HIT_COUNT_COLLECTOR_MANAGER);
+      }
+      TotalHitCountCollector collector = new TotalHitCountCollector();
       super.search(bq, collector);
       return collector.getTotalHits();
     }
@@ -2164,28 +2551,33 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
     // warm the caches in order...
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.add("warming","true");
-    for (int i=0; i<cacheList.length; i++) {
-      if (debug) log.debug("autowarming " + this + " from " + old + "\n\t" + old.cacheList[i]);
+    warmingFrom = old;
+    try {
+      for (int i=0; i<cacheList.length; i++) {
+        if (debug) log.debug("autowarming " + this + " from " + old + "\n\t" + old.cacheList[i]);
 
 
-      SolrQueryRequest req = new LocalSolrQueryRequest(core,params) {
-        @Override public SolrIndexSearcher getSearcher() { return SolrIndexSearcher.this; }
-        @Override public void close() { }
-      };
+        SolrQueryRequest req = new LocalSolrQueryRequest(core,params) {
+          @Override public SolrIndexSearcher getSearcher() { return SolrIndexSearcher.this; }
+          @Override public void close() { }
+        };
 
-      SolrQueryResponse rsp = new SolrQueryResponse();
-      SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
-      try {
-        this.cacheList[i].warm(this, old.cacheList[i]);
-      } finally {
+        SolrQueryResponse rsp = new SolrQueryResponse();
+        SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
         try {
-          req.close();
+          this.cacheList[i].warm(this, old.cacheList[i]);
         } finally {
-          SolrRequestInfo.clearRequestInfo();
+          try {
+            req.close();
+          } finally {
+            SolrRequestInfo.clearRequestInfo();
+          }
         }
-      }
 
-      if (debug) log.debug("autowarming result for " + this + "\n\t" + this.cacheList[i]);
+        if (debug) log.debug("autowarming result for " + this + "\n\t" + this.cacheList[i]);
+      }
+    } finally {
+      warmingFrom = null;
     }
     warmupTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
   }
@@ -2415,6 +2807,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
    */
   public static class QueryResult {
     private boolean partialResults;
+    private boolean hitCountApproximate;
     private DocListAndSet docListAndSet;
     private CursorMark nextCursorMark;
 
@@ -2439,6 +2832,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
     public boolean isPartialResults() { return partialResults; }
     public void setPartialResults(boolean partialResults) { this.partialResults = partialResults; }
 
+    /** Whether the total hit count is only a lower bound, because sorted segments were not fully collected */
+    public boolean isHitCountApproximate() { return hitCountApproximate; }
+    public void setHitCountApproximate(boolean hitCountApproximate) { this.hitCountApproximate = hitCountApproximate; }
+
     public void setDocListAndSet( DocListAndSet listSet ) { docListAndSet = listSet; }
     public DocListAndSet getDocListAndSet() { return docListAndSet; }
 
@@ -0,0 +1,102 @@
+package org.apache.solr.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+
+/**
+ * Stops collecting a segment after <code>numDocsToCollect</code> of its documents were collected,
+ * if the segment is sorted by an {@link IndexWriterConfig#setIndexSort index sort} that the search
+ * sort is a prefix of, so that the documents that are skipped could not have made it into the top
+ * documents.
+ * <p>
+ * Unlike {@link org.apache.lucene.search.EarlyTerminatingSortingCollector}, the segment readers are
+ * unwrapped before checking whether they are sorted, since the searcher's leaves may be wrapped.
+ * Once a segment was terminated, the total hit count is only a lower bound.
+ */
+class SortedSegmentTerminatingCollector extends FilterCollector {
+
+  private final int numDocsToCollect;
+  private final Sort sort;
+  private boolean terminatedEarly;
+
+  SortedSegmentTerminatingCollector(Collector in, int numDocsToCollect, Sort sort) {
+    super(in);
+    this.numDocsToCollect = numDocsToCollect;
+    this.sort = sort;
+  }
+
+  /**
+   * Whether the collection of a segment sorted by <code>segmentSort</code> can stop early when
+   * hits are sorted by <code>sort</code>, that is if <code>sort</code> is a prefix of <code>segmentSort</code>.
+   */
+  static boolean canEarlyTerminate(Sort sort, Sort segmentSort) {
+    if (segmentSort == null) return false;
+    SortField[] fields = sort.getSort();
+    SortField[] segmentFields = segmentSort.getSort();
+    if (fields.length > segmentFields.length) return false;
+    for (int i = 0; i < fields.length; i++) {
+      // SortField.equals ignores the missing value, which matters for the order
+      if (!fields[i].equals(segmentFields[i]) || !Objects.equals(fields[i].missingValue, segmentFields[i].missingValue)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Whether any segment was not fully collected */
+  boolean terminatedEarly() {
+    return terminatedEarly;
+  }
+
+  @Override
+  public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+    final LeafCollector leafCollector = super.getLeafCollector(context);
+    LeafReader reader = FilterLeafReader.unwrap(context.reader());
+    if (!(reader instanceof SegmentReader)
+        || !canEarlyTerminate(sort, ((SegmentReader) reader).getSegmentInfo().info.getIndexSort())) {
+      return leafCollector;
+    }
+    return new FilterLeafCollector(leafCollector) {
+      private int numCollected;
+
+      @Override
+      public void collect(int doc) throws IOException {
+        super.collect(doc);
+        if (++numCollected >= numDocsToCollect) {
+          terminatedEarly = true;
+          throw new CollectionTerminatedException();
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,215 @@
+package org.apache.solr.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.solr.common.SolrException;
+import org.apache.solr.util.ConcurrentTinyLFUCache;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SolrCache based on ConcurrentTinyLFUCache implementation.
+ * <p>
+ * Unlike {@link FastLRUCache}, entries are only admitted into the main space of the cache if they
+ * have been requested more often than the entry they would replace, which keeps frequently used
+ * entries from being flushed by a burst of one-off requests. Evictions are done in small batches
+ * by a calling thread that can acquire the eviction lock without waiting.
+ * <p>
+ * Autowarming regenerates the most valuable entries of the old cache according to its eviction
+ * policy, least valuable first.
+ *
+ * @see org.apache.solr.util.ConcurrentTinyLFUCache
+ * @see org.apache.solr.search.SolrCache
+ */
+public class TinyLFUCache<K,V> extends SolrCacheBase implements SolrCache<K,V> {
+
+  // contains the statistics objects for all open caches of the same type
+  private List<ConcurrentTinyLFUCache.Stats> statsList;
+
+  private long warmupTime = 0;
+
+  private String description = "Concurrent TinyLFU Cache";
+  private ConcurrentTinyLFUCache<K,V> cache;
+
+  @Override
+  public Object init(Map args, Object persistence, CacheRegenerator regenerator) {
+    super.init(args, regenerator);
+    String str = (String) args.get("size");
+    final int limit = str == null ? 1024 : Integer.parseInt(str);
+    str = (String) args.get("initialSize");
+    final int initialSize = str == null ? limit : Integer.parseInt(str);
+    description = generateDescription(limit, initialSize);
+    cache = new ConcurrentTinyLFUCache<>(limit, initialSize);
+    cache.setAlive(false);
+
+    statsList = (List<ConcurrentTinyLFUCache.Stats>) persistence;
+    if (statsList == null) {
+      // must be the first time a cache of this type is being created
+      // Use a CopyOnWriteArrayList since puts are very rare and iteration may be a frequent operation
+      // because it is used in getStatistics()
+      statsList = new CopyOnWriteArrayList<>();
+
+      // the first entry will be for cumulative stats of caches that have been closed.
+      statsList.add(new ConcurrentTinyLFUCache.Stats());
+    }
+    statsList.add(cache.getStats());
+    return statsList;
+  }
+
+  /**
+   * @return Returns the description of this Cache.
+   */
+  protected String generateDescription(int limit, int initialSize) {
+    String description = "Concurrent TinyLFU Cache(maxSize=" + limit + ", initialSize=" + initialSize;
+    if (isAutowarmingOn()) {
+      description += ", " + getAutowarmDescription();
+    }
+    description += ')';
+    return description;
+  }
+
+  @Override
+  public int size() {
+    return cache.size();
+  }
+
+  @Override
+  public V put(K key, V value) {
+    return cache.put(key, value);
+  }
+
+  @Override
+  public V get(K key) {
+    return cache.get(key);
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+
+  @Override
+  public void setState(State state) {
+    super.setState(state);
+    cache.setAlive(state == State.LIVE);
+  }
+
+  @Override
+  public void warm(SolrIndexSearcher searcher, SolrCache old) {
+    if (regenerator == null) return;
+    long warmingStartTime = System.nanoTime();
+    TinyLFUCache other = (TinyLFUCache) old;
+    // warm entries
+    if (isAutowarmingOn()) {
+      int sz = autowarm.getWarmCount(other.size());
+      Map items = other.cache.getHottestItems(sz);
+      Map.Entry[] itemsArr = new Map.Entry[items.size()];
+      int counter = 0;
+      for (Object mapEntry : items.entrySet()) {
+        itemsArr[counter++] = (Map.Entry) mapEntry;
+      }
+      for (int i = itemsArr.length - 1; i >= 0; i--) {
+        try {
+          boolean continueRegen = regenerator.regenerateItem(searcher,
+                  this, old, itemsArr[i].getKey(), itemsArr[i].getValue());
+          if (!continueRegen) break;
+        }
+        catch (Exception e) {
+          SolrException.log(log, "Error during auto-warming of key:" + itemsArr[i].getKey(), e);
+        }
+      }
+    }
+    warmupTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
+  }
+
+
+  @Override
+  public void close() {
+    // add the stats to the cumulative stats object (the first in the statsList)
+    statsList.get(0).add(cache.getStats());
+    statsList.remove(cache.getStats());
+  }
+
+  //////////////////////// SolrInfoMBeans methods //////////////////////
+  @Override
+  public String getName() {
+    return TinyLFUCache.class.getName();
+  }
+
+  @Override
+  public String getDescription() {
+    return description;
+  }
+
+  @Override
+  public String getSource() {
+    return null;
+  }
+
+
+  @Override
+  public NamedList getStatistics() {
+    NamedList<Serializable> lst = new SimpleOrderedMap<>();
+    if (cache == null)  return lst;
+    ConcurrentTinyLFUCache.Stats stats = cache.getStats();
+    long lookups = stats.getCumulativeLookups();
+    long hits = stats.getCumulativeHits();
+    long inserts = stats.getCumulativePuts();
+    long evictions = stats.getCumulativeEvictions();
+    long size = stats.getCurrentSize();
+    long clookups = 0;
+    long chits = 0;
+    long cinserts = 0;
+    long cevictions = 0;
+
+    // NOTE: It is safe to iterate on a CopyOnWriteArrayList
+    for (ConcurrentTinyLFUCache.Stats statistics : statsList) {
+      clookups += statistics.getCumulativeLookups();
+      chits += statistics.getCumulativeHits();
+      cinserts += statistics.getCumulativePuts();
+      cevictions += statistics.getCumulativeEvictions();
+    }
+
+    lst.add("lookups", lookups);
+    lst.add("hits", hits);
+    lst.add("hitratio", calcHitRatio(lookups, hits));
+    lst.add("inserts", inserts);
+    lst.add("evictions", evictions);
+    lst.add("size", size);
+
+    lst.add("warmupTime", warmupTime);
+    lst.add("cumulative_lookups", clookups);
+    lst.add("cumulative_hits", chits);
+    lst.add("cumulative_hitratio", calcHitRatio(clookups, chits));
+    lst.add("cumulative_inserts", cinserts);
+    lst.add("cumulative_evictions", cevictions);
+
+    return lst;
+  }
+
+  @Override
+  public String toString() {
+    return name() + getStatistics().toString();
+  }
+}
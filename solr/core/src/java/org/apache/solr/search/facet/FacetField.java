@@ -46,6 +46,8 @@ import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.UnicodeUtil;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.request.DocValuesFacets;
+import org.apache.solr.request.SimpleFacets;
 import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.schema.TrieField;
@@ -69,6 +71,8 @@ public class FacetField extends FacetRequest {
   FacetMethod method;
   boolean allBuckets;   // show cumulative stats across all buckets (this can be different than non-bucketed stats across all docs because of multi-valued docs)
   int cacheDf;  // 0 means "default", -1 means "never cache"
+  int threads;  // number of segments to count at once, 0 or 1 means count on the request thread
+  boolean refine;  // ask shards for the counts they didn't return for buckets that may be in the top (distributed only)
 
   // TODO: put this somewhere more generic?
   public static enum SortDirection {
@@ -90,6 +94,8 @@ public class FacetField extends FacetRequest {
     ENUM,
     STREAM,
     FIELDCACHE,
+    DVHASH,
+    UIF,
     SMART,
     ;
 
@@ -103,12 +109,25 @@ public class FacetField extends FacetRequest {
         return SMART;
       } else if ("stream".equals(method)) {
         return STREAM;
+      } else if ("dvhash".equals(method)) {
+        return DVHASH;
+      } else if ("uif".equals(method)) {
+        return UIF;
       }
       throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Unknown FacetField method " + method);
     }
   }
 
 
+  /**
+   * Returns how many buckets after the offset a shard returns: the limit plus a modest amount of
+   * over-request, so that buckets just below the top of a shard still reach the merge.
+   * Only meaningful when limit &gt;= 0.
+   */
+  int getShardLimit() {
+    return (int)(limit*1.1+4);
+  }
+
   @Override
   public FacetProcessor createFacetProcessor(FacetContext fcontext) {
     SchemaField sf = fcontext.searcher.getSchema().getField(field);
@@ -125,6 +144,9 @@ public class FacetField extends FacetRequest {
 
     if (sf.hasDocValues() && ntype==null) {
       // single and multi-valued string docValues
+      if (useHashTable(fcontext, sf)) {
+        return new FacetFieldProcessorDVHash(fcontext, this, sf);
+      }
       return new FacetFieldProcessorDV(fcontext, this, sf);
     }
 
@@ -134,15 +156,36 @@ public class FacetField extends FacetRequest {
         return new FacetFieldProcessorNumeric(fcontext, this, sf);
       } else {
         // single valued string...
+        if (useHashTable(fcontext, sf)) {
+          return new FacetFieldProcessorDVHash(fcontext, this, sf);
+        }
         return new FacetFieldProcessorDV(fcontext, this, sf);
         // what about FacetFieldProcessorFC?
       }
     }
 
+    if (ntype == null && method != FacetMethod.UIF && sf.indexed() && ft.getUninversionType(sf) != null) {
+      // multi-valued strings are uninverted per segment by the field cache, so later searchers reuse
+      // the segments they share with this one and only need a new map to global ords.
+      if (useHashTable(fcontext, sf)) {
+        return new FacetFieldProcessorDVHash(fcontext, this, sf);
+      }
+      return new FacetFieldProcessorDV(fcontext, this, sf);
+    }
+
     // Multi-valued field cache (UIF)
     return new FacetFieldProcessorUIF(fcontext, this, sf);
   }
 
+  // count string ords in a hash table rather than an array over all the terms of the field when asked to,
+  // or when the field has far more terms than the domain has documents
+  private boolean useHashTable(FacetContext fcontext, SchemaField sf) {
+    if (mincount <= 0) return false;  // the table only holds terms that were seen, so it can't produce zero counts
+    if (method == FacetMethod.DVHASH) return true;
+    if (method != null && method != FacetMethod.SMART) return false;
+    return FacetFieldProcessorDVHash.isHighCardinality(fcontext, this, sf);
+  }
+
   @Override
   public FacetMerger createFacetMerger(Object prototype) {
     return new FacetFieldMerger(this);
@@ -266,7 +309,7 @@ abstract class FacetFieldProcessorFCBase extends FacetFieldProcessor {
 
     int off = fcontext.isShard() ? 0 : (int) freq.offset;
     // add a modest amount of over-request if this is a shard request
-    int lim = freq.limit >= 0 ? (fcontext.isShard() ? (int)(freq.limit*1.1+4) : (int)freq.limit) : Integer.MAX_VALUE;
+    int lim = freq.limit >= 0 ? (fcontext.isShard() ? freq.getShardLimit() : (int)freq.limit) : Integer.MAX_VALUE;
 
     int maxsize = (int)(freq.limit > 0 ?  freq.offset + lim : Integer.MAX_VALUE - 1);
     maxsize = Math.min(maxsize, nTerms);
@@ -909,6 +952,19 @@ class FacetFieldProcessorDV extends FacetFieldProcessorFCBase {
     final List<LeafReaderContext> leaves = fcontext.searcher.getIndexReader().leaves();
     Filter filter = fcontext.base.getTopFilter();
 
+    if (freq.threads > 1 && leaves.size() > 1 && accs.length == 0 && allBucketsSlot < 0) {
+      // only counts are needed, so segments can be counted on other threads into separate arrays and summed.
+      int[] counts = new int[nTerms];
+      DocValuesFacets.accumCounts(counts, startTermIndex, filter, leaves, sf.getName(), multiValuedField, ordinalMap,
+          SimpleFacets.facetExecutor, freq.threads);
+      for (int i = 0; i < nTerms; i++) {
+        if (counts[i] != 0) {
+          countAcc.incrementCount(i, counts[i]);
+        }
+      }
+      return;
+    }
+
     for (int subIdx = 0; subIdx < leaves.size(); subIdx++) {
       LeafReaderContext subCtx = leaves.get(subIdx);
 
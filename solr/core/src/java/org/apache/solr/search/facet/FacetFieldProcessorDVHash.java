@@ -0,0 +1,180 @@
+package org.apache.solr.search.facet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.UnicodeUtil;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.schema.SchemaField;
+
+/**
+ * Facets a string field (docValues or field cache) by counting global ords in a hash table, the same way
+ * {@link FacetFieldProcessorNumeric} counts values (see {@link FacetFieldProcessorLongHash}).  Unlike {@link FacetFieldProcessorDV}, which allocates
+ * a count array with a slot for every term of the field, the table grows with the number of distinct terms
+ * the matching documents actually use, so faceting a field with a hundred million unique values over a
+ * small domain only needs memory for the terms found.  Counts are exact.
+ */
+class FacetFieldProcessorDVHash extends FacetFieldProcessorLongHash {
+  // non-final to support setting by tests
+  static long MIN_CARDINALITY = 1 << 16;  // only pick this processor automatically for fields with at least this many terms
+  static int CARDINALITY_RATIO = 8;  // ... and at least this many times more terms than documents in the domain
+
+  boolean multiValuedField;
+  SortedSetDocValues si;  // only used for term lookups (for both single and multi-valued)
+  MultiDocValues.OrdinalMap ordinalMap = null; // maps per-segment ords to global ords
+  int startTermIndex;  // only global ords in [startTermIndex, endTermIndex) are counted
+  int endTermIndex;
+
+  SortedDocValues singleDv;  // of the current segment, null if the segment has several values per document
+  SortedSetDocValues multiDv;
+  LongValues toGlobal;  // maps the ords of the current segment to global ords
+
+
+  FacetFieldProcessorDVHash(FacetContext fcontext, FacetField freq, SchemaField sf) {
+    super(fcontext, freq, sf);
+    multiValuedField = sf.multiValued() || sf.getType().multiValuedFieldCache();
+  }
+
+  /**
+   * Returns true if the field has so many more terms than the domain has documents that counting in a
+   * hash table should take much less memory than a count array over all the terms of the field.
+   */
+  static boolean isHighCardinality(FacetContext fcontext, FacetField freq, SchemaField sf) {
+    if (freq.prefix != null && freq.prefix.length() > 0) {
+      return false;  // count arrays are only as big as the range of terms with the prefix
+    }
+    long valueCount;
+    try {
+      if (sf.multiValued() || sf.getType().multiValuedFieldCache()) {
+        valueCount = FieldUtil.getSortedSetDocValues(fcontext.qcontext, sf, null).getValueCount();
+      } else {
+        valueCount = FieldUtil.getSortedDocValues(fcontext.qcontext, sf, null).getValueCount();
+      }
+    } catch (IOException e) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+    }
+    return valueCount >= MIN_CARDINALITY && valueCount > (long)fcontext.base.size() * CARDINALITY_RATIO;
+  }
+
+  private void findStartAndEndOrds() throws IOException {
+    if (multiValuedField) {
+      si = FieldUtil.getSortedSetDocValues(fcontext.qcontext, sf, null);
+      if (si instanceof MultiDocValues.MultiSortedSetDocValues) {
+        ordinalMap = ((MultiDocValues.MultiSortedSetDocValues)si).mapping;
+      }
+    } else {
+      SortedDocValues single = FieldUtil.getSortedDocValues(fcontext.qcontext, sf, null);
+      si = DocValues.singleton(single);  // multi-valued view
+      if (single instanceof MultiDocValues.MultiSortedDocValues) {
+        ordinalMap = ((MultiDocValues.MultiSortedDocValues)single).mapping;
+      }
+    }
+
+    if (si.getValueCount() >= Integer.MAX_VALUE) {
+      throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Field has too many unique values. field=" + sf + " nterms= " + si.getValueCount());
+    }
+
+    if (freq.prefix != null && freq.prefix.length() > 0) {
+      BytesRefBuilder prefixRef = new BytesRefBuilder();
+      prefixRef.copyChars(freq.prefix);
+      startTermIndex = (int)si.lookupTerm(prefixRef.get());
+      if (startTermIndex < 0) startTermIndex = -startTermIndex - 1;
+      prefixRef.append(UnicodeUtil.BIG_TERM);
+      endTermIndex = (int)si.lookupTerm(prefixRef.get());
+      assert endTermIndex < 0;
+      endTermIndex = -endTermIndex - 1;
+    } else {
+      startTermIndex = 0;
+      endTermIndex = (int)si.getValueCount();
+    }
+  }
+
+
+  @Override
+  public SimpleOrderedMap<Object> calcFacets() throws IOException {
+    findStartAndEndOrds();
+    return super.calcFacets();
+  }
+
+  @Override
+  protected void setNextSegment(LeafReaderContext ctx) throws IOException {
+    if (multiValuedField) {
+      multiDv = DocValues.getSortedSet(ctx.reader(), sf.getName());
+      singleDv = DocValues.unwrapSingleton(multiDv);
+    } else {
+      singleDv = DocValues.getSorted(ctx.reader(), sf.getName());
+    }
+    toGlobal = ordinalMap == null ? null : ordinalMap.getGlobalOrds(ctx.ord);
+  }
+
+  @Override
+  protected void collectDoc(int segDoc) throws IOException {
+    int segOrd;
+    if (singleDv != null) {
+      segOrd = singleDv.getOrd(segDoc);
+      if (segOrd >= 0) {
+        collectOrd(segDoc, segOrd);
+      }
+    } else {
+      multiDv.setDocument(segDoc);
+      segOrd = (int)multiDv.nextOrd();
+      for (int ord = segOrd; ord >= 0; ord = (int)multiDv.nextOrd()) {
+        collectOrd(segDoc, ord);
+      }
+    }
+
+    if (segOrd < 0) {
+      collectMissing(segDoc);
+    }
+  }
+
+  private void collectOrd(int segDoc, int segOrd) throws IOException {
+    int ord = toGlobal == null ? segOrd : (int)toGlobal.get(segOrd);
+    if (ord >= startTermIndex && ord < endTermIndex) {
+      collectValue(segDoc, ord);
+    }
+  }
+
+  @Override
+  protected int compareValues(long a, long b) {
+    return Long.compare(a, b);  // global ords are in index order
+  }
+
+  @Override
+  protected Object getBucketValue(long val) throws IOException {
+    return sf.getType().toObject(sf, BytesRef.deepCopyOf(si.lookupOrd((int)val)));
+  }
+
+  @Override
+  protected Query getBucketQuery(long val) throws IOException {
+    return new TermQuery(new Term(sf.getName(), BytesRef.deepCopyOf(si.lookupOrd((int)val))));
+  }
+}
@@ -19,8 +19,10 @@ package org.apache.solr.search.facet;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -28,19 +30,32 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.solr.client.solrj.SolrResponse;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.FacetParams;
+import org.apache.solr.common.params.HighlightParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.StatsParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.handler.component.FacetComponent;
 import org.apache.solr.handler.component.ResponseBuilder;
 import org.apache.solr.handler.component.SearchComponent;
 import org.apache.solr.handler.component.ShardRequest;
 import org.apache.solr.handler.component.ShardResponse;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.TrieDateField;
 import org.apache.solr.search.QueryContext;
 import org.apache.solr.search.SyntaxError;
+import org.noggit.JSONUtil;
+import org.noggit.ObjectBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +73,8 @@ public class FacetModule extends SearchComponent {
 
   // Internal information passed down from the top level to shards for distributed faceting.
   private final static String FACET_STATE = "_facet_";
+  // Key in the facet state of the bucket values of top-level terms facets that a shard should refine.
+  private final static String FACET_REFINE = "_refine_";
 
 
   public FacetComponentState getFacetComponentState(ResponseBuilder rb) {
@@ -83,11 +100,54 @@ public class FacetModule extends SearchComponent {
       fcontext.flags |= FacetContext.IS_SHARD;
     }
 
+    if (facetState.refinements != null) {
+      rb.rsp.add("facets", refineBuckets(fcontext, facetState));
+      return;
+    }
+
     FacetProcessor fproc = facetState.facetRequest.createFacetProcessor(fcontext);
     fproc.process();
     rb.rsp.add("facets", fproc.getResponse());
   }
 
+  /** Counts (and computes the stats and sub-facets of) the buckets the top level asked this shard to refine, in the order asked. */
+  private SimpleOrderedMap<Object> refineBuckets(FacetContext fcontext, FacetComponentState facetState) throws IOException {
+    SimpleOrderedMap<Object> res = new SimpleOrderedMap<>();
+    for (Map.Entry<String,List<String>> entry : facetState.refinements.entrySet()) {
+      FacetRequest sub = facetState.facetRequest.getSubFacets().get(entry.getKey());
+      if (!(sub instanceof FacetField)) {
+        throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Can't refine facet " + entry.getKey());
+      }
+      FacetField freq = (FacetField) sub;
+      SchemaField sf = fcontext.searcher.getSchema().getField(freq.field);
+
+      FacetProcessor<FacetField> fproc = new FacetProcessor<>(fcontext.sub(null, fcontext.base), freq);
+      fproc.handleDomainChanges();
+
+      List<SimpleOrderedMap<Object>> bucketList = new ArrayList<>(entry.getValue().size());
+      BytesRefBuilder term = new BytesRefBuilder();
+      for (String val : entry.getValue()) {
+        SimpleOrderedMap<Object> bucket = new SimpleOrderedMap<>();
+        Query filter;
+        if (sf.indexed()) {
+          // the indexed term, without analyzing the value again like a query would
+          sf.getType().readableToIndexed(val, term);
+          filter = new TermQuery(new Term(sf.getName(), term.toBytesRef()));
+        } else {
+          // numeric docValues without terms
+          filter = sf.getType().getFieldQuery(null, sf, val);
+        }
+        fproc.fillBucket(bucket, filter);
+        bucketList.add(bucket);
+      }
+
+      SimpleOrderedMap<Object> facet = new SimpleOrderedMap<>();
+      facet.add("buckets", bucketList);
+      res.add(entry.getKey(), facet);
+    }
+    return res;
+  }
+
 
   @Override
   public void prepare(ResponseBuilder rb) throws IOException {
@@ -107,12 +167,15 @@ public class FacetModule extends SearchComponent {
     SolrParams params = rb.req.getParams();
 
     boolean isShard = params.getBool(ShardParams.IS_SHARD, false);
+    Map<String,List<String>> refinements = null;
     if (isShard) {
       String jfacet = params.get(FACET_STATE);
       if (jfacet == null) {
         // if this is a shard request, but there is no facet state, then don't do anything.
         return;
       }
+      Map<String,Object> state = (Map<String,Object>) ObjectBuilder.fromJSON(jfacet);
+      refinements = (Map<String,List<String>>) state.get(FACET_REFINE);
     }
 
     // At this point, we know we need to do something.  Create and save the state.
@@ -132,6 +195,7 @@ public class FacetModule extends SearchComponent {
     fcState.isShard = isShard;
     fcState.facetCommands = jsonFacet;
     fcState.facetRequest = facetRequest;
+    fcState.refinements = refinements;
 
     rb.req.getContext().put(FacetComponentState.class, fcState);
   }
@@ -143,14 +207,87 @@ public class FacetModule extends SearchComponent {
     FacetComponentState facetState = getFacetComponentState(rb);
     if (facetState == null) return ResponseBuilder.STAGE_DONE;
 
+    if (rb.stage == ResponseBuilder.STAGE_GET_FIELDS) {
+      // the top buckets of every shard have been merged, so ask for the counts that are still missing
+      enqueueRefinements(rb, facetState);
+    }
+
     return ResponseBuilder.STAGE_DONE;
   }
 
+  /**
+   * Sends a single request to each shard that has buckets of top-level terms facets to refine, asking
+   * for the buckets of all facets at once.
+   */
+  private void enqueueRefinements(ResponseBuilder rb, FacetComponentState facetState) {
+    // shard -> facet key -> bucket values
+    Map<String,Map<String,List<String>>> shardRefinements = new HashMap<>();
+    for (Map.Entry<String,FacetFieldMerger> entry : getRefiningMergers(facetState).entrySet()) {
+      for (Map.Entry<String,List<FacetBucket>> shardEntry : entry.getValue().getRefinements().entrySet()) {
+        List<String> vals = new ArrayList<>(shardEntry.getValue().size());
+        for (FacetBucket bucket : shardEntry.getValue()) {
+          Object val = bucket.bucketValue;
+          vals.add(val instanceof Date ? TrieDateField.formatExternal((Date) val) : val.toString());
+        }
+        Map<String,List<String>> refinements = shardRefinements.get(shardEntry.getKey());
+        if (refinements == null) {
+          refinements = new LinkedHashMap<>();
+          shardRefinements.put(shardEntry.getKey(), refinements);
+        }
+        refinements.put(entry.getKey(), vals);
+      }
+    }
+
+    for (Map.Entry<String,Map<String,List<String>>> entry : shardRefinements.entrySet()) {
+      Map<String,Object> state = new HashMap<>();
+      state.put(FACET_REFINE, entry.getValue());
+
+      ShardRequest sreq = new ShardRequest();
+      sreq.purpose = PURPOSE_REFINE_JSON_FACETS;
+      sreq.shards = new String[] { entry.getKey() };
+      sreq.params = new ModifiableSolrParams(rb.req.getParams());
+      // don't request any documents
+      sreq.params.remove(CommonParams.START);
+      sreq.params.set(CommonParams.ROWS, "0");
+      // nor anything from the other components
+      if (rb.req.getJSON() != null) {
+        // unless the facets were built from the legacy facet params, see prepare()
+        for (String param : FacetComponent.FACET_TYPE_PARAMS) {
+          sreq.params.remove(param);
+        }
+      }
+      sreq.params.set(StatsParams.STATS, "false");
+      sreq.params.set(HighlightParams.HIGHLIGHT, "false");
+      sreq.params.remove(CommonParams.DEBUG_QUERY);
+      sreq.params.remove(CommonParams.DEBUG);
+      sreq.params.set(FACET_STATE, JSONUtil.toJSON(state, -1));
+      rb.addRequest(this, sreq);
+    }
+  }
+
+  /** Returns the mergers of the top-level terms facets that asked for refinement, by facet key */
+  private Map<String,FacetFieldMerger> getRefiningMergers(FacetComponentState facetState) {
+    Map<String,FacetFieldMerger> mergers = new LinkedHashMap<>();
+    if (!(facetState.merger instanceof FacetQueryMerger)) return mergers;
+    FacetBucket top = ((FacetQueryMerger) facetState.merger).bucket;
+    for (String key : facetState.facetRequest.getSubFacets().keySet()) {
+      FacetMerger merger = top.getExistingMerger(key);
+      if (merger instanceof FacetFieldMerger && ((FacetFieldMerger) merger).canRefine()) {
+        mergers.put(key, (FacetFieldMerger) merger);
+      }
+    }
+    return mergers;
+  }
+
   @Override
   public void modifyRequest(ResponseBuilder rb, SearchComponent who,ShardRequest sreq) {
     FacetComponentState facetState = getFacetComponentState(rb);
     if (facetState == null) return;
 
+    if ((sreq.purpose & PURPOSE_REFINE_JSON_FACETS) != 0) {
+      return;  // our own refinement request
+    }
+
     if ((sreq.purpose & ShardRequest.PURPOSE_GET_TOP_IDS) != 0) {
       sreq.purpose |= FacetModule.PURPOSE_GET_JSON_FACETS;
       sreq.params.set(FACET_STATE, "{}");
@@ -166,6 +303,11 @@ public class FacetModule extends SearchComponent {
     FacetComponentState facetState = getFacetComponentState(rb);
     if (facetState == null) return;
 
+    if ((sreq.purpose & PURPOSE_REFINE_JSON_FACETS) != 0) {
+      handleRefinements(facetState, sreq);
+      return;
+    }
+
     for (ShardResponse shardRsp : sreq.responses) {
       SolrResponse rsp = shardRsp.getSolrResponse();
       NamedList<Object> top = rsp.getResponse();
@@ -175,6 +317,29 @@ public class FacetModule extends SearchComponent {
         facetState.merger = facetState.facetRequest.createFacetMerger(facet);
       }
       facetState.merger.merge(facet);
+
+      // remember which buckets each shard returned, to know what to refine
+      for (Map.Entry<String,FacetFieldMerger> entry : getRefiningMergers(facetState).entrySet()) {
+        Object sub = ((NamedList) facet).get(entry.getKey());
+        if (sub != null) {
+          entry.getValue().addShardBuckets(shardRsp.getShard(), (SimpleOrderedMap) sub);
+        }
+      }
+    }
+  }
+
+  private void handleRefinements(FacetComponentState facetState, ShardRequest sreq) {
+    Map<String,FacetFieldMerger> mergers = getRefiningMergers(facetState);
+    for (ShardResponse shardRsp : sreq.responses) {
+      NamedList<Object> top = shardRsp.getSolrResponse().getResponse();
+      NamedList<Object> facet = (NamedList<Object>) top.get("facets");
+      if (facet == null) continue;
+      for (Map.Entry<String,FacetFieldMerger> entry : mergers.entrySet()) {
+        SimpleOrderedMap sub = (SimpleOrderedMap) facet.get(entry.getKey());
+        if (sub != null) {
+          entry.getValue().mergeRefinement(shardRsp.getShard(), (List<SimpleOrderedMap>) sub.get("buckets"));
+        }
+      }
     }
   }
 
@@ -208,6 +373,7 @@ class FacetComponentState {
   Map<String,Object> facetCommands;
   FacetRequest facetRequest;
   boolean isShard;
+  Map<String,List<String>> refinements;  // on a shard: the values of the buckets to refine, by top-level facet key
 
   //
   // Only used for distributed search
@@ -452,6 +618,17 @@ class FacetFieldMerger extends FacetBucketMerger<FacetField> {
   List<FacetBucket> sortedBuckets;
   int numReturnedBuckets; // the number of buckets in the bucket lists returned from all of the shards
 
+  // Refinement (freq.refine) of a top-level facet.  A shard that had more buckets than it returned may have
+  // counted a bucket it didn't return, but no more than the count of the last bucket it did return.
+  boolean refining;
+  Map<String,TruncatedShard> truncatedShards;
+  Map<String,List<FacetBucket>> refinements;  // buckets each shard was asked to refine, in the order asked
+
+  private static class TruncatedShard {
+    Set<Object> vals = new HashSet<>();  // values of the buckets we have the counts of this shard for
+    long bottomCount;  // the most any other bucket can have on this shard
+  }
+
   private static class SortVal implements Comparable<SortVal> {
     FacetBucket bucket;
     FacetSortableMerger merger;
@@ -522,6 +699,100 @@ class FacetFieldMerger extends FacetBucketMerger<FacetField> {
     }
   }
 
+  /** Refinement can only bound the counts a shard didn't return when the shards return their highest counts. */
+  boolean canRefine() {
+    return freq.refine && "count".equals(freq.sortVariable) && freq.sortDirection == FacetField.SortDirection.desc;
+  }
+
+  /** Records which buckets a shard returned, after they were merged. */
+  void addShardBuckets(String shard, SimpleOrderedMap facetResult) {
+    refining = true;
+
+    List<SimpleOrderedMap> bucketList = (List<SimpleOrderedMap>) facetResult.get("buckets");
+    if (freq.limit < 0 || bucketList.size() < freq.offset + freq.getShardLimit()) {
+      return;  // the shard returned all of its buckets
+    }
+
+    TruncatedShard truncated = new TruncatedShard();
+    for (SimpleOrderedMap bucketRes : bucketList) {
+      truncated.vals.add(bucketRes.get("val"));
+    }
+    truncated.bottomCount = ((Number)bucketList.get(bucketList.size() - 1).get("count")).longValue();
+
+    if (truncatedShards == null) {
+      truncatedShards = new HashMap<>();
+    }
+    truncatedShards.put(shard, truncated);
+  }
+
+  /** Returns the most the merged count of the bucket can be below its real count. */
+  long getMaxMissingCount(FacetBucket bucket) {
+    long maxMissing = 0;
+    if (truncatedShards != null) {
+      for (TruncatedShard truncated : truncatedShards.values()) {
+        if (!truncated.vals.contains(bucket.bucketValue)) {
+          maxMissing += truncated.bottomCount;
+        }
+      }
+    }
+    return maxMissing;
+  }
+
+  /**
+   * Picks the buckets that need refining: those with an uncertain count that could reach the lowest count
+   * of the requested page once refined.  Buckets that can't, and buckets whose count is already exact, are
+   * left alone, so the number of buckets refined adapts to how far apart the shards are.
+   * Returns the buckets to refine by shard.
+   */
+  Map<String,List<FacetBucket>> getRefinements() {
+    refinements = new HashMap<>();
+    if (truncatedShards == null) {
+      return refinements;
+    }
+
+    long threshold = Math.max(1, freq.mincount);
+    long end = freq.limit < 0 ? Long.MAX_VALUE : freq.offset + freq.limit;
+    if (end < buckets.size()) {
+      long[] counts = new long[buckets.size()];
+      int i = 0;
+      for (FacetBucket bucket : buckets.values()) {
+        counts[i++] = bucket.count;
+      }
+      Arrays.sort(counts);
+      threshold = Math.max(threshold, counts[counts.length - (int)end]);
+    }
+
+    for (FacetBucket bucket : buckets.values()) {
+      long maxMissing = getMaxMissingCount(bucket);
+      if (maxMissing == 0 || bucket.count + maxMissing < threshold) {
+        continue;
+      }
+      for (Map.Entry<String,TruncatedShard> entry : truncatedShards.entrySet()) {
+        if (entry.getValue().vals.contains(bucket.bucketValue)) {
+          continue;
+        }
+        List<FacetBucket> shardBuckets = refinements.get(entry.getKey());
+        if (shardBuckets == null) {
+          shardBuckets = new ArrayList<>();
+          refinements.put(entry.getKey(), shardBuckets);
+        }
+        shardBuckets.add(bucket);
+      }
+    }
+    return refinements;
+  }
+
+  /** Merges the buckets a shard refined, in the order they were asked for. */
+  void mergeRefinement(String shard, List<SimpleOrderedMap> bucketList) {
+    List<FacetBucket> refined = refinements.get(shard);
+    TruncatedShard truncated = truncatedShards.get(shard);
+    for (int i = 0; i < bucketList.size(); i++) {
+      FacetBucket bucket = refined.get(i);
+      bucket.mergeBucket(bucketList.get(i));
+      truncated.vals.add(bucket.bucketValue);  // the count from this shard is now known
+    }
+  }
+
   public void sortBuckets() {
     sortedBuckets = new ArrayList<>( buckets.values() );
 
@@ -664,7 +935,11 @@ class FacetFieldMerger extends FacetBucketMerger<FacetField> {
         break;
       }
 
-      resultBuckets.add( bucket.getMergedBucket() );
+      SimpleOrderedMap mergedBucket = bucket.getMergedBucket();
+      if (refining) {
+        mergedBucket.add("err", getMaxMissingCount(bucket));
+      }
+      resultBuckets.add( mergedBucket );
     }
 
 
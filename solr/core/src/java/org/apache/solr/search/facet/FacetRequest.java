@@ -721,6 +721,8 @@ class FacetFieldParser extends FacetParser<FacetField> {
       facet.allBuckets = getBoolean(m, "allBuckets", facet.allBuckets);
       facet.method = FacetField.FacetMethod.fromString(getString(m, "method", null));
       facet.cacheDf = (int)getLong(m, "cacheDf", facet.cacheDf);
+      facet.threads = (int)getLong(m, "threads", facet.threads);
+      facet.refine = getBoolean(m, "refine", facet.refine);
 
       // facet.sort may depend on a facet stat...
       // should we be parsing / validating this here, or in the execution environment?
@@ -0,0 +1,325 @@
+package org.apache.solr.search.facet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import com.google.common.hash.HashFunction;
+import net.agkn.hll.HLL;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.handler.component.StatsField;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.FunctionQParser;
+import org.apache.solr.search.SyntaxError;
+import org.apache.solr.search.ValueSourceParser;
+
+/**
+ * Approximates the number of unique values of a field with a {@link HLL} per slot. Unlike
+ * {@link UniqueAgg}, the memory per slot is bounded regardless of the number of values, and
+ * shards return their HLLs so that they are merged without loss.
+ * <p>
+ * Usage: <code>hll(field)</code> or <code>hll(field,accuracy)</code>, where accuracy is a
+ * number between 0 and 1 that trades memory for accuracy as the <code>cardinality</code>
+ * option of the stats component does.
+ */
+public class HLLAgg extends StrAggValueSource {
+  public static String HLL_NAME = "hll";
+
+  // null for the default accuracy
+  private final String accuracy;
+
+  public HLLAgg(String field, String accuracy) {
+    super(HLL_NAME, field);
+    this.accuracy = accuracy;
+  }
+
+  public static class Parser extends ValueSourceParser {
+    @Override
+    public ValueSource parse(FunctionQParser fp) throws SyntaxError {
+      String field = fp.parseArg();
+      String accuracy = null;
+      if (fp.hasMoreArguments()) {
+        double val = fp.parseDouble();
+        if (val < 0 || val > 1) {
+          throw new SyntaxError("hll accuracy must be between 0 and 1.  got " + val);
+        }
+        accuracy = Double.toString(val);
+      }
+      return new HLLAgg(field, accuracy);
+    }
+  }
+
+  @Override
+  public SlotAcc createSlotAcc(FacetContext fcontext, int numDocs, int numSlots) throws IOException {
+    SchemaField sf = fcontext.qcontext.searcher().getSchema().getField(getArg());
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set(StatsField.Stat.cardinality.name(), accuracy == null ? "true" : accuracy);
+    StatsField.HllOptions hllOptions = StatsField.HllOptions.parseHllOptions(params, sf);
+
+    if (sf.multiValued() || sf.getType().multiValuedFieldCache()) {
+      return new SortedSetAcc(fcontext, sf, hllOptions, numSlots);
+    } else if (sf.getType().getNumericType() != null) {
+      return new NumericAcc(fcontext, sf, hllOptions, numSlots);
+    } else {
+      return new SortedAcc(fcontext, sf, hllOptions, numSlots);
+    }
+  }
+
+  @Override
+  public FacetMerger createFacetMerger(Object prototype) {
+    return new Merger();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!super.equals(o)) return false;
+    String otherAccuracy = ((HLLAgg)o).accuracy;
+    return accuracy == null ? otherAccuracy == null : accuracy.equals(otherAccuracy);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode() * 31 + (accuracy == null ? 0 : accuracy.hashCode());
+  }
+
+  @Override
+  public String description() {
+    return name() + "(" + arg + (accuracy == null ? "" : "," + accuracy) + ")";
+  }
+
+
+  private static class Merger extends FacetSortableMerger {
+    HLL aggregate;
+    long answer = -1;
+
+    @Override
+    public void merge(Object facetResult) {
+      if (facetResult == null) return;  // no values for this bucket on the shard
+      HLL subHLL = HLL.fromBytes((byte[])facetResult);
+      if (aggregate == null) {
+        aggregate = subHLL;
+      } else {
+        aggregate.union(subHLL);
+      }
+    }
+
+    private long getLong() {
+      if (answer < 0) {
+        answer = aggregate == null ? 0 : aggregate.cardinality();
+      }
+      return answer;
+    }
+
+    @Override
+    public Object getMergedResult() {
+      return getLong();
+    }
+
+    @Override
+    public int compareTo(FacetSortableMerger other, FacetField.SortDirection direction) {
+      return Long.compare(getLong(), ((Merger)other).getLong());
+    }
+  }
+
+
+  abstract static class BaseAcc extends SlotAcc {
+    final SchemaField sf;
+    final StatsField.HllOptions hllOptions;
+    final HashFunction hasher;
+    HLL[] hlls;
+    long[] cardinalities;  // only populated when sorting
+
+    BaseAcc(FacetContext fcontext, SchemaField sf, StatsField.HllOptions hllOptions, int numSlots) {
+      super(fcontext);
+      this.sf = sf;
+      this.hllOptions = hllOptions;
+      this.hasher = hllOptions.getHasher();
+      this.hlls = new HLL[numSlots];
+    }
+
+    HLL getHLL(int slot) {
+      HLL hll = hlls[slot];
+      if (hll == null) {
+        hll = hlls[slot] = hllOptions.newHLL();
+      }
+      return hll;
+    }
+
+    private long getCardinality(int slot) {
+      HLL hll = hlls[slot];
+      return hll == null ? 0 : hll.cardinality();
+    }
+
+    @Override
+    public int compare(int slotA, int slotB) {
+      if (cardinalities == null) {
+        // computing the cardinality of a dense HLL scans all of its registers
+        cardinalities = new long[hlls.length];
+        for (int i = 0; i < hlls.length; i++) {
+          cardinalities[i] = getCardinality(i);
+        }
+      }
+      return Long.compare(cardinalities[slotA], cardinalities[slotB]);
+    }
+
+    @Override
+    public Object getValue(int slot) throws IOException {
+      if (fcontext.isShard()) {
+        HLL hll = hlls[slot];
+        return hll == null ? null : hll.toBytes();
+      }
+      return cardinalities != null ? cardinalities[slot] : getCardinality(slot);
+    }
+
+    @Override
+    public void reset() {
+      hlls = new HLL[hlls.length];
+      cardinalities = null;
+    }
+
+    @Override
+    public void resize(Resizer resizer) {
+      hlls = resizer.resize(hlls, null);
+      cardinalities = null;
+    }
+  }
+
+
+  static class NumericAcc extends BaseAcc {
+    NumericDocValues values;
+    Bits exists;
+
+    NumericAcc(FacetContext fcontext, SchemaField sf, StatsField.HllOptions hllOptions, int numSlots) {
+      super(fcontext, sf, hllOptions, numSlots);
+    }
+
+    @Override
+    public void setNextReader(LeafReaderContext readerContext) throws IOException {
+      values = DocValues.getNumeric(readerContext.reader(), sf.getName());
+      exists = DocValues.getDocsWithField(readerContext.reader(), sf.getName());
+    }
+
+    @Override
+    public void collect(int doc, int slot) throws IOException {
+      long val = values.get(doc);
+      if (val == 0 && !exists.get(doc)) {
+        return;
+      }
+      getHLL(slot).addRaw(hasher.hashLong(val).asLong());
+    }
+  }
+
+
+  /** Hashes the terms of a segment by ord, each at most once per segment */
+  abstract static class OrdAcc extends BaseAcc {
+    long[] ordHashes;
+    FixedBitSet hashed;
+
+    OrdAcc(FacetContext fcontext, SchemaField sf, StatsField.HllOptions hllOptions, int numSlots) {
+      super(fcontext, sf, hllOptions, numSlots);
+    }
+
+    void setValueCount(int valueCount) {
+      if (ordHashes == null || ordHashes.length < valueCount) {
+        ordHashes = new long[valueCount];
+        hashed = new FixedBitSet(valueCount);
+      } else {
+        hashed.clear(0, hashed.length());
+      }
+    }
+
+    long hashOrd(int ord) {
+      if (!hashed.get(ord)) {
+        BytesRef term = lookupOrd(ord);
+        ordHashes[ord] = hasher.hashBytes(term.bytes, term.offset, term.length).asLong();
+        hashed.set(ord);
+      }
+      return ordHashes[ord];
+    }
+
+    abstract BytesRef lookupOrd(int ord);
+  }
+
+
+  static class SortedAcc extends OrdAcc {
+    SortedDocValues values;
+
+    SortedAcc(FacetContext fcontext, SchemaField sf, StatsField.HllOptions hllOptions, int numSlots) {
+      super(fcontext, sf, hllOptions, numSlots);
+    }
+
+    @Override
+    public void setNextReader(LeafReaderContext readerContext) throws IOException {
+      values = DocValues.getSorted(readerContext.reader(), sf.getName());
+      setValueCount(values.getValueCount());
+    }
+
+    @Override
+    BytesRef lookupOrd(int ord) {
+      return values.lookupOrd(ord);
+    }
+
+    @Override
+    public void collect(int doc, int slot) throws IOException {
+      int ord = values.getOrd(doc);
+      if (ord < 0) return;  // -1 means missing
+      getHLL(slot).addRaw(hashOrd(ord));
+    }
+  }
+
+
+  static class SortedSetAcc extends OrdAcc {
+    SortedSetDocValues values;
+
+    SortedSetAcc(FacetContext fcontext, SchemaField sf, StatsField.HllOptions hllOptions, int numSlots) {
+      super(fcontext, sf, hllOptions, numSlots);
+    }
+
+    @Override
+    public void setNextReader(LeafReaderContext readerContext) throws IOException {
+      values = DocValues.getSortedSet(readerContext.reader(), sf.getName());
+      setValueCount((int) values.getValueCount());
+    }
+
+    @Override
+    BytesRef lookupOrd(int ord) {
+      return values.lookupOrd(ord);
+    }
+
+    @Override
+    public void collect(int doc, int slot) throws IOException {
+      values.setDocument(doc);
+      long ord = values.nextOrd();
+      if (ord == SortedSetDocValues.NO_MORE_ORDS) return;
+      HLL hll = getHLL(slot);
+      do {
+        hll.addRaw(hashOrd((int) ord));
+        ord = values.nextOrd();
+      } while (ord != SortedSetDocValues.NO_MORE_ORDS);
+    }
+  }
+}
@@ -27,15 +27,22 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.DelegatingAnalyzerWrapper;
 import org.apache.lucene.index.*;
 import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.Version;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.ZkNodeProps;
+import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.MapSerializable;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrConfig;
 import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.LocalSolrQueryRequest;
 import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.QueryParsing;
+import org.apache.solr.search.SortSpec;
 import org.apache.solr.util.SolrPluginUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,6 +75,9 @@ public class SolrIndexConfig implements MapSerializable {
   public final PluginInfo mergeSchedulerInfo;
   
   public final PluginInfo mergedSegmentWarmerInfo;
+
+  /** Sort spec that flushed and merged segments are sorted by, null if segments are not sorted */
+  public final String segmentSort;
   
   public InfoStream infoStream = InfoStream.NO_OUTPUT;
 
@@ -95,6 +105,7 @@ public class SolrIndexConfig implements MapSerializable {
     mergeSchedulerInfo = null;
     defaultMergePolicyClassName = TieredMergePolicy.class.getName();
     mergedSegmentWarmerInfo = null;
+    segmentSort = null;
   }
   
   /**
@@ -162,6 +173,7 @@ public class SolrIndexConfig implements MapSerializable {
       }
     }
     mergedSegmentWarmerInfo = getPluginInfo(prefix + "/mergedSegmentWarmer", solrConfig, def.mergedSegmentWarmerInfo);
+    segmentSort = solrConfig.get(prefix + "/segmentSort", def.segmentSort);
 
     assertWarnOrFail("Begining with Solr 5.0, <checkIntegrityAtMerge> option is no longer supported and should be removed from solrconfig.xml (these integrity checks are now automatic)",
         (null == solrConfig.getNode(prefix + "/checkIntegrityAtMerge", false)),
@@ -178,6 +190,7 @@ public class SolrIndexConfig implements MapSerializable {
         "lockType", lockType);
     if(mergeSchedulerInfo != null) m.put("mergeScheduler",mergeSchedulerInfo.toMap());
     if(mergePolicyInfo != null) m.put("mergeScheduler",mergePolicyInfo.toMap());
+    if(segmentSort != null) m.put("segmentSort", segmentSort);
     return m;
   }
 
@@ -214,6 +227,14 @@ public class SolrIndexConfig implements MapSerializable {
 
     iwc.setSimilarity(schema.getSimilarity());
     iwc.setMergePolicy(buildMergePolicy(schema));
+    Sort sort = getSegmentSort(core);
+    if (sort != null) {
+      try {
+        iwc.setIndexSort(sort);
+      } catch (IllegalArgumentException e) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "segmentSort is not supported as an index sort: " + segmentSort, e);
+      }
+    }
     iwc.setMergeScheduler(buildMergeScheduler(schema));
     iwc.setInfoStream(infoStream);
 
@@ -238,6 +259,31 @@ public class SolrIndexConfig implements MapSerializable {
     return iwc;
   }
 
+  /**
+   * Parses the configured <code>segmentSort</code> against the core's schema.
+   *
+   * @return the Sort that flushed and merged segments are sorted by, or null if segments are not sorted
+   */
+  public Sort getSegmentSort(SolrCore core) {
+    if (segmentSort == null) return null;
+    SortSpec sortSpec;
+    try (LocalSolrQueryRequest req = new LocalSolrQueryRequest(core, new ModifiableSolrParams())) {
+      sortSpec = QueryParsing.parseSortSpec(segmentSort, req);
+    }
+    Sort sort = sortSpec.getSort();
+    if (sort == null) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "segmentSort can not sort by score: " + segmentSort);
+    }
+    // segments are sorted while flushing and merging, which can only read doc values
+    for (SchemaField field : sortSpec.getSchemaFields()) {
+      if (field == null || !field.hasDocValues() || field.multiValued()) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+            "segmentSort can only sort by single valued fields with docValues: " + segmentSort);
+      }
+    }
+    return sort;
+  }
+
   /**
    * Builds a MergePolicy, may also modify the value returned by
    * getUseCompoundFile() for use by the IndexWriterConfig if 
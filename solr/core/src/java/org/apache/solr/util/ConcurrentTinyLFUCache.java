@@ -0,0 +1,483 @@
+package org.apache.solr.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.solr.common.util.Cache;
+
+/**
+ * A size bounded cache based upon ConcurrentHashMap that uses the W-TinyLFU admission and
+ * eviction policy.
+ * <p>
+ * New entries enter a small LRU "window". When the window overflows, its oldest entry competes
+ * with the eviction victim of the main space, and whichever has been requested more often,
+ * according to a count-min sketch of recent key frequencies, is kept. The main space is a
+ * segmented LRU whose protected segment holds entries that were hit again after admission.
+ * A one-off scan can therefore not flush frequently used entries out of the cache.
+ * <p>
+ * Reads never lock: a hit is recorded into a lossy ring buffer, and inserts and removals are
+ * queued. The queued work is applied in batches by whichever thread manages to acquire the
+ * eviction lock with {@link ReentrantLock#tryLock()}; other threads never wait for it. As a
+ * consequence the cache may briefly hold a few more entries than its maximum size under
+ * concurrent inserts.
+ */
+public class ConcurrentTinyLFUCache<K,V> implements Cache<K,V> {
+
+  private static final int READ_BUFFER_SIZE = 128;  // must be a power of two
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  private static final int READ_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 4;
+
+  private static final int UNLINKED = 0, WINDOW = 1, PROBATION = 2, PROTECTED = 3;
+
+  private final ConcurrentHashMap<K, Node<K,V>> map;
+  private final int maxSize, maxWindow, maxProtected;
+  private final FrequencySketch sketch;
+  private volatile boolean islive = true;
+  private final Stats stats = new Stats();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final AtomicReferenceArray<Node<K,V>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+  private final AtomicLong readBufferWriteCount = new AtomicLong();
+  private volatile long readBufferReadCount;  // only written while holding the eviction lock
+  private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+
+  // the following are only accessed while holding the eviction lock
+  private final Node<K,V> window = new Node<>(null, null);
+  private final Node<K,V> probation = new Node<>(null, null);
+  private final Node<K,V> protectedSegment = new Node<>(null, null);
+  private int windowSize, probationSize, protectedSize;
+
+  public ConcurrentTinyLFUCache(int maxSize, int initialSize) {
+    if (maxSize < 1) throw new IllegalArgumentException("maxSize must be at least 1");
+    this.maxSize = maxSize;
+    this.maxWindow = maxSize > 1 ? Math.max(1, maxSize / 100) : 0;
+    this.maxProtected = (int) ((maxSize - maxWindow) * 0.8);
+    this.map = new ConcurrentHashMap<>(Math.min(Math.max(initialSize, 16), maxSize));
+    this.sketch = new FrequencySketch(maxSize);
+  }
+
+  public void setAlive(boolean live) {
+    islive = live;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public V get(K key) {
+    Node<K,V> node = map.get(key);
+    if (islive) stats.accessCounter.increment();
+    if (node == null) {
+      if (islive) stats.missCounter.increment();
+      return null;
+    }
+    afterRead(node);
+    return node.value;
+  }
+
+  @Override
+  public V remove(K key) {
+    final Node<K,V> node = map.remove(key);
+    if (node == null) return null;
+    stats.size.decrementAndGet();
+    afterWrite(() -> onRemove(node));
+    return node.value;
+  }
+
+  @Override
+  public V put(K key, V val) {
+    if (val == null) return null;
+    if (islive) {
+      stats.putCounter.increment();
+    } else {
+      stats.nonLivePutCounter.increment();
+    }
+    final Node<K,V> node = new Node<>(key, val);
+    Node<K,V> prior = map.putIfAbsent(key, node);
+    if (prior == null) {
+      stats.size.incrementAndGet();
+      afterWrite(() -> onAdd(node));
+      return null;
+    }
+    V oldValue = prior.value;
+    prior.value = val;
+    afterRead(prior);
+    return oldValue;
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      maintenance();
+      clearSegment(window);
+      clearSegment(probation);
+      clearSegment(protectedSegment);
+      windowSize = probationSize = protectedSize = 0;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void clearSegment(Node<K,V> head) {
+    while (head.next != head) {
+      Node<K,V> node = head.next;
+      unlink(node);
+      node.removed = true;
+      if (map.remove(node.key, node)) {
+        stats.size.decrementAndGet();
+      }
+    }
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * Returns up to <code>n</code> entries, ordered from the most to the least valuable one
+   * according to the eviction policy: protected entries first, then probationary ones, then
+   * the entries still in the admission window.
+   */
+  public Map<K,V> getHottestItems(int n) {
+    Map<K,V> result = new LinkedHashMap<>();
+    if (n <= 0) return result;
+    evictionLock.lock();
+    try {
+      maintenance();
+      if (collect(protectedSegment, result, n) && collect(probation, result, n)) {
+        collect(window, result, n);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+    return result;
+  }
+
+  /** Adds entries from most to least recently used; returns false once <code>n</code> were collected. */
+  private boolean collect(Node<K,V> head, Map<K,V> result, int n) {
+    for (Node<K,V> node = head.prev; node != head; node = node.prev) {
+      if (result.size() >= n) return false;
+      result.put(node.key, node.value);
+    }
+    return result.size() < n;
+  }
+
+  public Stats getStats() {
+    return stats;
+  }
+
+  private void afterRead(Node<K,V> node) {
+    long writeCount = readBufferWriteCount.get();
+    long pending = writeCount - readBufferReadCount;
+    // the buffer is lossy: when it is full, or another reader won the slot, the access is dropped
+    if (pending < READ_BUFFER_SIZE && readBufferWriteCount.compareAndSet(writeCount, writeCount + 1)) {
+      readBuffer.lazySet((int) (writeCount & READ_BUFFER_MASK), node);
+    }
+    if (pending >= READ_DRAIN_THRESHOLD) {
+      tryToDrain();
+    }
+  }
+
+  private void afterWrite(Runnable task) {
+    writeBuffer.add(task);
+    tryToDrain();
+  }
+
+  private void tryToDrain() {
+    // whoever holds the lock re-checks the write buffer after releasing it, so tasks queued
+    // while we fail to acquire it are never stranded
+    while (evictionLock.tryLock()) {
+      try {
+        maintenance();
+      } finally {
+        evictionLock.unlock();
+      }
+      if (writeBuffer.isEmpty()) return;
+    }
+  }
+
+  private void maintenance() {
+    drainReadBuffer();
+    Runnable task;
+    while ((task = writeBuffer.poll()) != null) {
+      task.run();
+    }
+  }
+
+  private void drainReadBuffer() {
+    long readCount = readBufferReadCount;
+    long writeCount = readBufferWriteCount.get();
+    for (; readCount < writeCount; readCount++) {
+      int index = (int) (readCount & READ_BUFFER_MASK);
+      Node<K,V> node = readBuffer.get(index);
+      if (node == null) break;  // the slot was claimed but not yet published
+      readBuffer.lazySet(index, null);
+      onAccess(node);
+    }
+    readBufferReadCount = readCount;
+  }
+
+  private void onAdd(Node<K,V> node) {
+    sketch.increment(node.key);
+    if (node.removed) return;
+    linkLast(window, node, WINDOW);
+    windowSize++;
+    evict();
+  }
+
+  private void onRemove(Node<K,V> node) {
+    node.removed = true;
+    switch (node.queue) {
+      case WINDOW: windowSize--; break;
+      case PROBATION: probationSize--; break;
+      case PROTECTED: protectedSize--; break;
+      default: return;
+    }
+    unlink(node);
+  }
+
+  private void onAccess(Node<K,V> node) {
+    sketch.increment(node.key);
+    switch (node.queue) {
+      case WINDOW:
+        unlink(node);
+        linkLast(window, node, WINDOW);
+        break;
+      case PROBATION:
+        unlink(node);
+        probationSize--;
+        linkLast(protectedSegment, node, PROTECTED);
+        protectedSize++;
+        while (protectedSize > maxProtected) {
+          Node<K,V> demoted = protectedSegment.next;
+          unlink(demoted);
+          protectedSize--;
+          linkLast(probation, demoted, PROBATION);
+          probationSize++;
+        }
+        break;
+      case PROTECTED:
+        unlink(node);
+        linkLast(protectedSegment, node, PROTECTED);
+        break;
+      default:
+        // removed, or its insertion has not been processed yet
+    }
+  }
+
+  private void evict() {
+    while (windowSize > maxWindow) {
+      Node<K,V> candidate = window.next;
+      unlink(candidate);
+      windowSize--;
+      if (windowSize + probationSize + protectedSize < maxSize) {
+        linkLast(probation, candidate, PROBATION);
+        probationSize++;
+        continue;
+      }
+      Node<K,V> victim = probationSize > 0 ? probation.next : protectedSegment.next;
+      if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+        if (victim.queue == PROBATION) {
+          probationSize--;
+        } else {
+          protectedSize--;
+        }
+        unlink(victim);
+        evictEntry(victim);
+        linkLast(probation, candidate, PROBATION);
+        probationSize++;
+      } else {
+        evictEntry(candidate);
+      }
+    }
+  }
+
+  private void evictEntry(Node<K,V> node) {
+    node.removed = true;
+    if (map.remove(node.key, node)) {
+      stats.size.decrementAndGet();
+      stats.evictionCounter.increment();
+    }
+  }
+
+  private static <K,V> void linkLast(Node<K,V> head, Node<K,V> node, int queue) {
+    Node<K,V> last = head.prev;
+    node.prev = last;
+    node.next = head;
+    last.next = node;
+    head.prev = node;
+    node.queue = queue;
+  }
+
+  private static <K,V> void unlink(Node<K,V> node) {
+    node.prev.next = node.next;
+    node.next.prev = node.prev;
+    node.prev = node.next = null;
+    node.queue = UNLINKED;
+  }
+
+  private static class Node<K,V> {
+    final K key;
+    volatile V value;
+    // the following are only accessed while holding the eviction lock
+    Node<K,V> prev = this, next = this;
+    int queue = UNLINKED;
+    boolean removed;
+
+    Node(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A count-min sketch of 4-bit counters used to estimate how often a key was requested.
+   * All counters are halved periodically so that the estimates favor recent history.
+   * Not thread safe; only used while holding the eviction lock.
+   */
+  static final class FrequencySketch {
+    private static final long[] SEED = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final long[] table;  // 16 counters per long
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int maxSize) {
+      int length = Integer.highestOneBit(Math.max(Math.min(maxSize, 1 << 24) - 1, 1)) << 1;
+      table = new long[length];
+      tableMask = length - 1;
+      sampleSize = (int) Math.min(10L * maxSize, Integer.MAX_VALUE);
+    }
+
+    int frequency(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    void increment(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        added |= incrementAt(indexOf(hash, i), start + i);
+      }
+      if (added && ++size == sampleSize) {
+        reset();
+      }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+      int offset = counter << 2;
+      long mask = 0xfL << offset;
+      if ((table[index] & mask) != mask) {
+        table[index] += 1L << offset;
+        return true;
+      }
+      return false;
+    }
+
+    private void reset() {
+      int odd = 0;
+      for (int i = 0; i < table.length; i++) {
+        odd += Long.bitCount(table[i] & ONE_MASK);
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      size = (size - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEED[i]) * SEED[i];
+      h += h >>> 32;
+      return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+    }
+  }
+
+  public static class Stats {
+    private final LongAdder accessCounter = new LongAdder(),
+            putCounter = new LongAdder(),
+            nonLivePutCounter = new LongAdder(),
+            missCounter = new LongAdder(),
+            evictionCounter = new LongAdder();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public long getCumulativeLookups() {
+      return accessCounter.sum();
+    }
+
+    public long getCumulativeHits() {
+      return accessCounter.sum() - missCounter.sum();
+    }
+
+    public long getCumulativePuts() {
+      return putCounter.sum();
+    }
+
+    public long getCumulativeEvictions() {
+      return evictionCounter.sum();
+    }
+
+    public int getCurrentSize() {
+      return size.get();
+    }
+
+    public long getCumulativeNonLivePuts() {
+      return nonLivePutCounter.sum();
+    }
+
+    public long getCumulativeMisses() {
+      return missCounter.sum();
+    }
+
+    public void add(Stats other) {
+      accessCounter.add(other.accessCounter.sum());
+      putCounter.add(other.putCounter.sum());
+      nonLivePutCounter.add(other.nonLivePutCounter.sum());
+      missCounter.add(other.missCounter.sum());
+      evictionCounter.add(other.evictionCounter.sum());
+      size.set(Math.max(size.get(), other.size.get()));
+    }
+  }
+}
@@ -168,6 +168,8 @@ public class TestDistributedSearch extends BaseDistributedSearchTestCase {
     query("q","*:*", "sort",i1+" desc", "fl","*,score");
     query("q","*:*", "sort","n_tl1 asc", "fl","*,score"); 
     query("q","*:*", "sort","n_tl1 desc");
+    query("q","*:*", "sort",i1+" desc", ShardParams.SHARDS_INCREMENTAL_MERGE, "true");
+    query("q","*:*", "sort","n_tl1 asc", "fl","*,score", "start","3", "rows","5", ShardParams.SHARDS_INCREMENTAL_MERGE, "true");
     handle.put("maxScore", SKIPVAL);
     query("q","{!func}"+i1);// does not expect maxScore. So if it comes ,ignore it. JavaBinCodec.writeSolrDocumentList()
     //is agnostic of request params.
@@ -19,7 +19,12 @@ package org.apache.solr;
 
 import org.noggit.JSONUtil;
 import org.noggit.ObjectBuilder;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.RoaringDocSet;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -134,6 +139,32 @@ public class TestJoin extends SolrTestCaseJ4 {
   }
 
 
+  @Test
+  public void testJoinOverCachedRoaringSets() throws Exception {
+    clearIndex();
+    // 320 docs: sets of 6 to 10 docs are RoaringDocSets, and sets of up to 10 docs in total
+    // are merged without a bit set
+    for (int i = 0; i < 319; i++) {
+      assertU(adoc("id", Integer.toString(i), "grp_s", i < 6 ? "a" : i < 9 ? "b" : "z"));
+    }
+    assertU(adoc("id", "319", "grp_s", "z", "from_s", "a", "from_s", "b"));
+    assertU(optimize());
+
+    RefCounted<SolrIndexSearcher> holder = h.getCore().getSearcher();
+    try {
+      SolrIndexSearcher searcher = holder.get();
+      assertEquals(320, searcher.maxDoc());
+      // puts the set of the first to term in the filterCache
+      assertTrue(searcher.getDocSet(new TermQuery(new Term("grp_s", "a"))) instanceof RoaringDocSet);
+    } finally {
+      holder.decref();
+    }
+
+    assertJQ(req("q","{!join from=from_s to=grp_s}id:319", "fl","id", "sort","id asc")
+        ,"/response=={'numFound':9,'start':0,'docs':[{'id':'0'},{'id':'1'},{'id':'2'},{'id':'3'},{'id':'4'},{'id':'5'},{'id':'6'},{'id':'7'},{'id':'8'}]}"
+    );
+  }
+
   @Test
   public void testRandomJoin() throws Exception {
     int indexIter=50 * RANDOM_MULTIPLIER;
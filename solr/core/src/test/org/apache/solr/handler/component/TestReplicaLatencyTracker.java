@@ -0,0 +1,164 @@
+package org.apache.solr.handler.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.NamedList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A light weight test of the replica ordering used by adaptive replica selection
+ *
+ * @see ReplicaLatencyTracker
+ */
+public class TestReplicaLatencyTracker extends SolrTestCaseJ4 {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  public void testPrefersFasterReplica() {
+    ReplicaLatencyTracker tracker = new ReplicaLatencyTracker();
+    for (int i = 0; i < 10; i++) {
+      record(tracker, "slow", 500 * MS);
+      record(tracker, "fast", 5 * MS);
+    }
+    assertEquals("fast", order(tracker, "slow", "fast").get(0));
+    assertEquals("fast", order(tracker, "fast", "slow").get(0));
+  }
+
+  public void testUnknownReplicaIsTried() {
+    ReplicaLatencyTracker tracker = new ReplicaLatencyTracker();
+    record(tracker, "known", 5 * MS);
+    assertEquals("unknown", order(tracker, "known", "unknown").get(0));
+  }
+
+  public void testOutstandingRequestsCount() {
+    ReplicaLatencyTracker tracker = new ReplicaLatencyTracker();
+    record(tracker, "a", 10 * MS);
+    record(tracker, "b", 12 * MS);
+    assertEquals("a", order(tracker, "b", "a").get(0));
+    // "a" is slightly faster, but busy
+    tracker.requestStarted("a");
+    tracker.requestStarted("a");
+    assertEquals("b", order(tracker, "a", "b").get(0));
+    tracker.requestFinished("a", 10 * MS);
+    tracker.requestFinished("a", 10 * MS);
+    assertEquals("a", order(tracker, "b", "a").get(0));
+  }
+
+  public void testOnlyFirstTwoAreCompared() {
+    ReplicaLatencyTracker tracker = new ReplicaLatencyTracker();
+    record(tracker, "a", 50 * MS);
+    record(tracker, "b", 40 * MS);
+    record(tracker, "c", 1 * MS);
+    assertEquals(Arrays.asList("b", "a", "c"), order(tracker, "a", "b", "c"));
+    assertEquals(Arrays.asList("a"), order(tracker, "a"));
+  }
+
+  public void testFailureIsPenalized() {
+    ReplicaLatencyTracker tracker = new ReplicaLatencyTracker();
+    record(tracker, "a", 5 * MS);
+    record(tracker, "b", 50 * MS);
+    assertEquals("a", order(tracker, "b", "a").get(0));
+    // a quick failure must not make "a" look fast
+    tracker.requestStarted("a");
+    tracker.requestFinished("a", null, 1 * MS);
+    assertEquals("b", order(tracker, "a", "b").get(0));
+    assertEquals(2L, replicaStats(tracker, "a").get("requests"));
+  }
+
+  public void testLatencyGoesToRespondingReplica() {
+    ReplicaLatencyTracker tracker = new ReplicaLatencyTracker();
+    record(tracker, "a", 5 * MS);
+    record(tracker, "b", 20 * MS);
+    // sent to "a" first, but answered by "b"
+    tracker.requestStarted("a");
+    tracker.requestFinished("a", "b", 20 * MS);
+    assertEquals(2L, replicaStats(tracker, "b").get("requests"));
+    assertEquals(0, replicaStats(tracker, "a").get("outstanding"));
+    assertEquals("b", order(tracker, "a", "b").get(0));
+  }
+
+  public void testTrailingSlashIsIgnored() {
+    ReplicaLatencyTracker tracker = new ReplicaLatencyTracker();
+    record(tracker, "http://b/solr/c1/", 20 * MS);
+    // the shard urls end with a slash, the server reported in the response does not
+    for (int i = 0; i < 3; i++) {
+      tracker.requestStarted("http://a/solr/c1/");
+      tracker.requestFinished("http://a/solr/c1/", "http://a/solr/c1", 5 * MS);
+    }
+    NamedList<Object> replicas = (NamedList<Object>) tracker.getStatistics().get("replicas");
+    assertEquals(2, replicas.size());
+    NamedList<Object> a = replicaStats(tracker, "http://a/solr/c1");
+    assertEquals(3L, a.get("requests"));
+    assertEquals(0, a.get("outstanding"));
+    assertEquals(5.0, (Double) a.get("avgTimeMs"), 0.5);
+    assertEquals("http://a/solr/c1/", order(tracker, "http://b/solr/c1/", "http://a/solr/c1/").get(0));
+  }
+
+  public void testIdleReplicasArePruned() {
+    ReplicaLatencyTracker tracker = new ReplicaLatencyTracker();
+    record(tracker, "idle", 5 * MS);
+    tracker.requestStarted("busy");
+    long later = System.nanoTime() + 2 * ReplicaLatencyTracker.PRUNE_AFTER_NANOS;
+    tracker.prune(later);
+    NamedList<Object> replicas = (NamedList<Object>) tracker.getStatistics().get("replicas");
+    assertEquals(1, replicas.size());
+    assertNotNull(replicas.get("busy"));
+    tracker.requestFinished("busy", 5 * MS);
+    assertEquals(1L, replicaStats(tracker, "busy").get("requests"));
+    assertEquals(0, replicaStats(tracker, "busy").get("outstanding"));
+  }
+
+  public void testStatistics() {
+    ReplicaLatencyTracker tracker = new ReplicaLatencyTracker();
+    for (int i = 0; i < 5; i++) {
+      record(tracker, "a", 10 * MS);
+      record(tracker, "b", 11 * MS);
+      record(tracker, "c", 500 * MS);
+    }
+    NamedList<Object> stats = tracker.getStatistics();
+    assertEquals(1, stats.get("outliers"));
+    NamedList<Object> replicas = (NamedList<Object>) stats.get("replicas");
+    assertEquals(3, replicas.size());
+    NamedList<Object> c = (NamedList<Object>) replicas.get("c");
+    assertEquals(Boolean.TRUE, c.get("outlier"));
+    assertEquals(5L, c.get("requests"));
+    assertEquals(0, c.get("outstanding"));
+    assertEquals(Boolean.FALSE, ((NamedList<Object>) replicas.get("a")).get("outlier"));
+  }
+
+  private static NamedList<Object> replicaStats(ReplicaLatencyTracker tracker, String url) {
+    NamedList<Object> replicas = (NamedList<Object>) tracker.getStatistics().get("replicas");
+    return (NamedList<Object>) replicas.get(url);
+  }
+
+  private static void record(ReplicaLatencyTracker tracker, String url, long nanos) {
+    tracker.requestStarted(url);
+    tracker.requestFinished(url, nanos);
+  }
+
+  private static List<String> order(ReplicaLatencyTracker tracker, String... urls) {
+    List<String> list = new ArrayList<>(Arrays.asList(urls));
+    tracker.order(list);
+    return list;
+  }
+}
@@ -0,0 +1,72 @@
+package org.apache.solr.handler.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.NamedList;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A light weight test of the hedging delay and counters
+ *
+ * @see ShardRequestHedger
+ */
+public class TestShardRequestHedger extends SolrTestCaseJ4 {
+
+  public void testNoHedgingWithoutEnoughSamples() {
+    ShardRequestHedger hedger = new ShardRequestHedger(95);
+    for (int i = 0; i < ShardRequestHedger.MIN_SAMPLES - 1; i++) {
+      hedger.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    assertEquals(-1, hedger.getDelayNanos());
+  }
+
+  public void testDelayFollowsPercentile() {
+    ShardRequestHedger hedger = new ShardRequestHedger(90);
+    for (int i = 1; i <= 1000; i++) {
+      hedger.recordLatency(TimeUnit.MILLISECONDS.toNanos(i % 100 + 1));
+    }
+    long delayMs = TimeUnit.NANOSECONDS.toMillis(hedger.getDelayNanos());
+    assertTrue("delay=" + delayMs, delayMs >= 80 && delayMs <= 100);
+  }
+
+  public void testStatistics() {
+    ShardRequestHedger hedger = new ShardRequestHedger(99);
+    hedger.recordLatency(1000);
+    hedger.recordLatency(2000);
+    hedger.hedgeSent();
+    hedger.hedgeSent();
+    hedger.hedgeWon();
+    NamedList<Object> stats = hedger.getStatistics();
+    assertEquals(2L, stats.get("requests"));
+    assertEquals(2L, stats.get("hedgesSent"));
+    assertEquals(1L, stats.get("hedgesWon"));
+  }
+
+  public void testInvalidPercentile() {
+    for (float percentile : new float[] {0, 100}) {
+      try {
+        new ShardRequestHedger(percentile);
+        fail("percentile " + percentile + " should have been rejected");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+}
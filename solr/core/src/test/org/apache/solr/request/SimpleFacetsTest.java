@@ -1998,6 +1998,7 @@ public class SimpleFacetsTest extends SolrTestCaseJ4 {
     doFacetPrefix("t_s", null, "", "facet.method", "enum", "facet.enum.cache.minDf", "3");
     doFacetPrefix("t_s", null, "", "facet.method", "enum", "facet.enum.cache.minDf", "100");
     doFacetPrefix("t_s", null, "", "facet.method", "fc");
+    doFacetPrefix("t_s", "{!threads=2}", "", "facet.method", "fc");
   }
 
   static void indexFacetPrefixSingleValued() {
@@ -2007,6 +2008,7 @@ public class SimpleFacetsTest extends SolrTestCaseJ4 {
   @Test
   public void testFacetPrefixSingleValued() {
     doFacetPrefix("tt_s1", null, "");
+    doFacetPrefix("tt_s1", "{!threads=2}", "", "facet.method", "fc");  // segments counted in parallel
   }
   
   @Test
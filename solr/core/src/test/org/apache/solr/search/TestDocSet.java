@@ -88,6 +88,10 @@ public class TestDocSet extends LuceneTestCase {
     return new BitDocSet(bs);
   }
 
+  public DocSet getRoaringDocSet(FixedBitSet bs) {
+    return RoaringDocSet.copyOf(bs);
+  }
+
   public DocSet getDocSlice(FixedBitSet bs) {
     int len = bs.cardinality();
     int[] arr = new int[len+5];
@@ -106,7 +110,7 @@ public class TestDocSet extends LuceneTestCase {
 
 
   public DocSet getDocSet(FixedBitSet bs) {
-    switch(rand.nextInt(10)) {
+    switch(rand.nextInt(12)) {
       case 0: return getHashDocSet(bs);
 
       case 1: return getBitDocSet(bs);
@@ -120,6 +124,9 @@ public class TestDocSet extends LuceneTestCase {
       case 8: return getIntDocSet(bs);
 
       case 9: return getDocSlice(bs);
+
+      case 10: return getRoaringDocSet(bs);
+      case 11: return getRoaringDocSet(bs);
     }
     return null;
   }
@@ -195,6 +202,47 @@ public class TestDocSet extends LuceneTestCase {
     // doMany(130, 1000000);
   }
 
+  public void testRoaringDocSets() {
+    // large enough to span several blocks of 2^16 docs, with blocks stored both as arrays and as bit sets
+    for (int i=0; i<20; i++) {
+      int maxDoc = rand.nextInt(200000) + 1;
+      FixedBitSet bs1 = new FixedBitSet(maxDoc);
+      FixedBitSet bs2 = new FixedBitSet(maxDoc);
+      for (int start=0; start<maxDoc; start+=1<<16) {
+        int end = Math.min(maxDoc, start + (1<<16));
+        for (FixedBitSet bs : new FixedBitSet[] {bs1, bs2}) {
+          int bitsToSet = rand.nextBoolean() ? rand.nextInt(8000) : rand.nextInt(end-start+1);
+          for (int j=0; j<bitsToSet; j++) {
+            bs.set(start + rand.nextInt(end-start));
+          }
+        }
+      }
+
+      DocSet a1 = new BitDocSet(bs1);
+      DocSet b1 = getRoaringDocSet(bs1);
+      checkEqual(bs1, b1);
+      iter(a1, b1);
+
+      FixedBitSet a_and = bs1.clone(); a_and.and(bs2);
+      FixedBitSet a_or = bs1.clone(); a_or.or(bs2);
+      FixedBitSet a_andn = bs1.clone(); a_andn.andNot(bs2);
+
+      DocSet[] others = new DocSet[] {getBitDocSet(bs2), getRoaringDocSet(bs2), getIntDocSet(bs2), getHashDocSet(bs2)};
+      for (DocSet b2 : others) {
+        checkEqual(a_and, b1.intersection(b2));
+        checkEqual(a_and, b2.intersection(b1));
+        checkEqual(a_or, b1.union(b2));
+        checkEqual(a_andn, b1.andNot(b2));
+
+        assertEquals(a_and.cardinality(), b1.intersectionSize(b2));
+        assertEquals(a_and.cardinality(), b2.intersectionSize(b1));
+        assertEquals(a_and.cardinality() > 0, b1.intersects(b2));
+        assertEquals(a_or.cardinality(), b1.unionSize(b2));
+        assertEquals(a_andn.cardinality(), b1.andNotSize(b2));
+      }
+    }
+  }
+
   public DocSet getRandomDocSet(int n, int maxDoc) {
     FixedBitSet obs = new FixedBitSet(maxDoc);
     int[] a = new int[n];
@@ -494,7 +542,7 @@ public class TestDocSet extends LuceneTestCase {
     IndexReaderContext topLevelContext = reader.getContext();
     FixedBitSet bs = getRandomSet(reader.maxDoc(), rand.nextInt(reader.maxDoc()+1));
     DocSet a = new BitDocSet(bs);
-    DocSet b = getIntDocSet(bs);
+    DocSet b = rand.nextBoolean() ? getIntDocSet(bs) : getRoaringDocSet(bs);
 
     Filter fa = a.getTopFilter();
     Filter fb = b.getTopFilter();
@@ -0,0 +1,54 @@
+package org.apache.solr.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests searches with an {@link OffHeapLRUCache} as the filterCache, which hands
+ * out its bit sets as {@link OffHeapDocSet}s.
+ */
+public class TestOffHeapFilterCache extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-offheapfiltercache.xml", "schema12.xml");
+  }
+
+  @Test
+  public void testJoin() throws Exception {
+    // 320 docs: the set of "a" is a bit set, and together with "b" it is small
+    // enough to be merged without one
+    for (int i = 0; i < 319; i++) {
+      assertU(adoc("id", Integer.toString(i), "grp_s", i < 6 ? "a" : i < 9 ? "b" : "z"));
+    }
+    assertU(adoc("id", "319", "grp_s", "z", "from_s", "a", "from_s", "b"));
+    assertU(commit());
+
+    // the first join puts the set of "a" in the filterCache, the second one gets it off-heap
+    for (int i = 0; i < 2; i++) {
+      assertJQ(req("q","{!join from=from_s to=grp_s}id:319", "fl","id", "sort","id asc")
+          ,"/response=={'numFound':9,'start':0,'docs':[{'id':'0'},{'id':'1'},{'id':'2'},{'id':'3'},{'id':'4'},{'id':'5'},{'id':'6'},{'id':'7'},{'id':'8'}]}"
+      );
+    }
+    // the from query and the set of "a"
+    assertEquals(2L, h.getCore().getInfoRegistry().get("filterCache").getStatistics().get("hits"));
+  }
+}
@@ -0,0 +1,191 @@
+package org.apache.solr.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrRequestInfo;
+
+/**
+ * Test for OffHeapLRUCache and OffHeapDocSet
+ *
+ * @see org.apache.solr.search.OffHeapLRUCache
+ */
+public class TestOffHeapLRUCache extends LuceneTestCase {
+
+  private static BitDocSet randomBitDocSet(Random random, int maxDoc) {
+    FixedBitSet bits = new FixedBitSet(maxDoc);
+    float density = random.nextFloat();
+    for (int i = 0; i < maxDoc; i++) {
+      if (random.nextFloat() < density) {
+        bits.set(i);
+      }
+    }
+    return new BitDocSet(bits);
+  }
+
+  private static int[] toArray(DocSet set) {
+    int[] docs = new int[set.size()];
+    int i = 0;
+    for (DocIterator iter = set.iterator(); iter.hasNext(); ) {
+      docs[i++] = iter.nextDoc();
+    }
+    return docs;
+  }
+
+  public void testDocSetOperations() {
+    Random random = random();
+    for (int iter = 0; iter < 50; iter++) {
+      BitDocSet a = randomBitDocSet(random, 1 + random.nextInt(2000));
+      BitDocSet b = randomBitDocSet(random, 1 + random.nextInt(2000));
+      OffHeapDocSet offHeap = OffHeapDocSet.copyOf(a);
+      assertEquals(a.size(), offHeap.size());
+      assertArrayEquals(toArray(a), toArray(offHeap));
+      OffHeapDocSet copy = OffHeapDocSet.copyOf(offHeap);
+      assertNotSame(offHeap, copy);
+      assertArrayEquals(toArray(a), toArray(copy));
+      for (int doc = 0; doc < a.getBits().length() + 64; doc++) {
+        assertEquals(doc < a.getBits().length() && a.exists(doc), offHeap.exists(doc));
+      }
+
+      DocSet[] others = new DocSet[] {b, OffHeapDocSet.copyOf(b), new SortedIntDocSet(toArray(b))};
+      for (DocSet other : others) {
+        assertEquals(a.intersectionSize(b), offHeap.intersectionSize(other));
+        assertEquals(a.intersectionSize(b), other.intersectionSize(offHeap));
+        assertEquals(a.intersects(b), offHeap.intersects(other));
+        assertArrayEquals(toArray(a.intersection(b)), toArray(offHeap.intersection(other)));
+        assertEquals(a.andNotSize(b), offHeap.andNotSize(other));
+        assertArrayEquals(toArray(a.andNot(b)), toArray(offHeap.andNot(other)));
+        assertEquals(a.unionSize(b), offHeap.unionSize(other));
+        assertArrayEquals(toArray(a.union(b)), toArray(offHeap.union(other)));
+      }
+    }
+  }
+
+  public void testEvictionByBytes() {
+    OffHeapLRUCache<Integer> cache = new OffHeapLRUCache<>();
+    Map<String, String> params = new HashMap<>();
+    params.put("maxRamMB", "1");
+    cache.init(params, null, new NoOpRegenerator());
+    cache.setState(SolrCache.State.LIVE);
+
+    // each set uses 256KB off-heap, so only 3 of them fit in 1MB with the overhead
+    final int maxDoc = 256 * 1024 * 8;
+    for (int i = 0; i < 5; i++) {
+      FixedBitSet bits = new FixedBitSet(maxDoc);
+      bits.set(i);
+      cache.put(i, new BitDocSet(bits, 1));
+    }
+    assertEquals(3, cache.size());
+    assertNull(cache.get(0));
+    assertNull(cache.get(1));
+    // outside of a request, nothing would release an off-heap set
+    DocSet cached = cache.get(4);
+    assertTrue(cached instanceof BitDocSet);
+    assertTrue(cached.exists(4));
+    assertEquals(1, cached.size());
+
+    // small sets stay on the heap
+    cache.put(5, new SortedIntDocSet(new int[] {5}));
+    assertTrue(cache.get(5) instanceof SortedIntDocSet);
+
+    NamedList stats = cache.getStatistics();
+    assertEquals(2L, stats.get("evictions"));
+    assertEquals(3L * 256 * 1024, stats.get("offHeapBytesUsed"));
+    // evicted sets that are not in use are freed right away
+    assertEquals(0L, stats.get("retiredOffHeapBytes"));
+    assertTrue((Long) stats.get("bytesUsed") <= 1024 * 1024);
+    assertTrue(cache.ramBytesUsed() < (Long) stats.get("bytesUsed"));
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0L, cache.getStatistics().get("offHeapBytesUsed"));
+    assertEquals(0L, cache.getStatistics().get("retiredOffHeapBytes"));
+    cache.close();
+  }
+
+  private static BitDocSet singleDoc(int maxDoc, int doc) {
+    FixedBitSet bits = new FixedBitSet(maxDoc);
+    bits.set(doc);
+    return new BitDocSet(bits, 1);
+  }
+
+  public void testEvictedSetInUse() {
+    OffHeapLRUCache<Integer> cache = new OffHeapLRUCache<>();
+    Map<String, String> params = new HashMap<>();
+    params.put("maxRamMB", "1");
+    cache.init(params, null, new NoOpRegenerator());
+    cache.setState(SolrCache.State.LIVE);
+
+    final int maxDoc = 256 * 1024 * 8;
+    cache.put(0, singleDoc(maxDoc, 0));
+    SolrRequestInfo.setRequestInfo(new SolrRequestInfo(null, null));
+    try {
+      DocSet inUse = cache.get(0);
+      assertTrue(inUse instanceof OffHeapDocSet);
+      for (int i = 1; i < 5; i++) {
+        cache.put(i, singleDoc(maxDoc, i));
+      }
+      assertNull(cache.get(0));
+      // the evicted set is still usable, and counts against the budget
+      assertTrue(inUse.exists(0));
+      assertEquals(256L * 1024, cache.getStatistics().get("retiredOffHeapBytes"));
+      assertEquals(2, cache.size());
+    } finally {
+      // releases the sets this request got
+      SolrRequestInfo.clearRequestInfo();
+    }
+    assertEquals(0L, cache.getStatistics().get("retiredOffHeapBytes"));
+    cache.close();
+  }
+
+  public void testAutowarm() throws Exception {
+    OffHeapLRUCache<Integer> cache = new OffHeapLRUCache<>();
+    Map<String, String> params = new HashMap<>();
+    params.put("maxRamMB", "16");
+    params.put("autowarmCount", "100%");
+    CacheRegenerator cr = new NoOpRegenerator();
+    Object o = cache.init(params, null, cr);
+    cache.setState(SolrCache.State.LIVE);
+    for (int i = 0; i < 10; i++) {
+      FixedBitSet bits = new FixedBitSet(1024);
+      bits.set(i);
+      cache.put(i, new BitDocSet(bits, 1));
+    }
+
+    OffHeapLRUCache<Integer> newCache = new OffHeapLRUCache<>();
+    newCache.init(params, o, cr);
+    newCache.warm(null, cache);
+    newCache.setState(SolrCache.State.LIVE);
+    cache.close();
+    assertEquals(10, newCache.size());
+    // the new cache copied the sets of the old one, which freed them on close
+    assertTrue(newCache.get(7).exists(7));
+    NamedList stats = newCache.getStatistics();
+    assertEquals(1L, stats.get("lookups"));
+    assertEquals(1L, stats.get("hits"));
+    assertEquals(10L, stats.get("cumulative_inserts"));
+    newCache.close();
+  }
+}
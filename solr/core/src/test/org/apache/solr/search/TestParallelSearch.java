@@ -0,0 +1,92 @@
+package org.apache.solr.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that searches collected in parallel by slice return the same results
+ * as sequential searches.
+ */
+public class TestParallelSearch extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-parallelsearch.xml", "schema.xml");
+  }
+
+  @Test
+  public void testParallelCollection() throws Exception {
+    assertNotNull(h.getCore().getSearchExecutor());
+
+    // ids and values in opposite order, over several segments
+    for (int i = 0; i < 200; i++) {
+      assertU(adoc("id", Integer.toString(i), "n_l_dv", Integer.toString(1000 - i), "grp_s", Integer.toString(i % 10)));
+      if (i % 37 == 36) assertU(commit());
+    }
+    assertU(commit());
+
+    assertQ(req("q", "*:*", "sort", "n_l_dv desc", "rows", "3"),
+        "//*[@numFound='200']",
+        "//result/doc[1]/int[@name='id'][.='0']",
+        "//result/doc[2]/int[@name='id'][.='1']",
+        "//result/doc[3]/int[@name='id'][.='2']");
+    assertQ(req("q", "id:[10 TO 59]", "sort", "n_l_dv asc", "start", "3", "rows", "2"),
+        "//*[@numFound='50']",
+        "//result/doc[1]/int[@name='id'][.='56']",
+        "//result/doc[2]/int[@name='id'][.='55']");
+
+    // score order, ties broken by index order
+    assertQ(req("q", "id:5 OR id:150 OR id:77", "fl", "id,score", "rows", "2"),
+        "//*[@numFound='3']",
+        "//result/doc[1]/int[@name='id'][.='5']",
+        "//result/doc[2]/int[@name='id'][.='77']");
+
+    // hit counts only
+    assertQ(req("q", "id:[0 TO 99]", "rows", "0"),
+        "//*[@numFound='100']");
+    assertQ(req("q", "id:[0 TO 99]", "rows", "0", "facet", "true", "facet.query", "id:[90 TO *]"),
+        "//*[@numFound='100']",
+        "//lst[@name='facet_queries']/int[.='10']");
+
+    // doc list and set, with a filter collected in parallel too
+    assertQ(req("q", "*:*", "fq", "id:[0 TO 149]", "sort", "id desc", "rows", "1",
+        "facet", "true", "facet.query", "id:[100 TO *]"),
+        "//*[@numFound='150']",
+        "//lst[@name='facet_queries']/int[.='50']",
+        "//result/doc[1]/int[@name='id'][.='149']");
+
+    // cursors need the sort values of the merged top docs
+    assertQ(req("q", "*:*", "sort", "id asc", "rows", "3", "cursorMark", "*"),
+        "//result/doc[3]/int[@name='id'][.='2']",
+        "//str[@name='nextCursorMark']");
+
+    // joins and function queries keep state in their weights, and timeAllowed isn't
+    // tracked on the threads of the executor, so these are collected sequentially
+    assertQ(req("q", "{!join from=grp_s to=grp_s}id:3", "rows", "0"),
+        "//*[@numFound='20']");
+    assertQ(req("q", "*:*", "fq", "{!frange l=990 u=1000}n_l_dv", "rows", "0"),
+        "//*[@numFound='11']");
+    assertQ(req("q", "id:[0 TO 99]", "timeAllowed", "100000", "rows", "0", "facet", "true",
+        "facet.query", "{!join from=grp_s to=grp_s}id:3"),
+        "//*[@numFound='100']",
+        "//lst[@name='facet_queries']/int[.='10']");
+  }
+}
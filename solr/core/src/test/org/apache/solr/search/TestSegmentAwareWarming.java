@@ -0,0 +1,79 @@
+package org.apache.solr.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.core.SolrInfoMBean;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that the filterCache is autowarmed from the segments that the old and the new
+ * searcher share.
+ */
+public class TestSegmentAwareWarming extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-segmentwarming.xml", "schema.xml");
+  }
+
+  @Test
+  public void testIsSegmentLocal() {
+    assertTrue(SolrIndexSearcher.isSegmentLocal(new TermQuery(new Term("f", "a"))));
+    assertTrue(SolrIndexSearcher.isSegmentLocal(new PrefixQuery(new Term("f", "a"))));
+    BooleanQuery bq = new BooleanQuery();
+    bq.add(new TermQuery(new Term("f", "a")), BooleanClause.Occur.MUST);
+    bq.add(new PrefixQuery(new Term("f", "b")), BooleanClause.Occur.MUST_NOT);
+    assertTrue(SolrIndexSearcher.isSegmentLocal(bq));
+
+    // rewrites to the most similar terms of the whole index
+    assertFalse(SolrIndexSearcher.isSegmentLocal(new FuzzyQuery(new Term("f", "a"))));
+    bq.add(new FuzzyQuery(new Term("f", "c")), BooleanClause.Occur.SHOULD);
+    assertFalse(SolrIndexSearcher.isSegmentLocal(bq));
+  }
+
+  @Test
+  public void testWarmFromSharedSegments() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      assertU(adoc("id", Integer.toString(i)));
+    }
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "id:[0 TO 19]"), "//*[@numFound='10']");
+
+    // a new segment, and a delete in the old one
+    for (int i = 10; i < 15; i++) {
+      assertU(adoc("id", Integer.toString(i)));
+    }
+    assertU(delI("3"));
+    assertU(commit());
+
+    SolrInfoMBean filterCacheStats = h.getCore().getInfoRegistry().get("filterCache");
+    assertEquals(1, ((Number) filterCacheStats.getStatistics().get("size")).intValue());
+    assertQ(req("q", "*:*", "fq", "id:[0 TO 19]", "rows", "0"), "//*[@numFound='14']");
+    assertEquals(1L, filterCacheStats.getStatistics().get("hits"));
+    assertQ(req("q", "id:3", "fq", "id:[0 TO 19]"), "//*[@numFound='0']");
+    assertQ(req("q", "id:12", "fq", "id:[0 TO 19]"), "//*[@numFound='1']");
+  }
+}
@@ -0,0 +1,113 @@
+package org.apache.solr.search;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.NamedList;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link SegmentFilterCache} reuses the sets of unchanged
+ * segments across searchers.
+ */
+public class TestSegmentFilterCache extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-segmentfiltercache.xml", "schema.xml");
+  }
+
+  private static NamedList stats() {
+    SegmentFilterCache cache = h.getCore().getSegmentFilterCache();
+    assertNotNull(cache);
+    assertSame(cache, h.getCore().getInfoRegistry().get("segmentFilterCache"));
+    return cache.getStatistics();
+  }
+
+  private static long stat(String name) {
+    return ((Number) stats().get(name)).longValue();
+  }
+
+  @Test
+  public void testReuseAcrossCommits() throws Exception {
+    assertU(adoc("id", "1", "foo_s", "a"));
+    assertU(adoc("id", "2", "foo_s", "b"));
+    assertU(commit());
+
+    long inserts = stat("inserts");
+    long hits = stat("hits");
+    assertQ(req("q", "*:*", "fq", "foo_s:a"), "//*[@numFound='1']");
+    // the only segment has been computed and cached
+    assertEquals(inserts + 1, stat("inserts"));
+    assertEquals(hits, stat("hits"));
+
+    assertU(adoc("id", "3", "foo_s", "a"));
+    assertU(commit());
+
+    inserts = stat("inserts");
+    hits = stat("hits");
+    // the filterCache is new, but the first segment did not change
+    assertQ(req("q", "*:*", "fq", "foo_s:a"), "//*[@numFound='2']");
+    assertEquals(hits + 1, stat("hits"));
+    assertEquals(inserts + 1, stat("inserts"));
+
+    NamedList stats = stats();
+    assertEquals(2L, ((Number) stats.get("segments")).longValue());
+    long segmentHits = 0;
+    for (int i = 0; i < stats.size(); i++) {
+      if (stats.getName(i).startsWith("segment_")) {
+        NamedList segment = (NamedList) stats.getVal(i);
+        assertEquals(1L, ((Number) segment.get("size")).longValue());
+        segmentHits += ((Number) segment.get("hits")).longValue();
+      }
+    }
+    assertEquals(1L, segmentHits);
+
+    // deletions change the live docs but not the segment core
+    assertU(delI("1"));
+    assertU(commit());
+    hits = stat("hits");
+    assertQ(req("q", "*:*", "fq", "foo_s:a"), "//*[@numFound='1']");
+    assertEquals(hits + 2, stat("hits"));
+  }
+
+  @Test
+  public void testJoinNotCachedBySegment() throws Exception {
+    assertU(adoc("id", "p1"));
+    assertU(adoc("id", "p2"));
+    assertU(adoc("id", "c1", "parent_s", "p1"));
+    assertU(commit());
+
+    String join = "{!join from=parent_s to=id}parent_s:*";
+    long inserts = stat("inserts");
+    assertQ(req("q", "*:*", "fq", join), "//*[@numFound='1']");
+    // which parents match depends on the children in other segments
+    assertEquals(inserts, stat("inserts"));
+
+    // a child in a new segment makes p2 in the old segment match
+    assertU(adoc("id", "c2", "parent_s", "p2"));
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", join), "//*[@numFound='2']");
+
+    assertU(delQ("id:p1 OR id:p2 OR id:c1 OR id:c2"));
+    assertU(commit());
+  }
+
+}
@@ -0,0 +1,82 @@
+package org.apache.solr.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that queries sorted by a prefix of the configured segment sort stop
+ * collecting sorted segments early.
+ */
+public class TestSegmentSort extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-segmentsort.xml", "schema.xml");
+  }
+
+  @Test
+  public void testEarlyTermination() throws Exception {
+    assertEquals("n_l_dv desc", h.getCore().getSolrConfig().indexConfig.segmentSort);
+
+    // ids and values in opposite order, over several segments
+    for (int i = 0; i < 100; i++) {
+      assertU(adoc("id", Integer.toString(i), "n_l_dv", Integer.toString(1000 - i), "grp_s1", Integer.toString(i % 10)));
+      if (i % 10 == 9) assertU(commit());
+    }
+    // flushed segments are sorted too
+    assertQ(req("q", "*:*", "sort", "n_l_dv desc", "rows", "3"),
+        "//lst[@name='responseHeader']/bool[@name='numFoundExact'][.='false']",
+        "//result/doc[1]/int[@name='id'][.='0']",
+        "//result/doc[3]/int[@name='id'][.='2']");
+
+    assertU(optimize());
+
+    assertQ(req("q", "*:*", "sort", "n_l_dv desc", "rows", "3"),
+        "//lst[@name='responseHeader']/bool[@name='numFoundExact'][.='false']",
+        "//result/doc[1]/int[@name='id'][.='0']",
+        "//result/doc[2]/int[@name='id'][.='1']",
+        "//result/doc[3]/int[@name='id'][.='2']");
+    assertQ(req("q", "id:[50 TO *]", "sort", "n_l_dv desc", "rows", "2", "start", "2"),
+        "//lst[@name='responseHeader']/bool[@name='numFoundExact'][.='false']",
+        "//result/doc[1]/int[@name='id'][.='52']",
+        "//result/doc[2]/int[@name='id'][.='53']");
+
+    // the opposite order is not a prefix of the segment sort
+    assertQ(req("q", "*:*", "sort", "n_l_dv asc", "rows", "3"),
+        "//*[@numFound='100']",
+        "count(//lst[@name='responseHeader']/bool[@name='numFoundExact'])=0",
+        "//result/doc[1]/int[@name='id'][.='99']");
+
+    // post filters may collect documents after the search, e.g. the group heads when collapsing
+    assertQ(req("q", "*:*", "sort", "n_l_dv desc", "rows", "3", "fq", "{!collapse field=grp_s1 max=n_l_dv}"),
+        "//*[@numFound='10']",
+        "count(//lst[@name='responseHeader']/bool[@name='numFoundExact'])=0",
+        "//result/doc[1]/int[@name='id'][.='0']",
+        "//result/doc[2]/int[@name='id'][.='1']",
+        "//result/doc[3]/int[@name='id'][.='2']");
+
+    // faceting needs all matches
+    assertQ(req("q", "*:*", "sort", "n_l_dv desc", "rows", "3", "facet", "true", "facet.query", "id:[0 TO 9]"),
+        "//*[@numFound='100']",
+        "//lst[@name='facet_queries']/int[.='10']",
+        "//result/doc[1]/int[@name='id'][.='0']");
+  }
+}
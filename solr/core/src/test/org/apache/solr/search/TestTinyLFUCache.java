@@ -0,0 +1,166 @@
+package org.apache.solr.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.solr.common.util.NamedList;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test for TinyLFUCache
+ *
+ * @see org.apache.solr.search.TinyLFUCache
+ */
+public class TestTinyLFUCache extends LuceneTestCase {
+
+  public void testPercentageAutowarm() throws IOException {
+    TinyLFUCache<Object, Object> cache = new TinyLFUCache<>();
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    params.put("initialSize", "10");
+    params.put("autowarmCount", "100%");
+    CacheRegenerator cr = new NoOpRegenerator();
+    Object o = cache.init(params, null, cr);
+    cache.setState(SolrCache.State.LIVE);
+    for (int i = 0; i < 101; i++) {
+      cache.put(i + 1, "" + (i + 1));
+    }
+    assertEquals("25", cache.get(25));
+    assertEquals(null, cache.get(110));
+    NamedList<Serializable> nl = cache.getStatistics();
+    assertEquals(2L, nl.get("lookups"));
+    assertEquals(1L, nl.get("hits"));
+    assertEquals(101L, nl.get("inserts"));
+    assertEquals(1L, nl.get("evictions"));
+    assertEquals(100L, nl.get("size"));
+    // 100 was not requested more often than the oldest entry, so it was not admitted
+    assertEquals(null, cache.get(100));
+    assertEquals("1", cache.get(1));
+
+    TinyLFUCache<Object, Object> cacheNew = new TinyLFUCache<>();
+    cacheNew.init(params, o, cr);
+    cacheNew.warm(null, cache);
+    cacheNew.setState(SolrCache.State.LIVE);
+    cache.close();
+    cacheNew.put(103, "103");
+    assertEquals("90", cacheNew.get(90));
+    assertEquals("50", cacheNew.get(50));
+    nl = cacheNew.getStatistics();
+    assertEquals(2L, nl.get("lookups"));
+    assertEquals(2L, nl.get("hits"));
+    assertEquals(1L, nl.get("inserts"));
+    assertEquals(6L, nl.get("cumulative_lookups"));
+    assertEquals(4L, nl.get("cumulative_hits"));
+    assertEquals(102L, nl.get("cumulative_inserts"));
+    cacheNew.close();
+  }
+
+  public void testAutowarmKeepsMostValuable() throws IOException {
+    TinyLFUCache<Object, Object> cache = new TinyLFUCache<>();
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    params.put("autowarmCount", "10");
+    CacheRegenerator cr = new NoOpRegenerator();
+    Object o = cache.init(params, null, cr);
+    cache.setState(SolrCache.State.LIVE);
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, "" + i);
+    }
+    for (int i = 40; i < 50; i++) {
+      assertEquals("" + i, cache.get(i));
+    }
+    TinyLFUCache<Object, Object> cacheNew = new TinyLFUCache<>();
+    cacheNew.init(params, o, cr);
+    cacheNew.warm(null, cache);
+    cache.close();
+    assertEquals(10, cacheNew.size());
+    for (int i = 40; i < 50; i++) {
+      assertEquals("" + i, cacheNew.get(i));
+    }
+    cacheNew.close();
+  }
+
+  public void testScanResistance() throws IOException {
+    TinyLFUCache<Object, Object> cache = new TinyLFUCache<>();
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    cache.init(params, null, null);
+    cache.setState(SolrCache.State.LIVE);
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, "" + i);
+    }
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 50; i++) {
+        cache.get(i);
+      }
+    }
+    // a scan of one-off entries must not flush the frequently used ones
+    for (int i = 1000; i < 2000; i++) {
+      cache.put(i, "" + i);
+    }
+    assertEquals(100, cache.size());
+    for (int i = 0; i < 50; i++) {
+      assertEquals("" + i, cache.get(i));
+    }
+    NamedList<Serializable> nl = cache.getStatistics();
+    assertEquals(1000L, nl.get("evictions"));
+    cache.clear();
+    assertEquals(0, cache.size());
+    cache.close();
+  }
+
+  public void testConcurrentAccess() throws Exception {
+    final TinyLFUCache<Object, Object> cache = new TinyLFUCache<>();
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    cache.init(params, null, null);
+    cache.setState(SolrCache.State.LIVE);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final long seed = random().nextLong();
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          Random r = new Random(seed);
+          for (int i = 0; i < 20000; i++) {
+            int key = r.nextInt(500);
+            if (r.nextBoolean()) {
+              Object val = cache.get(key);
+              if (val != null) assertEquals("" + key, val);
+            } else {
+              cache.put(key, "" + key);
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue("size=" + cache.size(), cache.size() <= 100);
+    NamedList<Serializable> nl = cache.getStatistics();
+    assertEquals((long) cache.size(), nl.get("size"));
+    cache.close();
+  }
+}
@@ -34,6 +34,7 @@ import org.apache.lucene.util.packed.GrowableWriter;
 import org.apache.lucene.util.packed.PackedInts;
 import org.apache.solr.JSONTestUtil;
 import org.apache.solr.SolrTestCaseHS;
+import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.request.macro.MacroExpander;
@@ -345,6 +346,19 @@ public class TestJsonFacets extends SolrTestCaseHS {
     // multi-valued docvalues
     FacetFieldProcessorDV.unwrap_singleValued_multiDv = true;
     doStatsTemplated(client, params(p,                "rows","0", "noexist","noexist_sds",  "cat_s","cat_sds", "where_s","where_sds", "num_d","num_d", "num_i","num_i", "super_s","super_sds", "val_b","val_b", "date","date_dtds", "sparse_s","sparse_sds"    ,"multi_ss","multi_sds") );
+
+    // count string fields in hash tables instead of arrays over all their terms
+    long origMinCardinality = FacetFieldProcessorDVHash.MIN_CARDINALITY;
+    int origCardinalityRatio = FacetFieldProcessorDVHash.CARDINALITY_RATIO;
+    FacetFieldProcessorDVHash.MIN_CARDINALITY = 0;
+    FacetFieldProcessorDVHash.CARDINALITY_RATIO = 0;
+    try {
+      doStatsTemplated(client, params(p,                "rows","0", "noexist","noexist_s",  "cat_s","cat_s", "where_s","where_s", "num_d","num_d", "num_i","num_i", "super_s","super_s", "val_b","val_b", "date","date_dt", "sparse_s","sparse_s"    ,"multi_ss","multi_ss") );
+      doStatsTemplated(client, params(p,                "rows","0", "noexist","noexist_sds",  "cat_s","cat_sds", "where_s","where_sds", "num_d","num_d", "num_i","num_i", "super_s","super_sds", "val_b","val_b", "date","date_dtds", "sparse_s","sparse_sds"    ,"multi_ss","multi_sds") );
+    } finally {
+      FacetFieldProcessorDVHash.MIN_CARDINALITY = origMinCardinality;
+      FacetFieldProcessorDVHash.CARDINALITY_RATIO = origCardinalityRatio;
+    }
   }
 
   public static void doStatsTemplated(Client client, ModifiableSolrParams p) throws Exception {
@@ -602,6 +616,18 @@ public class TestJsonFacets extends SolrTestCaseHS {
             "'f1':{ 'buckets':[{val:one, count:1}, {val:two, count:1}], missing:{count:4} } } "
     );
 
+    // test counting segments in parallel, with and without missing and prefix, and the top-level uninverted field
+    client.testJQ(params(p, "q", "*:*"
+            , "json.facet", "{f1:{terms:{field:${cat_s}, threads:2}}, f2:{terms:{field:${sparse_s}, missing:true, threads:4}}, f3:{terms:{field:${super_s}, prefix:s, threads:2}}, f4:{terms:{field:${multi_ss}, threads:2}}, f5:{terms:{field:${multi_ss}, method:uif}} }"
+        )
+        , "facets=={ 'count':6, " +
+            "'f1':{ 'buckets':[{val:B, count:3}, {val:A, count:2}]}, " +
+            "'f2':{ 'buckets':[{val:one, count:1}, {val:two, count:1}], missing:{count:4} }, " +
+            "'f3':{ 'buckets':[{val:spiderman, count:1}, {val:superman, count:1}]}, " +
+            "'f4':{ 'buckets':[{val:a, count:3}, {val:b, count:3}]}, " +
+            "'f5':{ 'buckets':[{val:a, count:3}, {val:b, count:3}]} } "
+    );
+
     // test missing with stats
     client.testJQ(params(p, "q", "*:*"
             , "json.facet", "{f1:{terms:{field:${sparse_s}, missing:true, facet:{x:'sum(${num_d})'}   }}}"
@@ -758,6 +784,17 @@ public class TestJsonFacets extends SolrTestCaseHS {
             " }"
     );
 
+    // test hll, which is exact for this few values, both on shards and after merging
+    client.testJQ(params(p, "q", "*:*"
+            , "json.facet", "{ numwhere:'hll(${where_s})', hll_num_i:'hll(${num_i})', hll_num_d:'hll(${num_d},0.5)', hll_date:'hll(${date})', x:'hll(${multi_ss})', y:{query:{q:'id:2', facet:{x:'hll(${multi_ss})'} }}, z:{query:{q:'id:DOESNOTEXIST', facet:{x:'hll(${where_s})'} }} }"
+        )
+        , "facets=={ 'count':6, " +
+            "numwhere:2, hll_num_i:4, hll_num_d:5, hll_date:5, x:2," +
+            "y:{count:1, x:2}," +
+            "z:{count:0}" +
+            " }"
+    );
+
     // test allBucket multi-valued
     client.testJQ(params(p, "q", "*:*"
             , "json.facet", "{x:{terms:{field:'${multi_ss}',allBuckets:true}}}"
@@ -944,6 +981,42 @@ public class TestJsonFacets extends SolrTestCaseHS {
     doStats( client, params() );
   }
 
+  @Test
+  public void testRefine() throws Exception {
+    initServers();
+    Client client = servers.getClient(random().nextInt());
+    client.queryDefaults().set( "shards", servers.getShards() );
+    List<SolrClient> shards = servers.getSolrJs();
+
+    client.deleteByQuery("*:*", null);
+
+    // With limit:1, every shard returns its top 5 buckets, so each shard leaves out X or Z,
+    // which only just miss its top.
+    String[][] shardCounts = {
+        {"Z","12", "a1","11", "a2","11", "a3","11", "a4","11", "X","10"},
+        {"X","12", "b1","11", "b2","11", "b3","11", "b4","11", "Z","10"},
+        {"X","12", "c1","11", "c2","11", "c3","11", "c4","11", "Z","10"}
+    };
+    int id = 0;
+    for (int i = 0; i < shardCounts.length; i++) {
+      for (int j = 0; j < shardCounts[i].length; j += 2) {
+        for (int k = Integer.parseInt(shardCounts[i][j+1]); k > 0; k--) {
+          shards.get(i).add(sdoc("id", Integer.toString(id++), "cat_s", shardCounts[i][j], "num_i", "2"));
+        }
+      }
+    }
+    client.commit();
+
+    client.testJQ(params("q", "*:*", "rows", "0"
+            , "json.facet", "{f1:{terms:{field:cat_s, limit:1}}, f2:{terms:{field:cat_s, limit:1, refine:true}}, f3:{terms:{field:cat_s, limit:1, refine:true, facet:{x:'sum(num_i)', u:'unique(cat_s)'}}} }"
+        )
+        , "facets=={ 'count':198, " +
+            "'f1':{ 'buckets':[{val:X, count:24}]}, " +  // the 10 X docs of the first shard are missing
+            "'f2':{ 'buckets':[{val:X, count:34, err:0}]}, " +
+            "'f3':{ 'buckets':[{val:X, count:34, err:0, x:68.0, u:1}]} }"  // stats of the refined bucket too
+    );
+  }
+
 
   @Test
   public void testBigger() throws Exception {
@@ -357,6 +357,43 @@ public class LBHttpSolrClient extends SolrClient {
 
   }
 
+  /**
+   * Returns true if the server is currently in the dead pool, which {@link #request(Req)} only
+   * tries once no live server remains.
+   */
+  public boolean isZombie(String server) {
+    return zombieServers.containsKey(normalize(server));
+  }
+
+  /**
+   * Expert: records the failure of a query that was sent to the server without going through this
+   * client. If {@link #request(Req)} would have moved on to the next server after such a failure,
+   * e.g. because the server could not be reached, the server is moved to the dead pool.
+   *
+   * @return true if the failure means that the server is unavailable
+   */
+  public boolean reportFailure(String server, Exception e) {
+    if (isServerFailure(e) == false) {
+      return false;
+    }
+    server = normalize(server);
+    if (zombieServers.containsKey(server) == false) {
+      addZombie(makeSolrClient(server), e);
+    }
+    return true;
+  }
+
+  /** Same rules as {@link #doRequest} for requests that are not updates */
+  private static boolean isServerFailure(Exception e) {
+    if (e instanceof SolrException) {
+      return RETRY_CODES.contains(((SolrException) e).code());
+    } else if (e instanceof SolrServerException) {
+      return ((SolrServerException) e).getRootCause() instanceof IOException;
+    } else {
+      return e instanceof SocketException || e instanceof SocketTimeoutException;
+    }
+  }
+
   protected Exception addZombie(HttpSolrClient server, Exception e) {
 
     ServerWrapper wrapper;
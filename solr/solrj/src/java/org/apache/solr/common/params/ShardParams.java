@@ -53,4 +53,8 @@ public interface ShardParams {
 
   /** Force a single-pass distributed query? (true/false) */
   public static final String DISTRIB_SINGLE_PASS = "distrib.singlePass";
+
+  /** Merge the top ids of each shard as soon as its response arrives, skipping
+   * documents that can no longer make it into the top rows (true/false) */
+  public static final String SHARDS_INCREMENTAL_MERGE = "shards.incrementalMerge";
 }
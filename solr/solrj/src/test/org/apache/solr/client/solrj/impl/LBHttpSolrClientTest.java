@@ -5,13 +5,18 @@ package org.apache.solr.client.solrj.impl;
 
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.solr.client.solrj.ResponseParser;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.net.ConnectException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /*
  * Licensed to the Apache Software Foundation (ASF) under one or more
@@ -56,5 +61,26 @@ public class LBHttpSolrClientTest {
       assertEquals("Invalid parser passed to generated server.", parser, httpSolrClient.getParser());
     }
   }
+
+  /**
+   * Validate that servers that failed outside of the load balancer are moved to the dead pool
+   * only if the load balancer would have skipped them too.
+   */
+  @Test
+  public void testReportFailure() throws IOException {
+    try (CloseableHttpClient httpClient = HttpClientUtil.createClient(new ModifiableSolrParams());
+         LBHttpSolrClient testClient = new LBHttpSolrClient(httpClient)) {
+      String url = "http://127.0.0.1:8080/solr/collection1/";
+      assertFalse(testClient.isZombie(url));
+
+      // the server answered, the request was bad
+      assertFalse(testClient.reportFailure(url, new SolrException(SolrException.ErrorCode.BAD_REQUEST, "bad")));
+      assertFalse(testClient.isZombie(url));
+
+      assertTrue(testClient.reportFailure(url, new SolrServerException(new ConnectException("refused"))));
+      assertTrue(testClient.isZombie(url));
+      assertTrue(testClient.isZombie("http://127.0.0.1:8080/solr/collection1"));
+    }
+  }
   
 }